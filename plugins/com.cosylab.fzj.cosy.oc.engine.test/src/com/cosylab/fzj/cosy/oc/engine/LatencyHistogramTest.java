@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * <code>LatencyHistogramTest</code> tests the bucketing of the durations and the reported percentiles.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class LatencyHistogramTest {
+
+    private static final double EPS = 1e-9;
+
+    private static long millis(double millis) {
+        return (long)(millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Each duration is counted in the bucket whose upper bound is the first one larger than the duration.
+     */
+    @Test
+    public void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(millis(0.5));
+        histogram.record(millis(1));
+        histogram.record(millis(4.9));
+        histogram.record(millis(5000));
+        histogram.record(-10);
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(LatencyHistogram.getBucketBounds().length + 1,counts.length);
+        assertArrayEquals(new long[] { 2, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 },counts);
+        assertEquals(5,histogram.getCount());
+        assertEquals(5000,histogram.getMaxMillis(),EPS);
+        assertEquals((0.5 + 1 + 4.9 + 5000) / 5,histogram.getMeanMillis(),1e-6);
+    }
+
+    /**
+     * Percentiles are reported as the upper bound of the bucket containing them, or as the maximum if they fall into
+     * the last bucket.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertTrue(Double.isNaN(histogram.getPercentileMillis(50)));
+        assertTrue(Double.isNaN(histogram.getMeanMillis()));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(millis(15));
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(millis(150));
+        }
+        histogram.record(millis(7000));
+        assertEquals(20,histogram.getPercentileMillis(0),EPS);
+        assertEquals(20,histogram.getPercentileMillis(50),EPS);
+        assertEquals(20,histogram.getPercentileMillis(90),EPS);
+        assertEquals(200,histogram.getPercentileMillis(90.5),EPS);
+        assertEquals(200,histogram.getPercentileMillis(99),EPS);
+        assertEquals(7000,histogram.getPercentileMillis(100),EPS);
+        assertEquals(7000,histogram.getPercentileMillis(150),EPS);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static org.diirt.vtype.ValueFactory.alarmNone;
+import static org.diirt.vtype.ValueFactory.displayNone;
+import static org.diirt.vtype.ValueFactory.newTime;
+import static org.diirt.vtype.ValueFactory.newVDouble;
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/**
+ * <code>MonitorStatisticsTest</code> tests the counting of the coalesced and overwritten values and the detection of
+ * the gaps and the out of order values from the timestamps of the received values.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class MonitorStatisticsTest {
+
+    private static final double EPS = 1e-6;
+    private static final long START = 1_500_000_000_000L;
+
+    private static VType value(long millis) {
+        return newVDouble(0.,alarmNone(),newTime(Instant.ofEpochMilli(START + millis)),displayNone());
+    }
+
+    private static List<VType> values(long... millis) {
+        final List<VType> values = new ArrayList<>(millis.length);
+        for (long m : millis) {
+            values.add(value(m));
+        }
+        return values;
+    }
+
+    private static void notifyEach(MonitorStatistics statistics, long... millis) {
+        for (long m : millis) {
+            statistics.notified(Collections.singletonList(value(m)));
+        }
+    }
+
+    /**
+     * All values of a notification are received, all but the last one of them were coalesced.
+     */
+    @Test
+    public void testCoalesced() {
+        MonitorStatistics statistics = new MonitorStatistics();
+        statistics.notified(values(0,100,200));
+        statistics.notified(values(300));
+        assertEquals(2,statistics.getNotificationCount());
+        assertEquals(4,statistics.getReceivedCount());
+        assertEquals(2,statistics.getCoalescedCount());
+        assertEquals(0,statistics.getGapCount());
+        assertEquals(100,statistics.getAverageIntervalMillis(),EPS);
+        statistics.overwritten();
+        statistics.overwritten();
+        assertEquals(2,statistics.getOverwrittenCount());
+    }
+
+    /**
+     * An interval several times longer than the average is a gap, which is not included in the average interval, but
+     * is the longest interval.
+     */
+    @Test
+    public void testGap() {
+        MonitorStatistics statistics = new MonitorStatistics();
+        notifyEach(statistics,0,100,200,300,400,500,600,1500,1600,1700);
+        assertEquals(1,statistics.getGapCount());
+        assertEquals(100,statistics.getAverageIntervalMillis(),EPS);
+        assertEquals(900,statistics.getMaxIntervalMillis(),EPS);
+        assertEquals(0,statistics.getOutOfOrderCount());
+    }
+
+    /**
+     * Long intervals are not gaps, until enough intervals have been seen to trust the average interval.
+     */
+    @Test
+    public void testNoGapBeforeEnoughIntervals() {
+        MonitorStatistics statistics = new MonitorStatistics();
+        notifyEach(statistics,0,100,1000);
+        assertEquals(0,statistics.getGapCount());
+        assertEquals(900,statistics.getMaxIntervalMillis(),EPS);
+        //the average follows the intervals exponentially: 100 + (900 - 100) / 8
+        assertEquals(200,statistics.getAverageIntervalMillis(),EPS);
+    }
+
+    /**
+     * A value with the same or an older timestamp than the previous value is out of order and the following interval
+     * is measured from it.
+     */
+    @Test
+    public void testOutOfOrder() {
+        MonitorStatistics statistics = new MonitorStatistics();
+        notifyEach(statistics,0,100,200,200,150,250);
+        assertEquals(2,statistics.getOutOfOrderCount());
+        assertEquals(0,statistics.getGapCount());
+        assertEquals(100,statistics.getAverageIntervalMillis(),EPS);
+        assertEquals(100,statistics.getMaxIntervalMillis(),EPS);
+    }
+
+    /**
+     * Values without a valid timestamp are counted, but do not affect the intervals.
+     */
+    @Test
+    public void testInvalidTime() {
+        MonitorStatistics statistics = new MonitorStatistics();
+        statistics.notified(values(0,100));
+        statistics.notified(Collections.singletonList(
+                newVDouble(0.,alarmNone(),newTime(Instant.EPOCH,null,false),displayNone())));
+        statistics.notified(values(200));
+        assertEquals(4,statistics.getReceivedCount());
+        assertEquals(1,statistics.getCoalescedCount());
+        assertEquals(0,statistics.getOutOfOrderCount());
+        assertEquals(100,statistics.getAverageIntervalMillis(),EPS);
+    }
+}
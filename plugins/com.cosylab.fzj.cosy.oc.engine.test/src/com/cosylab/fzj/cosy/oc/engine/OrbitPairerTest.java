@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <code>OrbitPairerTest</code> tests the pairing of the horizontal and vertical values at the edges of the tolerance,
+ * and the publishing of the values that cannot be paired.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class OrbitPairerTest {
+
+    private static final long TOLERANCE = 1000;
+    private final List<OrbitPair> pairs = new ArrayList<>();
+    private OrbitPairer pairer;
+
+    private static VNumberArray value(long nanos) {
+        return ValueFactory.newVDoubleArray(new ArrayDouble(nanos),ValueFactory.alarmNone(),
+                ValueFactory.newTime(Instant.ofEpochSecond(0,nanos)),ValueFactory.displayNone());
+    }
+
+    /**
+     * Creates the pairer, which collects the published pairs.
+     */
+    @Before
+    public void setUp() {
+        pairs.clear();
+        pairer = new OrbitPairer(TOLERANCE,pairs::add);
+    }
+
+    /**
+     * Values that differ by exactly the tolerance are paired, regardless of which plane arrives first.
+     */
+    @Test
+    public void testPairWithinTolerance() {
+        VNumberArray h = value(5000);
+        VNumberArray v = value(5000 + TOLERANCE);
+        pairer.offer(true,h);
+        assertTrue(pairs.isEmpty());
+        pairer.offer(false,v);
+        assertEquals(1,pairs.size());
+        assertSame(h,pairs.get(0).getHorizontal());
+        assertSame(v,pairs.get(0).getVertical());
+        assertEquals(TOLERANCE,pairs.get(0).getSkew());
+        assertEquals(5000 + TOLERANCE,pairs.get(0).getTimestamp());
+        pairer.offer(false,value(9000));
+        pairer.offer(true,value(9000 + TOLERANCE));
+        assertEquals(2,pairs.size());
+        assertTrue(pairs.get(1).isComplete());
+        assertEquals(2,pairer.getPairedCount());
+        assertEquals(0,pairer.getUnpairedCount());
+    }
+
+    /**
+     * A waiting value, which is older than the new value of the other plane by more than the tolerance, is published
+     * alone; the new value waits for its partner.
+     */
+    @Test
+    public void testWaitingValueTooOld() {
+        VNumberArray h = value(5000);
+        pairer.offer(true,h);
+        pairer.offer(false,value(5000 + TOLERANCE + 1));
+        assertEquals(1,pairs.size());
+        assertFalse(pairs.get(0).isComplete());
+        assertSame(h,pairs.get(0).getHorizontal());
+        assertNull(pairs.get(0).getVertical());
+        assertEquals(-1,pairs.get(0).getSkew());
+        pairer.offer(true,value(5000 + 2 * TOLERANCE));
+        assertEquals(2,pairs.size());
+        assertTrue(pairs.get(1).isComplete());
+        assertEquals(1,pairer.getUnpairedCount());
+    }
+
+    /**
+     * A new value, which is older than the waiting value of the other plane by more than the tolerance, is published
+     * alone and the waiting value keeps waiting.
+     */
+    @Test
+    public void testNewValueTooOld() {
+        VNumberArray v = value(5000);
+        pairer.offer(false,v);
+        VNumberArray h = value(5000 - TOLERANCE - 1);
+        pairer.offer(true,h);
+        assertEquals(1,pairs.size());
+        assertSame(h,pairs.get(0).getHorizontal());
+        assertNull(pairs.get(0).getVertical());
+        pairer.offer(true,value(5000 - TOLERANCE));
+        assertEquals(2,pairs.size());
+        assertSame(v,pairs.get(1).getVertical());
+    }
+
+    /**
+     * When one plane stops publishing, the oldest waiting values of the other plane are published alone.
+     */
+    @Test
+    public void testQueueOverflow() {
+        for (int i = 0; i < 6; i++) {
+            pairer.offer(true,value(i * 10 * TOLERANCE));
+        }
+        assertEquals(2,pairs.size());
+        assertEquals(0,pairs.get(0).getTimestamp());
+        assertEquals(10 * TOLERANCE,pairs.get(1).getTimestamp());
+        assertEquals(2,pairer.getUnpairedCount());
+    }
+
+    /**
+     * A changed tolerance applies to the next offered value.
+     */
+    @Test
+    public void testSetTolerance() {
+        pairer.setTolerance(10);
+        pairer.offer(true,value(5000));
+        pairer.offer(false,value(5011));
+        assertEquals(1,pairs.size());
+        assertFalse(pairs.get(0).isComplete());
+        pairer.setTolerance(TOLERANCE);
+        pairer.offer(true,value(5500));
+        assertTrue(pairs.get(1).isComplete());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <code>WriteCoalescerTest</code> tests that bursts of writes are coalesced to the last value, that writes of the same
+ * key never overlap and that the failures are counted and recorded.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class WriteCoalescerTest {
+
+    private static final long TIMEOUT = 5;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates the executor on which the writes are sent.
+     */
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    /**
+     * Stops the executor.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static CompletableFuture<?> completed(List<String> log, String value) {
+        log.add(value);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Only the last write of a burst is sent.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testBurstIsCoalesced() throws InterruptedException {
+        final List<String> log = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        WriteCoalescer<String> coalescer = new WriteCoalescer<>(executor,100,
+                (key, queue, roundTrip, failed) -> done.countDown());
+        for (int i = 0; i < 5; i++) {
+            final String value = String.valueOf(i);
+            coalescer.submit("a",() -> completed(log,value));
+        }
+        assertTrue(done.await(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals(1,log.size());
+        assertEquals("4",log.get(0));
+        assertEquals(4,coalescer.getCoalescedCount());
+        assertEquals(1,coalescer.getSentCount());
+        assertEquals(0,coalescer.getInFlightCount());
+    }
+
+    /**
+     * Keys without a quiet period send every write.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testNoQuietPeriod() throws InterruptedException {
+        final List<String> log = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        WriteCoalescer<String> coalescer = new WriteCoalescer<>(executor,100,
+                (key, queue, roundTrip, failed) -> done.countDown());
+        coalescer.setQuietPeriod("a",0);
+        assertEquals(0,coalescer.getQuietPeriod("a"));
+        assertEquals(100,coalescer.getQuietPeriod("b"));
+        for (int i = 0; i < 3; i++) {
+            final String value = String.valueOf(i);
+            coalescer.submit("a",() -> completed(log,value));
+        }
+        assertTrue(done.await(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals("[0, 1, 2]",log.toString());
+        assertEquals(0,coalescer.getCoalescedCount());
+    }
+
+    /**
+     * A write that becomes due while the previous write of the same key is in flight waits for it to complete.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testWritesDoNotOverlap() throws InterruptedException {
+        final List<String> log = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final CountDownLatch firstSent = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        WriteCoalescer<String> coalescer = new WriteCoalescer<>(executor,10,
+                (key, queue, roundTrip, failed) -> done.countDown());
+        coalescer.submit("a",() -> {
+            log.add("first");
+            firstSent.countDown();
+            return first;
+        });
+        assertTrue(firstSent.await(TIMEOUT,TimeUnit.SECONDS));
+        coalescer.submit("a",() -> completed(log,"second"));
+        //the quiet period of the second write passes while the first one is still in flight
+        Thread.sleep(100);
+        assertEquals("[first]",log.toString());
+        assertEquals(1,coalescer.getInFlightCount());
+        first.complete(null);
+        assertTrue(done.await(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals("[first, second]",log.toString());
+    }
+
+    /**
+     * Failed writes and writes that could not be started are counted and recorded as failed.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testFailures() throws InterruptedException {
+        final List<Boolean> failures = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(2);
+        WriteCoalescer<String> coalescer = new WriteCoalescer<>(executor,0,(key, queue, roundTrip, failed) -> {
+            failures.add(failed);
+            done.countDown();
+        });
+        coalescer.submit("a",() -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("write failed"));
+            return future;
+        });
+        coalescer.submit("b",() -> {
+            throw new IllegalStateException("not connected");
+        });
+        assertTrue(done.await(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals("[true, true]",failures.toString());
+        assertEquals(2,coalescer.getFailedCount());
+        assertEquals(2,coalescer.getSentCount());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.diirt.util.array.ArrayDouble;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cosylab.fzj.cosy.oc.engine.WriteLatencyStatistics.Role;
+import com.cosylab.fzj.cosy.oc.sim.SimulatedDataSource;
+import com.cosylab.fzj.cosy.oc.sim.SimulatedDevice;
+
+/**
+ * <code>WriteGroupTest</code> tests that a write group completes once with a single result, which reports the
+ * successful and the failed writes separately, and that a group submitted under its own key is measured separately
+ * from the writes of its channels.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class WriteGroupTest {
+
+    private static final long TIMEOUT = 5;
+    private static final int BPMS = 10;
+    private static final Map<Channel,String> PV_NAMES = new EnumMap<>(Channel.class);
+
+    static {
+        for (Channel channel : EnumSet.of(Channel.GOLDEN_HORIZONTAL_ORBIT,Channel.HORIZONTAL_ORBIT,
+                Channel.CORRECTION_FREQUENCY)) {
+            PV_NAMES.put(channel,"SIM:" + channel.getKey());
+        }
+    }
+
+    private SimulatedDataSource source;
+    private OrbitEngine engine;
+
+    /**
+     * Creates the engine and connects a few channels of the simulated device.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        source = new SimulatedDataSource(new SimulatedDevice(PV_NAMES,BPMS,2,10));
+        engine = new OrbitEngine(10);
+        engine.setDataSource(source);
+        engine.connect(PV_NAMES);
+        final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+        while (!engine.isAllConnected()) {
+            if (System.currentTimeMillis() > end) {
+                throw new AssertionError("The simulated PVs did not connect.");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Stops the engine and the data source.
+     */
+    @After
+    public void tearDown() {
+        engine.dispose();
+        source.close();
+    }
+
+    private ChannelState channel(Channel channel) {
+        return engine.getChannel(channel).get();
+    }
+
+    /**
+     * An empty group completes immediately and is successful.
+     *
+     * @throws Exception if the group failed
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        WriteGroup group = new WriteGroup();
+        assertTrue(group.isEmpty());
+        WriteGroup.Result result = group.execute().get(TIMEOUT,TimeUnit.SECONDS);
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getSucceeded().isEmpty());
+    }
+
+    /**
+     * When all writes succeed the result lists all channels and the values are written.
+     *
+     * @throws Exception if the group failed
+     */
+    @Test
+    public void testSuccess() throws Exception {
+        WriteGroup group = new WriteGroup()
+                .add(channel(Channel.GOLDEN_HORIZONTAL_ORBIT),new ArrayDouble(new double[BPMS]))
+                .add(channel(Channel.CORRECTION_FREQUENCY),0.5).add(channel(Channel.CORRECTION_FREQUENCY),2.);
+        WriteGroup.Result result = group.execute().get(TIMEOUT,TimeUnit.SECONDS);
+        assertTrue(result.isSuccessful());
+        assertEquals(EnumSet.of(Channel.GOLDEN_HORIZONTAL_ORBIT,Channel.CORRECTION_FREQUENCY),
+                EnumSet.copyOf(result.getSucceeded()));
+        assertTrue(result.getFailures().isEmpty());
+    }
+
+    /**
+     * A failed write does not fail the group: the future completes normally and the result names the failed channels
+     * with their causes next to the channels that were written.
+     *
+     * @throws Exception if the group failed
+     */
+    @Test
+    public void testPartialFailure() throws Exception {
+        ChannelState closed = new ChannelState(engine,Channel.VERTICAL_CUTOFF,"SIM:closed");
+        WriteGroup group = new WriteGroup().add(channel(Channel.CORRECTION_FREQUENCY),1.)
+                .add(channel(Channel.HORIZONTAL_ORBIT),new ArrayDouble(new double[BPMS])).add(closed,1.);
+        WriteGroup.Result result = group.execute().get(TIMEOUT,TimeUnit.SECONDS);
+        assertFalse(result.isSuccessful());
+        assertEquals(Arrays.asList(Channel.CORRECTION_FREQUENCY),result.getSucceeded());
+        assertEquals(EnumSet.of(Channel.HORIZONTAL_ORBIT,Channel.VERTICAL_CUTOFF),
+                EnumSet.copyOf(result.getFailures().keySet()));
+        assertTrue(result.getFailures().get(Channel.VERTICAL_CUTOFF) instanceof IOException);
+    }
+
+    /**
+     * A group submitted under its own key is recorded as one write group and is not coalesced with a single write of
+     * one of its channels.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testCoalescedSeparately() throws InterruptedException {
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            final WriteLatencyStatistics latency = new WriteLatencyStatistics();
+            final CountDownLatch done = new CountDownLatch(2);
+            final WriteCoalescer<Object> coalescer = new WriteCoalescer<>(executor,50,
+                    (key, queue, roundTrip, failed) -> {
+                        latency.record(key,queue,roundTrip,failed);
+                        done.countDown();
+                    });
+            final WriteGroup.Key key = new WriteGroup.Key("test");
+            final WriteGroup group = new WriteGroup().add(channel(Channel.CORRECTION_FREQUENCY),1.);
+            coalescer.submit(key,group::execute);
+            coalescer.submit(Channel.CORRECTION_FREQUENCY,() -> channel(Channel.CORRECTION_FREQUENCY).write(3.));
+            assertTrue(done.await(TIMEOUT,TimeUnit.SECONDS));
+            assertEquals(0,coalescer.getCoalescedCount());
+            assertEquals(1,latency.getRoundTrip(Role.WRITE_GROUP).getCount());
+            assertEquals(1,latency.getRoundTrip(Role.SETTING).getCount());
+            assertSame(Role.WRITE_GROUP,Role.of(key));
+            assertSame(Role.ENABLE_MASK,Role.of((Object)Channel.HORIZONTAL_BPM_ENABLED));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
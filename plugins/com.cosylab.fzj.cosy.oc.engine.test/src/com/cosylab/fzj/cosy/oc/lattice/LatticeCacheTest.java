@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.lattice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * <code>LatticeCacheTest</code> tests storing and loading of the lattice cache and that unreadable caches are ignored.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class LatticeCacheTest {
+
+    /** The folder receiving the cache files */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The stored elements are loaded in the same order and with the same values.
+     *
+     * @throws IOException if the temporary folder could not be created
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = new File(folder.getRoot(),"lattice.cache");
+        List<LatticeElementData> elements = Arrays.asList(
+                new LatticeElementData("BPM 1",1.5,LatticeElementType.HORIZONTAL_BPM),
+                new LatticeElementData("\u0160kofja Loka",2.5,LatticeElementType.VERTICAL_CORRECTOR),
+                new LatticeElementData("S1",-3,LatticeElementType.SEXTUPOLE));
+        LatticeCache.save(file,elements);
+        assertEquals(elements,LatticeCache.load(file));
+        assertFalse(new File(folder.getRoot(),"lattice.cache.tmp").exists());
+        LatticeCache.save(file,elements.subList(0,1));
+        assertEquals(elements.subList(0,1),LatticeCache.load(file));
+    }
+
+    /**
+     * A missing, foreign or truncated cache file results in an empty lattice.
+     *
+     * @throws IOException if the test files could not be written
+     */
+    @Test
+    public void testUnreadableCache() throws IOException {
+        assertTrue(LatticeCache.load(new File(folder.getRoot(),"missing")).isEmpty());
+        File foreign = folder.newFile("foreign");
+        Files.write(foreign.toPath(),"not a lattice cache".getBytes());
+        assertTrue(LatticeCache.load(foreign).isEmpty());
+        File truncated = new File(folder.getRoot(),"truncated");
+        LatticeCache.save(truncated,
+                Arrays.asList(new LatticeElementData("Q1",1,LatticeElementType.QUADRUPOLE),
+                        new LatticeElementData("Q2",2,LatticeElementType.QUADRUPOLE)));
+        byte[] data = Files.readAllBytes(truncated.toPath());
+        Files.write(truncated.toPath(),Arrays.copyOf(data,data.length - 3));
+        assertTrue(LatticeCache.load(truncated).isEmpty());
+    }
+}
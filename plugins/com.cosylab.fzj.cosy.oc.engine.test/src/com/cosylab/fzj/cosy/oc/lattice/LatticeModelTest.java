@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.lattice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayInt;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate.Kind;
+
+/**
+ * <code>LatticeModelTest</code> tests how the lattice model matches the elements received from the IOC by name: the
+ * insertions, removals and moves that are reported, the enable states following the names, the matching of
+ * duplicate names and the in place update of the positions.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class LatticeModelTest {
+
+    private static final LatticeElementType TYPE = LatticeElementType.HORIZONTAL_BPM;
+
+    private LatticeModel model;
+
+    /**
+     * Creates the model with the BPMs A, B and C at positions 1, 2 and 3, where B is disabled.
+     */
+    @Before
+    public void setUp() {
+        model = new LatticeModel();
+        update(new String[] { "A", "B", "C" },1,2,3);
+        model.updateEnabled(TYPE,new ArrayInt(1,0,1));
+    }
+
+    private LatticeUpdate update(String[] names, double... positions) {
+        return model.update(TYPE,Arrays.asList(names),new ArrayDouble(positions),null);
+    }
+
+    private static void assertChanges(LatticeUpdate update, Object... changes) {
+        final List<LatticeUpdate.Change> list = update.getChanges();
+        assertEquals(list.toString(),changes.length / 3,list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(changes[3 * i],list.get(i).getKind());
+            assertEquals(changes[3 * i + 1],list.get(i).getOldIndex());
+            assertEquals(changes[3 * i + 2],list.get(i).getNewIndex());
+        }
+    }
+
+    /**
+     * An inserted element is enabled, the other elements keep their enable states and only the insertion is reported.
+     */
+    @Test
+    public void testInsert() {
+        LatticeUpdate update = update(new String[] { "A", "X", "B", "C" },1,1.5,2,3);
+        assertTrue(update.isMatchedByName());
+        assertFalse(update.isEnableChanged());
+        assertChanges(update,Kind.INSERTED,-1,1);
+        assertEquals(1,update.getOldIndex(2));
+        assertEquals(-1,update.getOldIndex(1));
+        assertArrayEquals(new boolean[] { true, true, false, true },model.get(TYPE).getEnabled());
+        assertEquals(1.5,model.get(TYPE).getPosition(1),0);
+    }
+
+    /**
+     * A removed element is reported with its old index, the following elements are not reported as moved.
+     */
+    @Test
+    public void testRemove() {
+        LatticeUpdate update = update(new String[] { "B", "C" },2,3);
+        assertChanges(update,Kind.REMOVED,0,-1);
+        assertArrayEquals(new String[] { "B", "C" },model.get(TYPE).getNames());
+        assertArrayEquals(new boolean[] { false, true },model.get(TYPE).getEnabled());
+    }
+
+    /**
+     * When the order of the elements changes without changing their number, the elements are matched by name rather
+     * than by index, so the enable states follow the names and the smallest set of moves is reported.
+     */
+    @Test
+    public void testMove() {
+        LatticeUpdate update = update(new String[] { "B", "C", "A" },2,3,1);
+        assertTrue(update.isMatchedByName());
+        assertChanges(update,Kind.MOVED,0,2);
+        assertEquals(1,update.getOldIndex(0));
+        assertArrayEquals(new boolean[] { false, true, true },model.get(TYPE).getEnabled());
+        assertFalse(update.isEnableChanged());
+    }
+
+    /**
+     * A renamed element of the same size list is reported as a removal and an insertion, and the new element is
+     * enabled, even if the old element at the same index was disabled.
+     */
+    @Test
+    public void testRename() {
+        LatticeUpdate update = update(new String[] { "A", "X", "C" },1,2,3);
+        assertTrue(update.isMatchedByName());
+        assertChanges(update,Kind.INSERTED,-1,1,Kind.REMOVED,1,-1);
+        assertArrayEquals(new boolean[] { true, true, true },model.get(TYPE).getEnabled());
+        //the names arrive before the positions; the elements keep their positions until the positions are received
+        update = model.update(TYPE,Arrays.asList("A","Y","C"),null,null);
+        assertChanges(update,Kind.INSERTED,-1,1,Kind.REMOVED,1,-1);
+        assertArrayEquals(new double[] { 1, 2, 3 },model.get(TYPE).getPositions(),0);
+    }
+
+    /**
+     * Duplicate names are matched in the order of appearance, so each element keeps its own enable state.
+     */
+    @Test
+    public void testDuplicateNames() {
+        update(new String[] { "A", "B", "A" },1,2,3);
+        model.updateEnabled(TYPE,new ArrayInt(1,1,0));
+        LatticeUpdate update = update(new String[] { "B", "A", "A" },2,1,3);
+        assertChanges(update,Kind.MOVED,1,0);
+        assertEquals(0,update.getOldIndex(1));
+        assertEquals(2,update.getOldIndex(2));
+        assertArrayEquals(new boolean[] { true, true, false },model.get(TYPE).getEnabled());
+    }
+
+    /**
+     * If only the positions change, they are applied by index without matching the names and an update with the same
+     * values does not change anything.
+     */
+    @Test
+    public void testPositionsOnly() {
+        LatticeUpdate update = update(new String[] { "A", "B", "C" },1,2.5,3);
+        assertFalse(update.isMatchedByName());
+        assertFalse(update.isRebuilt());
+        assertTrue(update.getChanges().isEmpty());
+        assertEquals(1,update.getOldIndex(1));
+        assertArrayEquals(new double[] { 1, 2.5, 3 },model.get(TYPE).getPositions(),0);
+        assertNull(update(new String[] { "A", "B", "C" },1,2.5,3));
+    }
+
+    /**
+     * Names and positions of different sizes are ignored until both are received, while the enable states are still
+     * applied.
+     */
+    @Test
+    public void testInconsistentValues() {
+        assertNull(update(new String[] { "A", "B" },1,2,3));
+        LatticeUpdate update = model.update(TYPE,Arrays.asList("A","B"),new ArrayDouble(1,2,3),new ArrayInt(1,1,1));
+        assertTrue(update.isEnableChanged());
+        assertFalse(update.isMatchedByName());
+        assertArrayEquals(new String[] { "A", "B", "C" },model.get(TYPE).getNames());
+    }
+}
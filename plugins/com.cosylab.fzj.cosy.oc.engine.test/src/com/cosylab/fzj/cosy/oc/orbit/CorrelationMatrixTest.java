@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * <code>CorrelationMatrixTest</code> tests the correlation coefficients of correlated BPMs, the exclusion of the
+ * disabled BPMs and BPMs without values, the limit on the number of BPMs and the packing of the matrix.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class CorrelationMatrixTest {
+
+    private static final double EPS = 1e-9;
+    private static final boolean[] ALL = { true, true };
+    private static final boolean[] ONE = { true };
+
+    private static void fill(CorrelationMatrix matrix, int samples, boolean[] horizontalEnabled,
+            boolean[] verticalValid) {
+        for (int i = 0; i < samples; i++) {
+            double x = Math.sin(0.3 * i);
+            assertTrue(matrix.add(new OrbitFrame(new double[] { x, 2 * x + 3 },ALL,horizontalEnabled,i),
+                    new OrbitFrame(new double[] { -x },verticalValid,ONE,i)));
+        }
+    }
+
+    /**
+     * Proportional BPMs are fully correlated and opposite BPMs are fully anti-correlated, regardless of their offset
+     * and scale. The horizontal BPMs come first.
+     */
+    @Test
+    public void testCorrelatedBPMs() {
+        CorrelationMatrix matrix = new CorrelationMatrix(50,10);
+        fill(matrix,100,ALL,ONE);
+        BPMCorrelation correlation = matrix.snapshot();
+        assertEquals(3,correlation.size());
+        assertEquals(2,correlation.getHorizontalSize());
+        assertEquals(100,correlation.getCount());
+        assertEquals(1,correlation.get(0,0),EPS);
+        assertEquals(1,correlation.get(0,1),EPS);
+        assertEquals(1,correlation.get(1,0),EPS);
+        assertEquals(-1,correlation.get(0,2),EPS);
+        assertEquals(-1,correlation.get(2,1),EPS);
+    }
+
+    /**
+     * Disabled BPMs and BPMs without values contribute nothing, so their correlation is not defined.
+     */
+    @Test
+    public void testMaskedBPMs() {
+        CorrelationMatrix matrix = new CorrelationMatrix(50,10);
+        fill(matrix,100,new boolean[] { true, false },new boolean[] { false });
+        BPMCorrelation correlation = matrix.snapshot();
+        assertEquals(1,correlation.get(0,0),EPS);
+        assertTrue(Double.isNaN(correlation.get(0,1)));
+        assertTrue(Double.isNaN(correlation.get(1,1)));
+        assertTrue(Double.isNaN(correlation.get(0,2)));
+    }
+
+    /**
+     * Samples with more BPMs than the limit are rejected and release the matrix; smaller samples are accepted again.
+     */
+    @Test
+    public void testMaxSize() {
+        CorrelationMatrix matrix = new CorrelationMatrix(50,2);
+        assertEquals(2,matrix.getMaxSize());
+        OrbitFrame horizontal = new OrbitFrame(new double[] { 1, 2 },ALL,ALL,0);
+        OrbitFrame none = new OrbitFrame(new double[0],new boolean[0],new boolean[0],0);
+        assertTrue(matrix.add(horizontal,none));
+        assertEquals(1,matrix.getCount());
+        assertFalse(matrix.add(horizontal,new OrbitFrame(new double[] { 3 },ONE,ONE,0)));
+        assertEquals(0,matrix.getCount());
+        assertSame(BPMCorrelation.EMPTY,matrix.snapshot());
+        assertTrue(matrix.add(horizontal,none));
+        assertEquals(2,matrix.snapshot().size());
+    }
+
+    /**
+     * After the reset the matrix starts again from the next sample.
+     */
+    @Test
+    public void testReset() {
+        CorrelationMatrix matrix = new CorrelationMatrix(50,10);
+        fill(matrix,20,ALL,ONE);
+        matrix.reset();
+        assertEquals(0,matrix.getCount());
+        assertTrue(Double.isNaN(matrix.snapshot().get(0,1)));
+        fill(matrix,20,ALL,ONE);
+        assertEquals(20,matrix.getCount());
+        assertEquals(1,matrix.snapshot().get(0,1),EPS);
+    }
+
+    /**
+     * The upper triangle is packed row by row without gaps and both orders of the indices point to the same element.
+     */
+    @Test
+    public void testIndex() {
+        final int n = 5;
+        int expected = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                assertEquals(expected++,CorrelationMatrix.index(n,i,j));
+                assertEquals(CorrelationMatrix.index(n,i,j),CorrelationMatrix.index(n,j,i));
+            }
+        }
+        assertEquals(n * (n + 1) / 2,expected);
+    }
+}
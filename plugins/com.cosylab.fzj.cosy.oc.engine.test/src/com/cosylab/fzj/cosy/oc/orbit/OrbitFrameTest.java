@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+
+import org.diirt.util.array.ArrayDouble;
+import org.junit.Test;
+
+/**
+ * <code>OrbitFrameTest</code> tests the mapping of the received orbit values to the BPM slots.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class OrbitFrameTest {
+
+    private static final double EPS = 1e-12;
+
+    /**
+     * If the IOC publishes only the values of the enabled BPMs, the values are assigned to the enabled slots.
+     */
+    @Test
+    public void testEnabledValues() {
+        boolean[] enabled = { true, false, true, false };
+        OrbitFrame frame = OrbitFrame.build(new ArrayDouble(1,2),enabled,5);
+        assertEquals(4,frame.size());
+        assertArrayEquals(new double[] { 1, Double.NaN, 2, Double.NaN },frame.getValues(),EPS);
+        assertArrayEquals(new boolean[] { true, false, true, false },frame.getValid());
+        assertSame(enabled,frame.getEnabled());
+        assertEquals(5,frame.getTimestamp());
+    }
+
+    /**
+     * If the IOC publishes the values of all BPMs, every slot receives a value, including the disabled BPMs.
+     */
+    @Test
+    public void testAllValues() {
+        OrbitFrame frame = OrbitFrame.build(new ArrayDouble(1,2,3),new boolean[] { true, false, true },0);
+        assertArrayEquals(new double[] { 1, 2, 3 },frame.getValues(),EPS);
+        assertArrayEquals(new boolean[] { true, true, true },frame.getValid());
+    }
+
+    /**
+     * Fewer values than BPMs fill the first slots; more values than BPMs cannot be mapped.
+     */
+    @Test
+    public void testPartialAndOversizedValues() {
+        OrbitFrame frame = OrbitFrame.build(new ArrayDouble(1,2),new boolean[] { true, true, true, false },0);
+        assertArrayEquals(new double[] { 1, 2, Double.NaN, Double.NaN },frame.getValues(),EPS);
+        assertArrayEquals(new boolean[] { true, true, false, false },frame.getValid());
+        assertNull(OrbitFrame.build(new ArrayDouble(1,2,3),new boolean[] { true, true },0));
+    }
+
+    /**
+     * Mapping into reused buffers overwrites the previous contents and leaves the buffers unchanged if the data does
+     * not fit.
+     */
+    @Test
+    public void testMapIntoBuffers() {
+        double[] values = { 9, 9, 9, 9 };
+        boolean[] valid = { true, true, true, true };
+        boolean[] enabled = { false, true, true };
+        assertTrue(OrbitFrame.map(new ArrayDouble(1,2),enabled,values,valid));
+        assertArrayEquals(new double[] { Double.NaN, 1, 2, 9 },values,EPS);
+        assertArrayEquals(new boolean[] { false, true, true, true },valid);
+        assertFalse(OrbitFrame.map(new ArrayDouble(1,2,3,4),enabled,values,valid));
+        assertArrayEquals(new double[] { Double.NaN, 1, 2, 9 },values,EPS);
+    }
+
+    /**
+     * Masks of a different length than the values are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedMasks() {
+        new OrbitFrame(new double[2],new boolean[2],new boolean[3],0);
+    }
+
+    /**
+     * Timestamps are converted to nanoseconds since epoch.
+     */
+    @Test
+    public void testToNanos() {
+        assertEquals(3_000_000_007L,OrbitFrame.toNanos(Instant.ofEpochSecond(3,7)));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * <code>OrbitHistoryTest</code> tests the orbit ring buffer: overwriting, width changes, the memory limit, monotonic
+ * timestamps, the lookup by time and the consistency of the optimistic reads while the writer is active.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class OrbitHistoryTest {
+
+    private static final double EPS = 1e-12;
+
+    private static OrbitFrame frame(int width, double value, long timestamp) {
+        double[] values = new double[width];
+        boolean[] valid = new boolean[width];
+        boolean[] enabled = new boolean[width];
+        Arrays.fill(values,value);
+        Arrays.fill(valid,true);
+        Arrays.fill(enabled,true);
+        return new OrbitFrame(values,valid,enabled,timestamp);
+    }
+
+    /**
+     * The oldest frames are overwritten when the history is full, and the sequence numbers keep growing.
+     */
+    @Test
+    public void testOverwrite() {
+        OrbitHistory history = new OrbitHistory(3);
+        assertEquals(-1,history.getLastSequence());
+        assertEquals(-1,history.getWidth());
+        for (int i = 0; i < 5; i++) {
+            history.add(frame(2,i,i * 10));
+        }
+        assertEquals(3,history.size());
+        assertEquals(2,history.getFirstSequence());
+        assertEquals(4,history.getLastSequence());
+        assertEquals(Long.MIN_VALUE,history.getTimestamp(1));
+        assertEquals(40,history.getTimestamp(4));
+        double[] destination = new double[2];
+        assertEquals(30,history.copyValues(3,destination));
+        assertArrayEquals(new double[] { 3, 3 },destination,EPS);
+        assertEquals(Long.MIN_VALUE,history.copyValues(0,destination));
+        assertFalse(history.getFrame(1).isPresent());
+    }
+
+    /**
+     * A frame with a different width clears the history.
+     */
+    @Test
+    public void testWidthChange() {
+        OrbitHistory history = new OrbitHistory(4);
+        history.add(frame(2,1,10));
+        history.add(frame(2,2,20));
+        history.add(frame(3,3,30));
+        assertEquals(1,history.size());
+        assertEquals(3,history.getWidth());
+        assertEquals(2,history.getFirstSequence());
+        OrbitFrame frame = history.getFrame(2).get();
+        assertArrayEquals(new double[] { 3, 3, 3 },frame.getValues(),EPS);
+        history.clear();
+        assertEquals(0,history.size());
+    }
+
+    /**
+     * With a memory limit the wide frames are kept in fewer slots, and the capacity is recomputed on width changes.
+     */
+    @Test
+    public void testMemoryLimit() {
+        //9 bytes per BPM: 4 frames of 2 BPMs, 2 frames of 4 BPMs, at least 1 frame of any width
+        OrbitHistory history = new OrbitHistory(10,72);
+        assertEquals(10,history.getCapacity());
+        for (int i = 0; i < 6; i++) {
+            history.add(frame(2,i,i * 10));
+        }
+        assertEquals(4,history.getCapacity());
+        assertEquals(4,history.size());
+        assertEquals(2,history.getFirstSequence());
+        history.add(frame(4,6,60));
+        history.add(frame(4,7,70));
+        history.add(frame(4,8,80));
+        assertEquals(2,history.getCapacity());
+        assertEquals(2,history.size());
+        assertArrayEquals(new double[] { 8, 8, 8, 8 },history.getFrame(8).get().getValues(),EPS);
+        history.add(frame(100,9,90));
+        assertEquals(1,history.getCapacity());
+        assertEquals(1,history.size());
+        assertEquals(90,history.getTimestamp(9));
+    }
+
+    /**
+     * Timestamps older than the latest frame are replaced by the latest timestamp, so the lookup by time stays valid.
+     */
+    @Test
+    public void testMonotonicTimestamps() {
+        OrbitHistory history = new OrbitHistory(10);
+        history.add(frame(1,0,100));
+        history.add(frame(1,1,50));
+        history.add(frame(1,2,200));
+        assertEquals(100,history.getTimestamp(1));
+        assertEquals(-1,history.find(99));
+        assertEquals(1,history.find(100));
+        assertEquals(1,history.find(199));
+        assertEquals(2,history.find(1000));
+        assertEquals(2,history.getFrameAt(250).get().getValues()[0],EPS);
+    }
+
+    /**
+     * The masks are stored together with the values.
+     */
+    @Test
+    public void testMasks() {
+        OrbitHistory history = new OrbitHistory(2);
+        history.add(new OrbitFrame(new double[] { 1, Double.NaN },new boolean[] { true, false },
+                new boolean[] { false, true },7));
+        OrbitFrame frame = history.getFrame(0).get();
+        assertArrayEquals(new boolean[] { true, false },frame.getValid());
+        assertArrayEquals(new boolean[] { false, true },frame.getEnabled());
+        assertEquals(7,frame.getTimestamp());
+    }
+
+    /**
+     * Readers racing with the writer always receive the values of a single frame: every frame holds the same value in
+     * all slots, so a torn read would be detected as a mix of values.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testOptimisticReadConsistency() throws InterruptedException {
+        final int width = 500;
+        final OrbitHistory history = new OrbitHistory(4);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            double[] destination = new double[width];
+            while (running.get()) {
+                long sequence = history.getLastSequence();
+                if (sequence < 0) continue;
+                long timestamp = history.copyValues(sequence,destination);
+                if (timestamp == Long.MIN_VALUE) continue;
+                for (double d : destination) {
+                    if (d != destination[0] || d != timestamp) {
+                        failure.set("Torn read of frame " + sequence);
+                    }
+                }
+                history.getFrame(sequence).ifPresent(f -> {
+                    for (double d : f.getValues()) {
+                        if (d != f.getTimestamp()) {
+                            failure.set("Torn frame " + sequence);
+                        }
+                    }
+                });
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20000; i++) {
+            history.add(frame(width,i,i));
+        }
+        running.set(false);
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(19999,history.getLastSequence());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.diirt.util.array.ArrayDouble;
+import org.junit.Test;
+
+/**
+ * <code>OrbitStatisticsTest</code> tests the statistics of the orbit frames, the exclusion of the disabled, missing and
+ * unselected BPMs, the weights and the selection of the ranges along the ring.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class OrbitStatisticsTest {
+
+    private static final double EPS = 1e-12;
+
+    private static OrbitFrame frame(boolean[] enabled, double... values) {
+        return OrbitFrame.build(new ArrayDouble(values),enabled,0);
+    }
+
+    /**
+     * The statistics of all slots match the directly computed values.
+     */
+    @Test
+    public void testAllSlots() {
+        OrbitStatistics s = OrbitStatistics.of(frame(new boolean[] { true, true, true, true },1,2,3,4));
+        assertEquals(4,s.getCount());
+        assertEquals(1,s.getMin(),EPS);
+        assertEquals(4,s.getMax(),EPS);
+        assertEquals(2.5,s.getAvg(),EPS);
+        assertEquals(Math.sqrt(30. / 4),s.getRms(),EPS);
+        assertEquals(Math.sqrt(1.25),s.getStd(),EPS);
+    }
+
+    /**
+     * Disabled slots, slots without a value, NaN values and unselected slots do not take part.
+     */
+    @Test
+    public void testExcludedSlots() {
+        OrbitFrame disabled = frame(new boolean[] { true, false, true, true },1,100,Double.NaN,3);
+        OrbitStatistics s = OrbitStatistics.of(disabled);
+        assertEquals(2,s.getCount());
+        assertEquals(2,s.getAvg(),EPS);
+        OrbitFrame missing = frame(new boolean[] { true, true, true },5,7);
+        s = OrbitStatistics.of(missing,null,new boolean[] { false, true, true });
+        assertEquals(1,s.getCount());
+        assertEquals(7,s.getMin(),EPS);
+        assertEquals(0,s.getStd(),EPS);
+        assertSame(OrbitStatistics.EMPTY,OrbitStatistics.of(missing,null,new boolean[] { false, false, true }));
+        assertEquals(Double.NaN,OrbitStatistics.EMPTY.getAvg(),EPS);
+    }
+
+    /**
+     * The weights scale the contribution of each slot to the average, rms and standard deviation, while zero,
+     * negative and NaN weights exclude the slot.
+     */
+    @Test
+    public void testWeights() {
+        OrbitFrame f = frame(new boolean[] { true, true, true, true, true },1,3,50,-50,70);
+        OrbitStatistics s = OrbitStatistics.of(f,new double[] { 1, 3, 0, -1, Double.NaN },null);
+        assertEquals(2,s.getCount());
+        assertEquals(1,s.getMin(),EPS);
+        assertEquals(3,s.getMax(),EPS);
+        assertEquals(2.5,s.getAvg(),EPS);
+        assertEquals(Math.sqrt(7),s.getRms(),EPS);
+        assertEquals(Math.sqrt(0.75),s.getStd(),EPS);
+    }
+
+    /**
+     * Weights or selection of a different size than the frame are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMismatch() {
+        OrbitStatistics.of(frame(new boolean[] { true, true },1,2),new double[] { 1 },null);
+    }
+
+    /**
+     * A range selects the slots within its inclusive bounds; a range with the start greater than the end wraps around
+     * the end of the ring.
+     */
+    @Test
+    public void testSelectRange() {
+        double[] positions = { 0, 10, 20, 30, 40 };
+        assertArrayEquals(new boolean[] { false, true, true, true, false },
+                OrbitStatistics.selectRange(positions,10,30));
+        assertArrayEquals(new boolean[] { true, true, false, false, true },
+                OrbitStatistics.selectRange(positions,35,10));
+        assertArrayEquals(new boolean[] { true, true, true, true, true },OrbitStatistics.selectRange(positions,
+                Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY));
+    }
+}
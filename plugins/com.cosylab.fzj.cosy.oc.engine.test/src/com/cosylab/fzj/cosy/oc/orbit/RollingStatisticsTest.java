@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * <code>RollingStatisticsTest</code> tests the merging of the buckets into the per BPM statistics, the sliding of the
+ * window and the detection of the noisiest and stuck BPMs.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class RollingStatisticsTest {
+
+    private static final double EPS = 1e-12;
+    private static final boolean[] ALL = { true, true };
+
+    private static void add(RollingStatistics statistics, long timestamp, double... values) {
+        statistics.add(values,ALL,ALL,timestamp);
+    }
+
+    /**
+     * The statistics merged from several buckets equal the statistics of all values in the window, and BPMs without
+     * values have no statistics.
+     */
+    @Test
+    public void testMergeBuckets() {
+        //5 buckets of 2 ns
+        RollingStatistics statistics = new RollingStatistics(10,5);
+        assertSame(BPMStatistics.EMPTY,statistics.snapshot());
+        for (int i = 0; i < 6; i++) {
+            statistics.add(new double[] { i + 1, 7 },ALL,new boolean[] { true, false },i);
+        }
+        BPMStatistics s = statistics.snapshot();
+        assertEquals(2,s.size());
+        assertArrayEquals(new long[] { 6, 0 },s.getCount());
+        assertEquals(3.5,s.getMean()[0],EPS);
+        assertEquals(Math.sqrt(35. / 12),s.getStd()[0],EPS);
+        assertEquals(1,s.getMin()[0],EPS);
+        assertEquals(6,s.getMax()[0],EPS);
+        assertEquals(Double.NaN,s.getMean()[1],EPS);
+        assertEquals(Double.NaN,s.getStd()[1],EPS);
+    }
+
+    /**
+     * Slots without a value and NaN values are not counted.
+     */
+    @Test
+    public void testMissingValues() {
+        RollingStatistics statistics = new RollingStatistics(10,5);
+        statistics.add(new double[] { 1, 2 },new boolean[] { true, false },ALL,0);
+        add(statistics,1,Double.NaN,4);
+        add(statistics,2,3,6);
+        BPMStatistics s = statistics.snapshot();
+        assertArrayEquals(new long[] { 2, 2 },s.getCount());
+        assertEquals(2,s.getMean()[0],EPS);
+        assertEquals(5,s.getMean()[1],EPS);
+    }
+
+    /**
+     * Buckets that the window slid past are dropped, frames older than the window are ignored and a different number
+     * of BPMs clears the statistics.
+     */
+    @Test
+    public void testWindowSlides() {
+        RollingStatistics statistics = new RollingStatistics(10,5);
+        add(statistics,0,1,1);
+        add(statistics,1,2,2);
+        add(statistics,2,3,3);
+        //the bucket of the first two frames is reused
+        add(statistics,10,4,4);
+        BPMStatistics s = statistics.snapshot();
+        assertEquals(2,s.getCount()[0]);
+        assertEquals(3,s.getMin()[0],EPS);
+        add(statistics,1,100,100);
+        assertEquals(4,statistics.snapshot().getMax()[0],EPS);
+        //the window ends with the latest frame, so all previous buckets are gone
+        add(statistics,30,5,5);
+        assertEquals(1,statistics.snapshot().getCount()[0]);
+        statistics.add(new double[] { 1, 2, 3 },new boolean[] { true, true, true },new boolean[] { true, true, true },
+                31);
+        s = statistics.snapshot();
+        assertEquals(3,s.size());
+        assertArrayEquals(new long[] { 1, 1, 1 },s.getCount());
+    }
+
+    /**
+     * The noisiest BPM has the largest standard deviation among the BPMs with at least two values; a BPM whose value
+     * did not change is stuck.
+     */
+    @Test
+    public void testNoisiestAndStuck() {
+        RollingStatistics statistics = new RollingStatistics(10,5);
+        add(statistics,0,1,5);
+        assertEquals(-1,statistics.snapshot().getNoisiest());
+        assertEquals(0,statistics.snapshot().getStuckCount());
+        add(statistics,1,3,5);
+        add(statistics,2,5,5);
+        BPMStatistics s = statistics.snapshot();
+        assertEquals(0,s.getNoisiest());
+        assertEquals(1,s.getStuckCount());
+        assertEquals(0,s.getStd()[1],EPS);
+    }
+}
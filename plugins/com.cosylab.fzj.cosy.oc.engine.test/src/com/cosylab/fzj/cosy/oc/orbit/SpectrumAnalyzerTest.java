@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * <code>SpectrumAnalyzerTest</code> tests the frequency axis and the amplitude scaling of the computed spectra and the
+ * incremental reading of the orbit history.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class SpectrumAnalyzerTest {
+
+    private static final int LENGTH = 256;
+    //10 ms between the frames, i.e. 100 Hz
+    private static final long PERIOD = 10_000_000L;
+    private static final double RATE = 100;
+
+    private static void fill(OrbitHistory history, int frames, double amplitude, int bin, double offset) {
+        final boolean[] valid = { true, true, false };
+        final boolean[] enabled = { true, false, true };
+        for (int i = 0; i < frames; i++) {
+            double v = offset + amplitude * Math.sin(2 * Math.PI * bin * i / LENGTH);
+            history.add(new double[] { v, v, v },valid,enabled,(i + 1) * PERIOD);
+        }
+    }
+
+    /**
+     * A sine centred on a frequency bin is reported at its frequency with its amplitude; the offset is removed and
+     * disabled BPMs and BPMs without values have an empty spectrum.
+     */
+    @Test
+    public void testSineAmplitude() {
+        OrbitHistory history = new OrbitHistory(2 * LENGTH);
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(LENGTH);
+        fill(history,LENGTH,2,32,5);
+        assertTrue(analyzer.update(history));
+        assertTrue(analyzer.isReady());
+        BPMSpectrum spectrum = analyzer.compute();
+        assertEquals(3,spectrum.size());
+        double[] frequencies = spectrum.getFrequencies();
+        assertEquals(LENGTH / 2 + 1,frequencies.length);
+        assertEquals(RATE / 2,frequencies[LENGTH / 2],1e-9);
+        assertEquals(32 * RATE / LENGTH,spectrum.getPeakFrequency(0),1e-9);
+        double[] amplitudes = spectrum.getAmplitudes(0);
+        //the symmetric Hann window is slightly wider than the periodic one
+        assertEquals(2,amplitudes[32],0.02);
+        assertEquals(0,amplitudes[0],1e-3);
+        assertEquals(0,amplitudes[100],1e-3);
+        for (int b = 1; b < 3; b++) {
+            for (double a : spectrum.getAmplitudes(b)) {
+                assertEquals(0,a,1e-12);
+            }
+        }
+        assertEquals(LENGTH * PERIOD,spectrum.getTimestamp());
+    }
+
+    /**
+     * The analyzer is not ready until the window is filled and only reads the frames added since the previous update.
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        OrbitHistory history = new OrbitHistory(2 * LENGTH);
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(LENGTH);
+        assertFalse(analyzer.update(history));
+        fill(history,LENGTH / 2,1,8,0);
+        assertTrue(analyzer.update(history));
+        assertFalse(analyzer.isReady());
+        assertSame(BPMSpectrum.EMPTY,analyzer.compute());
+        assertFalse(analyzer.update(history));
+        history.add(new double[] { 0, 0, 0 },new boolean[] { true, true, true },new boolean[] { true, true, true },
+                (LENGTH / 2 + 1) * PERIOD);
+        assertTrue(analyzer.update(history));
+        assertFalse(analyzer.isReady());
+    }
+
+    /**
+     * Only powers of two of at least 8 are accepted as the window length.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        new SpectrumAnalyzer(100);
+    }
+}
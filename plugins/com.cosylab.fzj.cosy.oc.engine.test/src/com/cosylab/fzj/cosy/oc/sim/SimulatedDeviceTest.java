@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+import org.junit.After;
+import org.junit.Test;
+
+import com.cosylab.fzj.cosy.oc.engine.Channel;
+
+/**
+ * <code>SimulatedDeviceTest</code> tests the synthetic lattice, the operation status transitions driven by the
+ * commands, the handling of the writes and the reproducibility of the simulated orbits.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class SimulatedDeviceTest {
+
+    private static final long TIMEOUT = 5;
+    private static final int BPMS = 10;
+    private static final int CORRECTORS = 4;
+    private static final double RATE = 100;
+    private static final Map<Channel,String> PV_NAMES = new EnumMap<>(Channel.class);
+
+    static {
+        for (Channel channel : Channel.values()) {
+            PV_NAMES.put(channel,"SIM:" + channel.getKey());
+        }
+    }
+
+    private SimulatedDevice device;
+
+    /**
+     * Stops the device.
+     */
+    @After
+    public void tearDown() {
+        if (device != null) {
+            device.dispose();
+        }
+    }
+
+    private BlockingQueue<VType> listen(SimulatedDevice source, Channel channel) {
+        final BlockingQueue<VType> queue = new LinkedBlockingQueue<>();
+        source.addListener(PV_NAMES.get(channel),queue::add);
+        return queue;
+    }
+
+    private static VType next(BlockingQueue<VType> queue) throws InterruptedException {
+        VType value = queue.poll(TIMEOUT,TimeUnit.SECONDS);
+        if (value == null) {
+            throw new AssertionError("No value received in time.");
+        }
+        return value;
+    }
+
+    private static int nextStatus(BlockingQueue<VType> queue) throws InterruptedException {
+        return ((VEnum)next(queue)).getIndex();
+    }
+
+    private void write(Channel channel, Object value) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        device.write(PV_NAMES.get(channel),value).get(TIMEOUT,TimeUnit.SECONDS);
+    }
+
+    /**
+     * The lattice has one cell with a BPM, two quadrupoles and a dipole per BPM, a sextupole in every other cell and
+     * the requested number of correctors; only the configured PVs are served.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testLattice() throws InterruptedException {
+        device = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE);
+        VStringArray names = (VStringArray)next(listen(device,Channel.HORIZONTAL_BPM_NAMES));
+        assertEquals(BPMS,names.getData().size());
+        assertEquals("BPM0001",names.getData().get(0));
+        VNumberArray positions = (VNumberArray)next(listen(device,Channel.VERTICAL_BPM_POSITIONS));
+        assertEquals(BPMS,positions.getData().size());
+        for (int i = 1; i < BPMS; i++) {
+            assertTrue(positions.getData().getDouble(i) > positions.getData().getDouble(i - 1));
+        }
+        assertEquals(2 * BPMS,((VNumberArray)next(listen(device,Channel.QUADRUPOLE_POSITIONS))).getData().size());
+        assertEquals(BPMS / 2,((VNumberArray)next(listen(device,Channel.SEXTUPOLE_POSITIONS))).getData().size());
+        assertEquals(CORRECTORS,
+                ((VStringArray)next(listen(device,Channel.VERTICAL_CORRECTOR_NAMES))).getData().size());
+        assertTrue(device.isServed(PV_NAMES.get(Channel.ORM)));
+        assertFalse(device.isServed("SIM:unknown"));
+    }
+
+    /**
+     * A single measurement publishes one orbit and returns to idle; orbits are only published while measuring.
+     *
+     * @throws Exception if the command could not be written
+     */
+    @Test
+    public void testMeasureOnce() throws Exception {
+        device = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE);
+        BlockingQueue<VType> status = listen(device,Channel.OPERATION_STATUS);
+        assertEquals(0,nextStatus(status));
+        write(Channel.MEASURE_ORBIT_ONCE,1);
+        assertEquals(1,nextStatus(status));
+        assertEquals(0,nextStatus(status));
+        Thread.sleep((long)(5000 / RATE));
+        assertEquals(1,device.getPublishedOrbitCount());
+    }
+
+    /**
+     * A continuous correction ignores the commands of the other operations, moves the correctors and stops on its
+     * own stop command.
+     *
+     * @throws Exception if the commands could not be written
+     */
+    @Test
+    public void testCorrection() throws Exception {
+        device = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE);
+        BlockingQueue<VType> status = listen(device,Channel.OPERATION_STATUS);
+        BlockingQueue<VType> kicks = listen(device,Channel.HORIZONTAL_CORRECTOR_MRAD);
+        assertEquals(0,nextStatus(status));
+        assertEquals(0,((VNumberArray)next(kicks)).getData().getDouble(0),0);
+        write(Channel.START_CORRECTING_ORBIT,1);
+        assertEquals(2,nextStatus(status));
+        assertNotEquals(0,((VNumberArray)next(kicks)).getData().getDouble(0),0);
+        write(Channel.START_MEASURING_ORBIT,1);
+        write(Channel.STOP_MEASURING_ORBIT,1);
+        write(Channel.STOP_CORRECTING_ORBIT,1);
+        assertEquals(0,nextStatus(status));
+        assertTrue(status.isEmpty());
+        assertTrue(device.getPublishedOrbitCount() > 0);
+    }
+
+    /**
+     * Settings are published back, while writes to read only or unknown PVs and writes of the wrong size fail.
+     *
+     * @throws Exception if a valid write failed
+     */
+    @Test
+    public void testWrites() throws Exception {
+        device = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE);
+        BlockingQueue<VType> golden = listen(device,Channel.GOLDEN_HORIZONTAL_ORBIT);
+        next(golden);
+        double[] orbit = new double[BPMS];
+        orbit[3] = 1.5;
+        write(Channel.GOLDEN_HORIZONTAL_ORBIT,new ArrayDouble(orbit));
+        assertEquals(1.5,((VNumberArray)next(golden)).getData().getDouble(3),0);
+        assertWriteFails(Channel.GOLDEN_HORIZONTAL_ORBIT,new double[BPMS + 1]);
+        assertWriteFails(Channel.HORIZONTAL_ORBIT,orbit);
+        assertWriteFails(Channel.CORRECTION_ALGORITHM,5);
+        try {
+            device.write("SIM:unknown",1).get(TIMEOUT,TimeUnit.SECONDS);
+            throw new AssertionError("The write should have failed.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private void assertWriteFails(Channel channel, Object value) throws InterruptedException, TimeoutException {
+        try {
+            write(channel,value);
+            throw new AssertionError("The write to " + channel + " should have failed.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * Devices with the same seed produce the same orbits, devices with a different seed do not.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testReproducible() throws InterruptedException {
+        device = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE,5);
+        SimulatedDevice same = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE,5);
+        SimulatedDevice other = new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE,6);
+        try {
+            VNumberArray orbit = (VNumberArray)next(listen(device,Channel.VERTICAL_ORBIT));
+            assertEquals(orbit.getData(),((VNumberArray)next(listen(same,Channel.VERTICAL_ORBIT))).getData());
+            assertNotEquals(orbit.getData(),((VNumberArray)next(listen(other,Channel.VERTICAL_ORBIT))).getData());
+        } finally {
+            same.dispose();
+            other.dispose();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cosylab.fzj.cosy.oc.engine.Channel;
+import com.cosylab.fzj.cosy.oc.engine.ChannelState;
+import com.cosylab.fzj.cosy.oc.engine.OrbitEngine;
+import com.cosylab.fzj.cosy.oc.engine.WriteCoalescer;
+import com.cosylab.fzj.cosy.oc.engine.WriteLatencyStatistics;
+import com.cosylab.fzj.cosy.oc.engine.WriteLatencyStatistics.Role;
+
+/**
+ * <code>SimulatedEngineTest</code> runs the orbit engine against the simulated data source, measures the orbit
+ * throughput and the orbit (monitor) latency, checks them against fixed bounds and logs the latency histograms of
+ * the orbits and of the PV writes.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class SimulatedEngineTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SimulatedEngineTest.class.getName());
+    private static final long TIMEOUT = 10000;
+    private static final int BPMS = 500;
+    private static final int CORRECTORS = 100;
+    private static final double RATE = 100;
+    private static final int ORBITS = 100;
+    private static final int WRITES = 20;
+    //the engine must keep up with at least half of the simulated rate and deliver the orbits within a second
+    private static final double MIN_THROUGHPUT = RATE / 2;
+    private static final double MAX_MEDIAN_LATENCY_MILLIS = 1000;
+    private static final Map<Channel,String> PV_NAMES = new EnumMap<>(Channel.class);
+
+    static {
+        for (Channel channel : Channel.values()) {
+            PV_NAMES.put(channel,"SIM:" + channel.getKey());
+        }
+    }
+
+    private SimulatedDataSource source;
+    private OrbitEngine engine;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates the simulated data source and the engine, which reads from it.
+     */
+    @Before
+    public void setUp() {
+        source = new SimulatedDataSource(new SimulatedDevice(PV_NAMES,BPMS,CORRECTORS,RATE));
+        engine = new OrbitEngine(2 * ORBITS);
+        engine.setDataSource(source);
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    /**
+     * Stops the engine, the data source and the executor.
+     */
+    @After
+    public void tearDown() {
+        engine.dispose();
+        source.close();
+        executor.shutdownNow();
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void submit(WriteCoalescer<Channel> coalescer, Channel channel, Object value) {
+        final ChannelState state = engine.getChannel(channel).get();
+        coalescer.submit(channel,() -> state.write(value));
+    }
+
+    /**
+     * The engine connects all PVs of the simulated device, records every published orbit, and the commands and
+     * settings written through the coalescer succeed. The throughput and the median orbit latency stay within bounds.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testThroughputAndLatency() throws InterruptedException {
+        final long connectStart = System.nanoTime();
+        engine.connect(PV_NAMES);
+        await(engine::isAllConnected,"The simulated PVs did not connect.");
+        final long connectMillis = (System.nanoTime() - connectStart) / 1_000_000;
+        final boolean[] enabled = new boolean[BPMS];
+        Arrays.fill(enabled,true);
+        engine.setBPMEnableMask(true,enabled);
+        engine.setBPMEnableMask(false,enabled);
+        final WriteLatencyStatistics writeLatency = new WriteLatencyStatistics();
+        final WriteCoalescer<Channel> coalescer = new WriteCoalescer<>(executor,0,writeLatency);
+        final long start = System.nanoTime();
+        submit(coalescer,Channel.START_MEASURING_ORBIT,null);
+        for (int i = 0; i < WRITES; i++) {
+            submit(coalescer,Channel.HORIZONTAL_CORRECTION_FRACTION,(i + 1) / (double)WRITES);
+        }
+        await(() -> engine.getOrbitHistory(true).size() >= ORBITS && engine.getOrbitHistory(false).size() >= ORBITS,
+                "The orbits were not received.");
+        final long elapsed = System.nanoTime() - start;
+        await(() -> writeLatency.getRoundTrip(Role.SETTING).getCount() == WRITES,"The writes did not complete.");
+        submit(coalescer,Channel.STOP_MEASURING_ORBIT,null);
+        await(() -> writeLatency.getRoundTrip(Role.COMMAND).getCount() == 2,"The commands did not complete.");
+
+        final long received = engine.getOrbitLatency(true).getCount();
+        final double throughput = received * 1e9 / elapsed;
+        LOGGER.log(Level.INFO,String.format(
+                "Simulated %d BPMs at %.0f Hz: connected in %d ms, %d orbits in %d ms (%.1f Hz)%n"
+                        + "Horizontal orbit latency: %s%nVertical orbit latency: %s%nPV write latency per role:%n%s",
+                BPMS,RATE,connectMillis,received,elapsed / 1_000_000,throughput,engine.getOrbitLatency(true),
+                engine.getOrbitLatency(false),writeLatency));
+        assertTrue("Throughput " + throughput + " Hz",throughput >= MIN_THROUGHPUT);
+        assertTrue(engine.getOrbitLatency(true).getPercentileMillis(50) <= MAX_MEDIAN_LATENCY_MILLIS);
+        assertTrue(engine.getOrbitLatency(false).getPercentileMillis(50) <= MAX_MEDIAN_LATENCY_MILLIS);
+        assertEquals(BPMS,engine.getOrbitHistory(true).getWidth());
+        assertTrue(engine.getOrbitLatency(false).getCount() >= ORBITS);
+        assertEquals(0,writeLatency.getFailedCount(Role.COMMAND));
+        assertEquals(0,writeLatency.getFailedCount(Role.SETTING));
+        assertEquals(1.,engine.getChannel(Channel.HORIZONTAL_CORRECTION_FRACTION).get().getNumber(),0);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+/**
+ * <code>Channel</code> enumerates the roles of all PVs used by the orbit correction application. Each channel is
+ * identified by the key under which its PV name is defined in the PVs properties file and declares the type of the
+ * value that it provides. Lattice channels describe the lattice structure and are read once at startup (and whenever
+ * the lattice changes). The declaration order defines the order in which the channels are handled during the UI update.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public enum Channel {
+    HORIZONTAL_ORBIT("horizontal_orbit",Kind.NUMBER_ARRAY),
+    VERTICAL_ORBIT("vertical_orbit",Kind.NUMBER_ARRAY),
+    GOLDEN_HORIZONTAL_ORBIT("golden_horizontal_orbit",Kind.NUMBER_ARRAY),
+    GOLDEN_VERTICAL_ORBIT("golden_vertical_orbit",Kind.NUMBER_ARRAY),
+    HORIZONTAL_REFERENCE_ORBIT("reference_horizontal_orbit",Kind.NUMBER_ARRAY),
+    VERTICAL_REFERENCE_ORBIT("reference_vertical_orbit",Kind.NUMBER_ARRAY),
+    HORIZONTAL_DIFFERENCE_ORBIT("difference_horizontal_orbit",Kind.NUMBER_ARRAY),
+    VERTICAL_DIFFERENCE_ORBIT("difference_vertical_orbit",Kind.NUMBER_ARRAY),
+    HORIZONTAL_CORRECTOR_MRAD("horizontal_corrector_mrad",Kind.NUMBER_ARRAY),
+    VERTICAL_CORRECTOR_MRAD("vertical_corrector_mrad",Kind.NUMBER_ARRAY),
+    HORIZONTAL_CORRECTOR_MA("horizontal_corrector_ma",Kind.NUMBER_ARRAY),
+    VERTICAL_CORRECTOR_MA("vertical_corrector_ma",Kind.NUMBER_ARRAY),
+    HORIZONTAL_STEERER_CUTOFF("horizontal_steerer_cutoff",Kind.NUMBER_ARRAY),
+    VERTICAL_STEERER_CUTOFF("vertical_steerer_cutoff",Kind.NUMBER_ARRAY),
+    OPERATION_STATUS("operation_status",Kind.ENUM),
+    HORIZONTAL_ORBIT_STATISTICS("horizontal_orbit_statistics",Kind.NUMBER_ARRAY),
+    VERTICAL_ORBIT_STATISTICS("vertical_orbit_statistics",Kind.NUMBER_ARRAY),
+    GOLDEN_HORIZONTAL_ORBIT_STATISTICS("golden_horizontal_orbit_statistics",Kind.NUMBER_ARRAY),
+    GOLDEN_VERTICAL_ORBIT_STATISTICS("golden_vertical_orbit_statistics",Kind.NUMBER_ARRAY),
+    REFERENCE_HORIZONTAL_ORBIT_STATISTICS("reference_horizontal_orbit_statistics",Kind.NUMBER_ARRAY),
+    REFERENCE_VERTICAL_ORBIT_STATISTICS("reference_vertical_orbit_statistics",Kind.NUMBER_ARRAY),
+    HORIZONTAL_CUTOFF("horizontal_orbit_cutoff",Kind.NUMBER),
+    VERTICAL_CUTOFF("vertical_orbit_cutoff",Kind.NUMBER),
+    HORIZONTAL_CORRECTION_FRACTION("horizontal_correction_factor",Kind.NUMBER),
+    VERTICAL_CORRECTION_FRACTION("vertical_correction_factor",Kind.NUMBER),
+    CORRECTION_FREQUENCY("correction_frequency",Kind.NUMBER),
+    CORRECTION_ALGORITHM("correction_algorithm",Kind.ENUM),
+    VERTICAL_CORRECTOR_ENABLED("vertical_corrector_enabled",Kind.NUMBER_ARRAY),
+    HORIZONTAL_CORRECTOR_ENABLED("horizontal_corrector_enabled",Kind.NUMBER_ARRAY),
+    VERTICAL_BPM_ENABLED("vertical_bpm_enabled",Kind.NUMBER_ARRAY),
+    HORIZONTAL_BPM_ENABLED("horizontal_bpm_enabled",Kind.NUMBER_ARRAY),
+    ORM("orm",Kind.NUMBER_ARRAY),
+    CORRECTION_FREQUENCY_PROC("correction_frequency_proc",Kind.COMMAND),
+    RESET_CORRECTION("reset_correction",Kind.COMMAND),
+    START_MEASURING_ORBIT("start_measuring_orbit",Kind.COMMAND),
+    STOP_MEASURING_ORBIT("stop_measuring_orbit",Kind.COMMAND),
+    MEASURE_ORBIT_ONCE("measure_orbit_once",Kind.COMMAND),
+    START_CORRECTING_ORBIT("start_correcting_orbit",Kind.COMMAND),
+    STOP_CORRECTING_ORBIT("stop_correcting_orbit",Kind.COMMAND),
+    CORRECT_ORBIT_ONCE("correct_orbit_once",Kind.COMMAND),
+    HORIZONTAL_BPM_NAMES("horizontal_bpm_names",Kind.STRING_ARRAY,true),
+    HORIZONTAL_BPM_POSITIONS("horizontal_bpm_positions",Kind.NUMBER_ARRAY,true),
+    VERTICAL_BPM_NAMES("vertical_bpm_names",Kind.STRING_ARRAY,true),
+    VERTICAL_BPM_POSITIONS("vertical_bpm_positions",Kind.NUMBER_ARRAY,true),
+    HORIZONTAL_CORRECTOR_NAMES("horizontal_corrector_names",Kind.STRING_ARRAY,true),
+    HORIZONTAL_CORRECTOR_POSITIONS("horizontal_corrector_positions",Kind.NUMBER_ARRAY,true),
+    VERTICAL_CORRECTOR_NAMES("vertical_corrector_names",Kind.STRING_ARRAY,true),
+    VERTICAL_CORRECTOR_POSITIONS("vertical_corrector_positions",Kind.NUMBER_ARRAY,true),
+    QUADRUPOLE_NAMES("quadrupole_names",Kind.STRING_ARRAY,true),
+    QUADRUPOLE_POSITIONS("quadrupole_positions",Kind.NUMBER_ARRAY,true),
+    DIPOLE_NAMES("dipole_names",Kind.STRING_ARRAY,true),
+    DIPOLE_POSITIONS("dipole_positions",Kind.NUMBER_ARRAY,true),
+    SEXTUPOLE_NAMES("sextupole_names",Kind.STRING_ARRAY,true),
+    SEXTUPOLE_POSITIONS("sextupole_positions",Kind.NUMBER_ARRAY,true);
+
+    /**
+     * <code>Kind</code> describes the type of the value provided by a channel.
+     */
+    public static enum Kind {
+        /** A waveform of numbers */
+        NUMBER_ARRAY,
+        /** A scalar number */
+        NUMBER,
+        /** An enumerated value */
+        ENUM,
+        /** A waveform of strings */
+        STRING_ARRAY,
+        /** A channel that is only written to (value 1) to execute an action */
+        COMMAND
+    }
+
+    private final String key;
+    private final Kind kind;
+    private final boolean lattice;
+
+    private Channel(String key, Kind kind) {
+        this(key,kind,false);
+    }
+
+    private Channel(String key, Kind kind, boolean lattice) {
+        this.key = key;
+        this.kind = kind;
+        this.lattice = lattice;
+    }
+
+    /**
+     * Returns the key under which the PV name of this channel is defined in the PVs properties file.
+     *
+     * @return the PV key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the type of the value provided by this channel.
+     *
+     * @return the value kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns true if this channel describes the lattice structure or false if it is a regular channel.
+     *
+     * @return true for lattice channels or false otherwise
+     */
+    public boolean isLattice() {
+        return lattice;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static org.diirt.datasource.ExpressionLanguage.channel;
+import static org.diirt.datasource.ExpressionLanguage.newValuesOf;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import org.diirt.datasource.DataSource;
+import org.diirt.datasource.PVManager;
+import org.diirt.datasource.PVReader;
+import org.diirt.datasource.PVReaderConfiguration;
+import org.diirt.datasource.PVReaderEvent;
+import org.diirt.datasource.PVWriter;
+import org.diirt.datasource.PVWriterConfiguration;
+import org.diirt.datasource.PVWriterEvent;
+import org.diirt.datasource.PVWriterListener;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+
+/**
+ * <code>ChannelState</code> is the live state of a single channel of the {@link OrbitEngine}: the PV reader and writer,
+ * the latest value and its typed views, the connection state and the startup timeline. The typed views are decoded
+ * once when the value is received, according to the kind of the channel, and can be read from any thread. The reader
+ * delivers all values received since the previous notification, which are counted by the {@link MonitorStatistics}.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class ChannelState {
+
+    private final OrbitEngine engine;
+    private final Channel channel;
+    private final String pvName;
+    private PVReader<List<VType>> reader;
+    private PVWriter<Object> writer;
+    //all actions on the value are atomic, therefore no need for synchronisation
+    private volatile VType value;
+    private volatile ListNumber numbers;
+    private volatile double number = Double.NaN;
+    private volatile int index = -1;
+    private volatile String label;
+    private volatile List<String> strings;
+    private final AtomicBoolean connected = new AtomicBoolean(false);
+    //startup timeline: the time when the channel was created, first connected and first received a value
+    private final long createdAt = System.nanoTime();
+    private volatile long connectedAt = -1;
+    private volatile long firstValueAt = -1;
+    private final CompletableFuture<ChannelState> firstValue = new CompletableFuture<>();
+    private volatile boolean firstTime = true;
+    private final MonitorStatistics statistics = new MonitorStatistics();
+    //true if the latest value has not been consumed yet; only tracked after the first consumption
+    private final AtomicBoolean unconsumed = new AtomicBoolean(false);
+    private volatile boolean consumed;
+
+    ChannelState(OrbitEngine engine, Channel channel, String pvName) {
+        this.engine = engine;
+        this.channel = channel;
+        this.pvName = pvName;
+    }
+
+    /**
+     * Opens the PV reader and writer of this channel.
+     *
+     * @param maxRate the maximum rate at which the reader notifies about new values
+     * @param notificationExecutor the executor on which the reader notifies about new values
+     * @param writeTimeout the time after which a pending write fails
+     * @param dataSource the data source that provides the PV, or null for the default data source
+     */
+    synchronized void open(Duration maxRate, Executor notificationExecutor, Duration writeTimeout,
+            DataSource dataSource) {
+        PVWriterConfiguration<Object> writerConfiguration = PVManager.write(channel(pvName)).timeout(writeTimeout);
+        PVReaderConfiguration<List<VType>> readerConfiguration = PVManager
+                .read(newValuesOf(channel(pvName,VType.class,VType.class))).notifyOn(notificationExecutor);
+        if (dataSource != null) {
+            writerConfiguration = writerConfiguration.from(dataSource);
+            readerConfiguration = readerConfiguration.from(dataSource);
+        }
+        writer = writerConfiguration.async();
+        reader = readerConfiguration.maxRate(maxRate);
+        reader.addPVReaderListener(this::handleValue);
+    }
+
+    /**
+     * Closes the PV reader and writer of this channel.
+     */
+    synchronized void dispose() {
+        if (reader != null && !reader.isClosed()) {
+            reader.close();
+        }
+        if (writer != null && !writer.isClosed()) {
+            writer.close();
+        }
+    }
+
+    private void handleValue(PVReaderEvent<List<VType>> e) {
+        final PVReader<List<VType>> pvReader = e.getPvReader();
+        if (e.isExceptionChanged()) {
+            engine.log("DIIRT Connection Error.",Level.SEVERE,pvReader.lastException());
+        }
+        final boolean isConnected = pvReader.isConnected();
+        if (connected.compareAndSet(!isConnected,isConnected)) {
+            if (isConnected && connectedAt < 0) {
+                connectedAt = System.nanoTime();
+            }
+            engine.connectionChanged(this,isConnected);
+        }
+        if (!isConnected) {
+            engine.log(String.format("%s connection error.",pvName),Level.SEVERE,null);
+        } else if (e.isConnectionChanged() && !firstTime) {
+            engine.log(String.format("%s connection recovered.",pvName),Level.INFO,null);
+        }
+        firstTime = false;
+        List<VType> values = isConnected ? pvReader.getValue() : null;
+        if (values == null || values.isEmpty()) {
+            values = Collections.emptyList();
+            if (!isConnected) {
+                setValue(null);
+            }
+        } else {
+            statistics.notified(values);
+            if (unconsumed.getAndSet(true) && consumed) {
+                statistics.overwritten();
+            }
+            setValue(values.get(values.size() - 1));
+        }
+        engine.valueChanged(this,values);
+    }
+
+    private void setValue(VType newValue) {
+        value = newValue;
+        switch (channel.getKind()) {
+            case NUMBER_ARRAY:
+                numbers = newValue instanceof VNumberArray ? ((VNumberArray)newValue).getData() : null;
+                break;
+            case NUMBER:
+                number = newValue instanceof VNumber ? ((VNumber)newValue).getValue().doubleValue() : Double.NaN;
+                break;
+            case ENUM:
+                index = newValue instanceof VEnum ? ((VEnum)newValue).getIndex() : -1;
+                label = newValue instanceof VEnum ? ((VEnum)newValue).getValue() : null;
+                break;
+            case STRING_ARRAY:
+                strings = newValue instanceof VStringArray ? ((VStringArray)newValue).getData() : null;
+                break;
+            default:
+                break;
+        }
+        if (newValue != null && firstValueAt < 0) {
+            firstValueAt = System.nanoTime();
+            engine.timelineChanged(this);
+            firstValue.complete(this);
+        }
+    }
+
+    /**
+     * Writes the data to the PV. Number arrays are written as waveforms; if no data is given, 1 is written, which
+     * executes the command of a command channel.
+     *
+     * @param data the data to write or null to write 1
+     * @return a future, which completes when the write succeeded, or completes exceptionally with the cause of the
+     *         failure
+     */
+    public CompletableFuture<Void> write(Object data) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final PVWriterListener<Object> listener = new PVWriterListener<Object>() {
+
+            @Override
+            public void pvChanged(PVWriterEvent<Object> event) {
+                if (event.isWriteSucceeded()) {
+                    event.getPvWriter().removePVWriterListener(this);
+                    result.complete(null);
+                } else if (event.isWriteFailed()) {
+                    event.getPvWriter().removePVWriterListener(this);
+                    Exception cause = event.getPvWriter().lastWriteException();
+                    result.completeExceptionally(
+                            cause != null ? cause : new IOException(String.format("Write to %s failed.",pvName)));
+                }
+            }
+        };
+        synchronized (this) {
+            if (writer == null || writer.isClosed()) {
+                result.completeExceptionally(new IOException(String.format("%s is not open for writing.",pvName)));
+                return result;
+            }
+            writer.addPVWriterListener(listener);
+            if (data instanceof VNumberArray) {
+                writer.write(((VNumberArray)data).getData());
+            } else if (data != null) {
+                writer.write(data);
+            } else {
+                writer.write(1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the role of this channel
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the name of the PV that provides this channel
+     */
+    public String getPVName() {
+        return pvName;
+    }
+
+    /**
+     * @return the latest value, or null if the channel is disconnected or has not received a value yet
+     */
+    public VType getValue() {
+        return value;
+    }
+
+    /**
+     * @return the latest value of a {@link Channel.Kind#NUMBER_ARRAY} channel, or null if there is none
+     */
+    public ListNumber getNumbers() {
+        return numbers;
+    }
+
+    /**
+     * @return the latest value of a {@link Channel.Kind#NUMBER} channel, or NaN if there is none
+     */
+    public double getNumber() {
+        return number;
+    }
+
+    /**
+     * @return the latest index of an {@link Channel.Kind#ENUM} channel, or -1 if there is none
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the latest label of an {@link Channel.Kind#ENUM} channel, or null if there is none
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the latest value of a {@link Channel.Kind#STRING_ARRAY} channel, or null if there is none
+     */
+    public List<String> getStrings() {
+        return strings;
+    }
+
+    /**
+     * Marks the latest value as handled by the consumer. If a new value is received before the next call of this
+     * method, the current value is counted as overwritten by the {@link MonitorStatistics}. Values are not counted as
+     * overwritten until this method is called for the first time, so that channels that nobody consumes are not
+     * reported.
+     */
+    public void consume() {
+        consumed = true;
+        unconsumed.set(false);
+    }
+
+    /**
+     * @return the statistics of the monitor updates of this channel
+     */
+    public MonitorStatistics getMonitorStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return true if the PV is currently connected or false otherwise
+     */
+    public boolean isConnected() {
+        return connected.get();
+    }
+
+    /**
+     * @return the time in nanoseconds from the creation of the channel until its first connection, or -1 if the
+     *         channel has never been connected
+     */
+    public long getConnectLatency() {
+        long t = connectedAt;
+        return t < 0 ? -1 : t - createdAt;
+    }
+
+    /**
+     * @return the time in nanoseconds from the creation of the channel until its first value, or -1 if the channel
+     *         has not received a value yet
+     */
+    public long getFirstValueLatency() {
+        long t = firstValueAt;
+        return t < 0 ? -1 : t - createdAt;
+    }
+
+    /**
+     * @return a future, which completes when the channel receives its first value
+     */
+    public CompletableFuture<ChannelState> getFirstValue() {
+        return firstValue;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <code>LatencyHistogram</code> is a fixed bucket histogram of durations. The buckets grow roughly exponentially from
+ * 1 ms to 5 s, with a last bucket for everything longer, which keeps the recording allocation free and lock free, so it
+ * can be updated from any thread. Percentiles are reported as the upper bound of the bucket that contains them.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatencyHistogram {
+
+    private static final long[] BOUNDS_MILLIS = { 1,2,5,10,20,50,100,200,500,1000,2000,5000 };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sumNanos = new AtomicLong(0);
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0,nanos);
+        final long millis = TimeUnit.NANOSECONDS.toMillis(value);
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumNanos.addAndGet(value);
+        maxNanos.accumulateAndGet(value,Math::max);
+    }
+
+    /**
+     * Returns the upper bounds of the buckets in milliseconds. The last bucket, which has no upper bound, is not
+     * included.
+     *
+     * @return the upper bounds of the buckets
+     */
+    public static long[] getBucketBounds() {
+        return BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Returns the number of recorded durations in each bucket. The array is one element longer than the bucket
+     * bounds; the last element counts the durations longer than the last bound.
+     *
+     * @return the bucket counts
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the mean of the recorded durations in milliseconds or NaN if nothing has been recorded
+     */
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? Double.NaN : sumNanos.get() / 1e6 / n;
+    }
+
+    /**
+     * @return the longest recorded duration in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Returns the upper bound of the bucket that contains the given percentile. If the percentile falls into the last
+     * bucket, the longest recorded duration is returned.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the percentile in milliseconds or NaN if nothing has been recorded
+     */
+    public double getPercentileMillis(double percentile) {
+        final long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        //the rank is at least 1, so that the 0th percentile is the bucket of the shortest recorded duration
+        final long rank = Math.max(1,(long)Math.ceil(Math.min(100,Math.max(0,percentile)) / 100. * total));
+        long accumulated = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= rank) {
+                return BOUNDS_MILLIS[i];
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d, mean=%.1f ms, p50<=%.0f ms, p95<=%.0f ms, p99<=%.0f ms, max=%.1f ms",getCount(),
+                getMeanMillis(),getPercentileMillis(50),getPercentileMillis(95),getPercentileMillis(99),
+                getMaxMillis());
+    }
+}
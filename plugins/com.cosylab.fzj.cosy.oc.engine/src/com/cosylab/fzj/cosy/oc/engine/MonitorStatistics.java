@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.List;
+
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VType;
+
+import com.cosylab.fzj.cosy.oc.orbit.OrbitFrame;
+
+/**
+ * <code>MonitorStatistics</code> tracks the monitor updates of a single channel from the IOC to the consumer. It counts
+ * the values received from the data source, the values that DIIRT merged into a single notification because they
+ * arrived faster than the maximum rate of the reader, and the values that were replaced by a newer one before the
+ * consumer handled them. The timestamps of the received values are used to detect gaps: an interval that is several
+ * times longer than the average interval means that the IOC did not publish or that the values were lost on the way.
+ * <p>
+ * The statistics are updated only by the notification thread of the channel and can be read from any thread.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class MonitorStatistics {
+
+    //an interval longer than this factor times the average interval is a gap
+    private static final double GAP_FACTOR = 2.5;
+    //the number of intervals needed before the average interval is trusted
+    private static final int MIN_INTERVALS = 5;
+
+    private volatile long notifications;
+    private volatile long received;
+    private volatile long coalesced;
+    private volatile long overwritten;
+    private volatile long gaps;
+    private volatile long outOfOrder;
+    private volatile long maxInterval;
+    private volatile double averageInterval;
+    private long intervals;
+    private long lastTimestamp = -1;
+
+    /**
+     * Records a notification of the reader, which delivered the given values.
+     *
+     * @param values the values received since the previous notification, oldest first
+     */
+    void notified(List<VType> values) {
+        notifications++;
+        received += values.size();
+        coalesced += values.size() - 1;
+        for (VType value : values) {
+            if (value instanceof Time && ((Time)value).isTimeValid()) {
+                recordTimestamp(OrbitFrame.toNanos(((Time)value).getTimestamp()));
+            }
+        }
+    }
+
+    /**
+     * Records that a value has been replaced by a newer one before the consumer handled it.
+     */
+    void overwritten() {
+        overwritten++;
+    }
+
+    private void recordTimestamp(long timestamp) {
+        final long last = lastTimestamp;
+        lastTimestamp = timestamp;
+        if (last < 0) return;
+        final long interval = timestamp - last;
+        if (interval <= 0) {
+            outOfOrder++;
+            return;
+        }
+        if (interval > maxInterval) {
+            maxInterval = interval;
+        }
+        if (intervals >= MIN_INTERVALS && interval > GAP_FACTOR * averageInterval) {
+            //gaps are not included in the average, so that a long outage does not hide the following ones
+            gaps++;
+        } else {
+            intervals++;
+            averageInterval = intervals == 1 ? interval : averageInterval + (interval - averageInterval) / 8.;
+        }
+    }
+
+    /**
+     * @return the number of notifications received from the reader
+     */
+    public long getNotificationCount() {
+        return notifications;
+    }
+
+    /**
+     * @return the number of values received from the data source
+     */
+    public long getReceivedCount() {
+        return received;
+    }
+
+    /**
+     * @return the number of values that were merged with a newer value into the same notification
+     */
+    public long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * @return the number of notified values that were replaced by a newer one before the consumer handled them
+     */
+    public long getOverwrittenCount() {
+        return overwritten;
+    }
+
+    /**
+     * @return the number of detected gaps in the timestamps of the received values
+     */
+    public long getGapCount() {
+        return gaps;
+    }
+
+    /**
+     * @return the number of values, which had the same or an older timestamp than the value before them
+     */
+    public long getOutOfOrderCount() {
+        return outOfOrder;
+    }
+
+    /**
+     * @return the average interval between the timestamps of consecutive values in milliseconds, excluding the gaps
+     */
+    public double getAverageIntervalMillis() {
+        return averageInterval / 1e6;
+    }
+
+    /**
+     * @return the longest interval between the timestamps of consecutive values in milliseconds
+     */
+    public double getMaxIntervalMillis() {
+        return maxInterval / 1e6;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "received=%d, notifications=%d, coalesced=%d, overwritten=%d, gaps=%d, out of order=%d, "
+                        + "interval avg=%.1f ms, max=%.1f ms",
+                received,notifications,coalesced,overwritten,gaps,outOfOrder,getAverageIntervalMillis(),
+                getMaxIntervalMillis());
+    }
+}
@@ -0,0 +1,1009 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import static java.util.Optional.ofNullable;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.diirt.datasource.DataSource;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VType;
+
+import com.cosylab.fzj.cosy.oc.lattice.LatticeArrays;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeCache;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeModel;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate;
+import com.cosylab.fzj.cosy.oc.orbit.BPMCorrelation;
+import com.cosylab.fzj.cosy.oc.orbit.BPMSpectrum;
+import com.cosylab.fzj.cosy.oc.orbit.BPMStatistics;
+import com.cosylab.fzj.cosy.oc.orbit.CorrelationMatrix;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitFrame;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitHistory;
+import com.cosylab.fzj.cosy.oc.orbit.RollingStatistics;
+import com.cosylab.fzj.cosy.oc.orbit.RollingWindow;
+import com.cosylab.fzj.cosy.oc.orbit.SpectrumAnalyzer;
+
+/**
+ * <code>OrbitEngine</code> owns the PV layer and the model of the orbit correction application: it connects the
+ * channels, tracks their values and connection states, records the received orbits into the orbit histories, keeps
+ * the lattice model (and the lattice cache) up to date with the values received from the IOC, turns the received
+ * orbits into orbit frames and periodically publishes the rolling statistics, spectra and correlations of the BPMs.
+ * The engine does not depend on any UI toolkit; clients observe it through {@link OrbitEngineListener}s and read the
+ * channel values through {@link ChannelState}.
+ * <p>
+ * Listeners have to be registered before the channels are connected, otherwise they might miss the first events.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class OrbitEngine {
+
+    /** The logger used when no listener is registered to receive the messages */
+    public static final Logger LOGGER = Logger.getLogger(OrbitEngine.class.getName());
+    private static final Channel[] CHANNELS = Channel.values();
+    private static final Duration WRITE_TIMEOUT = Duration.ofMillis(2000);
+    private static final Duration PAIRING_TOLERANCE = Duration.ofMillis(50);
+    private static final PairedOrbit[] PAIRED_ORBITS = PairedOrbit.values();
+    private static final int DEFAULT_CORRELATION_MEMORY = 600;
+    private static final int MAX_PENDING_CORRELATION_SAMPLES = 16;
+    private static final int DEFAULT_MAX_CORRELATION_SIZE = 2000;
+    private static final int CONNECT_THREADS = Math.max(1,Math.min(4,Runtime.getRuntime().availableProcessors()));
+    private static final long ANALYSIS_PERIOD = 1000;
+    private static final int DEFAULT_SPECTRUM_LENGTH = 256;
+    private static final LatticeSource[] LATTICE_SOURCES = {
+            new LatticeSource(LatticeElementType.HORIZONTAL_BPM,Channel.HORIZONTAL_BPM_NAMES,
+                    Channel.HORIZONTAL_BPM_POSITIONS,Channel.HORIZONTAL_BPM_ENABLED),
+            new LatticeSource(LatticeElementType.VERTICAL_BPM,Channel.VERTICAL_BPM_NAMES,
+                    Channel.VERTICAL_BPM_POSITIONS,Channel.VERTICAL_BPM_ENABLED),
+            new LatticeSource(LatticeElementType.HORIZONTAL_CORRECTOR,Channel.HORIZONTAL_CORRECTOR_NAMES,
+                    Channel.HORIZONTAL_CORRECTOR_POSITIONS,Channel.HORIZONTAL_CORRECTOR_ENABLED),
+            new LatticeSource(LatticeElementType.VERTICAL_CORRECTOR,Channel.VERTICAL_CORRECTOR_NAMES,
+                    Channel.VERTICAL_CORRECTOR_POSITIONS,Channel.VERTICAL_CORRECTOR_ENABLED),
+            new LatticeSource(LatticeElementType.QUADRUPOLE,Channel.QUADRUPOLE_NAMES,Channel.QUADRUPOLE_POSITIONS,
+                    null),
+            new LatticeSource(LatticeElementType.DIPOLE,Channel.DIPOLE_NAMES,Channel.DIPOLE_POSITIONS,null),
+            new LatticeSource(LatticeElementType.SEXTUPOLE,Channel.SEXTUPOLE_NAMES,Channel.SEXTUPOLE_POSITIONS,null) };
+
+    private final AtomicReferenceArray<ChannelState> channels = new AtomicReferenceArray<>(CHANNELS.length);
+    private final List<OrbitEngineListener> listeners = new CopyOnWriteArrayList<>();
+    // number of registered channels, which are currently disconnected
+    private final AtomicInteger disconnectedCount = new AtomicInteger(0);
+    // the recorders are written by the listener threads of the orbit PVs, which is why the BPM enable masks are
+    // replaced (never modified) whenever the BPMs change
+    private final OrbitRecorder horizontalRecorder;
+    private final OrbitRecorder verticalRecorder;
+    private volatile boolean[] horizontalBPMEnableMask = new boolean[0];
+    private volatile boolean[] verticalBPMEnableMask = new boolean[0];
+    // the lattice model is only updated on the engine thread; the lattice values are only applied once the lattice
+    // has been read for the first time
+    private final LatticeModel lattice = new LatticeModel();
+    private final AtomicBoolean latticeTracking = new AtomicBoolean(false);
+    // the orbit channels whose values do not fit the lattice, so that the mismatch is only logged once
+    private final Set<Channel> mismatchedOrbits = ConcurrentHashMap.newKeySet();
+    private volatile File latticeCacheFile;
+    private volatile List<LatticeElementData> cachedLattice = Collections.emptyList();
+    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,r -> {
+        Thread thread = new Thread(r,"Orbit Engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the channels are created on the engine's own threads, so that the startup does not depend on a shared pool
+    private final ExecutorService connectExecutor = Executors.newFixedThreadPool(CONNECT_THREADS,r -> {
+        Thread thread = new Thread(r,"Orbit Engine connect");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // each rate class has its own maximum rate and notification thread
+    private final Map<RateClass,Duration> maxRates = new EnumMap<>(RateClass.class);
+    private final Map<RateClass,ExecutorService> notificationExecutors = new EnumMap<>(RateClass.class);
+    private volatile DataSource dataSource;
+    // the pairers of the paired orbits and the latest complete pairs, indexed by the paired orbit ordinal
+    private final OrbitPairer[] pairers = new OrbitPairer[PAIRED_ORBITS.length];
+    private final AtomicReferenceArray<OrbitPair> latestPairs = new AtomicReferenceArray<>(PAIRED_ORBITS.length);
+    // the correlation matrix is updated on its own thread, so that the orbit notifications never wait for it; the
+    // matrix only exists while the correlations are enabled
+    private final int correlationMemory;
+    private volatile int maxCorrelationSize = DEFAULT_MAX_CORRELATION_SIZE;
+    private volatile CorrelationMatrix correlation;
+    private final AtomicBoolean correlationTooLarge = new AtomicBoolean(false);
+    private final AtomicInteger pendingCorrelationSamples = new AtomicInteger(0);
+    private final AtomicLong droppedCorrelationSamples = new AtomicLong(0);
+    // the rolling statistics of the published window and the spectra are only computed on the analysis thread
+    private volatile RollingWindow rollingWindow = RollingWindow.MINUTE_1;
+    private volatile boolean spectrumEnabled = false;
+    private volatile SpectrumAnalyzer horizontalSpectrum = new SpectrumAnalyzer(DEFAULT_SPECTRUM_LENGTH);
+    private volatile SpectrumAnalyzer verticalSpectrum = new SpectrumAnalyzer(DEFAULT_SPECTRUM_LENGTH);
+    private final ScheduledExecutorService analysisExecutor = new ScheduledThreadPoolExecutor(1,r -> {
+        Thread thread = new Thread(r,"Orbit Engine analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a new engine, which keeps up to <code>historySize</code> orbits of each plane.
+     *
+     * @param historySize the number of orbit frames kept in each orbit history
+     */
+    public OrbitEngine(int historySize) {
+        this(historySize,DEFAULT_CORRELATION_MEMORY);
+    }
+
+    /**
+     * Constructs a new engine, which keeps up to <code>historySize</code> orbits of each plane and, when enabled,
+     * computes the BPM correlations over approximately the last <code>correlationMemory</code> measured orbits.
+     *
+     * @param historySize the number of orbit frames kept in each orbit history
+     * @param correlationMemory the number of orbits after which the correlation weighting becomes exponential
+     */
+    public OrbitEngine(int historySize, int correlationMemory) {
+        this(historySize,correlationMemory,Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new engine, which keeps up to <code>historySize</code> orbits of each plane, but no more than fit
+     * into <code>historyBytes</code> bytes per plane, and, when enabled, computes the BPM correlations over
+     * approximately the last <code>correlationMemory</code> measured orbits.
+     *
+     * @param historySize the number of orbit frames kept in each orbit history
+     * @param correlationMemory the number of orbits after which the correlation weighting becomes exponential
+     * @param historyBytes the maximum number of bytes taken by each orbit history
+     */
+    public OrbitEngine(int historySize, int correlationMemory, long historyBytes) {
+        if (correlationMemory < 2) {
+            throw new IllegalArgumentException("Correlation memory must be at least 2 samples.");
+        }
+        this.correlationMemory = correlationMemory;
+        this.horizontalRecorder = new OrbitRecorder(historySize,historyBytes);
+        this.verticalRecorder = new OrbitRecorder(historySize,historyBytes);
+        for (RateClass rateClass : RateClass.values()) {
+            maxRates.put(rateClass,rateClass.getDefaultMaxRate());
+            notificationExecutors.put(rateClass,Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r,"Orbit Engine " + rateClass.getKey() + " notifications");
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+        for (PairedOrbit orbit : PAIRED_ORBITS) {
+            pairers[orbit.ordinal()] = new OrbitPairer(PAIRING_TOLERANCE.toNanos(),pair -> {
+                final OrbitFrame horizontal = buildOrbitFrame(orbit.getHorizontal(),pair.getHorizontal(),
+                        horizontalBPMEnableMask);
+                final OrbitFrame vertical = buildOrbitFrame(orbit.getVertical(),pair.getVertical(),
+                        verticalBPMEnableMask);
+                if (pair.isComplete()) {
+                    latestPairs.set(orbit.ordinal(),pair);
+                    if (orbit == PairedOrbit.MEASURED) {
+                        addCorrelationSample(horizontal,vertical);
+                    }
+                }
+                listeners.forEach(l -> l.orbitPaired(orbit,pair));
+                if (horizontal != null || vertical != null) {
+                    listeners.forEach(l -> l.orbitFramesPaired(orbit,horizontal,vertical));
+                }
+            });
+        }
+        analysisExecutor.scheduleWithFixedDelay(this::publishAnalysis,ANALYSIS_PERIOD,ANALYSIS_PERIOD,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the maximum difference between the timestamps of the horizontal and vertical values that are paired.
+     *
+     * @param tolerance the pairing tolerance
+     */
+    public void setPairingTolerance(Duration tolerance) {
+        for (OrbitPairer pairer : pairers) {
+            pairer.setTolerance(tolerance.toNanos());
+        }
+    }
+
+    /**
+     * Returns the latest complete pair of the given paired orbit. Use this pair wherever both planes have to belong to
+     * the same measurement, e.g. for exports and analysis.
+     *
+     * @param orbit the paired orbit
+     * @return the latest complete pair if there is one
+     */
+    public Optional<OrbitPair> getLatestPair(PairedOrbit orbit) {
+        return ofNullable(latestPairs.get(orbit.ordinal()));
+    }
+
+    /**
+     * @param orbit the paired orbit
+     * @return the number of complete pairs published for the given orbit
+     */
+    public long getPairedCount(PairedOrbit orbit) {
+        return pairers[orbit.ordinal()].getPairedCount();
+    }
+
+    /**
+     * @param orbit the paired orbit
+     * @return the number of values of the given orbit that could not be paired
+     */
+    public long getUnpairedCount(PairedOrbit orbit) {
+        return pairers[orbit.ordinal()].getUnpairedCount();
+    }
+
+    /**
+     * Enables or disables the BPM correlations. The correlation matrix is only created and fed with the measured
+     * orbits while the correlations are enabled; disabling them releases the matrix and all accumulated samples.
+     *
+     * @param enabled true to compute the correlations or false to stop computing them
+     */
+    public synchronized void setCorrelationEnabled(boolean enabled) {
+        if (enabled && correlation == null) {
+            correlationTooLarge.set(false);
+            correlation = new CorrelationMatrix(correlationMemory,maxCorrelationSize);
+        } else if (!enabled) {
+            correlation = null;
+        }
+    }
+
+    /**
+     * @return true if the BPM correlations are computed or false otherwise
+     */
+    public boolean isCorrelationEnabled() {
+        return correlation != null;
+    }
+
+    /**
+     * Sets the maximum number of BPMs of both planes together, for which the correlations are computed. The matrix
+     * grows with the square of the number of BPMs, so larger lattices are not correlated. The new limit applies when
+     * the correlations are enabled the next time.
+     *
+     * @param size the maximum number of BPMs
+     */
+    public void setMaxCorrelationSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The correlations must allow at least 1 BPM.");
+        }
+        maxCorrelationSize = size;
+    }
+
+    /**
+     * @return the maximum number of BPMs of both planes together, for which the correlations are computed
+     */
+    public int getMaxCorrelationSize() {
+        return maxCorrelationSize;
+    }
+
+    /**
+     * Computes the correlation coefficients between all BPMs of both planes from the measured orbits received since
+     * the correlations were enabled. The horizontal BPMs come first in the matrix, followed by the vertical BPMs.
+     *
+     * @return the snapshot of the BPM correlation or an empty correlation if the correlations are disabled or there
+     *         are too many BPMs
+     */
+    public BPMCorrelation getCorrelation() {
+        final CorrelationMatrix matrix = correlation;
+        return matrix == null ? BPMCorrelation.EMPTY : matrix.snapshot();
+    }
+
+    /**
+     * Discards all samples of the BPM correlation. The samples which are already waiting to be added are kept.
+     */
+    public void resetCorrelation() {
+        final CorrelationMatrix matrix = correlation;
+        if (matrix != null) {
+            matrix.reset();
+        }
+    }
+
+    /**
+     * @return the number of measured orbits that were not added to the correlation, because the analysis fell behind
+     */
+    public long getDroppedCorrelationSamples() {
+        return droppedCorrelationSamples.get();
+    }
+
+    /**
+     * Enables or disables the noise spectra of the BPMs. While enabled, the spectra are computed over the latest
+     * frames in the orbit histories and published to the listeners about once per second.
+     *
+     * @param enabled true to compute the spectra or false to stop computing them
+     */
+    public void setSpectrumEnabled(boolean enabled) {
+        spectrumEnabled = enabled;
+    }
+
+    /**
+     * @return true if the noise spectra are computed or false otherwise
+     */
+    public boolean isSpectrumEnabled() {
+        return spectrumEnabled;
+    }
+
+    /**
+     * Sets the number of orbit frames over which the noise spectra are computed. The spectra start from scratch.
+     *
+     * @param length the number of frames, a power of 2 not smaller than 8
+     */
+    public void setSpectrumLength(int length) {
+        horizontalSpectrum = new SpectrumAnalyzer(length);
+        verticalSpectrum = new SpectrumAnalyzer(length);
+    }
+
+    /**
+     * @return the number of orbit frames over which the noise spectra are computed
+     */
+    public int getSpectrumLength() {
+        return horizontalSpectrum.getLength();
+    }
+
+    /**
+     * Sets the rolling window whose statistics are published to the listeners. The statistics of all windows are
+     * always kept, so the statistics of the new window are published immediately.
+     *
+     * @param window the published rolling window
+     */
+    public void setRollingWindow(RollingWindow window) {
+        rollingWindow = Objects.requireNonNull(window);
+        try {
+            analysisExecutor.execute(this::publishRollingStatistics);
+        } catch (RejectedExecutionException e) {
+            //the engine has been disposed
+        }
+    }
+
+    /**
+     * @return the rolling window whose statistics are published to the listeners
+     */
+    public RollingWindow getRollingWindow() {
+        return rollingWindow;
+    }
+
+    /**
+     * Sets the maximum rate at which the channels of the given rate class notify about new values. The rate is only
+     * applied to the channels connected after this call.
+     *
+     * @param rateClass the rate class
+     * @param maxRate the minimum period between two notifications of a channel
+     */
+    public void setMaxRate(RateClass rateClass, Duration maxRate) {
+        synchronized (maxRates) {
+            maxRates.put(rateClass,maxRate);
+        }
+    }
+
+    /**
+     * Returns the maximum rate at which the channels of the given rate class notify about new values.
+     *
+     * @param rateClass the rate class
+     * @return the minimum period between two notifications of a channel
+     */
+    public Duration getMaxRate(RateClass rateClass) {
+        synchronized (maxRates) {
+            return maxRates.get(rateClass);
+        }
+    }
+
+    /**
+     * Sets the data source, which provides the PVs of the channels connected after this call. If null, the PVs are
+     * read from the default data source of the PV manager.
+     *
+     * @param dataSource the data source or null for the default one
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Returns the data source that provides the PVs, or null if the default data source of the PV manager is used.
+     *
+     * @return the data source
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Registers a listener with this engine.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(OrbitEngineListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener from this engine.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(OrbitEngineListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Connects the PVs of the given channels. The channels are created concurrently on the connection threads of the
+     * engine and the method returns when all of them have been created. Each channel is registered (and announced to
+     * the listeners) before its PV is opened, so no event of the PV can be missed. Every channel counts as
+     * disconnected until its first connection event. The channels are notified on the thread of their
+     * {@link RateClass}, at most at the rate configured for the class.
+     *
+     * @param pvNames the PV names of the channels to connect
+     */
+    public void connect(Map<Channel,String> pvNames) {
+        CompletableFuture.allOf(pvNames.entrySet().stream()
+                .map(e -> CompletableFuture.runAsync(() -> createChannel(e.getKey(),e.getValue()),connectExecutor))
+                .toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void createChannel(Channel channel, String pvName) {
+        ChannelState state = new ChannelState(this,channel,pvName);
+        updateDisconnectedCount(1);
+        channels.set(channel.ordinal(),state);
+        listeners.forEach(l -> l.channelAdded(state));
+        RateClass rateClass = RateClass.of(channel);
+        state.open(getMaxRate(rateClass),notificationExecutors.get(rateClass),WRITE_TIMEOUT,dataSource);
+    }
+
+    /**
+     * Connects the PVs of the lattice channels. The lattice is ready when every lattice channel has received its
+     * first value. Once the lattice is ready (or the timeout elapsed) the received lattice is applied to the lattice
+     * model, and all further lattice changes are applied as well and stored in the lattice cache.
+     *
+     * @param pvNames the PV names of the lattice channels
+     * @param timeout the time in milliseconds after which the lattice is given up on
+     * @return a future, which completes after the listeners were notified about the changes of the lattice model, or
+     *         completes exceptionally if the lattice could not be read in time
+     */
+    public CompletableFuture<Void> connectLattice(Map<Channel,String> pvNames, long timeout) {
+        connect(pvNames);
+        final CompletableFuture<Void> ready = CompletableFuture.allOf(pvNames.keySet().stream()
+                .map(c -> channels.get(c.ordinal()).getFirstValue()).toArray(CompletableFuture[]::new));
+        final Future<?> timer = executor.schedule(() -> ready.completeExceptionally(new TimeoutException()),timeout,
+                TimeUnit.MILLISECONDS);
+        return ready.whenCompleteAsync((r, t) -> {
+            timer.cancel(false);
+            if (t == null) {
+                updateLatticeCache();
+            }
+            latticeTracking.set(true);
+            updateLattice();
+        },executor);
+    }
+
+    /**
+     * Replaces the elements in the lattice model with the given elements, e.g. with the lattice loaded from files or
+     * from the cache. The elements are replaced on the engine thread, which notifies the listeners about the changes.
+     *
+     * @param elements the lattice elements
+     */
+    public void setLattice(List<LatticeElementData> elements) {
+        executeOnEngine(() -> lattice.set(elements).forEach(this::publishLatticeUpdate));
+    }
+
+    /**
+     * Returns the names, positions and enable states of all lattice elements of the given type as parallel arrays.
+     * The arrays are not copied and must not be modified. They are replaced whenever any of the elements changes.
+     *
+     * @param type the lattice element type
+     * @return the lattice arrays of the given type
+     */
+    public LatticeArrays getLatticeArrays(LatticeElementType type) {
+        return lattice.get(type);
+    }
+
+    /**
+     * Sets the file in which the lattice received from the IOC is cached and loads the previously cached lattice.
+     *
+     * @param file the lattice cache file
+     * @return the cached lattice elements or an empty list if there are none
+     */
+    public List<LatticeElementData> openLatticeCache(File file) {
+        final List<LatticeElementData> cached = LatticeCache.load(file);
+        cachedLattice = cached;
+        latticeCacheFile = file;
+        return cached;
+    }
+
+    /**
+     * Returns the state of the given channel.
+     *
+     * @param channel the channel
+     * @return the channel state if the channel is connected through this engine
+     */
+    public Optional<ChannelState> getChannel(Channel channel) {
+        return ofNullable(channels.get(channel.ordinal()));
+    }
+
+    /**
+     * Returns the states of all channels connected through this engine, in the declaration order of the channels.
+     *
+     * @return the channel states
+     */
+    public Stream<ChannelState> getChannels() {
+        return Arrays.stream(CHANNELS).map(c -> channels.get(c.ordinal())).filter(Objects::nonNull);
+    }
+
+    /**
+     * Returns true if all channels connected through this engine are currently connected.
+     *
+     * @return true if all channels are connected or false otherwise
+     */
+    public boolean isAllConnected() {
+        return disconnectedCount.get() == 0;
+    }
+
+    /**
+     * Returns the history of the received horizontal or vertical orbits. The history receives every orbit update and
+     * can be read from any thread.
+     *
+     * @param horizontal true for the horizontal orbit history or false for the vertical one
+     * @return the orbit history
+     */
+    public OrbitHistory getOrbitHistory(boolean horizontal) {
+        return (horizontal ? horizontalRecorder : verticalRecorder).history;
+    }
+
+    /**
+     * Returns the histogram of the horizontal or vertical orbit latency: the time from the timestamp of an orbit until
+     * it was received by this engine. The latency is only meaningful if the clocks of the IOC and this host are
+     * synchronised, which is always the case for the simulated device.
+     *
+     * @param horizontal true for the horizontal orbit latency or false for the vertical one
+     * @return the orbit latency histogram
+     */
+    public LatencyHistogram getOrbitLatency(boolean horizontal) {
+        return (horizontal ? horizontalRecorder : verticalRecorder).latency;
+    }
+
+    /**
+     * Returns the rolling statistics of each BPM of the horizontal or vertical plane over the given time window. The
+     * statistics of all windows are kept in parallel, each of them receives every orbit update and can be read from
+     * any thread.
+     *
+     * @param horizontal true for the horizontal plane or false for the vertical one
+     * @param window the time window
+     * @return the rolling statistics
+     */
+    public RollingStatistics getRollingStatistics(boolean horizontal, RollingWindow window) {
+        return (horizontal ? horizontalRecorder : verticalRecorder).statistics[window.ordinal()];
+    }
+
+    /**
+     * Sets the enable states of the BPMs, which are used to build the orbit frames. The states are set by the engine
+     * whenever the BPMs in the lattice model change. The array must not be modified after it was handed to the engine.
+     *
+     * @param horizontal true for the horizontal BPMs or false for the vertical ones
+     * @param mask the enable state of each BPM
+     */
+    public void setBPMEnableMask(boolean horizontal, boolean[] mask) {
+        if (horizontal) {
+            horizontalBPMEnableMask = mask;
+        } else {
+            verticalBPMEnableMask = mask;
+        }
+    }
+
+    /**
+     * Builds the lattice from the current values of the lattice channels.
+     *
+     * @return the lattice elements, or empty if any of the lattice values is missing or inconsistent
+     */
+    public Optional<List<LatticeElementData>> getLiveLattice() {
+        final List<LatticeElementData> elements = new ArrayList<>(cachedLattice.size());
+        for (LatticeSource source : LATTICE_SOURCES) {
+            if (!addLiveElements(elements,source)) {
+                return Optional.empty();
+            }
+        }
+        return elements.isEmpty() ? Optional.empty() : Optional.of(elements);
+    }
+
+    /**
+     * Closes all channels and stops the engine. The engine cannot be used afterwards.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+        connectExecutor.shutdownNow();
+        for (int i = 0; i < CHANNELS.length; i++) {
+            ofNullable(channels.getAndSet(i,null)).ifPresent(ChannelState::dispose);
+        }
+        notificationExecutors.values().forEach(ExecutorService::shutdownNow);
+        analysisExecutor.shutdownNow();
+    }
+
+    /**
+     * Adds the elements described by the current values of the given lattice channels to the list. If the channels
+     * are not configured, nothing is added.
+     *
+     * @param elements the list to add the elements to
+     * @param source the lattice channels of the elements
+     * @return true if the elements were added or false if the values are missing or inconsistent
+     */
+    private boolean addLiveElements(List<LatticeElementData> elements, LatticeSource source) {
+        final ChannelState names = channels.get(source.names.ordinal());
+        final ChannelState positions = channels.get(source.positions.ordinal());
+        if (names == null && positions == null) {
+            return true;
+        }
+        final List<String> nameValues = names == null ? null : names.getStrings();
+        final ListNumber positionValues = positions == null ? null : positions.getNumbers();
+        if (nameValues == null || positionValues == null || nameValues.size() != positionValues.size()) {
+            return false;
+        }
+        for (int i = 0; i < nameValues.size(); i++) {
+            elements.add(new LatticeElementData(nameValues.get(i),positionValues.getDouble(i),source.type));
+        }
+        return true;
+    }
+
+    /**
+     * Stores the lattice received from the IOC into the lattice cache, if it is complete and differs from the cached
+     * one. This method is only called on the engine thread.
+     */
+    private void updateLatticeCache() {
+        ofNullable(latticeCacheFile).ifPresent(file -> getLiveLattice()
+                .filter(elements -> !elements.equals(cachedLattice)).ifPresent(elements -> {
+                    LatticeCache.save(file,elements);
+                    cachedLattice = elements;
+                }));
+    }
+
+    /**
+     * Applies the current values of the lattice channels to the lattice model and notifies the listeners about the
+     * changes. Nothing is applied while any of the lattice channels is disconnected. This method is only called on the
+     * engine thread.
+     */
+    private void updateLattice() {
+        if (!getChannels().filter(c -> c.getChannel().isLattice()).allMatch(ChannelState::isConnected)) return;
+        for (LatticeSource source : LATTICE_SOURCES) {
+            final List<String> names = getChannel(source.names).map(ChannelState::getStrings).orElse(null);
+            final LatticeUpdate update = lattice.update(source.type,names,getNumbers(source.positions),
+                    getNumbers(source.enabled));
+            if (update != null) {
+                publishLatticeUpdate(update);
+            }
+        }
+    }
+
+    private ListNumber getNumbers(Channel channel) {
+        return channel == null ? null : getChannel(channel).map(ChannelState::getNumbers).orElse(null);
+    }
+
+    /**
+     * Hands the new BPM enable states to the orbit recorders and notifies the listeners about the lattice update. This
+     * method is only called on the engine thread.
+     *
+     * @param update the update of the lattice model
+     */
+    private void publishLatticeUpdate(LatticeUpdate update) {
+        if (update.getType() == LatticeElementType.HORIZONTAL_BPM
+                || update.getType() == LatticeElementType.VERTICAL_BPM) {
+            setBPMEnableMask(update.getType() == LatticeElementType.HORIZONTAL_BPM,update.getArrays().getEnabled());
+        }
+        listeners.forEach(l -> l.latticeChanged(update));
+    }
+
+    private void executeOnEngine(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            //the engine has been disposed
+        }
+    }
+
+    /**
+     * Builds the orbit frame from the received orbit. If the orbit does not fit the lattice, the mismatch is logged
+     * once, until the orbit of the channel fits again.
+     *
+     * @param channel the orbit channel that received the value
+     * @param value the received orbit
+     * @param enabled the enable mask of the BPMs
+     * @return the frame or null if the value is not an orbit or does not fit the lattice
+     */
+    private OrbitFrame buildOrbitFrame(Channel channel, VType value, boolean[] enabled) {
+        if (!(value instanceof VNumberArray)) return null;
+        final ListNumber data = ((VNumberArray)value).getData();
+        if (data.size() == 0) return null;
+        final String series = channel.getKey().replace('_',' ');
+        if (enabled.length == 0) {
+            //orbits received before the lattice are expected, so the lattice is only missing once it has been read
+            if (latticeTracking.get() && mismatchedOrbits.add(channel)) {
+                log(String.format("Lattice information unknown, the %s cannot be shown.",series),Level.SEVERE,null);
+            }
+            return null;
+        }
+        final OrbitFrame frame = OrbitFrame.build(data,enabled,
+                OrbitFrame.toNanos(((VNumberArray)value).getTimestamp()));
+        int enabledCount = enabled.length;
+        if (data.size() != enabled.length) {
+            enabledCount = 0;
+            for (boolean e : enabled) {
+                if (e) {
+                    enabledCount++;
+                }
+            }
+        }
+        if (frame != null && data.size() == enabledCount) {
+            mismatchedOrbits.remove(channel);
+        } else if (mismatchedOrbits.add(channel)) {
+            log(String.format("The number of %s values (%d) does not match the number of enabled bpms (%d/%d).",
+                    series,data.size(),enabledCount,enabled.length),frame == null ? Level.SEVERE : Level.WARNING,
+                    null);
+        }
+        return frame;
+    }
+
+    /**
+     * Publishes the rolling statistics, the spectra and the correlations to the listeners. This method is only called
+     * on the analysis thread.
+     */
+    private void publishAnalysis() {
+        try {
+            publishRollingStatistics();
+            publishSpectra();
+            publishCorrelation();
+        } catch (RuntimeException e) {
+            //an exception would cancel the periodic task
+            log("The orbit analysis failed.",Level.SEVERE,e);
+        }
+    }
+
+    /**
+     * Publishes the rolling statistics of the published window of both planes together with the noise frames, which
+     * contain the standard deviation of each BPM. A single sample has no spread, so only the BPMs with at least two
+     * samples have a valid noise.
+     */
+    private void publishRollingStatistics() {
+        if (listeners.isEmpty()) return;
+        final RollingWindow window = rollingWindow;
+        for (boolean horizontal : new boolean[] { true, false }) {
+            final BPMStatistics statistics = getRollingStatistics(horizontal,window).snapshot();
+            final boolean[] enabled = horizontal ? horizontalBPMEnableMask : verticalBPMEnableMask;
+            OrbitFrame noise = null;
+            if (enabled.length == statistics.size()) {
+                final long[] count = statistics.getCount();
+                final boolean[] valid = new boolean[count.length];
+                for (int i = 0; i < count.length; i++) {
+                    valid[i] = count[i] > 1;
+                }
+                noise = new OrbitFrame(statistics.getStd(),valid,enabled,OrbitFrame.toNanos(Instant.now()));
+            }
+            final OrbitFrame frame = noise;
+            listeners.forEach(l -> l.rollingStatisticsChanged(horizontal,window,statistics,frame));
+        }
+    }
+
+    /**
+     * Feeds the frames received since the previous call to the spectrum analyzers and publishes the new spectra.
+     * Nothing is computed while the spectra are disabled.
+     */
+    private void publishSpectra() {
+        if (!spectrumEnabled) return;
+        publishSpectrum(horizontalSpectrum,true);
+        publishSpectrum(verticalSpectrum,false);
+    }
+
+    private void publishSpectrum(SpectrumAnalyzer analyzer, boolean horizontal) {
+        if (analyzer.update(getOrbitHistory(horizontal)) && analyzer.isReady()) {
+            final BPMSpectrum spectrum = analyzer.compute();
+            listeners.forEach(l -> l.spectrumChanged(horizontal,spectrum));
+        }
+    }
+
+    /**
+     * Publishes the current BPM correlations, if the correlations are enabled.
+     */
+    private void publishCorrelation() {
+        final CorrelationMatrix matrix = correlation;
+        if (matrix == null) return;
+        final BPMCorrelation snapshot = matrix.snapshot();
+        listeners.forEach(l -> l.correlationChanged(snapshot));
+    }
+
+    /**
+     * Hands the frames of the complete measured orbit pair to the analysis thread, which adds them to the correlation
+     * matrix. If the analysis thread falls too far behind, the pair is dropped instead of queued. Nothing is done
+     * while the correlations are disabled.
+     *
+     * @param horizontal the horizontal frame of the measured orbit pair
+     * @param vertical the vertical frame of the measured orbit pair
+     */
+    private void addCorrelationSample(OrbitFrame horizontal, OrbitFrame vertical) {
+        final CorrelationMatrix matrix = correlation;
+        if (matrix == null || horizontal == null || vertical == null) return;
+        if (pendingCorrelationSamples.incrementAndGet() > MAX_PENDING_CORRELATION_SAMPLES) {
+            pendingCorrelationSamples.decrementAndGet();
+            droppedCorrelationSamples.incrementAndGet();
+            return;
+        }
+        try {
+            analysisExecutor.execute(() -> {
+                try {
+                    if (matrix.add(horizontal,vertical)) {
+                        correlationTooLarge.set(false);
+                    } else if (correlationTooLarge.compareAndSet(false,true)) {
+                        log(String.format("The BPM correlations are not computed for %d BPMs; the limit is %d BPMs.",
+                                horizontal.size() + vertical.size(),matrix.getMaxSize()),Level.WARNING,null);
+                    }
+                } finally {
+                    pendingCorrelationSamples.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //the engine has been disposed
+            pendingCorrelationSamples.decrementAndGet();
+        }
+    }
+
+    private void updateDisconnectedCount(int delta) {
+        final int count = disconnectedCount.addAndGet(delta);
+        if (count == 0 || (count == 1 && delta > 0)) {
+            listeners.forEach(l -> l.allConnectedChanged(count == 0));
+        }
+    }
+
+    void connectionChanged(ChannelState state, boolean connected) {
+        updateDisconnectedCount(connected ? -1 : 1);
+        listeners.forEach(l -> l.connectionChanged(state));
+    }
+
+    void timelineChanged(ChannelState state) {
+        listeners.forEach(l -> l.connectionChanged(state));
+    }
+
+    void valueChanged(ChannelState state, List<VType> newValues) {
+        final Channel channel = state.getChannel();
+        //every received orbit is recorded, including those that were merged into a single notification
+        if (channel == Channel.HORIZONTAL_ORBIT) {
+            newValues.forEach(v -> horizontalRecorder.record(v,horizontalBPMEnableMask));
+        } else if (channel == Channel.VERTICAL_ORBIT) {
+            newValues.forEach(v -> verticalRecorder.record(v,verticalBPMEnableMask));
+        }
+        if ((channel == Channel.GOLDEN_HORIZONTAL_ORBIT || channel == Channel.GOLDEN_VERTICAL_ORBIT)
+                && !newValues.isEmpty()) {
+            final OrbitFrame frame = buildOrbitFrame(channel,newValues.get(newValues.size() - 1),
+                    channel == Channel.GOLDEN_HORIZONTAL_ORBIT ? horizontalBPMEnableMask : verticalBPMEnableMask);
+            if (frame != null) {
+                listeners.forEach(l -> l.orbitFrameReceived(channel,frame));
+            }
+        }
+        listeners.forEach(l -> l.valueChanged(state));
+        final PairedOrbit paired = PairedOrbit.of(channel);
+        if (paired != null) {
+            final boolean horizontal = paired.getHorizontal() == channel;
+            newValues.stream().filter(VNumberArray.class::isInstance)
+                    .forEach(v -> pairers[paired.ordinal()].offer(horizontal,(VNumberArray)v));
+        }
+        if (channel.isLattice() && latticeTracking.get()) {
+            executeOnEngine(() -> {
+                updateLattice();
+                updateLatticeCache();
+            });
+        }
+        for (LatticeSource source : LATTICE_SOURCES) {
+            if (source.enabled == channel) {
+                executeOnEngine(() -> ofNullable(lattice.updateEnabled(source.type,state.getNumbers()))
+                        .ifPresent(this::publishLatticeUpdate));
+            }
+        }
+    }
+
+    void log(String message, Level level, Throwable cause) {
+        if (listeners.isEmpty()) {
+            LOGGER.log(level,message,cause);
+        } else {
+            listeners.forEach(l -> l.message(message,level,cause));
+        }
+    }
+
+    /**
+     * <code>LatticeSource</code> defines the channels that provide the names, positions and enable states of the
+     * lattice elements of one type.
+     *
+     * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+     */
+    private static final class LatticeSource {
+
+        private final LatticeElementType type;
+        private final Channel names;
+        private final Channel positions;
+        //null if the elements of the type cannot be disabled
+        private final Channel enabled;
+
+        LatticeSource(LatticeElementType type, Channel names, Channel positions, Channel enabled) {
+            this.type = type;
+            this.names = names;
+            this.positions = positions;
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * <code>OrbitRecorder</code> records the orbits of one plane into the orbit history and the rolling statistics of
+     * every window, and the latency of each orbit into the latency histogram.
+     * The received values are mapped to the BPM slots in buffers, which are reused for every orbit, so recording an
+     * orbit does not allocate. There is a single writer per plane: the listener thread of the orbit PV.
+     *
+     * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+     */
+    private static final class OrbitRecorder {
+
+        private final OrbitHistory history;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        //one set of buckets per window, indexed by the window ordinal
+        private final RollingStatistics[] statistics;
+        private double[] values = new double[0];
+        private boolean[] valid = new boolean[0];
+
+        OrbitRecorder(int historySize, long historyBytes) {
+            this.history = new OrbitHistory(historySize,historyBytes);
+            this.statistics = Arrays.stream(RollingWindow.values()).map(RollingStatistics::new)
+                    .toArray(RollingStatistics[]::new);
+        }
+
+        /**
+         * Records the latency of the received orbit and the orbit itself into the orbit history and the rolling
+         * statistics. The latency is recorded even if the orbit does not fit the lattice.
+         *
+         * @param value the received orbit
+         * @param enabled the enable mask of the BPMs
+         */
+        void record(VType value, boolean[] enabled) {
+            if (!(value instanceof VNumberArray)) return;
+            final long timestamp = OrbitFrame.toNanos(((VNumberArray)value).getTimestamp());
+            latency.record(OrbitFrame.toNanos(Instant.now()) - timestamp);
+            if (enabled.length == 0) return;
+            final ListNumber data = ((VNumberArray)value).getData();
+            if (data.size() == 0) return;
+            if (values.length < enabled.length) {
+                values = new double[enabled.length];
+                valid = new boolean[enabled.length];
+            }
+            if (!OrbitFrame.map(data,enabled,values,valid)) return;
+            history.add(values,valid,enabled,timestamp);
+            for (RollingStatistics s : statistics) {
+                s.add(values,valid,enabled,timestamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.logging.Level;
+
+import com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate;
+import com.cosylab.fzj.cosy.oc.orbit.BPMCorrelation;
+import com.cosylab.fzj.cosy.oc.orbit.BPMSpectrum;
+import com.cosylab.fzj.cosy.oc.orbit.BPMStatistics;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitFrame;
+import com.cosylab.fzj.cosy.oc.orbit.RollingWindow;
+
+/**
+ * <code>OrbitEngineListener</code> receives the notifications of the {@link OrbitEngine}. All methods are called on the
+ * threads of the underlying data source (or the engine), never on a UI thread, so the implementations have to be
+ * short and dispatch any heavy work themselves. All methods have empty default implementations.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public interface OrbitEngineListener {
+
+    /**
+     * Called when a channel has been registered with the engine, before its PV is opened. Called on one of the
+     * connection threads of the engine.
+     *
+     * @param channel the registered channel
+     */
+    default void channelAdded(ChannelState channel) {}
+
+    /**
+     * Called whenever a channel received an event from its PV (a new value or a connection change). The new value is
+     * already available through the channel getters.
+     *
+     * @param channel the channel that received the event
+     */
+    default void valueChanged(ChannelState channel) {}
+
+    /**
+     * Called when the connection state of a channel changed or when the channel received its first value.
+     *
+     * @param channel the channel whose connection state or startup timeline changed
+     */
+    default void connectionChanged(ChannelState channel) {}
+
+    /**
+     * Called when the number of disconnected channels reached or left zero. The parameter reflects the state at the
+     * time of the event; use {@link OrbitEngine#isAllConnected()} to obtain the current state.
+     *
+     * @param allConnected true if all channels are connected or false otherwise
+     */
+    default void allConnectedChanged(boolean allConnected) {}
+
+    /**
+     * Called when the elements of one type in the lattice model of the engine changed: the lattice was set, the IOC
+     * published new lattice values or new enable states. The lattice values are only applied once the lattice is
+     * ready (or could not be read in time). The updates are sent in order on the engine thread.
+     *
+     * @param update the update of the elements
+     */
+    default void latticeChanged(LatticeUpdate update) {}
+
+    /**
+     * Called when the horizontal and vertical values of a paired orbit have been matched, or when a value could not be
+     * matched and is published alone. The listener is called on the notification thread of the orbit channels.
+     *
+     * @param orbit the paired orbit
+     * @param pair the complete or incomplete pair
+     */
+    default void orbitPaired(PairedOrbit orbit, OrbitPair pair) {}
+
+    /**
+     * Called when the values of a paired orbit have been paired and turned into orbit frames using the current BPM
+     * enable states. A plane is null if it was not part of the pair or if its value does not fit the lattice. The
+     * listener is called on the notification thread of the orbit channels, right after
+     * {@link #orbitPaired(PairedOrbit, OrbitPair)}.
+     *
+     * @param orbit the paired orbit
+     * @param horizontal the frame of the horizontal plane or null
+     * @param vertical the frame of the vertical plane or null
+     */
+    default void orbitFramesPaired(PairedOrbit orbit, OrbitFrame horizontal, OrbitFrame vertical) {}
+
+    /**
+     * Called when an orbit channel, which is not paired (the golden orbits), received a value that fits the lattice
+     * and has been turned into an orbit frame. The listener is called before {@link #valueChanged(ChannelState)} is
+     * called for the same value.
+     *
+     * @param channel the orbit channel
+     * @param frame the orbit frame built from the received value
+     */
+    default void orbitFrameReceived(Channel channel, OrbitFrame frame) {}
+
+    /**
+     * Called about once per second with the rolling statistics of the measured orbit over the published window (see
+     * {@link OrbitEngine#setRollingWindow(RollingWindow)}) and immediately after the window was changed. Called on
+     * the analysis thread of the engine.
+     *
+     * @param horizontal true for the horizontal plane or false for the vertical one
+     * @param window the window of the statistics
+     * @param statistics the snapshot of the rolling statistics
+     * @param noise the standard deviation of each BPM as an orbit frame, or null if the statistics do not fit the
+     *            lattice
+     */
+    default void rollingStatisticsChanged(boolean horizontal, RollingWindow window, BPMStatistics statistics,
+            OrbitFrame noise) {}
+
+    /**
+     * Called about once per second with the new noise spectra of the BPMs, while the spectra are enabled and new
+     * orbits arrive. Called on the analysis thread of the engine.
+     *
+     * @param horizontal true for the horizontal plane or false for the vertical one
+     * @param spectrum the new spectra
+     */
+    default void spectrumChanged(boolean horizontal, BPMSpectrum spectrum) {}
+
+    /**
+     * Called about once per second with the correlations between the BPMs of both planes, while the correlations are
+     * enabled. Called on the analysis thread of the engine.
+     *
+     * @param correlation the snapshot of the correlations
+     */
+    default void correlationChanged(BPMCorrelation correlation) {}
+
+    /**
+     * Called when the engine has a message for the user, such as a connection error.
+     *
+     * @param message the message
+     * @param level the severity of the message
+     * @param cause the cause of the message if there is one, or null
+     */
+    default void message(String message, Level level, Throwable cause) {}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import org.diirt.vtype.VNumberArray;
+
+import com.cosylab.fzj.cosy.oc.orbit.OrbitFrame;
+
+/**
+ * <code>OrbitPair</code> is an immutable pair of the horizontal and vertical values of a {@link PairedOrbit}, whose
+ * timestamps are within the pairing tolerance of the engine. A pair is incomplete if one of the planes could not be
+ * matched; in that case the other plane is null. Incomplete pairs are published so that a plane whose partner never
+ * arrives is not lost, but they must not be used where consistent planes are required.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class OrbitPair {
+
+    private final VNumberArray horizontal;
+    private final VNumberArray vertical;
+
+    OrbitPair(VNumberArray horizontal, VNumberArray vertical) {
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+    }
+
+    /**
+     * Returns the timestamp of the given value in nanoseconds since epoch, as used by the pairing.
+     *
+     * @param value the value
+     * @return the timestamp of the value
+     */
+    static long timestampOf(VNumberArray value) {
+        return OrbitFrame.toNanos(value.getTimestamp());
+    }
+
+    /**
+     * @return the horizontal plane or null if the pair is incomplete and only contains the vertical plane
+     */
+    public VNumberArray getHorizontal() {
+        return horizontal;
+    }
+
+    /**
+     * @return the vertical plane or null if the pair is incomplete and only contains the horizontal plane
+     */
+    public VNumberArray getVertical() {
+        return vertical;
+    }
+
+    /**
+     * @return true if the pair contains both planes or false otherwise
+     */
+    public boolean isComplete() {
+        return horizontal != null && vertical != null;
+    }
+
+    /**
+     * @return the timestamp of the later of the two planes in nanoseconds since epoch
+     */
+    public long getTimestamp() {
+        if (horizontal == null) {
+            return timestampOf(vertical);
+        } else if (vertical == null) {
+            return timestampOf(horizontal);
+        }
+        return Math.max(timestampOf(horizontal),timestampOf(vertical));
+    }
+
+    /**
+     * @return the difference between the timestamps of the planes in nanoseconds or -1 if the pair is incomplete
+     */
+    public long getSkew() {
+        return isComplete() ? Math.abs(timestampOf(horizontal) - timestampOf(vertical)) : -1;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import org.diirt.vtype.VNumberArray;
+
+/**
+ * <code>OrbitPairer</code> matches the horizontal and vertical values of a {@link PairedOrbit} by their timestamps.
+ * Values wait in a short queue per plane until a value of the other plane with a timestamp within the tolerance
+ * arrives. Timestamps of each plane are expected to increase, therefore a value that is older than a value of the
+ * other plane by more than the tolerance can never be matched; it is published as an incomplete pair, as is the oldest
+ * waiting value when the queue of its plane is full.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+final class OrbitPairer {
+
+    private static final int MAX_PENDING = 4;
+
+    private final Consumer<OrbitPair> consumer;
+    private volatile long tolerance;
+    //only one of the queues is non empty at any time
+    private final Deque<VNumberArray> pendingHorizontal = new ArrayDeque<>(MAX_PENDING + 1);
+    private final Deque<VNumberArray> pendingVertical = new ArrayDeque<>(MAX_PENDING + 1);
+    private volatile long paired;
+    private volatile long unpaired;
+
+    /**
+     * Constructs a new pairer.
+     *
+     * @param tolerance the maximum difference between the timestamps of paired values in nanoseconds
+     * @param consumer receives the complete and incomplete pairs
+     */
+    OrbitPairer(long tolerance, Consumer<OrbitPair> consumer) {
+        this.tolerance = tolerance;
+        this.consumer = consumer;
+    }
+
+    /**
+     * @param tolerance the maximum difference between the timestamps of paired values in nanoseconds
+     */
+    void setTolerance(long tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Offers a new value of one of the planes.
+     *
+     * @param horizontal true if the value belongs to the horizontal plane or false for the vertical plane
+     * @param value the new value
+     */
+    synchronized void offer(boolean horizontal, VNumberArray value) {
+        final Deque<VNumberArray> own = horizontal ? pendingHorizontal : pendingVertical;
+        final Deque<VNumberArray> other = horizontal ? pendingVertical : pendingHorizontal;
+        final long timestamp = OrbitPair.timestampOf(value);
+        final long tol = tolerance;
+        while (!other.isEmpty() && OrbitPair.timestampOf(other.peekFirst()) < timestamp - tol) {
+            publishIncomplete(!horizontal,other.pollFirst());
+        }
+        if (other.isEmpty()) {
+            own.addLast(value);
+            if (own.size() > MAX_PENDING) {
+                publishIncomplete(horizontal,own.pollFirst());
+            }
+        } else if (OrbitPair.timestampOf(other.peekFirst()) <= timestamp + tol) {
+            VNumberArray partner = other.pollFirst();
+            paired++;
+            consumer.accept(horizontal ? new OrbitPair(value,partner) : new OrbitPair(partner,value));
+        } else {
+            //the other plane is already ahead
+            publishIncomplete(horizontal,value);
+        }
+    }
+
+    private void publishIncomplete(boolean horizontal, VNumberArray value) {
+        unpaired++;
+        consumer.accept(horizontal ? new OrbitPair(value,null) : new OrbitPair(null,value));
+    }
+
+    /**
+     * @return the number of complete pairs
+     */
+    long getPairedCount() {
+        return paired;
+    }
+
+    /**
+     * @return the number of values that could not be paired
+     */
+    long getUnpairedCount() {
+        return unpaired;
+    }
+}
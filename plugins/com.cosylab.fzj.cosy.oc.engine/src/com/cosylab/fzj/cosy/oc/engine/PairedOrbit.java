@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+/**
+ * <code>PairedOrbit</code> enumerates the orbits, whose horizontal and vertical planes are published by separate
+ * channels, but belong to the same measurement. The engine matches the values of both planes by their timestamps and
+ * publishes them as {@link OrbitPair}s.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public enum PairedOrbit {
+    /** The measured orbit */
+    MEASURED(Channel.HORIZONTAL_ORBIT,Channel.VERTICAL_ORBIT),
+    /** The difference between the measured and the golden orbit */
+    DIFFERENCE(Channel.HORIZONTAL_DIFFERENCE_ORBIT,Channel.VERTICAL_DIFFERENCE_ORBIT),
+    /** The reference orbit */
+    REFERENCE(Channel.HORIZONTAL_REFERENCE_ORBIT,Channel.VERTICAL_REFERENCE_ORBIT);
+
+    private static final PairedOrbit[] BY_CHANNEL = new PairedOrbit[Channel.values().length];
+
+    static {
+        for (PairedOrbit orbit : values()) {
+            BY_CHANNEL[orbit.horizontal.ordinal()] = orbit;
+            BY_CHANNEL[orbit.vertical.ordinal()] = orbit;
+        }
+    }
+
+    private final Channel horizontal;
+    private final Channel vertical;
+
+    private PairedOrbit(Channel horizontal, Channel vertical) {
+        this.horizontal = horizontal;
+        this.vertical = vertical;
+    }
+
+    /**
+     * @return the channel that provides the horizontal plane
+     */
+    public Channel getHorizontal() {
+        return horizontal;
+    }
+
+    /**
+     * @return the channel that provides the vertical plane
+     */
+    public Channel getVertical() {
+        return vertical;
+    }
+
+    /**
+     * Returns the paired orbit to which the given channel contributes one of the planes.
+     *
+     * @param channel the channel
+     * @return the paired orbit or null if the channel is not part of any
+     */
+    public static PairedOrbit of(Channel channel) {
+        return BY_CHANNEL[channel.ordinal()];
+    }
+}
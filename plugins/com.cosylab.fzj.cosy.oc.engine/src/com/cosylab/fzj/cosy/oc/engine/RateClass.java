@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.time.Duration;
+
+/**
+ * <code>RateClass</code> groups the channels by how often their values change and how urgently they have to be
+ * delivered. Each class has its own maximum notification rate and its own notification thread, so that slow or chatty
+ * channels (lattice, status) never delay the delivery of the orbit.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public enum RateClass {
+    /** The measured and difference orbits and the corrector readbacks, which change with every measurement */
+    ORBIT("orbit",20),
+    /** The orbit statistics */
+    STATISTICS("statistics",100),
+    /** The operation status of the IOC */
+    STATUS("status",200),
+    /** The readbacks of the settings: golden and reference orbits, cutoffs, factors, enable masks etc. */
+    SETPOINT("setpoint",200),
+    /** The lattice structure, which only changes when the machine is reconfigured */
+    LATTICE("lattice",1000);
+
+    private final String key;
+    private final Duration defaultMaxRate;
+
+    private RateClass(String key, long defaultMaxRate) {
+        this.key = key;
+        this.defaultMaxRate = Duration.ofMillis(defaultMaxRate);
+    }
+
+    /**
+     * Returns the key which identifies this class in the configuration.
+     *
+     * @return the key of the class
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the maximum rate used by the channels of this class, if it is not configured otherwise. The rate is
+     * given as the minimum period between two notifications.
+     *
+     * @return the default maximum rate
+     */
+    public Duration getDefaultMaxRate() {
+        return defaultMaxRate;
+    }
+
+    /**
+     * Returns the rate class of the given channel.
+     *
+     * @param channel the channel
+     * @return the rate class of the channel
+     */
+    public static RateClass of(Channel channel) {
+        if (channel.isLattice()) {
+            return LATTICE;
+        }
+        switch (channel) {
+            case HORIZONTAL_ORBIT:
+            case VERTICAL_ORBIT:
+            case HORIZONTAL_DIFFERENCE_ORBIT:
+            case VERTICAL_DIFFERENCE_ORBIT:
+            case HORIZONTAL_CORRECTOR_MRAD:
+            case VERTICAL_CORRECTOR_MRAD:
+            case HORIZONTAL_CORRECTOR_MA:
+            case VERTICAL_CORRECTOR_MA:
+                return ORBIT;
+            case HORIZONTAL_ORBIT_STATISTICS:
+            case VERTICAL_ORBIT_STATISTICS:
+            case GOLDEN_HORIZONTAL_ORBIT_STATISTICS:
+            case GOLDEN_VERTICAL_ORBIT_STATISTICS:
+            case REFERENCE_HORIZONTAL_ORBIT_STATISTICS:
+            case REFERENCE_VERTICAL_ORBIT_STATISTICS:
+                return STATISTICS;
+            case OPERATION_STATUS:
+                return STATUS;
+            default:
+                return SETPOINT;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <code>WriteCoalescer</code> coalesces bursts of writes to the same key (usually a channel). A write is only sent
+ * when no newer write for the same key has been submitted during the quiet period of the key; a newer write replaces
+ * the pending one (last value wins). Writes of the same key never overlap: if the previous write of the key is still
+ * in flight, the pending write is sent when it completes, so the writes of one key reach the IOC in the order in which
+ * they were submitted. Keys with a quiet period of 0 are not coalesced at all; each write is sent immediately.
+ * <p>
+ * The coalescer can be used from any thread. It counts the coalesced (dropped), sent and failed writes and the
+ * writes that are currently in flight. The timing of each sent write can be observed through a {@link Recorder}.
+ *
+ * @param <K> the type of the keys
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class WriteCoalescer<K> {
+
+    /**
+     * <code>Recorder</code> receives the timing of every write sent by the coalescer.
+     *
+     * @param <K> the type of the keys
+     */
+    @FunctionalInterface
+    public static interface Recorder<K> {
+
+        /**
+         * Records the timing of a completed write.
+         *
+         * @param key the key of the write
+         * @param queueNanos the time from the submission of the write until it was sent, including the quiet period
+         * @param roundTripNanos the time from sending the write until it completed
+         * @param failed true if the write failed or false if it succeeded
+         */
+        void record(K key, long queueNanos, long roundTripNanos, boolean failed);
+    }
+
+    private static final class Slot {
+        Supplier<CompletableFuture<?>> pending;
+        long pendingSince;
+        ScheduledFuture<?> timer;
+        boolean inFlight;
+    }
+
+    private final ScheduledExecutorService executor;
+    private final long defaultQuietPeriod;
+    private final Map<K,Long> quietPeriods = new ConcurrentHashMap<>();
+    //guarded by this
+    private final Map<K,Slot> slots = new HashMap<>();
+    private final AtomicLong coalesced = new AtomicLong(0);
+    private final AtomicLong sent = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final Recorder<? super K> recorder;
+
+    /**
+     * Constructs a new coalescer.
+     *
+     * @param executor the executor on which the writes are sent
+     * @param defaultQuietPeriod the quiet period in milliseconds of the keys without an explicit quiet period
+     */
+    public WriteCoalescer(ScheduledExecutorService executor, long defaultQuietPeriod) {
+        this(executor,defaultQuietPeriod,null);
+    }
+
+    /**
+     * Constructs a new coalescer, which reports the timing of the writes to the recorder.
+     *
+     * @param executor the executor on which the writes are sent
+     * @param defaultQuietPeriod the quiet period in milliseconds of the keys without an explicit quiet period
+     * @param recorder the recorder that receives the timing of the writes (can be null)
+     */
+    public WriteCoalescer(ScheduledExecutorService executor, long defaultQuietPeriod, Recorder<? super K> recorder) {
+        this.executor = executor;
+        this.defaultQuietPeriod = Math.max(0,defaultQuietPeriod);
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sets the quiet period of the given key.
+     *
+     * @param key the key
+     * @param quietPeriod the quiet period in milliseconds; 0 disables the coalescing of the key
+     */
+    public void setQuietPeriod(K key, long quietPeriod) {
+        quietPeriods.put(key,Math.max(0,quietPeriod));
+    }
+
+    /**
+     * Returns the quiet period of the given key.
+     *
+     * @param key the key
+     * @return the quiet period in milliseconds
+     */
+    public long getQuietPeriod(K key) {
+        return quietPeriods.getOrDefault(key,defaultQuietPeriod);
+    }
+
+    /**
+     * Submits a write. The supplier is called on the executor when the write is sent and has to start the write and
+     * return a future that completes when the write has completed. If the write is replaced by a newer one before it
+     * was sent, the supplier is never called.
+     *
+     * @param key the key of the write
+     * @param write the supplier that sends the write
+     */
+    public void submit(K key, Supplier<CompletableFuture<?>> write) {
+        final long quietPeriod = getQuietPeriod(key);
+        final long now = System.nanoTime();
+        try {
+            if (quietPeriod == 0) {
+                executor.execute(() -> send(key,write,now,false));
+                return;
+            }
+            synchronized (this) {
+                Slot slot = slots.computeIfAbsent(key,k -> new Slot());
+                if (slot.pending != null) {
+                    coalesced.incrementAndGet();
+                }
+                slot.pending = write;
+                slot.pendingSince = now;
+                if (slot.timer != null) {
+                    slot.timer.cancel(false);
+                }
+                slot.timer = executor.schedule(() -> flush(key),quietPeriod,TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            //the executor has been shut down
+        }
+    }
+
+    /**
+     * @return the number of writes that were replaced by a newer write before they were sent
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the number of writes that were sent
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * @return the number of sent writes that failed
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of writes that were sent, but have not completed yet
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    private void flush(K key) {
+        final Supplier<CompletableFuture<?>> write;
+        final long since;
+        synchronized (this) {
+            Slot slot = slots.get(key);
+            if (slot == null) return;
+            slot.timer = null;
+            if (slot.inFlight || slot.pending == null) return;
+            write = slot.pending;
+            since = slot.pendingSince;
+            slot.pending = null;
+            slot.inFlight = true;
+        }
+        send(key,write,since,true);
+    }
+
+    private void send(K key, Supplier<CompletableFuture<?>> write, long since, boolean coalescing) {
+        inFlight.incrementAndGet();
+        sent.incrementAndGet();
+        final long sentAt = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = write.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((r, t) -> {
+            final long completedAt = System.nanoTime();
+            inFlight.decrementAndGet();
+            if (t != null) {
+                failed.incrementAndGet();
+            }
+            if (coalescing) {
+                completed(key);
+            }
+            if (recorder != null) {
+                recorder.record(key,sentAt - since,completedAt - sentAt,t != null);
+            }
+        });
+    }
+
+    private synchronized void completed(K key) {
+        Slot slot = slots.get(key);
+        if (slot == null) return;
+        slot.inFlight = false;
+        if (slot.pending == null) {
+            if (slot.timer == null) {
+                slots.remove(key);
+            }
+        } else if (slot.timer == null) {
+            //the quiet period of the pending write has already passed while the previous write was in flight
+            try {
+                slot.timer = executor.schedule(() -> flush(key),0,TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                //the executor has been shut down
+            }
+        }
+    }
+}
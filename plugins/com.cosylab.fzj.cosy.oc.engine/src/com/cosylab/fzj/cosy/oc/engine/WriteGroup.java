@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <code>WriteGroup</code> collects writes to several channels that belong together (for example the enable states and
+ * cutoff values of all lattice elements) and sends them as one unit. All writes are issued at the same time and the
+ * group completes once every write has completed, with a single {@link Result} that tells which channels were written
+ * and which failed. The underlying protocol has no transactions, so a failed write does not revert the others; the
+ * result makes a partial failure explicit instead.
+ * <p>
+ * When a group is sent through a {@link WriteCoalescer} it should be submitted under its own {@link Key}, so that the
+ * group is coalesced and measured separately from the single writes of its channels.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class WriteGroup {
+
+    /**
+     * <code>Key</code> identifies a kind of write group in a {@link WriteCoalescer}. Keys are compared by identity.
+     */
+    public static final class Key {
+
+        private final String name;
+
+        /**
+         * Constructs a new key.
+         *
+         * @param name the name of the group, used for logging
+         */
+        public Key(String name) {
+            this.name = name;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * <code>Result</code> is the outcome of a write group.
+     */
+    public static final class Result {
+
+        private final List<Channel> succeeded;
+        private final Map<Channel,Throwable> failures;
+
+        private Result(List<Channel> succeeded, Map<Channel,Throwable> failures) {
+            this.succeeded = Collections.unmodifiableList(succeeded);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return true if all writes of the group succeeded or false if at least one failed
+         */
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * @return the channels that were written successfully
+         */
+        public List<Channel> getSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * @return the channels that could not be written, together with the causes of the failures
+         */
+        public Map<Channel,Throwable> getFailures() {
+            return failures;
+        }
+    }
+
+    private final Map<ChannelState,Object> writes = new LinkedHashMap<>();
+
+    /**
+     * Adds a write to this group. If the channel is already part of the group, the data replaces the previous data.
+     *
+     * @param channel the channel to write to
+     * @param data the data to write (see {@link ChannelState#write(Object)})
+     * @return this group
+     */
+    public WriteGroup add(ChannelState channel, Object data) {
+        writes.put(channel,data);
+        return this;
+    }
+
+    /**
+     * @return true if no write has been added to this group
+     */
+    public boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    /**
+     * Issues all writes of this group. The returned future never completes exceptionally; the failures of individual
+     * writes are reported by the result.
+     *
+     * @return a future, which completes with the result of the group when all writes have completed
+     */
+    public CompletableFuture<Result> execute() {
+        final Map<Channel,CompletableFuture<Void>> futures = new EnumMap<>(Channel.class);
+        writes.forEach((channel, data) -> {
+            CompletableFuture<Void> future;
+            try {
+                future = channel.write(data);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            futures.put(channel.getChannel(),future);
+        });
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .handle((r, t) -> {
+                    final List<Channel> succeeded = new ArrayList<>(futures.size());
+                    final Map<Channel,Throwable> failures = new EnumMap<>(Channel.class);
+                    futures.forEach((channel, future) -> {
+                        try {
+                            future.join();
+                            succeeded.add(channel);
+                        } catch (CompletionException | CancellationException e) {
+                            failures.put(channel,e.getCause() == null ? e : e.getCause());
+                        }
+                    });
+                    return new Result(succeeded,failures);
+                });
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.engine;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <code>WriteLatencyStatistics</code> collects the latencies of the PV writes issued through a {@link WriteCoalescer},
+ * grouped by the role of the written channel. The coalescer keys are either {@link Channel}s or the keys of
+ * {@link WriteGroup}s, which are all measured under {@link Role#WRITE_GROUP}. For each role two histograms are kept:
+ * the time a write spent queued in the coalescer before it was sent and the round trip time from sending the write
+ * until the writer reported success or failure.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class WriteLatencyStatistics implements WriteCoalescer.Recorder<Object> {
+
+    /**
+     * <code>Role</code> groups the writable channels by their purpose.
+     */
+    public static enum Role {
+        /** Commands, which execute an action on the IOC */
+        COMMAND,
+        /** Golden orbit uploads */
+        GOLDEN_ORBIT,
+        /** Orbit and steerer cutoffs */
+        CUTOFF,
+        /** BPM and corrector enable masks */
+        ENABLE_MASK,
+        /** All other settings (correction factors, frequency, algorithm, reference orbit, ORM) */
+        SETTING,
+        /** Groups of writes to several channels sent as one unit */
+        WRITE_GROUP;
+
+        /**
+         * Returns the role of the given coalescer key.
+         *
+         * @param key a channel or the key of a write group
+         * @return the role of the key
+         */
+        public static Role of(Object key) {
+            return key instanceof Channel ? of((Channel)key) : WRITE_GROUP;
+        }
+
+        /**
+         * Returns the role of the given channel.
+         *
+         * @param channel the channel
+         * @return the role of the channel
+         */
+        public static Role of(Channel channel) {
+            switch (channel) {
+                case GOLDEN_HORIZONTAL_ORBIT:
+                case GOLDEN_VERTICAL_ORBIT:
+                    return GOLDEN_ORBIT;
+                case HORIZONTAL_CUTOFF:
+                case VERTICAL_CUTOFF:
+                case HORIZONTAL_STEERER_CUTOFF:
+                case VERTICAL_STEERER_CUTOFF:
+                    return CUTOFF;
+                case HORIZONTAL_BPM_ENABLED:
+                case VERTICAL_BPM_ENABLED:
+                case HORIZONTAL_CORRECTOR_ENABLED:
+                case VERTICAL_CORRECTOR_ENABLED:
+                    return ENABLE_MASK;
+                default:
+                    return channel.getKind() == Channel.Kind.COMMAND ? COMMAND : SETTING;
+            }
+        }
+    }
+
+    private final Map<Role,LatencyHistogram> queue = new EnumMap<>(Role.class);
+    private final Map<Role,LatencyHistogram> roundTrip = new EnumMap<>(Role.class);
+    private final Map<Role,AtomicLong> failed = new EnumMap<>(Role.class);
+
+    /**
+     * Constructs new empty statistics.
+     */
+    public WriteLatencyStatistics() {
+        for (Role role : Role.values()) {
+            queue.put(role,new LatencyHistogram());
+            roundTrip.put(role,new LatencyHistogram());
+            failed.put(role,new AtomicLong(0));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.cosylab.fzj.cosy.oc.engine.WriteCoalescer.Recorder#record(java.lang.Object, long, long, boolean)
+     */
+    @Override
+    public void record(Object key, long queueNanos, long roundTripNanos, boolean failure) {
+        Role role = Role.of(key);
+        queue.get(role).record(queueNanos);
+        roundTrip.get(role).record(roundTripNanos);
+        if (failure) {
+            failed.get(role).incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the histogram of the times that the writes of the given role waited in the coalescer before they were
+     * sent.
+     *
+     * @param role the role
+     * @return the queue time histogram
+     */
+    public LatencyHistogram getQueue(Role role) {
+        return queue.get(role);
+    }
+
+    /**
+     * Returns the histogram of the times from sending a write of the given role until it succeeded or failed.
+     *
+     * @param role the role
+     * @return the round trip histogram
+     */
+    public LatencyHistogram getRoundTrip(Role role) {
+        return roundTrip.get(role);
+    }
+
+    /**
+     * @param role the role
+     * @return the number of failed writes of the given role
+     */
+    public long getFailedCount(Role role) {
+        return failed.get(role).get();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(300);
+        for (Role role : Role.values()) {
+            LatencyHistogram rt = roundTrip.get(role);
+            if (rt.getCount() == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(role).append(": round trip ").append(rt).append("; queued ").append(queue.get(role))
+                    .append("; failed ").append(getFailedCount(role));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.lattice;
+
+/**
+ * <code>LatticeArrays</code> is the state of all lattice elements of one type stored as parallel primitive arrays: the
+ * names, the positions and the enable states, indexed by the element index in the lattice. It is meant for large
+ * lattices, where iterating over thousands of element objects and their properties is too slow.
+ * <p>
+ * Instances are immutable by contract: the arrays are never modified after construction and the accessors return the
+ * internal arrays without copying. Consumers must not modify them.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatticeArrays {
+
+    private final LatticeElementType type;
+    private final String[] names;
+    private final double[] positions;
+    private final boolean[] enabled;
+    private final int enabledCount;
+
+    /**
+     * Constructs new lattice arrays. The arrays are not copied.
+     *
+     * @param type the type of the elements
+     * @param names the names of the elements
+     * @param positions the positions of the elements
+     * @param enabled the enable states of the elements
+     */
+    public LatticeArrays(LatticeElementType type, String[] names, double[] positions, boolean[] enabled) {
+        if (names.length != positions.length || names.length != enabled.length) {
+            throw new IllegalArgumentException("Names, positions and enable states must be of equal length.");
+        }
+        this.type = type;
+        this.names = names;
+        this.positions = positions;
+        this.enabled = enabled;
+        int count = 0;
+        for (boolean e : enabled) {
+            if (e) {
+                count++;
+            }
+        }
+        this.enabledCount = count;
+    }
+
+    /**
+     * Returns the arrays of a lattice without any elements of the given type.
+     *
+     * @param type the type of the elements
+     * @return empty lattice arrays
+     */
+    public static LatticeArrays empty(LatticeElementType type) {
+        return new LatticeArrays(type,new String[0],new double[0],new boolean[0]);
+    }
+
+    /**
+     * @return the type of the elements
+     */
+    public LatticeElementType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of elements
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the number of enabled elements
+     */
+    public int getEnabledCount() {
+        return enabledCount;
+    }
+
+    /**
+     * @param index the index of the element
+     * @return the name of the element
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param index the index of the element
+     * @return the position of the element
+     */
+    public double getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * @param index the index of the element
+     * @return true if the element is enabled or false otherwise
+     */
+    public boolean isEnabled(int index) {
+        return enabled[index];
+    }
+
+    /**
+     * @return the names of all elements (internal array, must not be modified)
+     */
+    public String[] getNames() {
+        return names;
+    }
+
+    /**
+     * @return the positions of all elements (internal array, must not be modified)
+     */
+    public double[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * @return the enable states of all elements (internal array, must not be modified)
+     */
+    public boolean[] getEnabled() {
+        return enabled;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.lattice;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <code>LatticeCache</code> stores the last lattice that was read from the IOC in a compact binary file, so that the
+ * lattice can be displayed immediately at the next startup, before the lattice PVs are connected. The file starts with
+ * a magic number and a format version, followed by the number of elements and for each element its type, position and
+ * name. A file that cannot be parsed is ignored.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatticeCache {
+
+    private LatticeCache() {}
+
+    private static final Logger LOGGER = Logger.getLogger(LatticeCache.class.getName());
+    private static final int MAGIC = 0x4F434C43; //OCLC
+    private static final int VERSION = 1;
+
+    /**
+     * Loads the lattice elements from the cache file. If the file does not exist or is corrupted, an empty list is
+     * returned.
+     *
+     * @param file the cache file
+     * @return the cached lattice elements
+     */
+    public static List<LatticeElementData> load(File file) {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        LatticeElementType[] types = LatticeElementType.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.log(Level.WARNING,
+                        String.format("Lattice cache %s has an unknown format.",file.getAbsolutePath()));
+                return Collections.emptyList();
+            }
+            int n = in.readInt();
+            List<LatticeElementData> elements = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int type = in.readUnsignedByte();
+                double position = in.readDouble();
+                String name = in.readUTF();
+                if (type >= types.length) {
+                    throw new IOException("Unknown lattice element type " + type + ".");
+                }
+                elements.add(new LatticeElementData(name,position,types[type]));
+            }
+            return elements;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING,
+                    String.format("Could not read the lattice cache %s.",file.getAbsolutePath()),e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Stores the lattice elements into the cache file. The file is first written to a temporary file, which then
+     * replaces the cache, so that an interrupted write never leaves a partial cache behind.
+     *
+     * @param file the cache file
+     * @param elements the elements to store
+     */
+    public static void save(File file, List<LatticeElementData> elements) {
+        File tmp = new File(file.getParentFile(),file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(elements.size());
+                for (LatticeElementData e : elements) {
+                    out.writeByte(e.getType().ordinal());
+                    out.writeDouble(e.getPosition());
+                    out.writeUTF(e.getName());
+                }
+            }
+            Files.move(tmp.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING,
+                    String.format("Could not write the lattice cache %s.",file.getAbsolutePath()),e);
+        }
+    }
+}
@@ -15,7 +15,7 @@
  * For more information about the license please refer to the LICENSE
  * file included in the distribution.
  */
-package com.cosylab.fzj.cosy.oc;
+package com.cosylab.fzj.cosy.oc.lattice;
 
 import java.util.Objects;
 
@@ -29,6 +29,8 @@ public class LatticeElementData {
     private final String name;
     private final double position;
     private final LatticeElementType type;
+    //the data is immutable, so the hash code is computed once; elements are hashed often when the lattice is large
+    private final int hashCode;
 
     /**
      * Constructs new lattice element data with the given name, position and type.
@@ -41,6 +43,7 @@ public class LatticeElementData {
         this.name = name;
         this.position = position;
         this.type = type;
+        this.hashCode = Objects.hash(name,position,type);
     }
 
     /**
@@ -70,7 +73,7 @@ public class LatticeElementData {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(name,position,type);
+        return hashCode;
     }
 
     /*
@@ -83,6 +86,7 @@ public class LatticeElementData {
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
         LatticeElementData other = (LatticeElementData)obj;
+        if (hashCode != other.hashCode) return false;
         return Objects.equals(name,other.name) && Objects.equals(type,other.type)
                 && Double.doubleToLongBits(position) == Double.doubleToLongBits(other.position);
     }
@@ -15,7 +15,7 @@
  * For more information about the license please refer to the LICENSE
  * file included in the distribution.
  */
-package com.cosylab.fzj.cosy.oc;
+package com.cosylab.fzj.cosy.oc.lattice;
 
 import java.util.Arrays;
 
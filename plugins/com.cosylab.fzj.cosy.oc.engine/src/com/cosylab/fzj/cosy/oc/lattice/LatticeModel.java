@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.lattice;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.diirt.util.array.ListNumber;
+
+/**
+ * <code>LatticeModel</code> keeps the names, positions and enable states of all lattice elements as
+ * {@link LatticeArrays} per element type and turns the values received from the IOC into {@link LatticeUpdate}s. The
+ * arrays of a type are replaced as a whole whenever any of its elements changes.
+ * <p>
+ * The model is updated by a single thread, while the arrays can be read from any thread.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatticeModel {
+
+    private static final LatticeElementType[] TYPES = LatticeElementType.values();
+
+    private final AtomicReferenceArray<LatticeArrays> arrays = new AtomicReferenceArray<>(TYPES.length);
+
+    /**
+     * Constructs a new model without any elements.
+     */
+    public LatticeModel() {
+        for (LatticeElementType type : TYPES) {
+            arrays.set(type.ordinal(),LatticeArrays.empty(type));
+        }
+    }
+
+    /**
+     * Returns the names, positions and enable states of all elements of the given type. The arrays are not copied
+     * and must not be modified.
+     *
+     * @param type the lattice element type
+     * @return the lattice arrays of the given type
+     */
+    public LatticeArrays get(LatticeElementType type) {
+        return arrays.get(type.ordinal());
+    }
+
+    /**
+     * Replaces the elements of all types with the given elements. The elements that have the same names as the
+     * existing ones keep their enable states, all other elements are enabled.
+     *
+     * @param elements the new lattice elements
+     * @return the updates of the types that changed
+     */
+    public List<LatticeUpdate> set(List<LatticeElementData> elements) {
+        final Map<LatticeElementType,List<LatticeElementData>> byType = new EnumMap<>(LatticeElementType.class);
+        for (LatticeElementType type : TYPES) {
+            byType.put(type,new ArrayList<>());
+        }
+        elements.forEach(e -> byType.get(e.getType()).add(e));
+        final List<LatticeUpdate> updates = new ArrayList<>(TYPES.length);
+        byType.forEach((type, list) -> {
+            final String[] names = list.stream().map(LatticeElementData::getName).toArray(String[]::new);
+            final double[] positions = list.stream().mapToDouble(LatticeElementData::getPosition).toArray();
+            final LatticeUpdate update = update(type,names,positions,null);
+            if (update != null) {
+                updates.add(update);
+            }
+        });
+        return updates;
+    }
+
+    /**
+     * Updates the elements of the given type with the values received from the IOC. Any of the values may be null if
+     * it is not known. If any name changed, the elements are matched by name, so that their enable states follow the
+     * names; if only the positions changed, they are applied by index. The enable states are only applied if their
+     * number matches the number of elements.
+     *
+     * @param type the type of the elements
+     * @param names the names of the elements or null
+     * @param positions the positions of the elements or null
+     * @param enable the enable states of the elements (1 for enabled) or null
+     * @return the update or null if nothing changed
+     */
+    public LatticeUpdate update(LatticeElementType type, List<String> names, ListNumber positions,
+            ListNumber enable) {
+        boolean[] enabled = null;
+        if (enable != null) {
+            enabled = new boolean[enable.size()];
+            for (int i = 0; i < enabled.length; i++) {
+                enabled[i] = enable.getByte(i) == 1;
+            }
+        }
+        double[] positionValues = null;
+        if (positions != null) {
+            positionValues = new double[positions.size()];
+            for (int i = 0; i < positionValues.length; i++) {
+                positionValues[i] = positions.getDouble(i);
+            }
+        }
+        return update(type,names == null ? null : names.toArray(new String[names.size()]),positionValues,enabled);
+    }
+
+    /**
+     * Applies the enable states received from the IOC to the elements of the given type. The states are only applied
+     * if their number matches the number of elements.
+     *
+     * @param type the type of the elements
+     * @param enable the enable states of the elements (1 for enabled)
+     * @return the update or null if nothing changed
+     */
+    public LatticeUpdate updateEnabled(LatticeElementType type, ListNumber enable) {
+        return update(type,null,null,enable);
+    }
+
+    private LatticeUpdate update(LatticeElementType type, String[] names, double[] positions, boolean[] enable) {
+        final LatticeArrays previous = get(type);
+        final int n = previous.size();
+        if (names != null && positions != null && names.length != positions.length) {
+            //the names and positions are not consistent yet, only the enable states can be applied
+            names = null;
+            positions = null;
+        }
+        if (names != null && !Arrays.equals(names,previous.getNames())) {
+            if (positions != null) {
+                return replace(diff(previous,names,positions,enable));
+            } else if (names.length == n) {
+                //the positions were not received, so the elements keep the positions they had at the same index
+                return replace(diff(previous,names,previous.getPositions(),enable));
+            }
+        }
+        //the names did not change, so only the positions and enable states are applied by index
+        final double[] newPositions = positions != null && positions.length == n ? positions
+                : previous.getPositions();
+        final boolean[] newEnabled = enable != null && enable.length == n ? enable : previous.getEnabled();
+        final boolean enableChanged = !Arrays.equals(newEnabled,previous.getEnabled());
+        if (!enableChanged && Arrays.equals(newPositions,previous.getPositions())) {
+            return null;
+        }
+        return replace(new LatticeUpdate(previous,
+                new LatticeArrays(type,previous.getNames(),newPositions,newEnabled),enableChanged));
+    }
+
+    private LatticeUpdate replace(LatticeUpdate update) {
+        arrays.set(update.getType().ordinal(),update.getArrays());
+        return update;
+    }
+
+    /**
+     * Matches the new lattice elements with the existing ones by name. Elements with new names are enabled unless the
+     * enable states say otherwise; existing elements keep their enable states if the enable states do not match the
+     * new lattice. Each name is matched only once, so duplicate names are matched in order of appearance. The reused
+     * elements that keep their relative order form the longest increasing subsequence of their old indices; only the
+     * other reused elements are reported as moved.
+     *
+     * @param previous the current elements
+     * @param names the names of the new elements
+     * @param positions the positions of the new elements
+     * @param enable the enable states of the new elements (may be null)
+     * @return the update with the insertions, removals, moves and updates, which transform the current into the new
+     *         elements
+     */
+    private static LatticeUpdate diff(LatticeArrays previous, String[] names, double[] positions,
+            boolean[] enable) {
+        final int n = previous.size();
+        final Map<String,Deque<Integer>> indices = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            indices.computeIfAbsent(previous.getName(i),k -> new ArrayDeque<>()).add(i);
+        }
+        final boolean enableMatches = enable != null && enable.length == names.length;
+        final boolean[] reused = new boolean[n];
+        final int[] oldIndices = new int[names.length];
+        final boolean[] updated = new boolean[names.length];
+        final boolean[] enabled = new boolean[names.length];
+        boolean enableChanged = false;
+        for (int i = 0; i < names.length; i++) {
+            final Deque<Integer> candidates = indices.get(names[i]);
+            final Integer index = candidates == null ? null : candidates.poll();
+            if (index == null) {
+                enabled[i] = enableMatches ? enable[i] : true;
+                oldIndices[i] = -1;
+            } else {
+                updated[i] = Double.doubleToLongBits(positions[i]) != Double
+                        .doubleToLongBits(previous.getPosition(index));
+                enabled[i] = enableMatches ? enable[i] : previous.isEnabled(index);
+                enableChanged |= enabled[i] != previous.isEnabled(index);
+                reused[index] = true;
+                oldIndices[i] = index;
+            }
+        }
+        final boolean[] unmoved = findUnmovedElements(oldIndices);
+        final List<LatticeUpdate.Change> changes = new ArrayList<>();
+        for (int i = 0; i < oldIndices.length; i++) {
+            if (oldIndices[i] < 0) {
+                changes.add(new LatticeUpdate.Change(LatticeUpdate.Kind.INSERTED,-1,i));
+            } else if (!unmoved[i]) {
+                changes.add(new LatticeUpdate.Change(LatticeUpdate.Kind.MOVED,oldIndices[i],i));
+            } else if (updated[i]) {
+                changes.add(new LatticeUpdate.Change(LatticeUpdate.Kind.UPDATED,oldIndices[i],i));
+            }
+        }
+        for (int i = 0; i < reused.length; i++) {
+            if (!reused[i]) {
+                changes.add(new LatticeUpdate.Change(LatticeUpdate.Kind.REMOVED,i,-1));
+            }
+        }
+        final LatticeArrays arrays = new LatticeArrays(previous.getType(),names,positions,enabled);
+        return new LatticeUpdate(previous,arrays,oldIndices,changes,enableChanged);
+    }
+
+    /**
+     * Finds the longest increasing subsequence of the old indices of the reused elements. These elements keep their
+     * relative order and were only shifted by the insertions and removals, while all other reused elements moved. The
+     * longest subsequence gives the smallest number of moves, e.g. a single move for [A,B,C] to [C,A,B].
+     *
+     * @param oldIndices the old index of the element at each new index or -1 if the element was inserted
+     * @return an array, which is true at each new index whose element did not move
+     */
+    private static boolean[] findUnmovedElements(int[] oldIndices) {
+        final int n = oldIndices.length;
+        //tails[k] is the new index of the element with the smallest old index ending an increasing subsequence of
+        //length k + 1, previous[i] is the new index of the element preceding element i in its subsequence
+        final int[] tails = new int[n];
+        final int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (oldIndices[i] < 0) continue;
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (oldIndices[tails[mid]] < oldIndices[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+        final boolean[] unmoved = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i > -1; i = previous[i]) {
+            unmoved[i] = true;
+        }
+        return unmoved;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.lattice;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <code>LatticeUpdate</code> describes how the lattice elements of one type changed when the IOC published new names,
+ * positions or enable states. The elements either kept their indices, in which case only their positions or enable
+ * states changed, or they were matched by name, because any name changed. In the latter case each new element refers
+ * to the old element with the same name (or to none if it was inserted) and the insertions, removals, moves and
+ * position updates are listed as changes.
+ * <p>
+ * Instances are immutable and can be handed to any thread.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatticeUpdate {
+
+    /**
+     * <code>Kind</code> is the kind of a change of a single element.
+     *
+     * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+     */
+    public static enum Kind {
+        INSERTED, REMOVED, MOVED, UPDATED
+    }
+
+    /**
+     * <code>Change</code> describes what happened to a single lattice element: it was inserted, removed, moved to a
+     * different place in the order of the elements or updated with a new position. Elements that only shifted because
+     * other elements were inserted or removed before them are not reported as moved, and the smallest possible set of
+     * elements is reported as moved. A moved element may also have a new position.
+     *
+     * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+     */
+    public static final class Change {
+
+        private final Kind kind;
+        private final int oldIndex;
+        private final int newIndex;
+
+        /**
+         * Constructs a new change.
+         *
+         * @param kind the kind of the change
+         * @param oldIndex the index of the element before the change (-1 for an inserted element)
+         * @param newIndex the index of the element after the change (-1 for a removed element)
+         */
+        public Change(Kind kind, int oldIndex, int newIndex) {
+            this.kind = kind;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+        }
+
+        /**
+         * @return the kind of the change
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the index of the element before the change or -1 if the element was inserted
+         */
+        public int getOldIndex() {
+            return oldIndex;
+        }
+
+        /**
+         * @return the index of the element after the change or -1 if the element was removed
+         */
+        public int getNewIndex() {
+            return newIndex;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return kind + " [" + oldIndex + " -> " + newIndex + "]";
+        }
+    }
+
+    private final LatticeArrays previous;
+    private final LatticeArrays arrays;
+    //the old index of the element at each new index (-1 if inserted), or null if the elements kept their indices
+    private final int[] oldIndices;
+    private final List<Change> changes;
+    private final boolean enableChanged;
+
+    /**
+     * Constructs an update of the elements, which kept their indices.
+     *
+     * @param previous the arrays of the elements before the update
+     * @param arrays the arrays of the elements after the update
+     * @param enableChanged true if the enable state of any element changed
+     */
+    LatticeUpdate(LatticeArrays previous, LatticeArrays arrays, boolean enableChanged) {
+        this(previous,arrays,null,Collections.emptyList(),enableChanged);
+    }
+
+    /**
+     * Constructs an update of the elements, which were matched by name.
+     *
+     * @param previous the arrays of the elements before the update
+     * @param arrays the arrays of the elements after the update
+     * @param oldIndices the old index of the element at each new index or -1 if the element was inserted
+     * @param changes the insertions, removals, moves and updates
+     * @param enableChanged true if the enable state of any of the matched elements changed
+     */
+    LatticeUpdate(LatticeArrays previous, LatticeArrays arrays, int[] oldIndices, List<Change> changes,
+            boolean enableChanged) {
+        this.previous = previous;
+        this.arrays = arrays;
+        this.oldIndices = oldIndices;
+        this.changes = Collections.unmodifiableList(changes);
+        this.enableChanged = enableChanged;
+    }
+
+    /**
+     * @return the type of the updated elements
+     */
+    public LatticeElementType getType() {
+        return arrays.getType();
+    }
+
+    /**
+     * @return the arrays of the elements before the update
+     */
+    public LatticeArrays getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return the arrays of the elements after the update
+     */
+    public LatticeArrays getArrays() {
+        return arrays;
+    }
+
+    /**
+     * Returns true if the elements were matched by name, because any of the names changed. In that case the element
+     * at a new index has to be taken from its old index (see {@link #getOldIndex(int)}) rather than from the same
+     * index.
+     *
+     * @return true if the elements were matched by name or false if they kept their indices
+     */
+    public boolean isMatchedByName() {
+        return oldIndices != null;
+    }
+
+    /**
+     * Returns the index, which the element at the given new index had before the update.
+     *
+     * @param newIndex the index of the element after the update
+     * @return the index of the element before the update or -1 if the element was inserted
+     */
+    public int getOldIndex(int newIndex) {
+        return oldIndices == null ? newIndex : oldIndices[newIndex];
+    }
+
+    /**
+     * Returns the insertions, removals, moves and updates, which transform the previous into the new elements. The
+     * changes are only listed if the elements were matched by name.
+     *
+     * @return the list of changes
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns true if the elements were matched by name and most of them changed (or there were none before), so
+     * that rebuilding everything that shows the elements is cheaper than applying the individual changes.
+     *
+     * @return true if the elements should be rebuilt or false otherwise
+     */
+    public boolean isRebuilt() {
+        return oldIndices != null && (previous.size() == 0 || changes.size() > arrays.size() / 2);
+    }
+
+    /**
+     * @return true if the enable state of any element, which existed before the update, changed
+     */
+    public boolean isEnableChanged() {
+        return enableChanged;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+/**
+ * <code>BPMCorrelation</code> is an immutable snapshot of the correlation coefficients between all pairs of BPMs of
+ * both planes. The horizontal BPMs come first, followed by the vertical BPMs. The coefficient of a pair is NaN if any
+ * of the two BPMs did not move during the observed samples.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class BPMCorrelation {
+
+    /** Correlation without any BPM */
+    public static final BPMCorrelation EMPTY = new BPMCorrelation(new double[0],0,0,0);
+
+    private final double[] correlation;
+    private final int size;
+    private final int horizontalSize;
+    private final long count;
+
+    BPMCorrelation(double[] correlation, int size, int horizontalSize, long count) {
+        this.correlation = correlation;
+        this.size = size;
+        this.horizontalSize = horizontalSize;
+        this.count = count;
+    }
+
+    /**
+     * @return the number of BPMs in both planes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of horizontal BPMs, which are the first ones in the matrix
+     */
+    public int getHorizontalSize() {
+        return horizontalSize;
+    }
+
+    /**
+     * @return the number of samples the correlation was computed from
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the correlation coefficient of the given pair of BPMs.
+     *
+     * @param i the index of the first BPM
+     * @param j the index of the second BPM
+     * @return the correlation coefficient between -1 and 1 or NaN if it is not defined
+     */
+    public double get(int i, int j) {
+        return correlation[CorrelationMatrix.index(size,i,j)];
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+/**
+ * <code>BPMSpectrum</code> is an immutable snapshot of the amplitude spectra of all BPMs of one plane. All spectra
+ * share the same frequency bins, which span from 0 to the Nyquist frequency of the orbit sampling rate. The amplitudes
+ * are in the units of the orbit and are corrected for the window, so that a pure sine line shows its actual amplitude.
+ * The accessors return the internal arrays, which must not be modified.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class BPMSpectrum {
+
+    /** Spectrum without any BPM */
+    public static final BPMSpectrum EMPTY = new BPMSpectrum(new double[0],new double[0],0,0);
+
+    private final double[] frequencies;
+    private final double[] amplitudes;
+    private final int width;
+    private final long timestamp;
+
+    BPMSpectrum(double[] frequencies, double[] amplitudes, int width, long timestamp) {
+        this.frequencies = frequencies;
+        this.amplitudes = amplitudes;
+        this.width = width;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the number of BPMs
+     */
+    public int size() {
+        return width;
+    }
+
+    /**
+     * @return the timestamp of the latest frame included in the spectrum in nanoseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the frequency of each bin in Hz
+     */
+    public double[] getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * Copies the amplitude spectrum of a single BPM into a new array.
+     *
+     * @param bpm the index of the BPM
+     * @return the amplitude of each frequency bin
+     */
+    public double[] getAmplitudes(int bpm) {
+        final int bins = frequencies.length;
+        double[] result = new double[bins];
+        System.arraycopy(amplitudes,bpm * bins,result,0,bins);
+        return result;
+    }
+
+    /**
+     * Returns the quadratic mean of the amplitudes of all BPMs in each frequency bin. Lines that are common to many
+     * BPMs (e.g. the mains frequency or a girder vibration) stand out in this spectrum even if they are weak.
+     *
+     * @return the RMS amplitude over all BPMs of each frequency bin
+     */
+    public double[] getRMSAmplitudes() {
+        final int bins = frequencies.length;
+        double[] result = new double[bins];
+        if (width == 0) return result;
+        for (int b = 0; b < width; b++) {
+            for (int k = 0, j = b * bins; k < bins; k++, j++) {
+                result[k] += amplitudes[j] * amplitudes[j];
+            }
+        }
+        for (int k = 0; k < bins; k++) {
+            result[k] = Math.sqrt(result[k] / width);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the frequency of the strongest line of the given BPM, ignoring the DC bin.
+     *
+     * @param bpm the index of the BPM
+     * @return the frequency in Hz or NaN if the spectrum is empty
+     */
+    public double getPeakFrequency(int bpm) {
+        final int bins = frequencies.length;
+        int peak = -1;
+        for (int k = 1, j = bpm * bins + 1; k < bins; k++, j++) {
+            if (peak < 0 || amplitudes[j] > amplitudes[bpm * bins + peak]) {
+                peak = k;
+            }
+        }
+        return peak < 0 ? Double.NaN : frequencies[peak];
+    }
+}
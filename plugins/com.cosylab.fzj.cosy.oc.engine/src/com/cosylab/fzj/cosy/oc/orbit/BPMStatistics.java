@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+/**
+ * <code>BPMStatistics</code> is an immutable snapshot of the statistics of each BPM of one plane over a time window:
+ * the number of samples, the mean, the standard deviation, the minimum and the maximum. BPMs without samples have a
+ * count of 0 and NaN for all other values. The accessors return the internal arrays, which must not be modified.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class BPMStatistics {
+
+    /** Statistics without any BPM */
+    public static final BPMStatistics EMPTY = new BPMStatistics(new long[0],new double[0],new double[0],
+            new double[0],new double[0]);
+
+    private final long[] count;
+    private final double[] mean;
+    private final double[] std;
+    private final double[] min;
+    private final double[] max;
+
+    BPMStatistics(long[] count, double[] mean, double[] std, double[] min, double[] max) {
+        this.count = count;
+        this.mean = mean;
+        this.std = std;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return the number of BPMs
+     */
+    public int size() {
+        return count.length;
+    }
+
+    /**
+     * @return the number of samples of each BPM
+     */
+    public long[] getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean value of each BPM
+     */
+    public double[] getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the standard deviation of each BPM
+     */
+    public double[] getStd() {
+        return std;
+    }
+
+    /**
+     * @return the smallest value of each BPM
+     */
+    public double[] getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value of each BPM
+     */
+    public double[] getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the index of the BPM with the largest standard deviation.
+     *
+     * @return the index of the noisiest BPM or -1 if no BPM has at least two samples
+     */
+    public int getNoisiest() {
+        int index = -1;
+        double largest = -1;
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] > 1 && std[i] > largest) {
+                largest = std[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of BPMs which received at least two samples, all with the same value. Such a BPM is most
+     * likely stuck.
+     *
+     * @return the number of stuck BPMs
+     */
+    public int getStuckCount() {
+        int stuck = 0;
+        for (int i = 0; i < count.length; i++) {
+            if (count[i] > 1 && min[i] == max[i]) {
+                stuck++;
+            }
+        }
+        return stuck;
+    }
+}
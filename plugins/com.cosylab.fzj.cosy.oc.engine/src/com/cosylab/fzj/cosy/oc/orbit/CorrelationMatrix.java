@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import java.util.Arrays;
+
+/**
+ * <code>CorrelationMatrix</code> is a running covariance matrix of the BPM readings of both planes. Each sample is the
+ * horizontal orbit followed by the vertical orbit of the same measurement. The matrix is updated with a rank-1 update
+ * per sample, so the cost of a sample is proportional to the number of matrix elements and does not depend on the
+ * number of samples seen so far. Only the upper triangle is stored, packed row by row into a single primitive array.
+ * <p>
+ * The covariance is exponentially weighted: the first <code>memory</code> samples are weighted equally, afterwards
+ * each new sample has the weight <code>1/memory</code>, so that the matrix follows the changes of the machine. A BPM
+ * which is disabled or without a value in a sample contributes no deviation from its mean in that sample; the mean of
+ * a BPM starts at its first valid value. If the number of BPMs changes, the matrix is reset.
+ * <p>
+ * The matrix of <code>n</code> BPMs takes <code>4n<sup>2</sup></code> bytes and each sample costs
+ * <code>n<sup>2</sup>/2</code> operations, which is why the number of BPMs is limited. Samples with more BPMs than the
+ * limit are rejected and the matrix is released.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class CorrelationMatrix {
+
+    private final int memory;
+    private final int maxSize;
+    private int horizontalSize = -1;
+    private int size = -1;
+    private long count;
+    private double[] mean = new double[0];
+    private boolean[] seen = new boolean[0];
+    private double[] deviation = new double[0];
+    private double[] covariance = new double[0];
+
+    /**
+     * Constructs a new correlation matrix.
+     *
+     * @param memory the number of samples after which the weighting becomes exponential
+     * @param maxSize the maximum number of BPMs of both planes together
+     */
+    public CorrelationMatrix(int memory, int maxSize) {
+        if (memory < 2) {
+            throw new IllegalArgumentException("Memory must be at least 2 samples.");
+        } else if (maxSize < 1) {
+            throw new IllegalArgumentException("The matrix must allow at least 1 BPM.");
+        }
+        this.memory = memory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the maximum number of BPMs of both planes together
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the index of the element (i,j) in the packed upper triangle of a matrix of the given size.
+     *
+     * @param size the number of rows of the matrix
+     * @param i the row index
+     * @param j the column index
+     * @return the index in the packed array
+     */
+    static int index(int size, int i, int j) {
+        if (i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        return i * size - i * (i - 1) / 2 + j - i;
+    }
+
+    /**
+     * Adds a sample to the matrix. Only the enabled BPMs, which received a value, contribute to the sample. If the
+     * sample has more BPMs than the maximum size, it is rejected and the matrix is released.
+     *
+     * @param horizontal the horizontal orbit of the sample
+     * @param vertical the vertical orbit of the sample
+     * @return true if the sample was added or false if it has too many BPMs
+     */
+    public synchronized boolean add(OrbitFrame horizontal, OrbitFrame vertical) {
+        final int n = horizontal.size() + vertical.size();
+        if (n > maxSize) {
+            if (size > -1) {
+                horizontalSize = -1;
+                size = -1;
+                count = 0;
+                mean = new double[0];
+                seen = new boolean[0];
+                deviation = new double[0];
+                covariance = new double[0];
+            }
+            return false;
+        }
+        if (n != size || horizontal.size() != horizontalSize) {
+            horizontalSize = horizontal.size();
+            size = n;
+            count = 0;
+            mean = new double[n];
+            seen = new boolean[n];
+            deviation = new double[n];
+            covariance = new double[n * (n + 1) / 2];
+        }
+        if (n == 0) return true;
+        count++;
+        final double alpha = 1.0 / Math.min(count,memory);
+        final double beta = 1.0 - alpha;
+        for (int i = 0; i < n; i++) {
+            final OrbitFrame frame = i < horizontalSize ? horizontal : vertical;
+            final int slot = i < horizontalSize ? i : i - horizontalSize;
+            final double x = frame.getValues()[slot];
+            double d = 0;
+            if (frame.getValid()[slot] && frame.getEnabled()[slot] && Double.isFinite(x)) {
+                if (seen[i]) {
+                    d = x - mean[i];
+                } else {
+                    seen[i] = true;
+                    mean[i] = x;
+                }
+            }
+            deviation[i] = d;
+            mean[i] += alpha * d;
+        }
+        for (int i = 0, k = 0; i < n; i++) {
+            final double di = alpha * deviation[i];
+            for (int j = i; j < n; j++, k++) {
+                covariance[k] = beta * (covariance[k] + di * deviation[j]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all samples from the matrix.
+     */
+    public synchronized void reset() {
+        count = 0;
+        Arrays.fill(mean,0);
+        Arrays.fill(seen,false);
+        Arrays.fill(covariance,0);
+    }
+
+    /**
+     * @return the number of samples added since the last reset
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Computes the correlation coefficients of all pairs of BPMs from the current covariance.
+     *
+     * @return the correlation snapshot
+     */
+    public synchronized BPMCorrelation snapshot() {
+        if (size < 1) return BPMCorrelation.EMPTY;
+        final int n = size;
+        final double[] correlation = new double[covariance.length];
+        final double[] std = new double[n];
+        for (int i = 0; i < n; i++) {
+            std[i] = Math.sqrt(covariance[index(n,i,i)]);
+        }
+        for (int i = 0, k = 0; i < n; i++) {
+            for (int j = i; j < n; j++, k++) {
+                double s = std[i] * std[j];
+                correlation[k] = s > 0 ? Math.max(-1,Math.min(1,covariance[k] / s)) : Double.NaN;
+            }
+        }
+        return new BPMCorrelation(correlation,n,horizontalSize,count);
+    }
+}
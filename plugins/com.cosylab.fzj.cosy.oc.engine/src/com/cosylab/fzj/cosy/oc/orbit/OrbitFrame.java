@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import java.time.Instant;
+
+import org.diirt.util.array.ListNumber;
+
+/**
+ * <code>OrbitFrame</code> is a single orbit waveform (positions at all BPMs of one plane) in a flat primitive form. The
+ * frame always has one slot per BPM in the lattice, regardless of whether the IOC published the values for all BPMs or
+ * only for the enabled ones. Each frame carries the PV timestamp, the enable mask of the BPMs at the time when the
+ * frame was built, and a mask of the slots that actually received a value.
+ * <p>
+ * Frames are immutable by contract: the arrays are never modified after construction and the accessors return the
+ * internal arrays without copying. Consumers must not modify them.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class OrbitFrame {
+
+    private final double[] values;
+    private final boolean[] valid;
+    private final boolean[] enabled;
+    private final long timestamp;
+
+    /**
+     * Constructs a new frame. The arrays are not copied.
+     *
+     * @param values the values for each BPM slot (NaN if the slot did not receive a value)
+     * @param valid the mask defining which slots received a value
+     * @param enabled the enable mask of the BPMs at the time when the frame was built
+     * @param timestamp the timestamp of the frame in nanoseconds since epoch
+     */
+    public OrbitFrame(double[] values, boolean[] valid, boolean[] enabled, long timestamp) {
+        if (values.length != valid.length || values.length != enabled.length) {
+            throw new IllegalArgumentException("Values and masks must be of equal length.");
+        }
+        this.values = values;
+        this.valid = valid;
+        this.enabled = enabled;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Builds a new frame from the data received from the IOC. If the number of received values matches the number of
+     * enabled BPMs, the values are assigned to the enabled BPMs only. If the number matches the number of all BPMs, the
+     * values are assigned to all BPMs. If there are less values than BPMs, the values are assigned to the first BPMs.
+     * If there are more values than BPMs, the data cannot be mapped to the lattice and null is returned.
+     *
+     * @param data the received data
+     * @param enabled the current enable mask of the BPMs (the array is kept by the frame and must not be modified)
+     * @param timestamp the timestamp of the data in nanoseconds since epoch
+     * @return the frame or null if the data does not fit the lattice
+     */
+    public static OrbitFrame build(ListNumber data, boolean[] enabled, long timestamp) {
+        final int n = enabled.length;
+        double[] values = new double[n];
+        boolean[] valid = new boolean[n];
+        return map(data,enabled,values,valid) ? new OrbitFrame(values,valid,enabled,timestamp) : null;
+    }
+
+    /**
+     * Maps the data received from the IOC to the BPM slots in the same way as
+     * {@link #build(ListNumber, boolean[], long)}, but writes the values and the valid mask into the given arrays
+     * instead of creating a frame. This allows a single writer to reuse the same arrays for every received orbit.
+     *
+     * @param data the received data
+     * @param enabled the current enable mask of the BPMs
+     * @param values the array to receive the values (at least as long as the enable mask)
+     * @param valid the array to receive the valid mask (at least as long as the enable mask)
+     * @return true if the data was mapped or false if it does not fit the lattice (the arrays are left unchanged)
+     */
+    public static boolean map(ListNumber data, boolean[] enabled, double[] values, boolean[] valid) {
+        final int n = enabled.length;
+        final int size = data.size();
+        int enabledCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (enabled[i]) {
+                enabledCount++;
+            }
+        }
+        if (size == enabledCount) {
+            for (int i = 0, j = 0; i < n; i++) {
+                if (enabled[i]) {
+                    values[i] = data.getDouble(j++);
+                    valid[i] = true;
+                } else {
+                    values[i] = Double.NaN;
+                    valid[i] = false;
+                }
+            }
+        } else if (size <= n) {
+            for (int i = 0; i < size; i++) {
+                values[i] = data.getDouble(i);
+                valid[i] = true;
+            }
+            for (int i = size; i < n; i++) {
+                values[i] = Double.NaN;
+                valid[i] = false;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Converts the instant to the number of nanoseconds since epoch, which is the timestamp format used by frames.
+     *
+     * @param instant the instant to convert (null means now)
+     * @return the number of nanoseconds since epoch
+     */
+    public static long toNanos(Instant instant) {
+        if (instant == null) {
+            instant = Instant.now();
+        }
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Returns the number of BPM slots in this frame.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the values for all BPM slots. Slots that did not receive a value are NaN. The returned array must not be
+     * modified.
+     *
+     * @return the values
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Returns the mask which defines which BPM slots received a value in this frame. The returned array must not be
+     * modified.
+     *
+     * @return the valid mask
+     */
+    public boolean[] getValid() {
+        return valid;
+    }
+
+    /**
+     * Returns the enable mask of the BPMs as it was at the time when this frame was built. The returned array must not
+     * be modified.
+     *
+     * @return the enable mask
+     */
+    public boolean[] getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the timestamp of the frame in nanoseconds since epoch.
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
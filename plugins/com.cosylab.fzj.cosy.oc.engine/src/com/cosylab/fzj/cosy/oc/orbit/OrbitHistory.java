@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <code>OrbitHistory</code> is a bounded ring buffer of orbit frames of a single plane. All storage is preallocated in
+ * primitive arrays, so adding a frame does not allocate any objects. The oldest frames are overwritten when the buffer
+ * is full.
+ * <p>
+ * The buffer supports a single writer and any number of readers. Readers do not acquire any lock: they copy the data
+ * optimistically and retry if the data was overwritten while it was being copied. Only the scalar queries fall back to
+ * a (very short) read lock if they collide with the writer. Frames are addressed by a sequence number, which starts at
+ * 0 and is incremented for each added frame. Frame timestamps are kept monotonic, which allows the frames to be looked
+ * up by time using binary search.
+ * <p>
+ * If a frame with a different width (number of BPMs) than the previous ones is added, the history is cleared, because
+ * the old frames no longer describe the same lattice. Each BPM of a frame takes 9 bytes; if the history is limited in
+ * memory, the number of frames it holds is reduced for wide frames, so that the buffers stay within the limit.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class OrbitHistory {
+
+    private static final byte VALID = 1;
+    private static final byte ENABLED = 2;
+    private static final int MAX_READ_ATTEMPTS = 10;
+    private static final int BYTES_PER_VALUE = Double.BYTES + Byte.BYTES;
+
+    private final int maxCapacity;
+    private final long maxBytes;
+    private final long[] timestamps;
+    private int capacity;
+    private final StampedLock lock = new StampedLock();
+    private double[] values = new double[0];
+    private byte[] flags = new byte[0];
+    private int width = -1;
+    //sequence number of the oldest frame still in the buffer and of the next frame to be written
+    private long first = 0;
+    private long next = 0;
+
+    /**
+     * Constructs a new history, which can hold up to <code>capacity</code> frames.
+     *
+     * @param capacity the maximum number of frames in the history
+     */
+    public OrbitHistory(int capacity) {
+        this(capacity,Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new history, which can hold up to <code>capacity</code> frames, but whose values and masks take at
+     * most <code>maxBytes</code> bytes.
+     *
+     * @param capacity the maximum number of frames in the history
+     * @param maxBytes the maximum number of bytes taken by the values and masks of all frames
+     */
+    public OrbitHistory(int capacity, long maxBytes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be a positive number.");
+        } else if (maxBytes < 1) {
+            throw new IllegalArgumentException("Memory limit must be a positive number.");
+        }
+        this.maxCapacity = capacity;
+        this.maxBytes = maxBytes;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Returns the maximum number of frames that can be stored in this history at the current width. The capacity is
+     * only lower than the requested one if the frames are too wide to fit into the memory limit.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return (int)read(() -> capacity);
+    }
+
+    /**
+     * Returns the number of frames of the given width that fit into this history.
+     *
+     * @param frameWidth the number of BPMs in a frame
+     * @return the capacity for frames of the given width
+     */
+    private int getCapacity(int frameWidth) {
+        final long frames = maxBytes / Math.max(1,(long)frameWidth * BYTES_PER_VALUE);
+        return (int)Math.max(1,Math.min(maxCapacity,frames));
+    }
+
+    /**
+     * Adds a frame to the history. This method must only be called by a single writer thread. If the frame has a
+     * timestamp older than the latest frame in the history, the timestamp of the latest frame is used instead.
+     *
+     * @param frame the frame to add
+     */
+    public void add(OrbitFrame frame) {
+        add(frame.getValues(),frame.getValid(),frame.getEnabled(),frame.getTimestamp());
+    }
+
+    /**
+     * Adds a frame given by its values, masks and timestamp to the history. The width of the frame is the length of
+     * the enable mask; the other arrays may be longer, which allows the caller to reuse them. The arrays are copied.
+     * This method must only be called by a single writer thread.
+     *
+     * @param frameValues the values for each BPM slot
+     * @param valid the mask defining which slots received a value
+     * @param enabled the enable mask of the BPMs
+     * @param frameTimestamp the timestamp of the frame in nanoseconds since epoch
+     */
+    public void add(double[] frameValues, boolean[] valid, boolean[] enabled, long frameTimestamp) {
+        final int n = enabled.length;
+        long stamp = lock.writeLock();
+        try {
+            if (n != width) {
+                capacity = getCapacity(n);
+                if (values.length != n * capacity) {
+                    values = new double[n * capacity];
+                    flags = new byte[n * capacity];
+                }
+                width = n;
+                first = next;
+            }
+            long timestamp = frameTimestamp;
+            if (next > first) {
+                long last = timestamps[(int)((next - 1) % capacity)];
+                if (timestamp < last) {
+                    timestamp = last;
+                }
+            }
+            int slot = (int)(next % capacity);
+            timestamps[slot] = timestamp;
+            System.arraycopy(frameValues,0,values,slot * n,n);
+            for (int i = 0, j = slot * n; i < n; i++, j++) {
+                flags[j] = (byte)((valid[i] ? VALID : 0) | (enabled[i] ? ENABLED : 0));
+            }
+            next++;
+            if (next - first > capacity) {
+                first = next - capacity;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all frames from the history. This method must only be called by the writer thread.
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            first = next;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the sequence number of the oldest frame in the history.
+     *
+     * @return the sequence number of the oldest frame
+     */
+    public long getFirstSequence() {
+        return read(() -> first);
+    }
+
+    /**
+     * Returns the sequence number of the latest frame in the history, or -1 if the history has never received a
+     * frame.
+     *
+     * @return the sequence number of the latest frame
+     */
+    public long getLastSequence() {
+        return read(() -> next) - 1;
+    }
+
+    /**
+     * Returns the number of frames in the history.
+     *
+     * @return the number of frames
+     */
+    public int size() {
+        return (int)read(() -> next - first);
+    }
+
+    /**
+     * Returns the width (number of BPMs) of the frames in this history, or -1 if no frame has been added yet.
+     *
+     * @return the width of the frames
+     */
+    public int getWidth() {
+        return (int)read(() -> width);
+    }
+
+    /**
+     * Finds the sequence number of the latest frame that is not newer than the given timestamp. The search is done by
+     * bisection and is therefore O(log n).
+     *
+     * @param timestamp the timestamp in nanoseconds since epoch
+     * @return the sequence number of the frame or -1 if all frames in the history are newer than the timestamp or if
+     *         the history is empty
+     */
+    public long find(long timestamp) {
+        return read(() -> {
+            long lo = first;
+            long hi = next - 1;
+            long result = -1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                if (timestamps[(int)(mid % capacity)] <= timestamp) {
+                    result = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns the timestamp of the frame with the given sequence number.
+     *
+     * @param sequence the sequence number of the frame
+     * @return the timestamp of the frame in nanoseconds since epoch or {@link Long#MIN_VALUE} if the frame is no
+     *         longer (or not yet) in the history
+     */
+    public long getTimestamp(long sequence) {
+        return read(() -> sequence < first || sequence >= next ? Long.MIN_VALUE
+                : timestamps[(int)(sequence % capacity)]);
+    }
+
+    /**
+     * Copies the values of the frame with the given sequence number into the destination array. The destination has
+     * to be at least as long as the width of the history. This method does not allocate any objects.
+     *
+     * @param sequence the sequence number of the frame
+     * @param destination the array to receive the values
+     * @return the timestamp of the frame or {@link Long#MIN_VALUE} if the frame is not in the history
+     */
+    public long copyValues(long sequence, double[] destination) {
+        return copyValues(sequence,destination,false);
+    }
+
+    /**
+     * Copies the values of the frame with the given sequence number into the destination array. If requested, the
+     * slots of the disabled BPMs and of the BPMs without a value are set to NaN. The destination has to be at least as
+     * long as the width of the history. This method does not allocate any objects.
+     *
+     * @param sequence the sequence number of the frame
+     * @param destination the array to receive the values
+     * @param enabledOnly true to set the slots that are not valid and enabled to NaN or false to copy all values
+     * @return the timestamp of the frame or {@link Long#MIN_VALUE} if the frame is not in the history
+     */
+    public long copyValues(long sequence, double[] destination, boolean enabledOnly) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.yield();
+                continue;
+            }
+            if (sequence < first || sequence >= next || destination.length < width) {
+                if (lock.validate(stamp)) {
+                    return Long.MIN_VALUE;
+                }
+                continue;
+            }
+            int slot = (int)(sequence % capacity);
+            int n = width;
+            long timestamp = timestamps[slot];
+            try {
+                System.arraycopy(values,slot * n,destination,0,n);
+                if (enabledOnly) {
+                    for (int i = 0, j = slot * n; i < n; i++, j++) {
+                        if (flags[j] != (VALID | ENABLED)) {
+                            destination[i] = Double.NaN;
+                        }
+                    }
+                }
+            } catch (IndexOutOfBoundsException e) {
+                //the buffer was resized while copying; validation below fails and the read is repeated
+            }
+            if (lock.validate(stamp)) {
+                return timestamp;
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the frame with the given sequence number. This method allocates a new frame.
+     *
+     * @param sequence the sequence number of the frame
+     * @return the frame if it is still in the history
+     */
+    public Optional<OrbitFrame> getFrame(long sequence) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.yield();
+                continue;
+            }
+            if (sequence < first || sequence >= next) {
+                if (lock.validate(stamp)) {
+                    return Optional.empty();
+                }
+                continue;
+            }
+            int slot = (int)(sequence % capacity);
+            int n = width;
+            double[] frameValues = new double[n];
+            boolean[] valid = new boolean[n];
+            boolean[] enabled = new boolean[n];
+            long timestamp = timestamps[slot];
+            try {
+                System.arraycopy(values,slot * n,frameValues,0,n);
+                for (int i = 0, j = slot * n; i < n; i++, j++) {
+                    valid[i] = (flags[j] & VALID) != 0;
+                    enabled[i] = (flags[j] & ENABLED) != 0;
+                }
+            } catch (IndexOutOfBoundsException e) {
+                //the buffer was resized while copying; validation below fails and the read is repeated
+            }
+            if (lock.validate(stamp)) {
+                return Optional.of(new OrbitFrame(frameValues,valid,enabled,timestamp));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the latest frame that is not newer than the given timestamp.
+     *
+     * @param timestamp the timestamp in nanoseconds since epoch
+     * @return the frame if it exists
+     */
+    public Optional<OrbitFrame> getFrameAt(long timestamp) {
+        long sequence = find(timestamp);
+        return sequence < 0 ? Optional.empty() : getFrame(sequence);
+    }
+
+    @FunctionalInterface
+    private static interface LongReader {
+        long read();
+    }
+
+    private long read(LongReader reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                long value = reader.read();
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                //inconsistent state observed while the writer was active; fall through to the locked read
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.read();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+/**
+ * <code>OrbitStatistics</code> are the statistical parameters (min, max, average, rms and standard deviation) of the
+ * values of an orbit frame. They are computed in a single pass over the primitive arrays of the frame. Only the slots
+ * which are enabled, received a value and are selected take part; each slot can optionally be weighted. The weighted
+ * average and the weighted standard deviation are computed with West's incremental algorithm, which does not suffer
+ * from the cancellation of the naive sum of squares. The minimum and maximum are not weighted, but slots with a weight
+ * of zero are ignored completely.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class OrbitStatistics {
+
+    /** Statistics of an empty selection */
+    public static final OrbitStatistics EMPTY = new OrbitStatistics(0,Double.NaN,Double.NaN,Double.NaN,Double.NaN,
+            Double.NaN);
+
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double avg;
+    private final double rms;
+    private final double std;
+
+    private OrbitStatistics(int count, double min, double max, double avg, double rms, double std) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+        this.rms = rms;
+        this.std = std;
+    }
+
+    /**
+     * Computes the statistics of all enabled slots of the frame that received a value.
+     *
+     * @param frame the frame
+     * @return the statistics
+     */
+    public static OrbitStatistics of(OrbitFrame frame) {
+        return of(frame,null,null);
+    }
+
+    /**
+     * Computes the statistics of the enabled and selected slots of the frame that received a value.
+     *
+     * @param frame the frame
+     * @param weights the weight of each slot, or null if all slots have the same weight; negative and NaN weights are
+     *        treated as zero
+     * @param selection the mask of the selected slots, or null to select all slots
+     * @return the statistics
+     */
+    public static OrbitStatistics of(OrbitFrame frame, double[] weights, boolean[] selection) {
+        final double[] values = frame.getValues();
+        final boolean[] valid = frame.getValid();
+        final boolean[] enabled = frame.getEnabled();
+        final int n = values.length;
+        if ((weights != null && weights.length != n) || (selection != null && selection.length != n)) {
+            throw new IllegalArgumentException("Weights and selection must match the size of the frame.");
+        }
+        int count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double weightSum = 0;
+        double mean = 0;
+        double m2 = 0;
+        double squares = 0;
+        for (int i = 0; i < n; i++) {
+            if (!valid[i] || !enabled[i] || (selection != null && !selection[i])) {
+                continue;
+            }
+            final double w = weights == null ? 1 : weights[i];
+            final double x = values[i];
+            //also excludes NaN weights and values
+            if (!(w > 0) || Double.isNaN(x)) {
+                continue;
+            }
+            count++;
+            if (x < min) {
+                min = x;
+            }
+            if (x > max) {
+                max = x;
+            }
+            weightSum += w;
+            final double delta = x - mean;
+            mean += delta * w / weightSum;
+            m2 += w * delta * (x - mean);
+            squares += w * x * x;
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        return new OrbitStatistics(count,min,max,mean,Math.sqrt(squares / weightSum),Math.sqrt(m2 / weightSum));
+    }
+
+    /**
+     * Returns the selection mask of the slots whose position lies within the given range. If the start of the range
+     * is greater than its end, the range wraps around the end of the ring and the slots after the start or before the
+     * end are selected.
+     *
+     * @param positions the position of each slot along the ring
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @return the selection mask
+     */
+    public static boolean[] selectRange(double[] positions, double from, double to) {
+        final boolean[] selection = new boolean[positions.length];
+        final boolean wrap = from > to;
+        for (int i = 0; i < positions.length; i++) {
+            final double s = positions[i];
+            selection[i] = wrap ? s >= from || s <= to : s >= from && s <= to;
+        }
+        return selection;
+    }
+
+    /**
+     * @return the number of slots that took part in the statistics
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest value or NaN if no slot took part
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value or NaN if no slot took part
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the (weighted) average or NaN if no slot took part
+     */
+    public double getAvg() {
+        return avg;
+    }
+
+    /**
+     * @return the (weighted) root mean square or NaN if no slot took part
+     */
+    public double getRms() {
+        return rms;
+    }
+
+    /**
+     * @return the (weighted) standard deviation or NaN if no slot took part
+     */
+    public double getStd() {
+        return std;
+    }
+}
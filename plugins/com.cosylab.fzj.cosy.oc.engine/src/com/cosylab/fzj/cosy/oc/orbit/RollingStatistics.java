@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import java.util.Arrays;
+
+/**
+ * <code>RollingStatistics</code> keeps the running statistics of each BPM of one plane over a sliding time window. The
+ * window is divided into a fixed number of time buckets; each bucket holds the count, mean, sum of squared deviations
+ * (Welford), minimum and maximum of every BPM in primitive arrays. Adding a frame updates only the current bucket,
+ * which is O(1) per BPM; a bucket is cleared when the window slides past it. A snapshot merges the buckets of the
+ * window with the parallel variant of Welford's algorithm. The window therefore slides in steps of one bucket.
+ * <p>
+ * Buckets are selected by the frame timestamps and the window ends at the timestamp of the latest frame, so the
+ * statistics describe the last window of received data even if the IOC stopped publishing. The class is thread safe;
+ * the frames are usually added by a single thread and the snapshots taken by another.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class RollingStatistics {
+
+    private static final int DEFAULT_BUCKETS = 10;
+
+    private final int buckets;
+    private final long bucketLength;
+    //the bucket epoch (timestamp / bucket length) that each bucket currently holds, or -1 if empty
+    private final long[] epochs;
+    private int width = -1;
+    private long latestEpoch = -1;
+    private long[] count = new long[0];
+    private double[] mean = new double[0];
+    private double[] m2 = new double[0];
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+
+    /**
+     * Constructs new statistics for the given window, divided into 10 buckets.
+     *
+     * @param window the window
+     */
+    public RollingStatistics(RollingWindow window) {
+        this(window.getLength().toNanos(),DEFAULT_BUCKETS);
+    }
+
+    /**
+     * Constructs new statistics over a window of the given length.
+     *
+     * @param windowLength the length of the window in nanoseconds
+     * @param buckets the number of buckets into which the window is divided
+     */
+    public RollingStatistics(long windowLength, int buckets) {
+        if (buckets < 1 || windowLength < buckets) {
+            throw new IllegalArgumentException("The window must be divided into at least one bucket.");
+        }
+        this.buckets = buckets;
+        this.bucketLength = windowLength / buckets;
+        this.epochs = new long[buckets];
+        Arrays.fill(epochs,-1);
+    }
+
+    /**
+     * Adds the enabled BPMs of the frame, which received a value, to the statistics. If the frame has a different
+     * number of BPMs than the previous frames, the statistics are cleared first.
+     *
+     * @param frame the frame to add
+     */
+    public void add(OrbitFrame frame) {
+        add(frame.getValues(),frame.getValid(),frame.getEnabled(),frame.getTimestamp());
+    }
+
+    /**
+     * Adds the enabled BPMs, which received a value, to the statistics. The number of BPMs is the length of the enable
+     * mask; the other arrays may be longer. If the number of BPMs differs from the previous frames, the statistics are
+     * cleared first.
+     *
+     * @param values the values for each BPM slot
+     * @param valid the mask defining which slots received a value
+     * @param enabled the enable mask of the BPMs
+     * @param timestamp the timestamp of the values in nanoseconds since epoch
+     */
+    public synchronized void add(double[] values, boolean[] valid, boolean[] enabled, long timestamp) {
+        final int n = enabled.length;
+        if (n != width) {
+            width = n;
+            count = new long[n * buckets];
+            mean = new double[n * buckets];
+            m2 = new double[n * buckets];
+            min = new double[n * buckets];
+            max = new double[n * buckets];
+            Arrays.fill(epochs,-1);
+            latestEpoch = -1;
+        }
+        final long epoch = timestamp / bucketLength;
+        if (epoch <= latestEpoch - buckets) {
+            //older than the window
+            return;
+        }
+        latestEpoch = Math.max(latestEpoch,epoch);
+        final int bucket = (int)(epoch % buckets);
+        final int offset = bucket * n;
+        if (epochs[bucket] != epoch) {
+            epochs[bucket] = epoch;
+            Arrays.fill(count,offset,offset + n,0);
+        }
+        for (int i = 0, j = offset; i < n; i++, j++) {
+            final double x = values[i];
+            if (!valid[i] || !enabled[i] || Double.isNaN(x)) {
+                continue;
+            }
+            final long c = ++count[j];
+            if (c == 1) {
+                mean[j] = x;
+                m2[j] = 0;
+                min[j] = x;
+                max[j] = x;
+            } else {
+                final double delta = x - mean[j];
+                mean[j] += delta / c;
+                m2[j] += delta * (x - mean[j]);
+                if (x < min[j]) {
+                    min[j] = x;
+                }
+                if (x > max[j]) {
+                    max[j] = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of each BPM over the window that ends with the latest added frame.
+     *
+     * @return the statistics snapshot
+     */
+    public synchronized BPMStatistics snapshot() {
+        if (width < 0) {
+            return BPMStatistics.EMPTY;
+        }
+        final int n = width;
+        final long[] c = new long[n];
+        final double[] mu = new double[n];
+        final double[] sq = new double[n];
+        final double[] lo = new double[n];
+        final double[] hi = new double[n];
+        for (int b = 0; b < buckets; b++) {
+            if (epochs[b] < 0 || epochs[b] <= latestEpoch - buckets) {
+                continue;
+            }
+            for (int i = 0, j = b * n; i < n; i++, j++) {
+                final long cb = count[j];
+                if (cb == 0) {
+                    continue;
+                }
+                if (c[i] == 0) {
+                    c[i] = cb;
+                    mu[i] = mean[j];
+                    sq[i] = m2[j];
+                    lo[i] = min[j];
+                    hi[i] = max[j];
+                } else {
+                    final long total = c[i] + cb;
+                    final double delta = mean[j] - mu[i];
+                    mu[i] += delta * cb / total;
+                    sq[i] += m2[j] + delta * delta * c[i] * cb / total;
+                    c[i] = total;
+                    lo[i] = Math.min(lo[i],min[j]);
+                    hi[i] = Math.max(hi[i],max[j]);
+                }
+            }
+        }
+        final double[] std = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (c[i] == 0) {
+                mu[i] = Double.NaN;
+                std[i] = Double.NaN;
+                lo[i] = Double.NaN;
+                hi[i] = Double.NaN;
+            } else {
+                std[i] = Math.sqrt(sq[i] / c[i]);
+            }
+        }
+        return new BPMStatistics(c,mu,std,lo,hi);
+    }
+}
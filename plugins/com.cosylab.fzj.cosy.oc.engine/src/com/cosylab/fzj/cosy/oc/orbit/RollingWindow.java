@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+import java.time.Duration;
+
+/**
+ * <code>RollingWindow</code> enumerates the time windows over which the rolling per-BPM statistics are kept.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public enum RollingWindow {
+    /** The last 10 seconds */
+    SECONDS_10(Duration.ofSeconds(10),"10 s"),
+    /** The last minute */
+    MINUTE_1(Duration.ofMinutes(1),"1 min"),
+    /** The last 10 minutes */
+    MINUTES_10(Duration.ofMinutes(10),"10 min");
+
+    private final Duration length;
+    private final String label;
+
+    private RollingWindow(Duration length, String label) {
+        this.length = length;
+        this.label = label;
+    }
+
+    /**
+     * @return the length of the window
+     */
+    public Duration getLength() {
+        return length;
+    }
+
+    /**
+     * @return the short human readable description of the window
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.orbit;
+
+/**
+ * <code>SpectrumAnalyzer</code> computes the amplitude spectrum of each BPM of one plane over the latest frames of an
+ * {@link OrbitHistory}. The analyzer keeps a sliding buffer of the latest <code>length</code> samples of every BPM;
+ * each {@link #update(OrbitHistory)} only copies the frames that were added to the history since the previous update.
+ * The spectra are then computed by a radix-2 FFT of the mean-free, Hann windowed samples. All working buffers are
+ * preallocated, the only allocation per update is the published {@link BPMSpectrum}.
+ * <p>
+ * The sampling rate is estimated from the timestamps of the buffered frames, which assumes that the orbit is
+ * published at a constant rate. Samples that are not valid (disabled BPMs or BPMs without a value) are treated as
+ * zero deviation from the mean. The analyzer is meant to be updated by a single background thread.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class SpectrumAnalyzer {
+
+    private final int length;
+    private final double[] window;
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] reversed;
+    private final double[] re;
+    private final double[] im;
+    private final long[] timestamps;
+    private double[] samples = new double[0];
+    private double[] frame = new double[0];
+    private int width = -1;
+    //sequence number of the next frame to read from the history and the number of buffered frames
+    private long next = 0;
+    private int filled = 0;
+    private int head = 0;
+
+    /**
+     * Constructs a new analyzer, which computes the spectra over the given number of frames.
+     *
+     * @param length the number of frames in the analysis window, a power of 2 not smaller than 8
+     */
+    public SpectrumAnalyzer(int length) {
+        if (length < 8 || Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("Length must be a power of 2 and at least 8.");
+        }
+        this.length = length;
+        this.window = new double[length];
+        this.cos = new double[length / 2];
+        this.sin = new double[length / 2];
+        this.reversed = new int[length];
+        this.re = new double[length];
+        this.im = new double[length];
+        this.timestamps = new long[length];
+        for (int i = 0; i < length; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (length - 1));
+        }
+        for (int i = 0; i < length / 2; i++) {
+            cos[i] = Math.cos(2 * Math.PI * i / length);
+            sin[i] = -Math.sin(2 * Math.PI * i / length);
+        }
+        final int bits = Integer.numberOfTrailingZeros(length);
+        for (int i = 0; i < length; i++) {
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * @return the number of frames in the analysis window
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Copies the frames that were added to the history since the previous call into the sliding buffer. Frames that
+     * were already overwritten in the history are skipped. If the width of the frames changed, the buffer is reset.
+     *
+     * @param history the history to read the frames from
+     * @return true if at least one new frame was added to the buffer
+     */
+    public synchronized boolean update(OrbitHistory history) {
+        final long last = history.getLastSequence();
+        final int n = history.getWidth();
+        if (last < 0 || n < 0) return false;
+        if (n != width) {
+            reset(n);
+            next = Math.max(0,last - length + 1);
+        }
+        next = Math.max(next,history.getFirstSequence());
+        boolean added = false;
+        for (; next <= last; next++) {
+            long timestamp = history.copyValues(next,frame,true);
+            if (timestamp == Long.MIN_VALUE) continue;
+            for (int i = 0, j = head; i < n; i++, j += length) {
+                double v = frame[i];
+                samples[j] = Double.isFinite(v) ? v : Double.NaN;
+            }
+            timestamps[head] = timestamp;
+            head = (head + 1) % length;
+            if (filled < length) {
+                filled++;
+            }
+            added = true;
+        }
+        return added;
+    }
+
+    private void reset(int newWidth) {
+        width = newWidth;
+        samples = new double[newWidth * length];
+        frame = new double[newWidth];
+        filled = 0;
+        head = 0;
+    }
+
+    /**
+     * @return true if the buffer holds enough frames to compute the spectra
+     */
+    public synchronized boolean isReady() {
+        return filled == length;
+    }
+
+    /**
+     * Computes the amplitude spectra of all BPMs over the buffered frames.
+     *
+     * @return the spectra, or {@link BPMSpectrum#EMPTY} if the buffer does not hold enough frames yet
+     */
+    public synchronized BPMSpectrum compute() {
+        if (filled < length || width < 1) return BPMSpectrum.EMPTY;
+        final int bins = length / 2 + 1;
+        final long newest = timestamps[(head + length - 1) % length];
+        final long oldest = timestamps[head];
+        final double rate = newest > oldest ? (length - 1) * 1e9 / (newest - oldest) : Double.NaN;
+        final double[] frequencies = new double[bins];
+        for (int k = 0; k < bins; k++) {
+            frequencies[k] = k * rate / length;
+        }
+        //the Hann window halves the amplitude of a line; one sided spectrum doubles it
+        final double scale = 4.0 / length;
+        final double[] amplitudes = new double[width * bins];
+        for (int b = 0; b < width; b++) {
+            final int offset = b * length;
+            double sum = 0;
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                double v = samples[offset + i];
+                if (!Double.isNaN(v)) {
+                    sum += v;
+                    count++;
+                }
+            }
+            final double mean = count > 0 ? sum / count : 0;
+            //the oldest sample is at the head of the ring buffer
+            for (int i = 0; i < length; i++) {
+                double v = samples[offset + (head + i) % length];
+                int r = reversed[i];
+                re[r] = Double.isNaN(v) ? 0 : (v - mean) * window[i];
+                im[r] = 0;
+            }
+            transform();
+            for (int k = 0, j = b * bins; k < bins; k++, j++) {
+                amplitudes[j] = Math.sqrt(re[k] * re[k] + im[k] * im[k]) * (k == 0 || k == length / 2 ? scale / 2
+                        : scale);
+            }
+        }
+        return new BPMSpectrum(frequencies,amplitudes,width,newest);
+    }
+
+    /**
+     * In-place iterative radix-2 FFT of the bit reversed data in {@link #re} and {@link #im}.
+     */
+    private void transform() {
+        for (int size = 2; size <= length; size <<= 1) {
+            final int half = size >>> 1;
+            final int step = length / size;
+            for (int start = 0; start < length; start += size) {
+                for (int k = 0, t = 0; k < half; k++, t += step) {
+                    int even = start + k;
+                    int odd = even + half;
+                    double tr = re[odd] * cos[t] - im[odd] * sin[t];
+                    double ti = re[odd] * sin[t] + im[odd] * cos[t];
+                    re[odd] = re[even] - tr;
+                    im[odd] = im[even] - ti;
+                    re[even] += tr;
+                    im[even] += ti;
+                }
+            }
+        }
+    }
+}
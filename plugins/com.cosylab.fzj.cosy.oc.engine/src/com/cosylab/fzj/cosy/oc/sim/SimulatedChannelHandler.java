@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.sim;
+
+import java.util.function.Consumer;
+
+import org.diirt.datasource.ChannelWriteCallback;
+import org.diirt.datasource.DataSourceTypeAdapter;
+import org.diirt.datasource.MultiplexedChannelHandler;
+import org.diirt.datasource.ValueCache;
+import org.diirt.vtype.VType;
+
+/**
+ * <code>SimulatedChannelHandler</code> connects a single PV of the {@link SimulatedDataSource} to the
+ * {@link SimulatedDevice}. The channel is connected as long as it has readers or writers and the PV is served by the
+ * device; PVs that the device does not know about never connect, as if they were not available on the network.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+class SimulatedChannelHandler extends MultiplexedChannelHandler<SimulatedDevice,VType> {
+
+    private static final DataSourceTypeAdapter<SimulatedDevice,VType> TYPE_ADAPTER =
+            new DataSourceTypeAdapter<SimulatedDevice,VType>() {
+
+        @Override
+        public int match(ValueCache<?> cache, SimulatedDevice connection) {
+            return 1;
+        }
+
+        @Override
+        public Object getSubscriptionParameter(ValueCache<?> cache, SimulatedDevice connection) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean updateCache(ValueCache<?> cache, SimulatedDevice connection, VType message) {
+            if (cache.getType().isInstance(message)) {
+                ((ValueCache<Object>)cache).writeValue(message);
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final SimulatedDevice device;
+    private final Consumer<VType> listener = this::processMessage;
+
+    /**
+     * Constructs a new handler for the given PV.
+     *
+     * @param channelName the name of the PV
+     * @param device the device that serves the PV
+     */
+    SimulatedChannelHandler(String channelName, SimulatedDevice device) {
+        super(channelName);
+        this.device = device;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.diirt.datasource.MultiplexedChannelHandler#connect()
+     */
+    @Override
+    protected void connect() {
+        if (device.isServed(getChannelName())) {
+            processConnection(device);
+            device.addListener(getChannelName(),listener);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.diirt.datasource.MultiplexedChannelHandler#disconnect()
+     */
+    @Override
+    protected void disconnect() {
+        device.removeListener(getChannelName(),listener);
+        processConnection(null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.diirt.datasource.MultiplexedChannelHandler#write(java.lang.Object,
+     * org.diirt.datasource.ChannelWriteCallback)
+     */
+    @Override
+    protected void write(Object newValue, ChannelWriteCallback callback) {
+        device.write(getChannelName(),newValue).whenComplete((r, t) -> callback
+                .channelWritten(t == null ? null : t instanceof Exception ? (Exception)t : new Exception(t)));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.diirt.datasource.MultiplexedChannelHandler#findTypeAdapter(org.diirt.datasource.ValueCache,
+     * java.lang.Object)
+     */
+    @Override
+    protected DataSourceTypeAdapter<SimulatedDevice,VType> findTypeAdapter(ValueCache<?> cache,
+            SimulatedDevice connection) {
+        return TYPE_ADAPTER;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.sim;
+
+import org.diirt.datasource.ChannelHandler;
+import org.diirt.datasource.DataSource;
+import org.diirt.datasource.NotificationSupport;
+import org.diirt.datasource.TypeSupport;
+import org.diirt.vtype.VType;
+
+/**
+ * <code>SimulatedDataSource</code> is a DIIRT data source, which serves the PVs of a {@link SimulatedDevice} without
+ * any network access. The PV names are used as they are, without a data source prefix. Closing the data source also
+ * disposes the device.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class SimulatedDataSource extends DataSource {
+
+    static {
+        //the notification support of the VTypes is installed by the network data sources, which might never be
+        //created when all PVs are simulated
+        if (!TypeSupport.isTypeSupported(NotificationSupport.class,VType.class)) {
+            TypeSupport.addTypeSupport(NotificationSupport.immutableTypeSupport(VType.class));
+        }
+    }
+
+    private final SimulatedDevice device;
+
+    /**
+     * Constructs a new writeable data source, which serves the PVs of the given device.
+     *
+     * @param device the device that provides the values of the PVs
+     */
+    public SimulatedDataSource(SimulatedDevice device) {
+        super(true);
+        this.device = device;
+    }
+
+    /**
+     * @return the device that provides the values of the PVs
+     */
+    public SimulatedDevice getDevice() {
+        return device;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.diirt.datasource.DataSource#createChannel(java.lang.String)
+     */
+    @Override
+    protected ChannelHandler createChannel(String channelName) {
+        return new SimulatedChannelHandler(channelName,device);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.diirt.datasource.DataSource#close()
+     */
+    @Override
+    public void close() {
+        super.close();
+        device.dispose();
+    }
+}
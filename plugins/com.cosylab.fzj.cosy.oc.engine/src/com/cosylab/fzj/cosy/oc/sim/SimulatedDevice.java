@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.sim;
+
+import static org.diirt.vtype.ValueFactory.alarmNone;
+import static org.diirt.vtype.ValueFactory.displayNone;
+import static org.diirt.vtype.ValueFactory.newTime;
+import static org.diirt.vtype.ValueFactory.newVDouble;
+import static org.diirt.vtype.ValueFactory.newVEnum;
+import static org.diirt.vtype.ValueFactory.newVNumberArray;
+import static org.diirt.vtype.ValueFactory.newVStringArray;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VType;
+
+import com.cosylab.fzj.cosy.oc.engine.Channel;
+
+/**
+ * <code>SimulatedDevice</code> is an in-process stand-in for the orbit correction IOC. It serves every channel of the
+ * given PV name map: a synthetic lattice of the requested size, the measured orbits published at a fixed rate, the
+ * corrector kicks, the orbit statistics and all settings. The command channels drive the
+ * {@link Channel#OPERATION_STATUS} through the same transitions as the IOC: an orbit is only published while the device
+ * is measuring or correcting, a single measurement or correction returns to idle when done, and a command that is not
+ * allowed in the current state is accepted but ignored. The device never enters the <code>CORRECTING_ORM</code>
+ * state, because there is no command to measure the orbit response matrix; the state is only listed among the labels.
+ * <p>
+ * The orbit is modelled as a betatron oscillation with a random offset per BPM, plus gaussian noise of a different
+ * magnitude on each BPM. Every correction step removes the configured fraction of the remaining distortion and moves
+ * the correctors accordingly. All random values are drawn from a generator with a fixed seed, so the same sequence of
+ * commands always produces the same orbits. The horizontal and vertical orbit of a measurement carry the same
+ * timestamp, which is the time of publication; the {@link com.cosylab.fzj.cosy.oc.engine.OrbitEngine} measures the
+ * orbit latency from it.
+ * <p>
+ * All state changes and notifications happen on the single thread of the device, so the listeners receive the values
+ * of each PV in order.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class SimulatedDevice {
+
+    /** The labels of the {@link Channel#OPERATION_STATUS}, in the order of their indices */
+    public static final List<String> OPERATION_STATUS_LABELS = Collections
+            .unmodifiableList(Arrays.asList("IDLE","MEASURING_ORBIT","CORRECTING_ORBIT","CORRECTING_ORM"));
+    /** The labels of the {@link Channel#CORRECTION_ALGORITHM}, in the order of their indices */
+    public static final List<String> CORRECTION_ALGORITHM_LABELS = Collections
+            .unmodifiableList(Arrays.asList("SPLIT","COUPLED"));
+    /** The seed used when none is given, which makes the simulation the same on every run */
+    public static final long DEFAULT_SEED = 17L;
+    private static final int IDLE = 0;
+    private static final int MEASURING_ORBIT = 1;
+    private static final int CORRECTING_ORBIT = 2;
+    //circumference of the ring in meters and the betatron tunes
+    private static final double CIRCUMFERENCE = 183.47;
+    private static final double HORIZONTAL_TUNE = 3.58;
+    private static final double VERTICAL_TUNE = 3.62;
+    //amplitude of the betatron oscillation, offset and noise of the BPMs in mm, corrector kicks in mrad
+    private static final double DISTORTION_AMPLITUDE = 2.0;
+    private static final double BPM_OFFSET = 0.3;
+    private static final double BPM_NOISE = 0.01;
+    private static final double CORRECTOR_KICK = 0.5;
+    private static final double MA_PER_MRAD = 500.;
+    private static final double DEFAULT_CUTOFF = 5.;
+    private static final double DEFAULT_CORRECTION_FRACTION = 0.5;
+    private static final double DEFAULT_CORRECTION_FREQUENCY = 1.;
+
+    /**
+     * <code>Plane</code> is the state and the channels of the horizontal or vertical plane.
+     */
+    private static final class Plane {
+
+        final Channel orbit;
+        final Channel golden;
+        final Channel reference;
+        final Channel difference;
+        final Channel kick;
+        final Channel current;
+        final Channel orbitStatistics;
+        final Channel goldenStatistics;
+        final Channel referenceStatistics;
+        final double[] distortion;
+        final double[] noise;
+        final double[] kicks;
+        double[] goldenOrbit;
+        double[] referenceOrbit;
+        double[] enabled;
+        //fraction of the initial distortion that has not been corrected yet
+        double residual = 1.;
+        double fraction = DEFAULT_CORRECTION_FRACTION;
+
+        Plane(Channel[] channels, Random random, double tune, double[] bpmPositions, int correctors) {
+            this.orbit = channels[0];
+            this.golden = channels[1];
+            this.reference = channels[2];
+            this.difference = channels[3];
+            this.kick = channels[4];
+            this.current = channels[5];
+            this.orbitStatistics = channels[6];
+            this.goldenStatistics = channels[7];
+            this.referenceStatistics = channels[8];
+            final int bpms = bpmPositions.length;
+            final double phase = 2 * Math.PI * random.nextDouble();
+            distortion = new double[bpms];
+            noise = new double[bpms];
+            for (int i = 0; i < bpms; i++) {
+                distortion[i] = DISTORTION_AMPLITUDE
+                        * Math.cos(2 * Math.PI * tune * bpmPositions[i] / CIRCUMFERENCE + phase)
+                        + BPM_OFFSET * (2 * random.nextDouble() - 1);
+                noise[i] = BPM_NOISE * (0.5 + 1.5 * random.nextDouble());
+            }
+            kicks = new double[correctors];
+            for (int i = 0; i < correctors; i++) {
+                kicks[i] = CORRECTOR_KICK * (2 * random.nextDouble() - 1);
+            }
+            goldenOrbit = new double[bpms];
+            referenceOrbit = new double[bpms];
+            enabled = new double[bpms];
+            Arrays.fill(enabled,1.);
+        }
+    }
+
+    private final Map<Channel,String> pvNames;
+    private final Map<String,Channel> channels = new HashMap<>();
+    private final Map<String,VType> values = new ConcurrentHashMap<>();
+    private final Map<String,List<Consumer<VType>>> listeners = new ConcurrentHashMap<>();
+    private final AtomicLong publishedOrbits = new AtomicLong(0);
+    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,r -> {
+        Thread thread = new Thread(r,"Simulated Device");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //the state below is only accessed on the device thread
+    private final Random random;
+    private final Plane horizontal;
+    private final Plane vertical;
+    private int status = IDLE;
+    private boolean once = false;
+    private long nextCorrection;
+    private double correctionFrequency = DEFAULT_CORRECTION_FREQUENCY;
+    private double requestedCorrectionFrequency = DEFAULT_CORRECTION_FREQUENCY;
+
+    /**
+     * Constructs a new device with the default seed and starts publishing the orbits.
+     *
+     * @param pvNames the names of the PVs served by the device
+     * @param bpms the number of BPMs in each plane
+     * @param correctors the number of correctors in each plane
+     * @param orbitRate the rate in Hz at which the orbits are published while measuring or correcting
+     */
+    public SimulatedDevice(Map<Channel,String> pvNames, int bpms, int correctors, double orbitRate) {
+        this(pvNames,bpms,correctors,orbitRate,DEFAULT_SEED);
+    }
+
+    /**
+     * Constructs a new device and starts publishing the orbits.
+     *
+     * @param pvNames the names of the PVs served by the device
+     * @param bpms the number of BPMs in each plane
+     * @param correctors the number of correctors in each plane
+     * @param orbitRate the rate in Hz at which the orbits are published while measuring or correcting
+     * @param seed the seed of the random generator, which produces the lattice, the orbit distortion and the noise
+     */
+    public SimulatedDevice(Map<Channel,String> pvNames, int bpms, int correctors, double orbitRate, long seed) {
+        if (bpms < 1 || correctors < 1) {
+            throw new IllegalArgumentException("At least one BPM and one corrector are required.");
+        }
+        if (!(orbitRate > 0)) {
+            throw new IllegalArgumentException("Orbit rate must be positive.");
+        }
+        this.pvNames = Collections.unmodifiableMap(new HashMap<>(pvNames));
+        this.pvNames.forEach((c, n) -> channels.put(n,c));
+        this.random = new Random(seed);
+        final double[] bpmPositions = createLattice(bpms,correctors);
+        horizontal = new Plane(new Channel[] { Channel.HORIZONTAL_ORBIT, Channel.GOLDEN_HORIZONTAL_ORBIT,
+                Channel.HORIZONTAL_REFERENCE_ORBIT, Channel.HORIZONTAL_DIFFERENCE_ORBIT,
+                Channel.HORIZONTAL_CORRECTOR_MRAD, Channel.HORIZONTAL_CORRECTOR_MA, Channel.HORIZONTAL_ORBIT_STATISTICS,
+                Channel.GOLDEN_HORIZONTAL_ORBIT_STATISTICS, Channel.REFERENCE_HORIZONTAL_ORBIT_STATISTICS },random,
+                HORIZONTAL_TUNE,bpmPositions,correctors);
+        vertical = new Plane(new Channel[] { Channel.VERTICAL_ORBIT, Channel.GOLDEN_VERTICAL_ORBIT,
+                Channel.VERTICAL_REFERENCE_ORBIT, Channel.VERTICAL_DIFFERENCE_ORBIT, Channel.VERTICAL_CORRECTOR_MRAD,
+                Channel.VERTICAL_CORRECTOR_MA, Channel.VERTICAL_ORBIT_STATISTICS,
+                Channel.GOLDEN_VERTICAL_ORBIT_STATISTICS, Channel.REFERENCE_VERTICAL_ORBIT_STATISTICS },random,
+                VERTICAL_TUNE,bpmPositions,correctors);
+        final Time time = newTime(Instant.now());
+        final double[] ones = new double[correctors];
+        Arrays.fill(ones,1.);
+        final double[] zeros = new double[correctors];
+        publish(Channel.HORIZONTAL_BPM_ENABLED,numbers(horizontal.enabled,time));
+        publish(Channel.VERTICAL_BPM_ENABLED,numbers(vertical.enabled,time));
+        publish(Channel.HORIZONTAL_CORRECTOR_ENABLED,numbers(ones,time));
+        publish(Channel.VERTICAL_CORRECTOR_ENABLED,numbers(ones,time));
+        publish(Channel.HORIZONTAL_STEERER_CUTOFF,numbers(zeros,time));
+        publish(Channel.VERTICAL_STEERER_CUTOFF,numbers(zeros,time));
+        publish(Channel.ORM,numbers(new double[0],time));
+        publish(Channel.HORIZONTAL_CUTOFF,newVDouble(DEFAULT_CUTOFF,alarmNone(),time,displayNone()));
+        publish(Channel.VERTICAL_CUTOFF,newVDouble(DEFAULT_CUTOFF,alarmNone(),time,displayNone()));
+        publish(Channel.HORIZONTAL_CORRECTION_FRACTION,newVDouble(horizontal.fraction,alarmNone(),time,displayNone()));
+        publish(Channel.VERTICAL_CORRECTION_FRACTION,newVDouble(vertical.fraction,alarmNone(),time,displayNone()));
+        publish(Channel.CORRECTION_FREQUENCY,newVDouble(correctionFrequency,alarmNone(),time,displayNone()));
+        publish(Channel.CORRECTION_ALGORITHM,newVEnum(0,CORRECTION_ALGORITHM_LABELS,alarmNone(),time));
+        publish(Channel.OPERATION_STATUS,newVEnum(status,OPERATION_STATUS_LABELS,alarmNone(),time));
+        for (Plane plane : new Plane[] { horizontal, vertical }) {
+            publishGolden(plane,time);
+            publishReference(plane,time);
+            publishCorrectors(plane,time);
+            publishOrbit(plane,time);
+        }
+        final long period = Math.max(1,(long)(1e9 / orbitRate));
+        executor.scheduleAtFixedRate(this::tick,period,period,TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates and publishes the lattice. The ring is divided into one cell per BPM, each consisting of a BPM, a
+     * focusing quadrupole, a dipole and a defocusing quadrupole; every other cell also has a sextupole. The correctors
+     * are spread evenly around the ring.
+     *
+     * @param bpms the number of BPMs
+     * @param correctors the number of correctors
+     * @return the positions of the BPMs
+     */
+    private double[] createLattice(int bpms, int correctors) {
+        final double cell = CIRCUMFERENCE / bpms;
+        final double[] bpmPositions = new double[bpms];
+        final List<String> bpmNames = new ArrayList<>(bpms);
+        final List<String> quadrupoleNames = new ArrayList<>(2 * bpms);
+        final double[] quadrupolePositions = new double[2 * bpms];
+        final List<String> dipoleNames = new ArrayList<>(bpms);
+        final double[] dipolePositions = new double[bpms];
+        final List<String> sextupoleNames = new ArrayList<>((bpms + 1) / 2);
+        final double[] sextupolePositions = new double[(bpms + 1) / 2];
+        for (int i = 0; i < bpms; i++) {
+            double start = i * cell;
+            bpmPositions[i] = start + cell * (0.05 + 0.1 * random.nextDouble());
+            bpmNames.add(String.format("BPM%04d",i + 1));
+            quadrupolePositions[2 * i] = start + 0.2 * cell;
+            quadrupoleNames.add(String.format("QF%04d",i + 1));
+            dipolePositions[i] = start + 0.5 * cell;
+            dipoleNames.add(String.format("D%04d",i + 1));
+            quadrupolePositions[2 * i + 1] = start + 0.8 * cell;
+            quadrupoleNames.add(String.format("QD%04d",i + 1));
+            if (i % 2 == 0) {
+                sextupolePositions[i / 2] = start + 0.9 * cell;
+                sextupoleNames.add(String.format("SX%04d",i / 2 + 1));
+            }
+        }
+        final double[] correctorPositions = new double[correctors];
+        final List<String> horizontalNames = new ArrayList<>(correctors);
+        final List<String> verticalNames = new ArrayList<>(correctors);
+        for (int i = 0; i < correctors; i++) {
+            correctorPositions[i] = (i + 0.3) * CIRCUMFERENCE / correctors;
+            horizontalNames.add(String.format("SH%04d",i + 1));
+            verticalNames.add(String.format("SV%04d",i + 1));
+        }
+        final Time time = newTime(Instant.now());
+        publish(Channel.HORIZONTAL_BPM_NAMES,newVStringArray(bpmNames,alarmNone(),time));
+        publish(Channel.HORIZONTAL_BPM_POSITIONS,numbers(bpmPositions,time));
+        publish(Channel.VERTICAL_BPM_NAMES,newVStringArray(bpmNames,alarmNone(),time));
+        publish(Channel.VERTICAL_BPM_POSITIONS,numbers(bpmPositions,time));
+        publish(Channel.HORIZONTAL_CORRECTOR_NAMES,newVStringArray(horizontalNames,alarmNone(),time));
+        publish(Channel.HORIZONTAL_CORRECTOR_POSITIONS,numbers(correctorPositions,time));
+        publish(Channel.VERTICAL_CORRECTOR_NAMES,newVStringArray(verticalNames,alarmNone(),time));
+        publish(Channel.VERTICAL_CORRECTOR_POSITIONS,numbers(correctorPositions,time));
+        publish(Channel.QUADRUPOLE_NAMES,newVStringArray(quadrupoleNames,alarmNone(),time));
+        publish(Channel.QUADRUPOLE_POSITIONS,numbers(quadrupolePositions,time));
+        publish(Channel.DIPOLE_NAMES,newVStringArray(dipoleNames,alarmNone(),time));
+        publish(Channel.DIPOLE_POSITIONS,numbers(dipolePositions,time));
+        publish(Channel.SEXTUPOLE_NAMES,newVStringArray(sextupoleNames,alarmNone(),time));
+        publish(Channel.SEXTUPOLE_POSITIONS,numbers(sextupolePositions,time));
+        return bpmPositions;
+    }
+
+    /**
+     * Returns true if the PV with the given name is served by this device.
+     *
+     * @param pvName the name of the PV
+     * @return true if the PV is served by this device or false otherwise
+     */
+    public boolean isServed(String pvName) {
+        return channels.containsKey(pvName);
+    }
+
+    /**
+     * Registers a listener, which receives every value of the given PV. The listener immediately receives the current
+     * value of the PV. All values are delivered on the device thread.
+     *
+     * @param pvName the name of the PV
+     * @param listener the listener to register
+     */
+    public void addListener(String pvName, Consumer<VType> listener) {
+        execute(() -> {
+            listeners.computeIfAbsent(pvName,n -> new CopyOnWriteArrayList<>()).add(listener);
+            VType value = values.get(pvName);
+            if (value != null) {
+                listener.accept(value);
+            }
+        });
+    }
+
+    /**
+     * Removes the listener from the given PV.
+     *
+     * @param pvName the name of the PV
+     * @param listener the listener to remove
+     */
+    public void removeListener(String pvName, Consumer<VType> listener) {
+        execute(() -> {
+            List<Consumer<VType>> list = listeners.get(pvName);
+            if (list != null) {
+                list.remove(listener);
+            }
+        });
+    }
+
+    /**
+     * Writes the value to the given PV. A write to a command PV executes the command, a write to a setting is
+     * published back as the new value of the PV. Writes to the PVs, which are only written by the IOC fail.
+     *
+     * @param pvName the name of the PV
+     * @param value the value to write
+     * @return a future, which completes when the value was applied, or completes exceptionally if the write failed
+     */
+    public CompletableFuture<Void> write(String pvName, Object value) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    applyWrite(pvName,value);
+                    result.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("Simulated device is disposed.",e));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of orbits published by this device (the horizontal and vertical orbit count as one)
+     */
+    public long getPublishedOrbitCount() {
+        return publishedOrbits.get();
+    }
+
+    /**
+     * Stops the device. No values are published after this call.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+        listeners.clear();
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            //disposed, nothing to deliver anymore
+        }
+    }
+
+    private void applyWrite(String pvName, Object value) throws IOException {
+        final Channel channel = channels.get(pvName);
+        if (channel == null) {
+            throw new IOException(String.format("%s is not served by the simulated device.",pvName));
+        }
+        if (channel.getKind() == Channel.Kind.COMMAND) {
+            executeCommand(channel);
+            return;
+        }
+        final Time time = newTime(Instant.now());
+        switch (channel) {
+            case GOLDEN_HORIZONTAL_ORBIT:
+                horizontal.goldenOrbit = toArray(pvName,value,horizontal.distortion.length);
+                publishGolden(horizontal,time);
+                break;
+            case GOLDEN_VERTICAL_ORBIT:
+                vertical.goldenOrbit = toArray(pvName,value,vertical.distortion.length);
+                publishGolden(vertical,time);
+                break;
+            case HORIZONTAL_REFERENCE_ORBIT:
+                horizontal.referenceOrbit = toArray(pvName,value,horizontal.distortion.length);
+                publishReference(horizontal,time);
+                break;
+            case VERTICAL_REFERENCE_ORBIT:
+                vertical.referenceOrbit = toArray(pvName,value,vertical.distortion.length);
+                publishReference(vertical,time);
+                break;
+            case HORIZONTAL_BPM_ENABLED:
+                horizontal.enabled = toArray(pvName,value,horizontal.distortion.length);
+                publish(channel,numbers(horizontal.enabled,time));
+                break;
+            case VERTICAL_BPM_ENABLED:
+                vertical.enabled = toArray(pvName,value,vertical.distortion.length);
+                publish(channel,numbers(vertical.enabled,time));
+                break;
+            case HORIZONTAL_CORRECTOR_ENABLED:
+            case VERTICAL_CORRECTOR_ENABLED:
+            case HORIZONTAL_STEERER_CUTOFF:
+            case VERTICAL_STEERER_CUTOFF:
+                publish(channel,numbers(toArray(pvName,value,horizontal.kicks.length),time));
+                break;
+            case ORM:
+                publish(channel,numbers(toArray(pvName,value,-1),time));
+                break;
+            case HORIZONTAL_CORRECTION_FRACTION:
+                horizontal.fraction = Math.max(0,Math.min(1,toNumber(pvName,value)));
+                publish(channel,newVDouble(horizontal.fraction,alarmNone(),time,displayNone()));
+                break;
+            case VERTICAL_CORRECTION_FRACTION:
+                vertical.fraction = Math.max(0,Math.min(1,toNumber(pvName,value)));
+                publish(channel,newVDouble(vertical.fraction,alarmNone(),time,displayNone()));
+                break;
+            case CORRECTION_FREQUENCY:
+                //the new frequency is applied by the correction frequency proc command
+                requestedCorrectionFrequency = toNumber(pvName,value);
+                publish(channel,newVDouble(requestedCorrectionFrequency,alarmNone(),time,displayNone()));
+                break;
+            case HORIZONTAL_CUTOFF:
+            case VERTICAL_CUTOFF:
+                publish(channel,newVDouble(toNumber(pvName,value),alarmNone(),time,displayNone()));
+                break;
+            case CORRECTION_ALGORITHM:
+                int index = (int)toNumber(pvName,value);
+                if (index < 0 || index >= CORRECTION_ALGORITHM_LABELS.size()) {
+                    throw new IOException(String.format("%d is not a valid index of %s.",index,pvName));
+                }
+                publish(channel,newVEnum(index,CORRECTION_ALGORITHM_LABELS,alarmNone(),time));
+                break;
+            default:
+                throw new IOException(String.format("%s is read only.",pvName));
+        }
+    }
+
+    private void executeCommand(Channel command) {
+        switch (command) {
+            case START_MEASURING_ORBIT:
+                startOperation(MEASURING_ORBIT,false);
+                break;
+            case MEASURE_ORBIT_ONCE:
+                startOperation(MEASURING_ORBIT,true);
+                break;
+            case START_CORRECTING_ORBIT:
+                startOperation(CORRECTING_ORBIT,false);
+                break;
+            case CORRECT_ORBIT_ONCE:
+                startOperation(CORRECTING_ORBIT,true);
+                break;
+            case STOP_MEASURING_ORBIT:
+                stopOperation(MEASURING_ORBIT);
+                break;
+            case STOP_CORRECTING_ORBIT:
+                stopOperation(CORRECTING_ORBIT);
+                break;
+            case RESET_CORRECTION:
+                if (status == IDLE) {
+                    final Time time = newTime(Instant.now());
+                    for (Plane plane : new Plane[] { horizontal, vertical }) {
+                        plane.residual = 1.;
+                        publishCorrectors(plane,time);
+                    }
+                }
+                break;
+            case CORRECTION_FREQUENCY_PROC:
+                if (requestedCorrectionFrequency > 0) {
+                    correctionFrequency = requestedCorrectionFrequency;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void startOperation(int operation, boolean single) {
+        if (status == IDLE) {
+            once = single;
+            nextCorrection = System.nanoTime();
+            setStatus(operation);
+        }
+    }
+
+    private void stopOperation(int operation) {
+        if (status == operation && !once) {
+            setStatus(IDLE);
+        }
+    }
+
+    private void setStatus(int newStatus) {
+        status = newStatus;
+        publish(Channel.OPERATION_STATUS,newVEnum(status,OPERATION_STATUS_LABELS,alarmNone(),newTime(Instant.now())));
+    }
+
+    private void tick() {
+        if (status == IDLE) return;
+        final long now = System.nanoTime();
+        final Time time = newTime(Instant.now());
+        if (status == CORRECTING_ORBIT && now - nextCorrection >= 0) {
+            nextCorrection = now + (long)(1e9 / correctionFrequency);
+            for (Plane plane : new Plane[] { horizontal, vertical }) {
+                plane.residual *= 1 - plane.fraction;
+                publishCorrectors(plane,time);
+            }
+        }
+        publishOrbit(horizontal,time);
+        publishOrbit(vertical,time);
+        publishedOrbits.incrementAndGet();
+        if (once) {
+            once = false;
+            setStatus(IDLE);
+        }
+    }
+
+    private void publishOrbit(Plane plane, Time time) {
+        final int n = plane.distortion.length;
+        final double[] orbit = new double[n];
+        final double[] difference = new double[n];
+        for (int i = 0; i < n; i++) {
+            orbit[i] = plane.goldenOrbit[i] + plane.residual * plane.distortion[i]
+                    + plane.noise[i] * random.nextGaussian();
+            difference[i] = orbit[i] - plane.goldenOrbit[i];
+        }
+        publish(plane.orbit,numbers(orbit,time));
+        publish(plane.difference,numbers(difference,time));
+        publish(plane.orbitStatistics,numbers(statistics(orbit,plane.enabled),time));
+    }
+
+    private void publishGolden(Plane plane, Time time) {
+        publish(plane.golden,numbers(plane.goldenOrbit,time));
+        publish(plane.goldenStatistics,numbers(statistics(plane.goldenOrbit,plane.enabled),time));
+    }
+
+    private void publishReference(Plane plane, Time time) {
+        publish(plane.reference,numbers(plane.referenceOrbit,time));
+        publish(plane.referenceStatistics,numbers(statistics(plane.referenceOrbit,plane.enabled),time));
+    }
+
+    private void publishCorrectors(Plane plane, Time time) {
+        final int n = plane.kicks.length;
+        final double[] kick = new double[n];
+        final double[] current = new double[n];
+        for (int i = 0; i < n; i++) {
+            kick[i] = (1 - plane.residual) * plane.kicks[i];
+            current[i] = kick[i] * MA_PER_MRAD;
+        }
+        publish(plane.kick,numbers(kick,time));
+        publish(plane.current,numbers(current,time));
+    }
+
+    private void publish(Channel channel, VType value) {
+        final String pvName = pvNames.get(channel);
+        if (pvName == null) return;
+        values.put(pvName,value);
+        final List<Consumer<VType>> list = listeners.get(pvName);
+        if (list != null) {
+            list.forEach(l -> l.accept(value));
+        }
+    }
+
+    /**
+     * Computes the statistics of the enabled values in the same layout as the IOC: minimum, maximum, average, RMS and
+     * standard deviation.
+     */
+    private static double[] statistics(double[] data, double[] enabled) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        double sum2 = 0;
+        int count = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (i < enabled.length && enabled[i] == 0) continue;
+            min = Math.min(min,data[i]);
+            max = Math.max(max,data[i]);
+            sum += data[i];
+            sum2 += data[i] * data[i];
+            count++;
+        }
+        if (count == 0) {
+            return new double[] { 0, 0, 0, 0, 0 };
+        }
+        final double avg = sum / count;
+        return new double[] { min, max, avg, Math.sqrt(sum2 / count),
+                Math.sqrt(Math.max(0,sum2 / count - avg * avg)) };
+    }
+
+    private static VNumberArray numbers(double[] data, Time time) {
+        return newVNumberArray(new ArrayDouble(data),alarmNone(),time,displayNone());
+    }
+
+    private static double[] toArray(String pvName, Object value, int expectedSize) throws IOException {
+        final ListNumber list;
+        if (value instanceof ListNumber) {
+            list = (ListNumber)value;
+        } else if (value instanceof VNumberArray) {
+            list = ((VNumberArray)value).getData();
+        } else if (value instanceof double[]) {
+            list = new ArrayDouble((double[])value);
+        } else {
+            throw new IOException(String.format("%s expects an array of numbers.",pvName));
+        }
+        if (expectedSize > -1 && list.size() != expectedSize) {
+            throw new IOException(String.format("%s expects %d values, but received %d.",pvName,expectedSize,
+                    list.size()));
+        }
+        final double[] array = new double[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.getDouble(i);
+        }
+        return array;
+    }
+
+    private static double toNumber(String pvName, Object value) throws IOException {
+        if (value instanceof Number) {
+            return ((Number)value).doubleValue();
+        } else if (value instanceof VNumber) {
+            return ((VNumber)value).getValue().doubleValue();
+        } else if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String)value).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException(String.format("%s expects a number.",pvName),e);
+            }
+        }
+        throw new IOException(String.format("%s expects a number.",pvName));
+    }
+}
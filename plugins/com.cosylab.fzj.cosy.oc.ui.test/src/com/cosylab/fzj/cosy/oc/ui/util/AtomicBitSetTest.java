@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * <code>AtomicBitSetTest</code> tests setting and draining the bits, also while other threads are setting them.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class AtomicBitSetTest {
+
+    /**
+     * Drain reports the set bits in ascending order across word boundaries and clears them.
+     */
+    @Test
+    public void testSetAndDrain() {
+        AtomicBitSet bits = new AtomicBitSet(130);
+        assertEquals(130,bits.size());
+        assertFalse(bits.isAnySet());
+        bits.set(129);
+        bits.set(0);
+        bits.set(64);
+        bits.set(63);
+        bits.set(64);
+        assertTrue(bits.get(63));
+        assertFalse(bits.get(62));
+        assertTrue(bits.isAnySet());
+        List<Integer> drained = new ArrayList<>();
+        bits.drain(drained::add);
+        assertArrayEquals(new Integer[] { 0, 63, 64, 129 },drained.toArray(new Integer[0]));
+        assertFalse(bits.isAnySet());
+        drained.clear();
+        bits.drain(drained::add);
+        assertTrue(drained.isEmpty());
+    }
+
+    /**
+     * No bit set by a concurrent writer is lost: every bit is reported by exactly one of the drains.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testConcurrentSet() throws InterruptedException {
+        final int size = 256;
+        final int rounds = 200;
+        final AtomicBitSet bits = new AtomicBitSet(size);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final int[] counts = new int[size];
+        Thread drainer = new Thread(() -> {
+            while (running.get()) {
+                bits.drain(i -> counts[i]++);
+            }
+        });
+        drainer.start();
+        final BitSet setByWriter = new BitSet(size);
+        for (int r = 0; r < rounds; r++) {
+            //wait until the previous round was drained, so that each round is counted exactly once
+            while (bits.isAnySet()) {
+                Thread.yield();
+            }
+            for (int i = r % 3; i < size; i += 3) {
+                bits.set(i);
+                setByWriter.set(i);
+            }
+        }
+        while (bits.isAnySet()) {
+            Thread.yield();
+        }
+        running.set(false);
+        drainer.join();
+        for (int i = 0; i < size; i++) {
+            int expected = 0;
+            for (int r = 0; r < rounds; r++) {
+                if (i % 3 == r % 3) {
+                    expected++;
+                }
+            }
+            assertEquals("Bit " + i,expected,counts[i]);
+        }
+        assertEquals(size,setByWriter.cardinality());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * <code>BoundedTaskExecutorTest</code> tests the per kind limits, the execution order, the recovery from failing
+ * callbacks and the shutdown of the executor.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class BoundedTaskExecutorTest {
+
+    private static final long TIMEOUT = 5;
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT,TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * No more tasks of a kind than its limit run at the same time; the others wait and do not block other kinds.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testLimit() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch finished = new CountDownLatch(7);
+        BoundedTaskExecutor<String> executor = new BoundedTaskExecutor<>("test",(r, t) -> finished.countDown());
+        executor.setLimit("slow",2);
+        for (int i = 0; i < 6; i++) {
+            executor.execute("slow",() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(TIMEOUT,TimeUnit.SECONDS));
+        final CountDownLatch other = new CountDownLatch(1);
+        executor.execute("fast",other::countDown);
+        assertTrue(other.await(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals(2,executor.getRunningCount("slow"));
+        assertEquals(4,executor.getQueueDepth("slow"));
+        release.countDown();
+        assertTrue(finished.await(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals(6,executor.getCompletedCount("slow"));
+        assertEquals(4,executor.getMaxQueueDepth("slow"));
+        executor.shutdown();
+    }
+
+    /**
+     * Tasks of a kind with the limit of 1 are executed one after another in submission order.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testOrder() throws InterruptedException {
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(50);
+        BoundedTaskExecutor<String> executor = new BoundedTaskExecutor<>("test",(r, t) -> finished.countDown());
+        for (int i = 0; i < 50; i++) {
+            final int index = i;
+            executor.execute("file",() -> order.add(index));
+        }
+        assertTrue(finished.await(TIMEOUT,TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i),order.get(i));
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * A failing task is reported to the callback, and a failing callback does not stop the following tasks.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testFailingCallback() throws InterruptedException {
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(3);
+        BoundedTaskExecutor<String> executor = new BoundedTaskExecutor<>("test",(r, t) -> {
+            errors.add(t);
+            throw new IllegalStateException("callback failed");
+        });
+        executor.execute("file",() -> {
+            finished.countDown();
+            throw new IllegalArgumentException("task failed");
+        });
+        executor.execute("file",finished::countDown);
+        executor.execute("file",finished::countDown);
+        assertTrue(finished.await(TIMEOUT,TimeUnit.SECONDS));
+        assertTrue(errors.get(0) instanceof IllegalArgumentException);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT,TimeUnit.SECONDS));
+    }
+
+    /**
+     * After the shutdown new tasks are rejected, the submitted ones still run, and the executor terminates when they
+     * are done.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testShutdown() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(3);
+        BoundedTaskExecutor<String> executor = new BoundedTaskExecutor<>("test",(r, t) -> {});
+        for (int i = 0; i < 3; i++) {
+            executor.execute("file",() -> {
+                await(release);
+                finished.countDown();
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.execute("file",() -> {});
+            throw new AssertionError("The task should have been rejected.");
+        } catch (RejectedExecutionException e) {
+            //expected
+        }
+        assertFalse(executor.awaitTermination(50,TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(executor.awaitTermination(TIMEOUT,TimeUnit.SECONDS));
+        assertEquals(0,finished.getCount());
+        assertEquals(3,executor.getCompletedCount("file"));
+    }
+}
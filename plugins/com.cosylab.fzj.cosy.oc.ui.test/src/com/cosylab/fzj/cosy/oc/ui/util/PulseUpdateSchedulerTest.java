@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * <code>PulseUpdateSchedulerTest</code> tests the coalescing of the triggers, the minimum interval between the updates
+ * during which no pulses are requested, and the clamping of the adaptive interval between the floor and the ceiling.
+ * The scheduler is driven by a manual pulse source instead of the JavaFX pulse.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class PulseUpdateSchedulerTest {
+
+    private static final long FRAME = TimeUnit.MILLISECONDS.toNanos(16);
+
+    /**
+     * <code>ManualPulseSource</code> records the requests of the scheduler, which are then executed by the test.
+     */
+    private static final class ManualPulseSource implements PulseUpdateScheduler.PulseSource {
+
+        boolean running;
+        final List<Runnable> later = new ArrayList<>();
+        Runnable delayed;
+        long delayNanos;
+
+        @Override
+        public void start() {
+            running = true;
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+
+        @Override
+        public void runLater(Runnable runnable) {
+            later.add(runnable);
+        }
+
+        @Override
+        public void runAfter(Runnable runnable, long delay) {
+            delayed = runnable;
+            delayNanos = delay;
+        }
+
+        void runLater() {
+            List<Runnable> runnables = new ArrayList<>(later);
+            later.clear();
+            runnables.forEach(Runnable::run);
+        }
+
+        void runDelayed() {
+            Runnable runnable = delayed;
+            delayed = null;
+            runnable.run();
+        }
+    }
+
+    private int updates;
+    private final ManualPulseSource source = new ManualPulseSource();
+
+    private PulseUpdateScheduler create(long minIntervalMillis) {
+        PulseUpdateScheduler scheduler = new PulseUpdateScheduler(minIntervalMillis,() -> updates++,source);
+        scheduler.start();
+        return scheduler;
+    }
+
+    /**
+     * Triggers received before the start are kept; any number of triggers between two pulses result in a single
+     * update, after which the pulses are no longer requested.
+     */
+    @Test
+    public void testTriggersAreCoalesced() {
+        PulseUpdateScheduler scheduler = new PulseUpdateScheduler(0,() -> updates++,source);
+        scheduler.trigger();
+        assertTrue(source.later.isEmpty());
+        scheduler.start();
+        scheduler.trigger();
+        scheduler.trigger();
+        assertEquals(1,source.later.size());
+        source.runLater();
+        assertTrue(source.running);
+        scheduler.pulse(0);
+        scheduler.pulse(FRAME);
+        assertEquals(1,updates);
+        assertFalse(source.running);
+        scheduler.trigger();
+        source.runLater();
+        scheduler.pulse(2 * FRAME);
+        assertEquals(2,updates);
+    }
+
+    /**
+     * A trigger within the minimum interval is held without requesting pulses; the timer is restarted when the rest
+     * of the interval has elapsed and the held trigger is then executed.
+     */
+    @Test
+    public void testMinimumIntervalHold() {
+        PulseUpdateScheduler scheduler = create(100);
+        scheduler.trigger();
+        source.runLater();
+        scheduler.pulse(0);
+        assertEquals(1,updates);
+        scheduler.trigger();
+        scheduler.pulse(FRAME);
+        assertEquals(1,updates);
+        assertFalse(source.running);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100) - FRAME,source.delayNanos);
+        //the scheduler is still armed, so further triggers do not start the timer
+        scheduler.trigger();
+        source.runLater();
+        assertFalse(source.running);
+        source.runDelayed();
+        assertTrue(source.running);
+        scheduler.pulse(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(2,updates);
+    }
+
+    /**
+     * Without a pending trigger the timer is stopped even within the minimum interval and nothing is delayed.
+     */
+    @Test
+    public void testStopWithoutTrigger() {
+        PulseUpdateScheduler scheduler = create(100);
+        scheduler.trigger();
+        source.runLater();
+        scheduler.pulse(0);
+        scheduler.pulse(FRAME);
+        assertFalse(source.running);
+        assertNull(source.delayed);
+    }
+
+    /**
+     * The adaptive interval keeps the updates within the UI thread budget, but never leaves the range.
+     */
+    @Test
+    public void testAdaptiveIntervalIsClamped() {
+        PulseUpdateScheduler scheduler = create(0);
+        scheduler.setAdaptiveRange(20,1000);
+        assertEquals(20,scheduler.getMinimumInterval());
+        scheduler.adapt(TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(50,scheduler.getAverageUpdateCost(),1e-9);
+        assertEquals((long)(50 / PulseUpdateScheduler.UI_THREAD_BUDGET),scheduler.getMinimumInterval());
+        for (int i = 0; i < 50; i++) {
+            scheduler.adapt(TimeUnit.SECONDS.toNanos(2));
+        }
+        assertEquals(1000,scheduler.getMinimumInterval());
+        for (int i = 0; i < 100; i++) {
+            scheduler.adapt(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        assertEquals(20,scheduler.getMinimumInterval());
+    }
+
+    /**
+     * If the ceiling is not larger than the floor, the floor is a fixed interval and the cost is only measured.
+     */
+    @Test
+    public void testFixedInterval() {
+        PulseUpdateScheduler scheduler = create(0);
+        scheduler.setAdaptiveRange(100,50);
+        scheduler.adapt(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(100,scheduler.getMinimumInterval());
+        assertEquals(1000,scheduler.getAverageUpdateCost(),1e-9);
+    }
+
+    /**
+     * After disposal the timer is stopped and the held triggers are not executed anymore.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testDispose() throws InterruptedException {
+        PulseUpdateScheduler scheduler = create(100);
+        scheduler.trigger();
+        source.runLater();
+        scheduler.pulse(0);
+        scheduler.trigger();
+        scheduler.pulse(FRAME);
+        scheduler.dispose();
+        source.runLater();
+        assertTrue(scheduler.awaitStop(0));
+        assertFalse(scheduler.isRunning());
+        source.runDelayed();
+        assertFalse(source.running);
+        assertEquals(1,updates);
+    }
+}
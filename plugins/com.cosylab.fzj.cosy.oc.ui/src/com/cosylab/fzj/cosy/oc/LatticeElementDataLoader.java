@@ -29,6 +29,9 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
+
 /**
  * <code>LatticeElementDataLoader</code> is data loader which loads all lattice elements from the given file.
  *
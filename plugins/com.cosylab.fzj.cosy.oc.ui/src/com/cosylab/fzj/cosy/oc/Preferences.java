@@ -12,8 +12,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
@@ -28,6 +29,10 @@ import org.eclipse.jface.preference.IPersistentPreferenceStore;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
 
+import com.cosylab.fzj.cosy.oc.engine.Channel;
+import com.cosylab.fzj.cosy.oc.engine.RateClass;
+import com.cosylab.fzj.cosy.oc.orbit.RollingWindow;
+
 /**
  * <code>Preferences</code> represents the preferences for the Orbit Correction (OC) plugin. The file names are loaded
  * from the preferences.ini file. Files should exists in the workspace folder. The PV names are loaded from the
@@ -49,117 +54,151 @@ public final class Preferences {
     private static final String BPM_OPI = "bpm_opi";
     private static final String CORRECTOR_OPI = "corrector_opi";
     private static final String INITIAL_DIRECTORY = "initial_directory";
+    private static final String ORBIT_HISTORY_SIZE = "orbit_history_size";
+    private static final int DEFAULT_ORBIT_HISTORY_SIZE = 6000;
+    private static final String ORBIT_HISTORY_MEMORY = "orbit_history_memory";
+    private static final int DEFAULT_ORBIT_HISTORY_MEMORY = 64;
+    private static final String SPECTRUM_LENGTH = "spectrum_length";
+    private static final int DEFAULT_SPECTRUM_LENGTH = 256;
+    private static final String CORRELATION_MEMORY = "correlation_memory";
+    private static final int DEFAULT_CORRELATION_MEMORY = 600;
+    private static final String CORRELATION_MAX_BPMS = "correlation_max_bpms";
+    private static final int DEFAULT_CORRELATION_MAX_BPMS = 2000;
+    private static final String GUI_UPDATE_INTERVAL = "gui_update_interval";
+    private static final long DEFAULT_GUI_UPDATE_INTERVAL = 100;
+    private static final String GUI_UPDATE_INTERVAL_MAX = "gui_update_interval_max";
+    private static final long DEFAULT_GUI_UPDATE_INTERVAL_MAX = 1000;
+    private static final String LATTICE_CACHE = "lattice_cache";
+    private static final String WRITE_QUIET_PERIOD = "write_quiet_period";
+    private static final long DEFAULT_WRITE_QUIET_PERIOD = 300;
+    private static final String MAX_RATE_PREFIX = "max_rate_";
+    private static final String ORBIT_PAIRING_TOLERANCE = "orbit_pairing_tolerance";
+    private static final long DEFAULT_ORBIT_PAIRING_TOLERANCE = 50;
+    private static final String LOCAL_ORBIT_STATISTICS = "local_orbit_statistics";
+    private static final String ROLLING_STATISTICS_WINDOW = "rolling_statistics_window";
+    private static final String SIMULATION = "simulation";
+    private static final String SIMULATION_BPMS = "simulation_bpms";
+    private static final int DEFAULT_SIMULATION_BPMS = 32;
+    private static final String SIMULATION_CORRECTORS = "simulation_correctors";
+    private static final int DEFAULT_SIMULATION_CORRECTORS = 24;
+    private static final String SIMULATION_ORBIT_RATE = "simulation_orbit_rate";
+    private static final double DEFAULT_SIMULATION_ORBIT_RATE = 10.;
+    private static final String LARGE_LATTICE_THRESHOLD = "large_lattice_threshold";
+    private static final int DEFAULT_LARGE_LATTICE_THRESHOLD = 1000;
     /** Horizontal BPM names PV provides the names of all horizontal BPMS */
-    public static final String PV_HORIZONTAL_BPM_NAMES = "horizontal_bpm_names";
+    public static final String PV_HORIZONTAL_BPM_NAMES = Channel.HORIZONTAL_BPM_NAMES.getKey();
     /** Horizontal BPM positions provides the locations of all horizontal BPMs along z axis */
-    public static final String PV_HORIZONTAL_BPM_POSITIONS = "horizontal_bpm_positions";
+    public static final String PV_HORIZONTAL_BPM_POSITIONS = Channel.HORIZONTAL_BPM_POSITIONS.getKey();
     /** Horizontal BPM enabled provides 1 or 0 states whether individual horizontal BPM is enabled or not */
-    public static final String PV_HORIZONTAL_BPM_ENABLED = "horizontal_bpm_enabled";
+    public static final String PV_HORIZONTAL_BPM_ENABLED = Channel.HORIZONTAL_BPM_ENABLED.getKey();
     /** Vertical BPM names PV provides the names of all vertical BPMS */
-    public static final String PV_VERTICAL_BPM_NAMES = "vertical_bpm_names";
+    public static final String PV_VERTICAL_BPM_NAMES = Channel.VERTICAL_BPM_NAMES.getKey();
     /** Vertical BPM positions provides the locations of all vertical BPMs along z axis */
-    public static final String PV_VERTICAL_BPM_POSITIONS = "vertical_bpm_positions";
+    public static final String PV_VERTICAL_BPM_POSITIONS = Channel.VERTICAL_BPM_POSITIONS.getKey();
     /** Vertical BPM enabled provides 1 or 0 states whether individual vertical BPM is enabled or not */
-    public static final String PV_VERTICAL_BPM_ENABLED = "vertical_bpm_enabled";
+    public static final String PV_VERTICAL_BPM_ENABLED = Channel.VERTICAL_BPM_ENABLED.getKey();
     /** Horizontal corrector names PV provides the names of all horizontal correctors */
-    public static final String PV_HORIZONTAL_CORRECTOR_NAMES = "horizontal_corrector_names";
+    public static final String PV_HORIZONTAL_CORRECTOR_NAMES = Channel.HORIZONTAL_CORRECTOR_NAMES.getKey();
     /** Horizontal corrector positions PV provides the positions of all horizontal correctors along the z axis */
-    public static final String PV_HORIZONTAL_CORRECTOR_POSITIONS = "horizontal_corrector_positions";
+    public static final String PV_HORIZONTAL_CORRECTOR_POSITIONS = Channel.HORIZONTAL_CORRECTOR_POSITIONS.getKey();
     /** Horizontal corrector enable PV provides 1 or 0 states whether individual corrector is enabled or not */
-    public static final String PV_HORIZONTAL_CORRECTOR_ENABLED = "horizontal_corrector_enabled";
+    public static final String PV_HORIZONTAL_CORRECTOR_ENABLED = Channel.HORIZONTAL_CORRECTOR_ENABLED.getKey();
     /** Vertical corrector names PV provides the names of all vertical correctors */
-    public static final String PV_VERTICAL_CORRECTOR_NAMES = "vertical_corrector_names";
+    public static final String PV_VERTICAL_CORRECTOR_NAMES = Channel.VERTICAL_CORRECTOR_NAMES.getKey();
     /** Vertical corrector positions PV provides the positions of all vertical correctors along the z axis */
-    public static final String PV_VERTICAL_CORRECTOR_POSITIONS = "vertical_corrector_positions";
+    public static final String PV_VERTICAL_CORRECTOR_POSITIONS = Channel.VERTICAL_CORRECTOR_POSITIONS.getKey();
     /** Vertical corrector enable PV provides 1 or 0 states whether individual corrector is enabled or not */
-    public static final String PV_VERTICAL_CORRECTOR_ENABLED = "vertical_corrector_enabled";
+    public static final String PV_VERTICAL_CORRECTOR_ENABLED = Channel.VERTICAL_CORRECTOR_ENABLED.getKey();
     /** Sextupole names PV provides the array of names of all sextupoles in the ring */
-    public static final String PV_SEXTUPOLE_NAMES = "sextupole_names";
+    public static final String PV_SEXTUPOLE_NAMES = Channel.SEXTUPOLE_NAMES.getKey();
     /** Sextupole positions PV provides the positions of all sextupoles along the Z axis */
-    public static final String PV_SEXTUPOLE_POSITIONS = "sextupole_positions";
+    public static final String PV_SEXTUPOLE_POSITIONS = Channel.SEXTUPOLE_POSITIONS.getKey();
     /** Quadrupole names PV provides the array of names of all quadrupoles in the ring */
-    public static final String PV_QUADRUPOLE_NAMES = "quadrupole_names";
+    public static final String PV_QUADRUPOLE_NAMES = Channel.QUADRUPOLE_NAMES.getKey();
     /** Quadrupole positions PV provides the positions of all quadrupoles along the Z axis */
-    public static final String PV_QUADRUPOLE_POSITIONS = "quadrupole_positions";
+    public static final String PV_QUADRUPOLE_POSITIONS = Channel.QUADRUPOLE_POSITIONS.getKey();
     /** Dipole names PV provides the array of names of all dipoles in the ring */
-    public static final String PV_DIPOLE_NAMES = "dipole_names";
+    public static final String PV_DIPOLE_NAMES = Channel.DIPOLE_NAMES.getKey();
     /** Dipole positions PV provides the positions of all dipoles along the Z axis */
-    public static final String PV_DIPOLE_POSITIONS = "dipole_positions";
+    public static final String PV_DIPOLE_POSITIONS = Channel.DIPOLE_POSITIONS.getKey();
     /** Horizontal orbit PV provides the horizontal orbit position */
-    public static final String PV_HORIZONTAL_ORBIT = "horizontal_orbit";
+    public static final String PV_HORIZONTAL_ORBIT = Channel.HORIZONTAL_ORBIT.getKey();
     /** Vertical orbit PV provides the vertical orbit position */
-    public static final String PV_VERTICAL_ORBIT = "vertical_orbit";
+    public static final String PV_VERTICAL_ORBIT = Channel.VERTICAL_ORBIT.getKey();
     /** Golden horizontal orbit provides the golden horizontal orbit position */
-    public static final String PV_GOLDEN_HORIZONTAL_ORBIT = "golden_horizontal_orbit";
+    public static final String PV_GOLDEN_HORIZONTAL_ORBIT = Channel.GOLDEN_HORIZONTAL_ORBIT.getKey();
     /** Golden vertical orbit provides the golden vertical orbit position */
-    public static final String PV_GOLDEN_VERTICAL_ORBIT = "golden_vertical_orbit";
+    public static final String PV_GOLDEN_VERTICAL_ORBIT = Channel.GOLDEN_VERTICAL_ORBIT.getKey();
     /** Horizontal reference orbit */
-    public static final String PV_HORIZONTAL_REFERENCE_ORBIT = "reference_horizontal_orbit";
+    public static final String PV_HORIZONTAL_REFERENCE_ORBIT = Channel.HORIZONTAL_REFERENCE_ORBIT.getKey();
     /** Vertical reference orbit */
-    public static final String PV_VERTICAL_REFERENCE_ORBIT = "reference_vertical_orbit";
+    public static final String PV_VERTICAL_REFERENCE_ORBIT = Channel.VERTICAL_REFERENCE_ORBIT.getKey();
     /** Horizontal difference orbit */
-    public static final String PV_HORIZONTAL_DIFFERENCE_ORBIT = "difference_horizontal_orbit";
+    public static final String PV_HORIZONTAL_DIFFERENCE_ORBIT = Channel.HORIZONTAL_DIFFERENCE_ORBIT.getKey();
     /** Vertical difference orbit */
-    public static final String PV_VERTICAL_DIFFERENCE_ORBIT = "difference_vertical_orbit";
+    public static final String PV_VERTICAL_DIFFERENCE_ORBIT = Channel.VERTICAL_DIFFERENCE_ORBIT.getKey();
     /** Horizontal correctors (mrad) provides the last horizontal correctors kick in milli radians */
-    public static final String PV_HORIZONTAL_CORRECTOR_MRAD = "horizontal_corrector_mrad";
+    public static final String PV_HORIZONTAL_CORRECTOR_MRAD = Channel.HORIZONTAL_CORRECTOR_MRAD.getKey();
     /** Vertical correctors (mrad) provides the last vertical correctors kick in milli radians */
-    public static final String PV_VERTICAL_CORRECTOR_MRAD = "vertical_corrector_mrad";
+    public static final String PV_VERTICAL_CORRECTOR_MRAD = Channel.VERTICAL_CORRECTOR_MRAD.getKey();
     /** Horizontal correctors (mA) provides the last horizontal correctors kick in milli ampers */
-    public static final String PV_HORIZONTAL_CORRECTOR_MA = "horizontal_corrector_ma";
+    public static final String PV_HORIZONTAL_CORRECTOR_MA = Channel.HORIZONTAL_CORRECTOR_MA.getKey();
     /** Vertical correctors (mA) provides the last vertical correctors kick in milli ampers */
-    public static final String PV_VERTICAL_CORRECTOR_MA = "vertical_corrector_ma";
+    public static final String PV_VERTICAL_CORRECTOR_MA = Channel.VERTICAL_CORRECTOR_MA.getKey();
     /** Horizontal orbit statistics provides the statistical parameters of the current horizontal orbit */
-    public static final String PV_HORIZONTAL_ORBIT_STATISTICS = "horizontal_orbit_statistics";
+    public static final String PV_HORIZONTAL_ORBIT_STATISTICS = Channel.HORIZONTAL_ORBIT_STATISTICS.getKey();
     /** Vertical orbit statistics provides the statistical parameters of the current vertical orbit */
-    public static final String PV_VERTICAL_ORBIT_STATISTICS = "vertical_orbit_statistics";
+    public static final String PV_VERTICAL_ORBIT_STATISTICS = Channel.VERTICAL_ORBIT_STATISTICS.getKey();
     /**
      * Golden horizontal orbit statistics provides the statistical parameters of the current horizontal golden orbit.
      */
-    public static final String PV_GOLDEN_HORIZONTAL_ORBIT_STATISTICS = "golden_horizontal_orbit_statistics";
+    public static final String PV_GOLDEN_HORIZONTAL_ORBIT_STATISTICS = Channel.GOLDEN_HORIZONTAL_ORBIT_STATISTICS
+            .getKey();
     /** Golden vertical orbit statistics provides the statistical parameters of the current vertical golden orbit. */
-    public static final String PV_GOLDEN_VERTICAL_ORBIT_STATISTICS = "golden_vertical_orbit_statistics";
+    public static final String PV_GOLDEN_VERTICAL_ORBIT_STATISTICS = Channel.GOLDEN_VERTICAL_ORBIT_STATISTICS.getKey();
     /** Horizontal reference orbit statistics provides the statistical parameters of the current horizontal orbit */
-    public static final String PV_REFERENCE_HORIZONTAL_ORBIT_STATISTICS = "reference_horizontal_orbit_statistics";
+    public static final String PV_REFERENCE_HORIZONTAL_ORBIT_STATISTICS = Channel.REFERENCE_HORIZONTAL_ORBIT_STATISTICS
+            .getKey();
     /** Vertical reference orbit statistics provides the statistical parameters of the current vertical orbit */
-    public static final String PV_REFERENCE_VERTICAL_ORBIT_STATISTICS = "reference_vertical_orbit_statistics";
+    public static final String PV_REFERENCE_VERTICAL_ORBIT_STATISTICS = Channel.REFERENCE_VERTICAL_ORBIT_STATISTICS
+            .getKey();
     /** Correction frequency PV specifies the frequency with which the orbit correction is performed. */
-    public static final String PV_CORRECTION_FREQUENCY = "correction_frequency";
+    public static final String PV_CORRECTION_FREQUENCY = Channel.CORRECTION_FREQUENCY.getKey();
     /** Correction frequency change trigger PV */
-    public static final String PV_CORRECTION_FREQUENCY_PROC = "correction_frequency_proc";
+    public static final String PV_CORRECTION_FREQUENCY_PROC = Channel.CORRECTION_FREQUENCY_PROC.getKey();
     /** Correction algorithm PV switches the correction between the split matrices and coupled matrices */
-    public static final String PV_CORRECTION_ALGORITHM = "correction_algorithm";
+    public static final String PV_CORRECTION_ALGORITHM = Channel.CORRECTION_ALGORITHM.getKey();
     /** Orbit response matrix provides the pv with the orbit response matrix in a single array */
     @Deprecated
-    public static final String PV_ORM = "orm";
+    public static final String PV_ORM = Channel.ORM.getKey();
     /** Operation status provides the current status of the orbit corrections ioc. */
-    public static final String PV_OPERATION_STATUS = "operation_status";
+    public static final String PV_OPERATION_STATUS = Channel.OPERATION_STATUS.getKey();
     /** Reset the orbit correction setpoints to the current steerer settings */
-    public static final String PV_RESET_CORRECTION = "reset_correction";
+    public static final String PV_RESET_CORRECTION = Channel.RESET_CORRECTION.getKey();
     /** Start measuring orbit stars measuring orbit continuously */
-    public static final String PV_START_MEASURING_ORBIT = "start_measuring_orbit";
+    public static final String PV_START_MEASURING_ORBIT = Channel.START_MEASURING_ORBIT.getKey();
     /** Stop measuring orbit stops continuous orbit measurement */
-    public static final String PV_STOP_MEASURING_ORBIT = "stop_measuring_orbit";
+    public static final String PV_STOP_MEASURING_ORBIT = Channel.STOP_MEASURING_ORBIT.getKey();
     /** Measure orbit once measures orbit once and stops */
-    public static final String PV_MEASURE_ORBIT_ONCE = "measure_orbit_once";
+    public static final String PV_MEASURE_ORBIT_ONCE = Channel.MEASURE_ORBIT_ONCE.getKey();
     /** Start orbit correction starts continuous orbit correction */
-    public static final String PV_START_CORRECTING_ORBIT = "start_correcting_orbit";
+    public static final String PV_START_CORRECTING_ORBIT = Channel.START_CORRECTING_ORBIT.getKey();
     /** Stop orbit correction stops continuous orbit correction */
-    public static final String PV_STOP_CORRECTING_ORBIT = "stop_correcting_orbit";
+    public static final String PV_STOP_CORRECTING_ORBIT = Channel.STOP_CORRECTING_ORBIT.getKey();
     /** Correct orbit once performs orbit correction once and stop */
-    public static final String PV_CORRECT_ORBIT_ONCE = "correct_orbit_once";
+    public static final String PV_CORRECT_ORBIT_ONCE = Channel.CORRECT_ORBIT_ONCE.getKey();
     /** SVD cutoff value for horizontal orbit correction */
-    public static final String PV_HORIZONTAL_CUTOFF = "horizontal_orbit_cutoff";
+    public static final String PV_HORIZONTAL_CUTOFF = Channel.HORIZONTAL_CUTOFF.getKey();
     /** SVD cutoff value for vertical orbit correction */
-    public static final String PV_VERTICAL_CUTOFF = "vertical_orbit_cutoff";
+    public static final String PV_VERTICAL_CUTOFF = Channel.VERTICAL_CUTOFF.getKey();
     /** Factor to multiply the values with when applying horizontal correction */
-    public static final String PV_HORIZONTAL_CORRECTION_FRACTION = "horizontal_correction_factor";
+    public static final String PV_HORIZONTAL_CORRECTION_FRACTION = Channel.HORIZONTAL_CORRECTION_FRACTION.getKey();
     /** Factor to multiply the values with when applying vertical correction */
-    public static final String PV_VERTICAL_CORRECTION_FRACTION = "vertical_correction_factor";
+    public static final String PV_VERTICAL_CORRECTION_FRACTION = Channel.VERTICAL_CORRECTION_FRACTION.getKey();
     /** Cutoff values at which to disable the horizontal steerers */
-    public static final String PV_HORIZONTAL_STEERER_CUTOFF = "horizontal_steerer_cutoff";
+    public static final String PV_HORIZONTAL_STEERER_CUTOFF = Channel.HORIZONTAL_STEERER_CUTOFF.getKey();
     /** Cutoff values at which to disable vertical steerers */
-    public static final String PV_VERTICAL_STEERER_CUTOFF= "vertical_steerer_cutoff";
+    public static final String PV_VERTICAL_STEERER_CUTOFF = Channel.VERTICAL_STEERER_CUTOFF.getKey();
     private Properties properties;
     private static Preferences instance;
 
@@ -229,6 +268,321 @@ public final class Preferences {
         }
     }
 
+    /**
+     * Returns the number of orbit frames per plane that are kept in the orbit history. With the default setting and
+     * an orbit update every 100 ms this covers the last 10 minutes.
+     *
+     * @return the maximum number of frames in the orbit history
+     */
+    public int getOrbitHistorySize() {
+        try {
+            String s = getString(ORBIT_HISTORY_SIZE,String.valueOf(DEFAULT_ORBIT_HISTORY_SIZE),false);
+            int size = Integer.parseInt(s.trim());
+            return size > 0 ? size : DEFAULT_ORBIT_HISTORY_SIZE;
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the orbit history size.",e);
+            return DEFAULT_ORBIT_HISTORY_SIZE;
+        }
+    }
+
+    /**
+     * Returns the maximum memory taken by the orbit history of each plane. Each BPM of an orbit frame takes 9 bytes,
+     * so with many BPMs the history keeps fewer frames than the orbit history size.
+     *
+     * @return the maximum memory of an orbit history in bytes
+     */
+    public long getOrbitHistoryMemory() {
+        try {
+            String s = getString(ORBIT_HISTORY_MEMORY,String.valueOf(DEFAULT_ORBIT_HISTORY_MEMORY),false);
+            int megabytes = Integer.parseInt(s.trim());
+            return (megabytes > 0 ? megabytes : DEFAULT_ORBIT_HISTORY_MEMORY) * 1024L * 1024L;
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the orbit history memory.",e);
+            return DEFAULT_ORBIT_HISTORY_MEMORY * 1024L * 1024L;
+        }
+    }
+
+    /**
+     * Returns the number of orbit frames over which the noise spectrum of each BPM is computed. The number is rounded
+     * down to a power of 2 and limited to the range between 8 and the orbit history size. The frequency resolution of
+     * the spectrum is the orbit rate divided by this number.
+     *
+     * @return the number of frames in the spectrum analysis window
+     */
+    public int getSpectrumLength() {
+        int length;
+        try {
+            String s = getString(SPECTRUM_LENGTH,String.valueOf(DEFAULT_SPECTRUM_LENGTH),false);
+            length = Integer.parseInt(s.trim());
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the spectrum length.",e);
+            length = DEFAULT_SPECTRUM_LENGTH;
+        }
+        length = Math.min(length,getOrbitHistorySize());
+        return length < 8 ? 8 : Integer.highestOneBit(length);
+    }
+
+    /**
+     * Returns the number of measured orbits over which the BPM correlations are computed. Older orbits are not
+     * discarded but their weight decays exponentially.
+     *
+     * @return the correlation memory in number of orbits
+     */
+    public int getCorrelationMemory() {
+        try {
+            String s = getString(CORRELATION_MEMORY,String.valueOf(DEFAULT_CORRELATION_MEMORY),false);
+            return Math.max(2,Integer.parseInt(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the correlation memory.",e);
+            return DEFAULT_CORRELATION_MEMORY;
+        }
+    }
+
+    /**
+     * Returns the maximum number of BPMs of both planes together, for which the BPM correlations are computed. The
+     * correlation matrix grows with the square of the number of BPMs; larger lattices are not correlated.
+     *
+     * @return the maximum number of correlated BPMs
+     */
+    public int getCorrelationMaxBPMs() {
+        try {
+            String s = getString(CORRELATION_MAX_BPMS,String.valueOf(DEFAULT_CORRELATION_MAX_BPMS),false);
+            return Math.max(1,Integer.parseInt(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the maximum number of correlated BPMs.",e);
+            return DEFAULT_CORRELATION_MAX_BPMS;
+        }
+    }
+
+    /**
+     * Returns the minimum interval between two consecutive updates of the UI. The UI is updated in sync with the
+     * JavaFX pulse, so 0 means that the UI may be updated on every rendered frame.
+     *
+     * @return the minimum UI update interval in milliseconds
+     */
+    public long getGUIUpdateInterval() {
+        try {
+            String s = getString(GUI_UPDATE_INTERVAL,String.valueOf(DEFAULT_GUI_UPDATE_INTERVAL),false);
+            return Math.max(0,Long.parseLong(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the GUI update interval.",e);
+            return DEFAULT_GUI_UPDATE_INTERVAL;
+        }
+    }
+
+    /**
+     * Returns the maximum interval between two consecutive updates of the UI. If the UI is slow to render, the update
+     * interval is increased up to this value. If the value is not larger than the minimum interval, the UI is always
+     * updated at the minimum interval.
+     *
+     * @return the maximum UI update interval in milliseconds
+     */
+    public long getGUIUpdateIntervalMax() {
+        try {
+            String s = getString(GUI_UPDATE_INTERVAL_MAX,String.valueOf(DEFAULT_GUI_UPDATE_INTERVAL_MAX),false);
+            return Math.max(0,Long.parseLong(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the maximum GUI update interval.",e);
+            return DEFAULT_GUI_UPDATE_INTERVAL_MAX;
+        }
+    }
+
+    /**
+     * Returns the time during which a setting has to remain unchanged before it is written to the IOC. Quickly
+     * repeated changes of the same setting (e.g. dragging a slider) are coalesced into a single write of the last
+     * value.
+     *
+     * @return the write quiet period in milliseconds
+     */
+    public long getWriteQuietPeriod() {
+        try {
+            String s = getString(WRITE_QUIET_PERIOD,String.valueOf(DEFAULT_WRITE_QUIET_PERIOD),false);
+            return Math.max(0,Long.parseLong(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the write quiet period.",e);
+            return DEFAULT_WRITE_QUIET_PERIOD;
+        }
+    }
+
+    /**
+     * Returns the maximum difference between the timestamps of the horizontal and vertical orbit for which the two
+     * are considered to belong to the same measurement.
+     *
+     * @return the orbit pairing tolerance in milliseconds
+     */
+    public long getOrbitPairingTolerance() {
+        try {
+            String s = getString(ORBIT_PAIRING_TOLERANCE,String.valueOf(DEFAULT_ORBIT_PAIRING_TOLERANCE),false);
+            return Math.max(0,Long.parseLong(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the orbit pairing tolerance.",e);
+            return DEFAULT_ORBIT_PAIRING_TOLERANCE;
+        }
+    }
+
+    /**
+     * Returns true if the orbit statistics are computed from the received orbits or false if they are read from the
+     * statistics PVs of the IOC. The local statistics are computed over the part of the ring visible in the orbit
+     * chart.
+     *
+     * @return true if the orbit statistics are computed locally (default is false)
+     */
+    public boolean isLocalOrbitStatistics() {
+        try {
+            String s = getString(LOCAL_ORBIT_STATISTICS,"false",false);
+            return Boolean.valueOf(s);
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the orbit statistics setting.",e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the window over which the per BPM rolling statistics are initially shown in the results table and the
+     * orbit chart. The statistics of all windows are computed and the window can be changed at runtime. The window is
+     * defined in seconds and must match one of the available windows (10, 60 or 600).
+     *
+     * @return the rolling statistics window (default is 1 minute)
+     */
+    public RollingWindow getRollingStatisticsWindow() {
+        try {
+            String s = getString(ROLLING_STATISTICS_WINDOW,"60",false);
+            long seconds = Long.parseLong(s.trim());
+            for (RollingWindow window : RollingWindow.values()) {
+                if (window.getLength().getSeconds() == seconds) {
+                    return window;
+                }
+            }
+            OrbitCorrectionPlugin.LOGGER.log(Level.WARNING,
+                    String.format("Unsupported rolling statistics window %d s. 1 minute is used instead.",seconds));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the rolling statistics window.",e);
+        }
+        return RollingWindow.MINUTE_1;
+    }
+
+    /**
+     * Returns true if all PVs are served by an in-process simulated device instead of the IOC. The simulation is
+     * meant for testing the application without a network connection to the machine.
+     *
+     * @return true if the simulated device is used
+     */
+    public boolean isSimulation() {
+        try {
+            String s = getString(SIMULATION,"false",false);
+            return Boolean.valueOf(s);
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the simulation setting.",e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of BPMs in each plane of the simulated lattice.
+     *
+     * @return the number of simulated BPMs
+     */
+    public int getSimulationBPMs() {
+        try {
+            String s = getString(SIMULATION_BPMS,String.valueOf(DEFAULT_SIMULATION_BPMS),false);
+            return Math.max(1,Integer.parseInt(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the number of simulated BPMs.",e);
+            return DEFAULT_SIMULATION_BPMS;
+        }
+    }
+
+    /**
+     * Returns the number of correctors in each plane of the simulated lattice.
+     *
+     * @return the number of simulated correctors
+     */
+    public int getSimulationCorrectors() {
+        try {
+            String s = getString(SIMULATION_CORRECTORS,String.valueOf(DEFAULT_SIMULATION_CORRECTORS),false);
+            return Math.max(1,Integer.parseInt(s.trim()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the number of simulated correctors.",e);
+            return DEFAULT_SIMULATION_CORRECTORS;
+        }
+    }
+
+    /**
+     * Returns the rate at which the simulated device publishes the orbit while measuring or correcting.
+     *
+     * @return the simulated orbit rate in Hz
+     */
+    public double getSimulationOrbitRate() {
+        try {
+            String s = getString(SIMULATION_ORBIT_RATE,String.valueOf(DEFAULT_SIMULATION_ORBIT_RATE),false);
+            double rate = Double.parseDouble(s.trim());
+            return rate > 0 ? rate : DEFAULT_SIMULATION_ORBIT_RATE;
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the simulated orbit rate.",e);
+            return DEFAULT_SIMULATION_ORBIT_RATE;
+        }
+    }
+
+    /**
+     * Returns the number of elements above which a chart series is drawn in the large-lattice mode, where the points
+     * are painted directly and are not represented by individual chart nodes. A negative value disables the
+     * large-lattice mode.
+     *
+     * @return the large-lattice threshold
+     */
+    public int getLargeLatticeThreshold() {
+        try {
+            String s = getString(LARGE_LATTICE_THRESHOLD,String.valueOf(DEFAULT_LARGE_LATTICE_THRESHOLD),false);
+            return Integer.parseInt(s.trim());
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the large lattice threshold.",e);
+            return DEFAULT_LARGE_LATTICE_THRESHOLD;
+        }
+    }
+
+    /**
+     * Returns the maximum notification rates of the channel rate classes, which are defined in the pvs properties
+     * file under the keys <code>max_rate_&lt;class&gt;</code> (e.g. max_rate_orbit) in milliseconds. Classes without a
+     * valid definition are not included and use their default rate.
+     *
+     * @return the configured maximum rates
+     */
+    public Map<RateClass,Duration> getMaxRates() {
+        Map<RateClass,Duration> rates = new EnumMap<>(RateClass.class);
+        for (RateClass rateClass : RateClass.values()) {
+            String key = MAX_RATE_PREFIX + rateClass.getKey();
+            try {
+                String s = getString(key,null,true);
+                if (s != null && !s.trim().isEmpty()) {
+                    rates.put(rateClass,Duration.ofMillis(Math.max(1,Long.parseLong(s.trim()))));
+                }
+            } catch (Exception e) {
+                OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,String.format("Could not load the %s.",key),e);
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Returns the file in the workspace in which the last lattice read from the IOC is cached. Each device macro has
+     * its own cache file. The cache is not used if it is disabled in the preferences.
+     *
+     * @return the lattice cache file, if the cache is enabled
+     */
+    public Optional<File> getLatticeCacheFile() {
+        try {
+            if (!Boolean.valueOf(getString(LATTICE_CACHE,"true",false))) {
+                return Optional.empty();
+            }
+            String macro = getString(OC_DEVICE_MACRO,"",false).replaceAll("[^A-Za-z0-9_\\-]","_");
+            String fileName = ".lattice" + (macro.isEmpty() ? "" : "_" + macro) + ".cache";
+            return Optional.of(new File(getWorkspaceFile(fileName).getFile()));
+        } catch (Exception e) {
+            OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Could not load the lattice cache settings.",e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * Returns the initial directory that is opened when an orbit is stored or loaded to and from a file.
      *
@@ -372,41 +726,28 @@ public final class Preferences {
     }
 
     /**
-     * Returns a map of all pvs that are related to the lattice.
+     * Returns a map of all pvs that are related to the lattice. Channels without a defined PV name are not included.
      *
      * @return map of lattice related PVs
      */
-    public Map<String,String> getLatticePVNames() {
-        Map<String,String> pvs = new HashMap<>();
-        Arrays.asList(PV_HORIZONTAL_BPM_NAMES,PV_HORIZONTAL_BPM_POSITIONS,PV_VERTICAL_BPM_NAMES,
-                PV_VERTICAL_BPM_POSITIONS,PV_HORIZONTAL_CORRECTOR_NAMES,PV_HORIZONTAL_CORRECTOR_POSITIONS,
-                PV_VERTICAL_CORRECTOR_NAMES,PV_VERTICAL_CORRECTOR_POSITIONS,PV_DIPOLE_NAMES,PV_DIPOLE_POSITIONS,
-                PV_QUADRUPOLE_NAMES,PV_QUADRUPOLE_POSITIONS,PV_SEXTUPOLE_NAMES,PV_SEXTUPOLE_POSITIONS)
-                .forEach(n -> pvs.put(n,getPVName(n)));
-        return pvs;
+    public Map<Channel,String> getLatticePVNames() {
+        return getChannelNames(true);
     }
 
     /**
-     * Returns a map of all monitored pv names used by the orbit correction application.
+     * Returns a map of all monitored pv names used by the orbit correction application. Channels without a defined PV
+     * name are not included.
      *
-     * @return map with the PV keys and names
+     * @return map with the channels and PV names
      */
-    public Map<String,String> getPVNames() {
-        Map<String,String> pvs = new HashMap<>();
-        Arrays.asList(PV_HORIZONTAL_ORBIT,PV_VERTICAL_ORBIT,PV_GOLDEN_HORIZONTAL_ORBIT,PV_GOLDEN_VERTICAL_ORBIT,
-                PV_HORIZONTAL_REFERENCE_ORBIT,PV_VERTICAL_REFERENCE_ORBIT,PV_HORIZONTAL_DIFFERENCE_ORBIT,
-                PV_VERTICAL_DIFFERENCE_ORBIT,PV_HORIZONTAL_CORRECTOR_MRAD,PV_VERTICAL_CORRECTOR_MRAD,
-                PV_HORIZONTAL_CORRECTOR_MA,PV_VERTICAL_CORRECTOR_MA,PV_OPERATION_STATUS,PV_HORIZONTAL_ORBIT_STATISTICS,
-                PV_VERTICAL_ORBIT_STATISTICS,PV_GOLDEN_HORIZONTAL_ORBIT_STATISTICS,PV_GOLDEN_VERTICAL_ORBIT_STATISTICS,
-                PV_REFERENCE_HORIZONTAL_ORBIT_STATISTICS,PV_REFERENCE_VERTICAL_ORBIT_STATISTICS,PV_ORM)
-                .forEach(n -> pvs.put(n,getPVName(n)));
-        Arrays.asList(PV_RESET_CORRECTION,PV_START_MEASURING_ORBIT,PV_STOP_MEASURING_ORBIT,PV_MEASURE_ORBIT_ONCE,
-                PV_START_CORRECTING_ORBIT,PV_STOP_CORRECTING_ORBIT,PV_CORRECT_ORBIT_ONCE,PV_HORIZONTAL_CUTOFF,
-                PV_VERTICAL_CUTOFF,PV_HORIZONTAL_CORRECTION_FRACTION,PV_VERTICAL_CORRECTION_FRACTION,
-                PV_HORIZONTAL_BPM_ENABLED,PV_VERTICAL_BPM_ENABLED,PV_HORIZONTAL_CORRECTOR_ENABLED,
-                PV_VERTICAL_CORRECTOR_ENABLED,PV_CORRECTION_ALGORITHM,PV_CORRECTION_FREQUENCY,
-                PV_CORRECTION_FREQUENCY_PROC,PV_HORIZONTAL_STEERER_CUTOFF,PV_VERTICAL_STEERER_CUTOFF)
-                .forEach(n -> Optional.ofNullable(getPVName(n)).ifPresent(c -> pvs.put(n,c)));
+    public Map<Channel,String> getPVNames() {
+        return getChannelNames(false);
+    }
+
+    private Map<Channel,String> getChannelNames(boolean lattice) {
+        Map<Channel,String> pvs = new EnumMap<>(Channel.class);
+        Arrays.stream(Channel.values()).filter(c -> c.isLattice() == lattice)
+                .forEach(c -> Optional.ofNullable(getPVName(c.getKey())).ifPresent(n -> pvs.put(c,n)));
         return pvs;
     }
 
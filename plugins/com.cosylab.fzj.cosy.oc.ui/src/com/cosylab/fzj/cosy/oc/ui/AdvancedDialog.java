@@ -12,6 +12,7 @@ import static org.csstudio.ui.fx.util.FXUtilities.setGridConstraints;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import org.csstudio.ui.fx.util.FXUtilities;
@@ -25,10 +26,12 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Shell;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementType;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
 import com.cosylab.fzj.cosy.oc.ui.model.BPM;
 import com.cosylab.fzj.cosy.oc.ui.model.Corrector;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeChange;
 import com.cosylab.fzj.cosy.oc.ui.model.LatticeElement;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeSnapshot;
 import com.cosylab.fzj.cosy.oc.ui.util.BorderedTitledPane;
 
 import javafx.application.Platform;
@@ -171,6 +174,8 @@ public class AdvancedDialog extends Dialog {
     private static class Table<T extends LatticeElement> extends TableView<T> {
 
         private boolean valueIsAdjusting = false;
+        //the version of the lattice snapshot shown in the table
+        private long version = -1;
 
         private class SelectionTableColumn extends TableColumn<T,Boolean> {
 
@@ -245,12 +250,16 @@ public class AdvancedDialog extends Dialog {
             }
         };
 
-        void updateTable(List<T> entries) {
-            getItems().forEach(e -> e.enabledWishProperty().removeListener(listener));
-            getItems().setAll(entries);
-            //enabledwishproperty can only have one registered listener
-            entries.forEach(e -> e.enabledWishProperty().removeListener(listener));
-            entries.forEach(e -> e.enabledWishProperty().addListener(listener));
+        void updateTable(LatticeSnapshot<T> entries) {
+            //the items only need to be replaced if the elements changed; the cells follow the element properties
+            if (entries.getVersion() != version) {
+                version = entries.getVersion();
+                getItems().forEach(e -> e.enabledWishProperty().removeListener(listener));
+                getItems().setAll(entries);
+                //enabledwishproperty can only have one registered listener
+                entries.forEach(e -> e.enabledWishProperty().removeListener(listener));
+                entries.forEach(e -> e.enabledWishProperty().addListener(listener));
+            }
             selectAllCheckBox.setSelected(getItems().stream().allMatch(e -> e.enabledWishProperty().get()));
         }
     }
@@ -283,6 +292,7 @@ public class AdvancedDialog extends Dialog {
     private RadioButton algorithmSplitButton;
     private RadioButton algorithmCoupledButton;
     private final Consumer<LatticeElementType> updater = this::update;
+    private final BiConsumer<LatticeSnapshot<?>,List<LatticeChange>> changeUpdater = (s, c) -> update(s.getType());
     private final Shell parent;
 
     /**
@@ -382,6 +392,7 @@ public class AdvancedDialog extends Dialog {
         FXUtilities.createFXBridge(composite,this::createScene);
         applyDialogFont(composite);
         controller.addLaticeUpdateCallback(updater);
+        controller.addLatticeChangeCallback(changeUpdater);
         update(LatticeElementType.HORIZONTAL_BPM);
         update(LatticeElementType.VERTICAL_BPM);
         update(LatticeElementType.HORIZONTAL_CORRECTOR);
@@ -404,6 +415,7 @@ public class AdvancedDialog extends Dialog {
 
     private void dispose() {
         controller.removeLaticeUpdateCallback(updater);
+        controller.removeLatticeChangeCallback(changeUpdater);
         horizontalCutOff.dispose();
         verticalCutOff.dispose();
         horizontalCorrectionPercentage.dispose();
@@ -461,6 +473,10 @@ public class AdvancedDialog extends Dialog {
         algorithmPanel.add(algorithmSplitButton,0,0);
         algorithmPanel.add(algorithmCoupledButton,0,1);
         BorderedTitledPane algorithmPane = new BorderedTitledPane("Correction Algorithm",algorithmPanel,background);
+        PVConnectionsTable connectionsTable = new PVConnectionsTable(controller.getPVConnections());
+        BorderedTitledPane connectionsPane = new BorderedTitledPane("PV Connections",connectionsTable,background);
+        connectionsPane.setMinHeight(160);
+        connectionsPane.setPrefHeight(160);
         int height = 60;
         Arrays.asList(verticalPane,horizontalPane,verticalFactorPane,horizontalFactorPane,correctionPeriodPane,
                 algorithmPane).forEach(c -> {
@@ -481,15 +497,16 @@ public class AdvancedDialog extends Dialog {
         pane.add(verticalFactorPane,2,3,2,1);
         pane.add(correctionPeriodPane,0,4,2,1);
         pane.add(algorithmPane,2,4,2,1);
+        pane.add(connectionsPane,0,5,4,1);
         Arrays.asList(horizontalBPMLabel,verticalBPMLabel,horizontalCorrectorLabel,verticalCorectorLabel)
                 .forEach(l -> setGridConstraints(l,false,false,HPos.CENTER,VPos.CENTER,Priority.NEVER,Priority.NEVER));
         Arrays.asList(horizontalBPMTable,verticalBPMTable,horizontalCorrectorTable,verticalCorrectorTable)
                 .forEach(l -> setGridConstraints(l,true,true,HPos.LEFT,VPos.TOP,Priority.ALWAYS,Priority.ALWAYS));
         Arrays.asList(horizontalPane,verticalPane,horizontalFactorPane,verticalFactorPane,correctionPeriodPane,
-                algorithmPane)
+                algorithmPane,connectionsPane)
                 .forEach(l -> setGridConstraints(l,true,true,HPos.LEFT,VPos.TOP,Priority.ALWAYS,Priority.NEVER));
         Arrays.asList(horizontalPane,verticalPane,horizontalFactorPane,verticalFactorPane,correctionPeriodPane,
-                algorithmPane).forEach(l -> GridPane.setMargin(l,new Insets(10,0,0,0)));
+                algorithmPane,connectionsPane).forEach(l -> GridPane.setMargin(l,new Insets(10,0,0,0)));
         return pane;
     }
 
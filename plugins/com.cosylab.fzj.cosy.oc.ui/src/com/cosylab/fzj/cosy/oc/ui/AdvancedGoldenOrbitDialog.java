@@ -21,6 +21,7 @@ import static org.csstudio.ui.fx.util.FXUtilities.setGridConstraints;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -34,8 +35,10 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Shell;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementType;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
 import com.cosylab.fzj.cosy.oc.ui.model.BPM;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeChange;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeSnapshot;
 import com.cosylab.fzj.cosy.oc.ui.model.SeriesType;
 import com.cosylab.fzj.cosy.oc.ui.util.HorizontalAxis;
 import com.cosylab.fzj.cosy.oc.ui.util.SymmetricAxis;
@@ -137,6 +140,8 @@ public class AdvancedGoldenOrbitDialog extends Dialog {
     private static class Table extends TableView<BPM> implements Consumer<Boolean> {
 
         private boolean editing = false;
+        //the version of the lattice snapshot shown in the table
+        private long version = -1;
 
         Table() {
             setMaxWidth(Double.MAX_VALUE);
@@ -168,8 +173,12 @@ public class AdvancedGoldenOrbitDialog extends Dialog {
             getColumns().addAll(Arrays.asList(nameColumn,locationColumn,currentColumn,positionColumn));
         }
 
-        void updateTable(List<BPM> entries) {
-            getItems().setAll(entries);
+        void updateTable(LatticeSnapshot<BPM> entries) {
+            //the items only need to be replaced if the BPMs changed; the cells follow the BPM properties
+            if (entries.getVersion() != version) {
+                version = entries.getVersion();
+                getItems().setAll(entries);
+            }
         }
     }
 
@@ -177,6 +186,7 @@ public class AdvancedGoldenOrbitDialog extends Dialog {
     private Table horizontalBPMTable;
     private Table verticalBPMTable;
     private final Consumer<LatticeElementType> updater = this::update;
+    private final BiConsumer<LatticeSnapshot<?>,List<LatticeChange>> changeUpdater = (s, c) -> update(s.getType());
     private final Consumer<SeriesType> seriesUpdater = e -> {
         if (!horizontalBPMTable.editing) {
             horizontalBPMTable.refresh();
@@ -277,11 +287,13 @@ public class AdvancedGoldenOrbitDialog extends Dialog {
         Composite composite = (Composite)super.createDialogArea(parent);
         parent.addDisposeListener(e -> {
             controller.removeLaticeUpdateCallback(updater);
+            controller.removeLatticeChangeCallback(changeUpdater);
             controller.removeGoldernOrbitUpdateCallback(seriesUpdater);
         });
         FXUtilities.createFXBridge(composite,this::createScene);
         applyDialogFont(composite);
         controller.addLaticeUpdateCallback(updater);
+        controller.addLatticeChangeCallback(changeUpdater);
         controller.addGoldenOrbitUpdateCallback(seriesUpdater);
         update(LatticeElementType.HORIZONTAL_BPM);
         update(LatticeElementType.VERTICAL_BPM);
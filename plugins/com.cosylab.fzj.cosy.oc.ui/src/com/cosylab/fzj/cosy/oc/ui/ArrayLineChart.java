@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.chart.Axis;
+import javafx.scene.chart.LineChart;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+
+/**
+ * <code>ArrayLineChart</code> is an extension of the javafx {@link LineChart}, which can draw a series from primitive
+ * arrays instead of from the chart data. Such array layers are painted on a single canvas behind the regular series
+ * and do not create any nodes per point, which keeps the chart responsive with tens of thousands of points. A layer
+ * takes the place of the series with the same index: the colour is taken from the style sheet of the chart as if the
+ * layer was the series, so the series at that index should be left empty. A single tooltip shows the name and value
+ * of the point closest to the mouse.
+ * <p>
+ * The arrays of a layer are not copied and must not be modified after they have been handed to the chart. The points
+ * of line layers are connected in the order of the arrays and a NaN value breaks the line. Layers are expected to be
+ * used with linear number axes only.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class ArrayLineChart<X, Y> extends LineChart<X,Y> {
+
+    /**
+     * <code>LayerStyle</code> defines how the points of an array layer are painted.
+     *
+     * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+     */
+    public static enum LayerStyle {
+        /** The points are connected by a line and marked with a dot if there is enough space */
+        LINE,
+        /** Every point is a bar from zero to its value */
+        BAR,
+        /** Every point is a rectangular marker at zero; the values are not used */
+        MARKER,
+        /** Every point is an elliptic marker at zero; the values are not used */
+        ROUND_MARKER
+    }
+
+    private static final double TOOLTIP_DISTANCE = 5;
+    private static final double LINE_WIDTH = 2;
+    private static final double DOT_SIZE = 5;
+    private static final double BAR_WIDTH = 3;
+    private static final double MARKER_WIDTH = 3.5;
+    private static final double MARKER_HEIGHT = 30;
+    private static final double ROUND_MARKER_WIDTH = 7;
+    private static final double ROUND_MARKER_HEIGHT = 11;
+    private static final int NUMBER_OF_DEFAULT_COLORS = 8;
+
+    private static class Layer {
+
+        private final LayerStyle style;
+        private final double[] x;
+        private final double[] y;
+        private final String[] names;
+
+        Layer(LayerStyle style, double[] x, double[] y, String[] names) {
+            this.style = style;
+            this.x = x;
+            this.y = y;
+            this.names = names;
+        }
+
+        boolean hasValues() {
+            return y != null && (style == LayerStyle.LINE || style == LayerStyle.BAR);
+        }
+    }
+
+    private final Canvas canvas = new Canvas();
+    private final Map<Integer,Layer> layers = new TreeMap<>();
+    //invisible symbols, which receive the colours of the series from the style sheet, and the resolved colours; the
+    //probe of an index stays in the chart until its layer is removed, so the colour is only resolved by the css pass
+    //when the layer is added or the style sheet changes
+    private final Map<Integer,Region> colorProbes = new HashMap<>();
+    private final Map<Integer,Paint> colors = new HashMap<>();
+    private final Tooltip tooltip = new Tooltip();
+
+    /**
+     * Constructs a new array line chart with the given xAxis and yAxis.
+     *
+     * @param xAxis xAxis of the chart
+     * @param yAxis yAxis of the chart
+     */
+    public ArrayLineChart(Axis<X> xAxis, Axis<Y> yAxis) {
+        super(xAxis,yAxis);
+        canvas.setManaged(false);
+        canvas.setOnMouseMoved(this::updateTooltip);
+        canvas.setOnMouseExited(e -> tooltip.hide());
+        getPlotChildren().add(0,canvas);
+    }
+
+    /**
+     * Sets the array layer, which is drawn in place of the series with the given index. An existing layer with the
+     * same index is replaced. The arrays are not copied.
+     *
+     * @param index the index of the series that the layer represents
+     * @param style the way the points are painted
+     * @param x the x values of the points
+     * @param y the y values of the points (may be null for markers)
+     * @param names the names of the points shown in the tooltip (may be null, points without a name have no tooltip)
+     */
+    public void setLayer(int index, LayerStyle style, double[] x, double[] y, String[] names) {
+        if (y != null && y.length != x.length || names != null && names.length != x.length) {
+            throw new IllegalArgumentException("The x values, y values and names must be of equal length.");
+        }
+        layers.put(index,new Layer(style,x,y,names));
+        if (!colorProbes.containsKey(index)) {
+            Region colorProbe = createColorProbe(index);
+            colorProbes.put(index,colorProbe);
+            getPlotChildren().add(colorProbe);
+        }
+        layersChanged();
+    }
+
+    /**
+     * Creates an invisible symbol with the style classes of the series with the given index. Whenever the style sheet
+     * assigns a background to the symbol, its colour is stored as the colour of the layer and the layers are repainted.
+     *
+     * @param index the index of the series
+     * @return the colour probe
+     */
+    private Region createColorProbe(int index) {
+        Region colorProbe = new Region();
+        colorProbe.getStyleClass().setAll("chart-line-symbol","series" + index,
+                "default-color" + (index % NUMBER_OF_DEFAULT_COLORS));
+        colorProbe.setManaged(false);
+        colorProbe.setMouseTransparent(true);
+        colorProbe.setOpacity(0);
+        colorProbe.backgroundProperty().addListener((a, o, n) -> {
+            if (n == null || n.getFills().isEmpty()) {
+                colors.remove(index);
+            } else {
+                colors.put(index,n.getFills().get(0).getFill());
+            }
+            requestChartLayout();
+        });
+        return colorProbe;
+    }
+
+    /**
+     * Removes the array layer with the given index if it exists.
+     *
+     * @param index the index of the layer
+     */
+    public void removeLayer(int index) {
+        Layer old = layers.remove(index);
+        if (old != null) {
+            getPlotChildren().remove(colorProbes.remove(index));
+            colors.remove(index);
+            layersChanged();
+        }
+    }
+
+    /**
+     * @param index the index of the layer
+     * @return true if an array layer with the given index exists or false otherwise
+     */
+    public boolean hasLayer(int index) {
+        return layers.containsKey(index);
+    }
+
+    private void layersChanged() {
+        updateAxisRange();
+        requestChartLayout();
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javafx.scene.chart.XYChart#updateAxisRange()
+     */
+    @Override
+    protected void updateAxisRange() {
+        super.updateAxisRange();
+        final Axis<Y> yAxis = getYAxis();
+        if (!yAxis.isAutoRanging() || layers.isEmpty()) {
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Layer layer : layers.values()) {
+            if (layer.hasValues()) {
+                for (double v : layer.y) {
+                    if (v < min) min = v;
+                    if (v > max) max = v;
+                }
+            }
+        }
+        if (min > max) {
+            return;
+        }
+        //the range computed by the super class is replaced, so the values of the regular series have to be included
+        List<Y> values = new ArrayList<>();
+        getData().forEach(s -> s.getData().forEach(d -> values.add(d.getYValue())));
+        values.add(yAxis.toRealValue(min));
+        values.add(yAxis.toRealValue(max));
+        yAxis.invalidateRange(values);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see javafx.scene.chart.LineChart#layoutPlotChildren()
+     */
+    @Override
+    protected void layoutPlotChildren() {
+        super.layoutPlotChildren();
+        paintLayers();
+    }
+
+    /**
+     * Paints all array layers on the canvas. Subclasses which do not call the super implementation of
+     * {@link #layoutPlotChildren()} have to call this method at the end of their layout.
+     */
+    protected void paintLayers() {
+        final Axis<X> xAxis = getXAxis();
+        final Axis<Y> yAxis = getYAxis();
+        final double width = xAxis.getWidth();
+        final double height = yAxis.getHeight();
+        if (canvas.getWidth() != width) {
+            canvas.setWidth(width);
+        }
+        if (canvas.getHeight() != height) {
+            canvas.setHeight(height);
+        }
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0,0,width,height);
+        if (layers.isEmpty()) {
+            return;
+        }
+        //the axes are linear, so two points define the transformation to display coordinates
+        final double x0 = xAxis.getDisplayPosition(xAxis.toRealValue(0));
+        final double xScale = xAxis.getDisplayPosition(xAxis.toRealValue(1)) - x0;
+        final double y0 = yAxis.getDisplayPosition(yAxis.toRealValue(0));
+        final double yScale = yAxis.getDisplayPosition(yAxis.toRealValue(1)) - y0;
+        for (Map.Entry<Integer,Layer> entry : layers.entrySet()) {
+            final Layer layer = entry.getValue();
+            final double[] x = layer.x;
+            final double[] y = layer.y;
+            final Paint paint = colors.getOrDefault(entry.getKey(),Color.GRAY);
+            gc.setFill(paint);
+            if (layer.style == LayerStyle.LINE) {
+                if (y == null) continue;
+                gc.setStroke(paint);
+                gc.setLineWidth(LINE_WIDTH);
+                gc.beginPath();
+                boolean connected = false;
+                for (int i = 0; i < x.length; i++) {
+                    if (Double.isNaN(y[i])) {
+                        connected = false;
+                    } else if (connected) {
+                        gc.lineTo(x0 + x[i] * xScale,y0 + y[i] * yScale);
+                    } else {
+                        gc.moveTo(x0 + x[i] * xScale,y0 + y[i] * yScale);
+                        connected = true;
+                    }
+                }
+                gc.stroke();
+                //dots are only drawn if they do not overlap, otherwise they would hide the line
+                if (x.length * DOT_SIZE * 2 < width) {
+                    for (int i = 0; i < x.length; i++) {
+                        if (!Double.isNaN(y[i])) {
+                            gc.fillOval(x0 + x[i] * xScale - DOT_SIZE / 2,y0 + y[i] * yScale - DOT_SIZE / 2,DOT_SIZE,
+                                    DOT_SIZE);
+                        }
+                    }
+                }
+            } else if (layer.style == LayerStyle.BAR) {
+                if (y == null) continue;
+                for (int i = 0; i < x.length; i++) {
+                    if (!Double.isNaN(y[i])) {
+                        final double py = y0 + y[i] * yScale;
+                        gc.fillRect(x0 + x[i] * xScale - BAR_WIDTH / 2,Math.min(py,y0),BAR_WIDTH,Math.abs(py - y0));
+                    }
+                }
+            } else if (layer.style == LayerStyle.MARKER) {
+                for (int i = 0; i < x.length; i++) {
+                    gc.fillRect(x0 + x[i] * xScale - MARKER_WIDTH / 2,y0 - MARKER_HEIGHT / 2,MARKER_WIDTH,
+                            MARKER_HEIGHT);
+                }
+            } else {
+                for (int i = 0; i < x.length; i++) {
+                    gc.fillOval(x0 + x[i] * xScale - ROUND_MARKER_WIDTH / 2,y0 - ROUND_MARKER_HEIGHT / 2,
+                            ROUND_MARKER_WIDTH,ROUND_MARKER_HEIGHT);
+                }
+            }
+        }
+    }
+
+    private void updateTooltip(MouseEvent e) {
+        String text = findClosestPoint(e.getX(),e.getY());
+        if (text == null) {
+            tooltip.hide();
+        } else {
+            tooltip.setText(text);
+            tooltip.show(canvas,e.getScreenX() + TOOLTIP_DISTANCE * 2,e.getScreenY() + TOOLTIP_DISTANCE * 2);
+        }
+    }
+
+    /**
+     * Finds the point which is the closest to the given canvas coordinates within the tooltip distance and returns
+     * its tooltip text.
+     *
+     * @param mouseX the x coordinate on the canvas
+     * @param mouseY the y coordinate on the canvas
+     * @return the tooltip text of the closest point or null if there is no point close enough
+     */
+    private String findClosestPoint(double mouseX, double mouseY) {
+        final Axis<X> xAxis = getXAxis();
+        final Axis<Y> yAxis = getYAxis();
+        final double x0 = xAxis.getDisplayPosition(xAxis.toRealValue(0));
+        final double xScale = xAxis.getDisplayPosition(xAxis.toRealValue(1)) - x0;
+        final double y0 = yAxis.getDisplayPosition(yAxis.toRealValue(0));
+        final double yScale = yAxis.getDisplayPosition(yAxis.toRealValue(1)) - y0;
+        double closest = TOOLTIP_DISTANCE;
+        String text = null;
+        for (Layer layer : layers.values()) {
+            if (layer.names == null) continue;
+            for (int i = 0; i < layer.x.length; i++) {
+                if (layer.names[i] == null) continue;
+                double distance = Math.abs(x0 + layer.x[i] * xScale - mouseX);
+                if (distance > closest) continue;
+                if (layer.style == LayerStyle.LINE) {
+                    if (layer.y == null || Double.isNaN(layer.y[i])) continue;
+                    distance = Math.hypot(distance,y0 + layer.y[i] * yScale - mouseY);
+                }
+                if (distance <= closest) {
+                    closest = distance;
+                    text = layer.hasValues() ? String.format("%s: %3.4f",layer.names[i],layer.y[i])
+                            : layer.names[i];
+                }
+            }
+        }
+        return text;
+    }
+}
@@ -25,11 +25,11 @@ import javafx.scene.chart.LineChart;
 
 /**
  * <code>CorrectionsChart</code> is an extension of the javafx {@link LineChart}. This chart replaces points with
- * rectangles.
+ * rectangles. Array layers of the {@link ArrayLineChart} are supported as well and are usually drawn as bars.
  *
  * @author <a href="mailto:miha.novak@cosylab.com">Miha Novak</a>
  */
-public class CorrectionsChart<X, Y> extends LineChart<X,Y> {
+public class CorrectionsChart<X, Y> extends ArrayLineChart<X,Y> {
 
     /**
      * Constructs a new corrections chart with the given xAxis and yAxis.
@@ -80,5 +80,6 @@ public class CorrectionsChart<X, Y> extends LineChart<X,Y> {
                 }
             }
         }
+        paintLayers();
     }
 }
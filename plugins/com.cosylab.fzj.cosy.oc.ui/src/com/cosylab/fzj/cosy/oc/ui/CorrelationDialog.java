@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui;
+
+import static org.csstudio.ui.fx.util.FXUtilities.setGridConstraints;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.csstudio.ui.fx.util.FXUtilities;
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Shell;
+
+import com.cosylab.fzj.cosy.oc.orbit.BPMCorrelation;
+import com.cosylab.fzj.cosy.oc.ui.model.BPM;
+
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+
+/**
+ * <code>CorrelationDialog</code> shows the correlation coefficients between all BPMs of both planes as a heatmap.
+ * Strongly correlated pairs are red, anti-correlated pairs are blue. A pair of BPMs that is correlated much stronger
+ * (or weaker) than its neighbours usually points to swapped cables or faulty BPM electronics.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class CorrelationDialog extends Dialog {
+
+    private static class Heatmap extends Pane {
+
+        private static final int UNDEFINED = 0xFFC0C0C0;
+        private final ImageView view = new ImageView();
+        private final Tooltip tooltip = new Tooltip();
+        private BPMCorrelation correlation = BPMCorrelation.EMPTY;
+        private List<String> names = new ArrayList<>();
+        private WritableImage image;
+
+        Heatmap() {
+            view.setSmooth(false);
+            view.setPreserveRatio(true);
+            getChildren().add(view);
+            Tooltip.install(this,tooltip);
+            setOnMouseMoved(e -> tooltip.setText(describe(e.getX(),e.getY())));
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see javafx.scene.Parent#layoutChildren()
+         */
+        @Override
+        protected void layoutChildren() {
+            double size = Math.min(getWidth(),getHeight());
+            view.setFitWidth(size);
+            view.setFitHeight(size);
+            view.relocate((getWidth() - size) / 2,(getHeight() - size) / 2);
+        }
+
+        void update(BPMCorrelation newCorrelation, List<String> bpmNames) {
+            correlation = newCorrelation;
+            names = bpmNames;
+            final int n = newCorrelation.size();
+            if (n == 0) {
+                view.setImage(null);
+                return;
+            }
+            if (image == null || (int)image.getWidth() != n) {
+                image = new WritableImage(n,n);
+            }
+            PixelWriter writer = image.getPixelWriter();
+            for (int i = 0; i < n; i++) {
+                for (int j = i; j < n; j++) {
+                    int color = toColor(newCorrelation.get(i,j));
+                    writer.setArgb(j,i,color);
+                    writer.setArgb(i,j,color);
+                }
+            }
+            view.setImage(null);
+            view.setImage(image);
+        }
+
+        private String describe(double x, double y) {
+            final int n = correlation.size();
+            final double size = view.getFitWidth();
+            if (n == 0 || size <= 0) return "No data";
+            int j = (int)((x - view.getLayoutX()) / size * n);
+            int i = (int)((y - view.getLayoutY()) / size * n);
+            if (i < 0 || j < 0 || i >= n || j >= n) return "";
+            return String.format("%s / %s: %.3f",name(i),name(j),correlation.get(i,j));
+        }
+
+        private String name(int index) {
+            return index < names.size() ? names.get(index) : String.valueOf(index);
+        }
+
+        /**
+         * Maps the correlation coefficient to a colour: white for uncorrelated, red for correlated and blue for
+         * anti-correlated BPMs.
+         *
+         * @param r the correlation coefficient
+         * @return the ARGB colour
+         */
+        private static int toColor(double r) {
+            if (Double.isNaN(r)) return UNDEFINED;
+            int fade = (int)Math.round(255 * (1 - Math.min(1,Math.abs(r))));
+            return r >= 0 ? 0xFFFF0000 | (fade << 8) | fade : 0xFF0000FF | (fade << 16) | (fade << 8);
+        }
+    }
+
+    private final OrbitCorrectionController controller;
+    private final Shell parent;
+    private Heatmap heatmap;
+    private Label samplesLabel;
+    private final Consumer<BPMCorrelation> updater = this::update;
+
+    /**
+     * Constructs a new dialog.
+     *
+     * @param parent the parent shell, used only for positioning of this dialog
+     * @param controller the controller which provides the correlations
+     */
+    public CorrelationDialog(Shell parent, OrbitCorrectionController controller) {
+        super((Shell)null);
+        this.parent = parent;
+        this.controller = controller;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.jface.window.Window#setShellStyle(int)
+     */
+    @Override
+    protected void setShellStyle(int newShellStyle) {
+        super.setShellStyle(SWT.CLOSE | SWT.MIN | SWT.MAX | SWT.MODELESS | SWT.BORDER | SWT.TITLE | SWT.RESIZE);
+        setBlockOnOpen(false);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.jface.window.Window#configureShell(org.eclipse.swt.widgets.Shell)
+     */
+    @Override
+    protected void configureShell(Shell newShell) {
+        super.configureShell(newShell);
+        newShell.setText("BPM Correlation");
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.jface.dialogs.Dialog#createButtonsForButtonBar(org.eclipse.swt.widgets.Composite)
+     */
+    @Override
+    protected void createButtonsForButtonBar(Composite parent) {
+        createButton(parent,IDialogConstants.ABORT_ID,"Reset",false)
+                .setToolTipText("Discard the accumulated correlations and start anew");
+        createButton(parent,IDialogConstants.OK_ID,IDialogConstants.CLOSE_LABEL,true)
+                .setToolTipText("Close this dialog");
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.jface.dialogs.Dialog#buttonPressed(int)
+     */
+    @Override
+    protected void buttonPressed(int buttonId) {
+        if (buttonId == IDialogConstants.ABORT_ID) {
+            controller.resetCorrelation();
+        } else {
+            super.buttonPressed(buttonId);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.jface.dialogs.Dialog#createDialogArea(org.eclipse.swt.widgets.Composite)
+     */
+    @Override
+    protected Control createDialogArea(Composite parent) {
+        Composite composite = (Composite)super.createDialogArea(parent);
+        parent.addDisposeListener(e -> controller.removeCorrelationCallback(updater));
+        FXUtilities.createFXBridge(composite,this::createScene);
+        applyDialogFont(composite);
+        controller.addCorrelationCallback(updater);
+        return composite;
+    }
+
+    private Scene createScene(Composite parent) {
+        Scene scene = new Scene(new BorderPane(createFXContents(parent)));
+        scene.getStylesheets().add(OrbitCorrectionView.class.getResource("style.css").toExternalForm());
+        return scene;
+    }
+
+    private Node createFXContents(Composite parent) {
+        GridPane pane = new GridPane();
+        pane.setStyle(FXUtilities.toBackgroundColorStyle(parent.getBackground()));
+        pane.setVgap(5);
+        heatmap = new Heatmap();
+        heatmap.setMinSize(200,200);
+        heatmap.setPrefSize(600,600);
+        samplesLabel = new Label("Waiting for the measured orbit...");
+        Label legendLabel = new Label("Red: correlated, blue: anti-correlated, grey: BPM without variation. "
+                + "Horizontal BPMs are followed by the vertical BPMs.");
+        legendLabel.setWrapText(true);
+        pane.add(heatmap,0,0);
+        pane.add(samplesLabel,0,1);
+        pane.add(legendLabel,0,2);
+        setGridConstraints(heatmap,true,true,HPos.CENTER,VPos.CENTER,Priority.ALWAYS,Priority.ALWAYS);
+        setGridConstraints(samplesLabel,true,false,HPos.LEFT,VPos.CENTER,Priority.ALWAYS,Priority.NEVER);
+        setGridConstraints(legendLabel,true,false,HPos.LEFT,VPos.CENTER,Priority.ALWAYS,Priority.NEVER);
+        return pane;
+    }
+
+    private void update(BPMCorrelation correlation) {
+        if (heatmap == null) return;
+        List<BPM> horizontal = controller.getHorizontalBPMs();
+        List<BPM> vertical = controller.getVerticalBPMs();
+        List<String> names = new ArrayList<>(horizontal.size() + vertical.size());
+        if (horizontal.size() == correlation.getHorizontalSize()
+                && horizontal.size() + vertical.size() == correlation.size()) {
+            horizontal.forEach(bpm -> names.add("H " + bpm.nameProperty().get()));
+            vertical.forEach(bpm -> names.add("V " + bpm.nameProperty().get()));
+        }
+        heatmap.update(correlation,names);
+        int bpms = horizontal.size() + vertical.size();
+        if (bpms > controller.getMaxCorrelationBPMs()) {
+            samplesLabel.setText(String.format("The correlations are not computed for %d BPMs; at most %d BPMs are "
+                    + "supported (correlation_max_bpms).",bpms,controller.getMaxCorrelationBPMs()));
+        } else {
+            samplesLabel.setText(String.format("%d horizontal and %d vertical BPMs, %d measured orbits",
+                    correlation.getHorizontalSize(),correlation.size() - correlation.getHorizontalSize(),
+                    correlation.getCount()));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.eclipse.jface.window.Window#getConstrainedShellBounds(org.eclipse.swt.graphics.Rectangle)
+     */
+    @Override
+    protected Rectangle getConstrainedShellBounds(Rectangle preferredSize) {
+        Rectangle r = super.getConstrainedShellBounds(preferredSize);
+        Rectangle parentR = parent.getBounds();
+        int cX = parentR.x + parentR.width / 2;
+        int cY = parentR.y + parentR.height / 2;
+        r.x = cX - r.width / 2;
+        r.y = cY - r.height / 2;
+        r.x = r.x < 0 ? 0 : r.x;
+        r.y = r.y < 0 ? 0 : r.y;
+        return r;
+    }
+}
@@ -10,7 +10,6 @@ package com.cosylab.fzj.cosy.oc.ui;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
-import static org.diirt.datasource.ExpressionLanguage.channel;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -21,28 +20,37 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.function.IntConsumer;
 import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntFunction;
 import java.util.logging.Level;
@@ -50,38 +58,53 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.csstudio.openfile.DisplayUtil;
-import org.diirt.datasource.PVManager;
-import org.diirt.datasource.PVReader;
-import org.diirt.datasource.PVReaderEvent;
-import org.diirt.datasource.PVWriter;
-import org.diirt.datasource.PVWriterEvent;
-import org.diirt.datasource.PVWriterListener;
 import org.diirt.util.array.ArrayDouble;
 import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayShort;
 import org.diirt.util.array.IteratorNumber;
 import org.diirt.util.array.ListNumber;
-import org.diirt.vtype.VEnum;
-import org.diirt.vtype.VNumber;
-import org.diirt.vtype.VNumberArray;
-import org.diirt.vtype.VStringArray;
-import org.diirt.vtype.VType;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementData;
 import com.cosylab.fzj.cosy.oc.LatticeElementDataLoader;
-import com.cosylab.fzj.cosy.oc.LatticeElementType;
 import com.cosylab.fzj.cosy.oc.OrbitCorrectionPlugin;
 import com.cosylab.fzj.cosy.oc.Preferences;
+import com.cosylab.fzj.cosy.oc.engine.Channel;
+import com.cosylab.fzj.cosy.oc.engine.ChannelState;
+import com.cosylab.fzj.cosy.oc.engine.MonitorStatistics;
+import com.cosylab.fzj.cosy.oc.engine.OrbitEngine;
+import com.cosylab.fzj.cosy.oc.engine.OrbitEngineListener;
+import com.cosylab.fzj.cosy.oc.engine.OrbitPair;
+import com.cosylab.fzj.cosy.oc.engine.PairedOrbit;
+import com.cosylab.fzj.cosy.oc.engine.WriteCoalescer;
+import com.cosylab.fzj.cosy.oc.engine.WriteGroup;
+import com.cosylab.fzj.cosy.oc.engine.WriteLatencyStatistics;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeArrays;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate;
+import com.cosylab.fzj.cosy.oc.orbit.BPMCorrelation;
+import com.cosylab.fzj.cosy.oc.orbit.BPMSpectrum;
+import com.cosylab.fzj.cosy.oc.orbit.BPMStatistics;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitFrame;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitHistory;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitStatistics;
+import com.cosylab.fzj.cosy.oc.orbit.RollingWindow;
+import com.cosylab.fzj.cosy.oc.sim.SimulatedDataSource;
+import com.cosylab.fzj.cosy.oc.sim.SimulatedDevice;
 import com.cosylab.fzj.cosy.oc.ui.model.BPM;
 import com.cosylab.fzj.cosy.oc.ui.model.Corrector;
 import com.cosylab.fzj.cosy.oc.ui.model.Dipole;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeChange;
 import com.cosylab.fzj.cosy.oc.ui.model.LatticeElement;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeSnapshot;
 import com.cosylab.fzj.cosy.oc.ui.model.Quadrupole;
 import com.cosylab.fzj.cosy.oc.ui.model.SeriesType;
 import com.cosylab.fzj.cosy.oc.ui.model.Sextupole;
-import com.cosylab.fzj.cosy.oc.ui.util.GUIUpdateThrottle;
+import com.cosylab.fzj.cosy.oc.ui.util.AtomicBitSet;
+import com.cosylab.fzj.cosy.oc.ui.util.BoundedTaskExecutor;
+import com.cosylab.fzj.cosy.oc.ui.util.PulseUpdateScheduler;
 
 import javafx.application.Platform;
+import javafx.beans.Observable;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
@@ -95,6 +118,8 @@ import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 
 /**
  * <code>OrbitCorrectionController</code> is the controller for the orbit correction viewer. It provides the logic for
@@ -108,11 +133,30 @@ public class OrbitCorrectionController {
         SPLIT, COUPLED
     }
 
-    /** The rate at which the UI is updated */
-    private static final long UPDATE_RATE = 500;
+    /**
+     * <code>BlockingTask</code> is the kind of a blocking task executed by the controller. Each kind has a limit of
+     * concurrently running tasks.
+     */
+    private static enum BlockingTask {
+        /** Reading of files (golden orbit and ORM uploads) */
+        FILE_READ(2),
+        /** Writing of files (orbit and ORM exports), executed one by one in the requested order */
+        FILE_WRITE(1),
+        /** External processes (ORM measurement) */
+        PROCESS(1);
+
+        private final int limit;
+
+        private BlockingTask(int limit) {
+            this.limit = limit;
+        }
+    }
+
     /** Timeout how long we are willing to wait to receive the lattice data */
     private static final long UPDATE_TIMEOUT = 10000L;
     private static final Executor UI_EXECUTOR = Platform::runLater;
+    private static final Channel[] CHANNELS = Channel.values();
+    private static final WriteGroup.Key LATTICE_STATES = new WriteGroup.Key("lattice states");
     // Orbit correction results table row names
     private static final String TABLE_ENTRY_HORIZONTAL_ORBIT = "Horizontal Orbit";
     private static final String TABLE_ENTRY_VERTICAL_ORBIT = "Vertical Orbit";
@@ -139,10 +183,8 @@ public class OrbitCorrectionController {
     private static final String MSG_EXPORT_CURRENT_ORBIT_FAILURE = "Error occured while exporting current orbit.";
     private static final String MSG_UPLOAD_GOLDEN_ORBIT_SUCCESS = "%s golden orbit was successfully uploaded.";
     private static final String MSG_UPLOAD_GOLDEN_ORBIT_FAILURE = "Error occured while uploading %s golden orbit.";
-    private static final String MSG_UPDATE_ONOFF_SUCCESS = "Successfully enabled/disabled %s.";
-    private static final String MSG_UPDATE_ONOFF_FAILURE = "Error enabling/disabling %s.";
-    private static final String MSG_UPDATE_CUTOFF_SUCCESS = "Successfully set the %s correctors cut off values.";
-    private static final String MSG_UPDATE_CUTOFF_FAILURE = "Error setting the %s correctors cut off values.";
+    private static final String MSG_UPDATE_LATTICE_STATES_SUCCESS = "Successfully applied the lattice element states (%s).";
+    private static final String MSG_UPDATE_LATTICE_STATES_FAILURE = "Error applying the lattice element states: %d of %d writes failed (%s).";
     private static final String MSG_CUTOFF_SUCCESS = "%s cutoff factor %f successfully written.";
     private static final String MSG_CUTOFF_FAILURE = "Failed to write %s cutoff factor.";
     private static final String MSG_PERIOD_SUCCESS = "Correction period %f successfully written.";
@@ -171,116 +213,6 @@ public class OrbitCorrectionController {
     private static final char NEW_LINE = '\n';
     private static final String IDLE = "idle";
 
-    private class SlowPV extends PV {
-
-        AtomicBoolean startedTriggering = new AtomicBoolean(false);
-
-        SlowPV(PVReader<VType> reader, PVWriter<Object> writer) {
-            super(reader,writer);
-        }
-
-        @Override
-        void init() {
-            synchronized (this) {
-                super.init();
-                hasNewValue.set(value != null);
-            }
-        }
-
-        @Override
-        void handleValue(PVReaderEvent<VType> e) {
-            if (e.isExceptionChanged()) {
-                writeToLog("DIIRT Connection Error.",Level.SEVERE,ofNullable(e.getPvReader().lastException()));
-            }
-            connectionStateUpdate(e);
-            synchronized (this) {
-                value = e.getPvReader().isConnected() ? e.getPvReader().getValue() : null;
-                hasNewValue.compareAndSet(false,value != null);
-            }
-        }
-
-        @Override
-        void postHandleAction() {
-            if (startedTriggering.get()) {
-                updateLattice();
-            } else {
-                synchronized (OrbitCorrectionController.this) {
-                    OrbitCorrectionController.this.notifyAll();
-                }
-            }
-        }
-
-        void startTriggering() {
-            startedTriggering.set(true);
-            if (hasNewValue.get()) {
-                updateLattice();
-            }
-        }
-    }
-
-    private class PV {
-
-        final PVReader<VType> reader;
-        final PVWriter<Object> writer;
-        //all actions on the value are atomic, therefore no need for synchronisation
-        volatile VType value;
-        AtomicBoolean hasNewValue = new AtomicBoolean(false);
-        AtomicBoolean connected = new AtomicBoolean(false);
-        private boolean firstTime = true;
-
-        PV(PVReader<VType> reader, PVWriter<Object> writer) {
-            this.reader = reader;
-            this.writer = writer;
-            init();
-        }
-
-        void init() {
-            this.reader.addPVReaderListener(e -> {
-                handleValue(e);
-                postHandleAction();
-            });
-            this.value = reader.getValue();
-            hasNewValue.set(true);
-        }
-
-        void postHandleAction() {
-            throttle.trigger();
-        }
-
-        void handleValue(PVReaderEvent<VType> e) {
-            if (e.isExceptionChanged()) {
-                writeToLog("DIIRT Connection Error.",Level.SEVERE,ofNullable(e.getPvReader().lastException()));
-            }
-            connectionStateUpdate(e);
-            value = e.getPvReader().isConnected() ? e.getPvReader().getValue() : null;
-            hasNewValue.set(true);
-        }
-
-        void connectionStateUpdate(PVReaderEvent<VType> e) {
-            connected.set(e.getPvReader().isConnected());
-            if (e.isConnectionChanged()) {
-                updateConnected();
-            }
-            if (!e.getPvReader().isConnected()) {
-                writeToLog(String.format("%s connection error.",e.getPvReader().getName()),Level.SEVERE,empty());
-            } else if (e.isConnectionChanged() && !firstTime) {
-                writeToLog(String.format("%s connection recovered.",e.getPvReader().getName()),Level.INFO,empty());
-            }
-            firstTime = false;
-        }
-
-        void dispose() {
-            if (!reader.isClosed()) {
-                reader.close();
-            }
-            synchronized (this) {
-                if (writer != null && !writer.isClosed()) {
-                    writer.close();
-                }
-            }
-        }
-    }
-
     private ObjectProperty<CorrectionAlgorithm> correctionAlgorithmProperty;
     private BooleanProperty splitAlgorithmProperty;
     private BooleanProperty coupledAlgorithmProperty;
@@ -292,9 +224,56 @@ public class OrbitCorrectionController {
     private final BooleanProperty allConnectedProperty = new SimpleBooleanProperty(this,"allConnected",false);
     private final BooleanProperty mradProperty = new SimpleBooleanProperty(this,"mrad",false);
     private final StringProperty statusProperty = new SimpleStringProperty(this,"status",EMPTY_STRING);
-    private final Map<String,PV> pvs = new HashMap<>();
-    private final Map<String,PV> slowPVs = new HashMap<>();
-    private final Map<String,OrbitCorrectionResultsEntry> correctionResultsEntries = new LinkedHashMap<>(4);
+    private final OrbitEngine engine = new OrbitEngine(Preferences.getInstance().getOrbitHistorySize(),
+            Preferences.getInstance().getCorrelationMemory(),Preferences.getInstance().getOrbitHistoryMemory());
+    // the data source of the simulated device, if the simulation is enabled; only accessed on the non UI thread
+    private SimulatedDataSource simulation;
+    // the update handlers indexed by the channel ordinal; the update only visits the channels which are marked dirty
+    private final AtomicBitSet dirtyPVs = new AtomicBitSet(CHANNELS.length);
+    private final List<Consumer<ChannelState>> updateHandlers = createUpdateHandlers();
+    // the latest horizontal and vertical frames of each paired orbit, replaced as a whole whenever a pair arrives
+    private final AtomicReferenceArray<OrbitFrame[]> displayedPairs = new AtomicReferenceArray<>(
+            PairedOrbit.values().length);
+    // the frames of the unpaired orbit channels (golden orbits) indexed by the channel ordinal, which have not been
+    // displayed yet
+    private final AtomicReferenceArray<OrbitFrame> receivedFrames = new AtomicReferenceArray<>(CHANNELS.length);
+    private final IntConsumer dirtyPVHandler = i -> {
+        final Consumer<ChannelState> handler = updateHandlers.get(i);
+        if (handler != null) {
+            engine.getChannel(CHANNELS[i]).ifPresent(pv -> {
+                pv.consume();
+                handler.accept(pv);
+            });
+        }
+    };
+    // the connection table entries indexed by the channel ordinal and the channels whose entries have not been
+    // updated yet
+    private final AtomicReferenceArray<PVConnectionEntry> connectionEntries = new AtomicReferenceArray<>(
+            CHANNELS.length);
+    private final AtomicBitSet connectionChanges = new AtomicBitSet(CHANNELS.length);
+    private final AtomicBoolean connectionUpdatePosted = new AtomicBoolean(false);
+    // true while no time aligned orbit is available, so that the fallback to the single planes is only logged once
+    private final AtomicBoolean alignedOrbitMissing = new AtomicBoolean(false);
+    // the selected rolling window; the property is only accessed on the UI thread and forwarded to the engine
+    private final ObjectProperty<RollingWindow> rollingWindowProperty = new SimpleObjectProperty<>(this,
+            "rollingWindow",Preferences.getInstance().getRollingStatisticsWindow());
+    private final IntConsumer connectionChangeHandler = i -> {
+        PVConnectionEntry entry = connectionEntries.get(i);
+        if (entry != null) {
+            engine.getChannel(CHANNELS[i]).ifPresent(state -> {
+                entry.connectedProperty().set(state.isConnected());
+                entry.setTimeline(state.getConnectLatency(),state.getFirstValueLatency());
+            });
+        }
+    };
+    private final ObservableList<PVConnectionEntry> pvConnections = FXCollections
+            .observableArrayList(e -> new Observable[] { e.connectedProperty() });
+    private final Map<Channel,OrbitCorrectionResultsEntry> correctionResultsEntries = new EnumMap<>(Channel.class);
+    // if true the results table shows the statistics computed from the received orbits instead of the IOC statistics
+    private final boolean localStatistics = Preferences.getInstance().isLocalOrbitStatistics();
+    //the range over which the local orbit statistics are computed; accessed only on the UI thread
+    private double statisticsFrom = Double.NEGATIVE_INFINITY;
+    private double statisticsTo = Double.POSITIVE_INFINITY;
     private final List<BPM> horizontalBPMs = new ArrayList<>();
     private final List<BPM> verticalBPMs = new ArrayList<>();
     private final List<Corrector> horizontalCorrectors = new ArrayList<>();
@@ -302,8 +281,21 @@ public class OrbitCorrectionController {
     private final List<Quadrupole> quadrupoles = new ArrayList<>();
     private final List<Dipole> dipoles = new ArrayList<>();
     private final List<Sextupole> sextupoles = new ArrayList<>();
+    // the immutable snapshots of the lattice element lists indexed by the element type ordinal, which are handed out by
+    // the getters; a new snapshot is published whenever the elements of the type are replaced
+    private final AtomicReferenceArray<LatticeSnapshot<?>> latticeSnapshots = createLatticeSnapshots();
+    private final AtomicLong latticeVersion = new AtomicLong(0);
     private final List<Consumer<LatticeElementType>> latticeUpdateCallbacks = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<LatticeSnapshot<?>,List<LatticeChange>>> latticeChangeCallbacks =
+            new CopyOnWriteArrayList<>();
+    private final List<Consumer<LatticeElementType>> correctionCallbacks = new CopyOnWriteArrayList<>();
     private final List<Consumer<SeriesType>> goldenOrbitCallbacks = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<SeriesType,OrbitFrame>> orbitFrameCallbacks = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<Boolean,BPMSpectrum>> spectrumCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Consumer<BPMCorrelation>> correlationCallbacks = new CopyOnWriteArrayList<>();
+    // the latest orbit frame per series type and the visible series are only accessed from the UI thread
+    private final Map<SeriesType,OrbitFrame> orbitFrames = new EnumMap<>(SeriesType.class);
+    private final Set<SeriesType> visibleSeries = EnumSet.allOf(SeriesType.class);
     private static final BiConsumer<Runnable,Throwable> AFTER_EXECUTE = (r, t) -> {
         if (r instanceof Future<?>) {
             if (((Future<?>)r).isDone()) {
@@ -320,6 +312,7 @@ public class OrbitCorrectionController {
             OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,"Execution Error",t);
         }
     };
+    private final long startupTime = System.nanoTime();
     private final ExecutorService nonUIexecutor = new ThreadPoolExecutor(1,1,0L,TimeUnit.SECONDS,
             new LinkedBlockingQueue<>()) {
 
@@ -334,18 +327,141 @@ public class OrbitCorrectionController {
             AFTER_EXECUTE.accept(r,t);
         };
     };
-    private final GUIUpdateThrottle throttle = new GUIUpdateThrottle(20,UPDATE_RATE,
-            v -> UI_EXECUTOR.execute(() -> update()));
+    // file and process work is kept off the non UI executor, so that a slow file system cannot delay the PV handling
+    private final BoundedTaskExecutor<BlockingTask> blockingExecutor = new BoundedTaskExecutor<>(
+            "Orbit Correction I/O",AFTER_EXECUTE);
+    private final WriteLatencyStatistics writeLatency = new WriteLatencyStatistics();
+    private final WriteCoalescer<Object> writeCoalescer = new WriteCoalescer<>(scheduler,
+            Preferences.getInstance().getWriteQuietPeriod(),writeLatency);
+    private final PulseUpdateScheduler updateScheduler = new PulseUpdateScheduler(
+            Preferences.getInstance().getGUIUpdateInterval(),() -> update());
 
     /**
      * Constructs a new controller for the orbit correction view.
      */
     public OrbitCorrectionController() {
         createCorrectionResultsEntries();
-        nonUIexecutor.execute(() -> loadLatticeElements());
-        nonUIexecutor.execute(() -> connectPVs(Preferences.getInstance().getPVNames(),pvs,true));
-        nonUIexecutor.execute(() -> throttle.start());
-        mradProperty.addListener(e -> throttle.trigger());
+        //commands and orbit uploads are deliberate one-shot actions, which must never be coalesced
+        Arrays.stream(CHANNELS).filter(c -> c.getKind() == Channel.Kind.COMMAND)
+                .forEach(c -> writeCoalescer.setQuietPeriod(c,0));
+        EnumSet.of(Channel.GOLDEN_HORIZONTAL_ORBIT,Channel.GOLDEN_VERTICAL_ORBIT,Channel.HORIZONTAL_REFERENCE_ORBIT,
+                Channel.VERTICAL_REFERENCE_ORBIT,Channel.ORM).forEach(c -> writeCoalescer.setQuietPeriod(c,0));
+        for (BlockingTask kind : BlockingTask.values()) {
+            blockingExecutor.setLimit(kind,kind.limit);
+        }
+        //the engine publishes the rolling statistics, spectra and correlations from its own analysis thread
+        engine.setSpectrumLength(Preferences.getInstance().getSpectrumLength());
+        engine.setRollingWindow(rollingWindowProperty.get());
+        rollingWindowProperty.addListener((a, o, n) -> {
+            if (n == null) {
+                rollingWindowProperty.set(o);
+                return;
+            }
+            engine.setRollingWindow(n);
+        });
+        updateScheduler.setAdaptiveRange(Preferences.getInstance().getGUIUpdateInterval(),
+                Preferences.getInstance().getGUIUpdateIntervalMax());
+        engine.addListener(new OrbitEngineListener() {
+
+            @Override
+            public void channelAdded(ChannelState state) {
+                PVConnectionEntry entry = new PVConnectionEntry(state.getChannel().getKey(),state.getPVName());
+                connectionEntries.set(state.getChannel().ordinal(),entry);
+                UI_EXECUTOR.execute(() -> pvConnections.add(entry));
+                postConnectionChange(state.getChannel());
+            }
+
+            @Override
+            public void valueChanged(ChannelState state) {
+                //paired orbits are marked dirty when they are paired
+                if (!state.getChannel().isLattice() && PairedOrbit.of(state.getChannel()) == null) {
+                    dirtyPVs.set(state.getChannel().ordinal());
+                    updateScheduler.trigger();
+                }
+            }
+
+            @Override
+            public void connectionChanged(ChannelState state) {
+                postConnectionChange(state.getChannel());
+            }
+
+            @Override
+            public void allConnectedChanged(boolean allConnected) {
+                //the value is read on the UI thread, so that transitions posted in the wrong order cannot overwrite it
+                UI_EXECUTOR.execute(() -> allConnectedProperty.set(engine.isAllConnected()));
+            }
+
+            @Override
+            public void latticeChanged(LatticeUpdate update) {
+                UI_EXECUTOR.execute(() -> applyLatticeUpdate(update));
+            }
+
+            @Override
+            public void orbitFramesPaired(PairedOrbit orbit, OrbitFrame horizontal, OrbitFrame vertical) {
+                //an incomplete pair only replaces its own plane; the other plane keeps the last frame
+                displayedPairs.getAndUpdate(orbit.ordinal(),old -> new OrbitFrame[] {
+                        horizontal != null || old == null ? horizontal : old[0],
+                        vertical != null || old == null ? vertical : old[1] });
+                dirtyPVs.set(orbit.getHorizontal().ordinal());
+                updateScheduler.trigger();
+            }
+
+            @Override
+            public void orbitFrameReceived(Channel channel, OrbitFrame frame) {
+                receivedFrames.set(channel.ordinal(),frame);
+            }
+
+            @Override
+            public void rollingStatisticsChanged(boolean horizontal, RollingWindow window, BPMStatistics statistics,
+                    OrbitFrame noise) {
+                if (updateScheduler.isRunning()) {
+                    updateRollingStatistics(statistics,noise,
+                            horizontal ? SeriesType.HORIZONTAL_ORBIT_NOISE : SeriesType.VERTICAL_ORBIT_NOISE,
+                            horizontal ? Channel.HORIZONTAL_ORBIT_STATISTICS : Channel.VERTICAL_ORBIT_STATISTICS);
+                }
+            }
+
+            @Override
+            public void spectrumChanged(boolean horizontal, BPMSpectrum spectrum) {
+                if (updateScheduler.isRunning()) {
+                    UI_EXECUTOR.execute(() -> spectrumCallbacks.forEach(c -> c.accept(horizontal,spectrum)));
+                }
+            }
+
+            @Override
+            public void correlationChanged(BPMCorrelation correlation) {
+                if (updateScheduler.isRunning()) {
+                    UI_EXECUTOR.execute(() -> correlationCallbacks.forEach(c -> c.accept(correlation)));
+                }
+            }
+
+            @Override
+            public void message(String message, Level level, Throwable cause) {
+                writeToLog(message,level,ofNullable(cause));
+            }
+        });
+        nonUIexecutor.execute(() -> {
+            //the lattice and the other PVs are connected at the same time; the UI updates start once the lattice is
+            //known, until then the received values are only marked dirty
+            if (Preferences.getInstance().isSimulation()) {
+                startSimulation();
+            }
+            Preferences.getInstance().getMaxRates().forEach(engine::setMaxRate);
+            engine.setPairingTolerance(Duration.ofMillis(Preferences.getInstance().getOrbitPairingTolerance()));
+            engine.setMaxCorrelationSize(Preferences.getInstance().getCorrelationMaxBPMs());
+            final CompletableFuture<Void> latticeReady = loadLatticeElements();
+            engine.connect(Preferences.getInstance().getPVNames());
+            updateScheduler.trigger();
+            latticeReady.whenComplete((r, t) -> executeNonUI(() -> latticeLoaded(t)));
+            CompletableFuture.allOf(engine.getChannels().map(ChannelState::getFirstValue)
+                    .toArray(CompletableFuture[]::new)).thenRun(() -> executeNonUI(this::logStartupTimeline));
+        });
+        mradProperty.addListener(e -> {
+            //the values in the other unit were not displayed, so show them now
+            markDirty(Channel.HORIZONTAL_CORRECTOR_MRAD,Channel.VERTICAL_CORRECTOR_MRAD,Channel.HORIZONTAL_CORRECTOR_MA,
+                    Channel.VERTICAL_CORRECTOR_MA);
+            updateScheduler.trigger();
+        });
     }
 
     /**
@@ -367,6 +483,27 @@ public class OrbitCorrectionController {
         latticeUpdateCallbacks.remove(consumer);
     }
 
+    /**
+     * Add a callback listener, which is notified when the IOC inserts, removes or reorders a few lattice elements of
+     * one type. The listener receives the new snapshot of the elements and the list of changes. The elements that were
+     * not removed are the same objects as before the change. When most of the elements of a type change, the lattice
+     * update callbacks are notified instead. The listener is always notified on the UI thread.
+     *
+     * @param consumer the listener
+     */
+    public void addLatticeChangeCallback(BiConsumer<LatticeSnapshot<?>,List<LatticeChange>> consumer) {
+        latticeChangeCallbacks.add(consumer);
+    }
+
+    /**
+     * Remove a lattice change callback listener.
+     *
+     * @param consumer the listener to remove
+     */
+    public void removeLatticeChangeCallback(BiConsumer<LatticeSnapshot<?>,List<LatticeChange>> consumer) {
+        latticeChangeCallbacks.remove(consumer);
+    }
+
     /**
      * Add a callback listener, which is notified when the lattice is updated. The parameter specifies which type of
      * elements were updated.
@@ -387,89 +524,319 @@ public class OrbitCorrectionController {
     }
 
     /**
-     * Returns the list of all horizontal beam position monitors.
+     * Add a callback listener, which is notified whenever a new orbit frame is received for any of the orbit series
+     * (current, golden, reference or difference orbit in either plane) and whenever the orbit noise is updated from
+     * the rolling statistics. The listener is always notified on the UI thread and receives the frame as it was built
+     * from the PV value. The frame must not be modified.
      *
-     * @return list of horizontal BPMs
+     * @param consumer the listener
      */
-    public List<BPM> getHorizontalBPMs() {
-        synchronized (horizontalBPMs) {
-            return new ArrayList<>(horizontalBPMs);
-        }
+    public void addOrbitFrameCallback(BiConsumer<SeriesType,OrbitFrame> consumer) {
+        orbitFrameCallbacks.add(consumer);
     }
 
     /**
-     * Returns the list of all vertical beam position monitors.
+     * Remove an orbit frame callback listener.
      *
-     * @return list of vertical BPMs
+     * @param consumer the listener to remove
      */
-    public List<BPM> getVerticalBPMs() {
-        synchronized (verticalBPMs) {
-            return new ArrayList<>(verticalBPMs);
-        }
+    public void removeOrbitFrameCallback(BiConsumer<SeriesType,OrbitFrame> consumer) {
+        orbitFrameCallbacks.remove(consumer);
+    }
+
+    /**
+     * Add a callback listener, which is notified whenever new kick values of the horizontal or vertical correctors
+     * have been applied to the correction properties. The listener is always notified on the UI thread and receives
+     * the type of the correctors that were updated.
+     *
+     * @param consumer the listener
+     */
+    public void addCorrectionCallback(Consumer<LatticeElementType> consumer) {
+        correctionCallbacks.add(consumer);
+    }
+
+    /**
+     * Remove a correction callback listener.
+     *
+     * @param consumer the listener to remove
+     */
+    public void removeCorrectionCallback(Consumer<LatticeElementType> consumer) {
+        correctionCallbacks.remove(consumer);
+    }
+
+    /**
+     * Add a callback listener, which is notified about the noise spectra of the BPMs. The spectra are computed over
+     * the latest frames in the orbit history about once per second, but only while at least one listener is
+     * registered. The listener is always notified on the UI thread; the first parameter is true for the horizontal and
+     * false for the vertical plane.
+     *
+     * @param consumer the listener
+     */
+    public void addSpectrumCallback(BiConsumer<Boolean,BPMSpectrum> consumer) {
+        spectrumCallbacks.add(consumer);
+        engine.setSpectrumEnabled(true);
     }
 
     /**
-     * Returns the list of all horizontal correctors.
+     * Remove a spectrum callback listener.
      *
-     * @return list of all horizontal correctors
+     * @param consumer the listener to remove
      */
-    public List<Corrector> getHorizontalCorrectors() {
-        synchronized (horizontalCorrectors) {
-            return new ArrayList<>(horizontalCorrectors);
+    public void removeSpectrumCallback(BiConsumer<Boolean,BPMSpectrum> consumer) {
+        spectrumCallbacks.remove(consumer);
+        if (spectrumCallbacks.isEmpty()) {
+            engine.setSpectrumEnabled(false);
         }
     }
 
     /**
-     * Returns the list of all vertical correctors.
+     * Add a callback listener, which is notified about the correlations between the BPMs of both planes about once per
+     * second. The correlations are only accumulated while at least one listener is registered; they start from
+     * scratch when the first listener is added. The listener is always notified on the UI thread.
+     *
+     * @param consumer the listener
+     */
+    public void addCorrelationCallback(Consumer<BPMCorrelation> consumer) {
+        correlationCallbacks.add(consumer);
+        engine.setCorrelationEnabled(true);
+    }
+
+    /**
+     * Remove a correlation callback listener. When the last listener is removed, the accumulated correlations are
+     * discarded.
      *
-     * @return list of all vertical correctors
+     * @param consumer the listener to remove
      */
-    public List<Corrector> getVerticalCorrectors() {
-        synchronized (verticalCorrectors) {
-            return new ArrayList<>(verticalCorrectors);
+    public void removeCorrelationCallback(Consumer<BPMCorrelation> consumer) {
+        correlationCallbacks.remove(consumer);
+        if (correlationCallbacks.isEmpty()) {
+            engine.setCorrelationEnabled(false);
         }
     }
 
     /**
-     * Returns the list of all quadrupole magnets.
+     * @return the maximum number of BPMs of both planes together, for which the correlations are computed
+     */
+    public int getMaxCorrelationBPMs() {
+        return engine.getMaxCorrelationSize();
+    }
+
+    /**
+     * Discards the accumulated BPM correlations, e.g. after a BPM has been repaired.
+     */
+    public void resetCorrelation() {
+        engine.resetCorrelation();
+        writeToLog("BPM correlations reset.",Level.INFO,empty());
+    }
+
+    /**
+     * Returns the history of the received horizontal or vertical orbits. The history receives every orbit update
+     * (not only the ones that were displayed) and can be read from any thread.
+     *
+     * @param horizontal true for the horizontal orbit history or false for the vertical one
+     * @return the orbit history
+     */
+    public OrbitHistory getOrbitHistory(boolean horizontal) {
+        return engine.getOrbitHistory(horizontal);
+    }
+
+    /**
+     * Returns the latest orbit frame received for the given series type. This method should only be called from the
+     * UI thread.
+     *
+     * @param type the orbit series type
+     * @return the latest frame if it exists
+     */
+    public Optional<OrbitFrame> getOrbitFrame(SeriesType type) {
+        return ofNullable(orbitFrames.get(type));
+    }
+
+    /**
+     * Sets the range along the ring over which the locally computed orbit statistics are computed and recomputes the
+     * statistics of the latest frames. Only the BPMs located within the range take part. If the start of the range is
+     * greater than its end, the range wraps around the end of the ring. This method should only be called from the UI
+     * thread.
      *
-     * @return list of quadrupoles
+     * @param from the start of the range in meters
+     * @param to the end of the range in meters
      */
-    public List<LatticeElement> getQuadrupoles() {
-        synchronized (quadrupoles) {
-            return new ArrayList<>(quadrupoles);
+    public void setStatisticsRange(double from, double to) {
+        if (statisticsFrom == from && statisticsTo == to) return;
+        statisticsFrom = from;
+        statisticsTo = to;
+        if (localStatistics) {
+            orbitFrames.forEach((type, frame) -> updateOrbitStatistics(frame,type));
         }
     }
 
     /**
-     * Returns the list of all dipoles magnets.
+     * Returns the per BPM statistics of the measured orbit in the given plane over the given rolling window. The
+     * statistics are computed from all received orbit frames, regardless of the GUI update rate.
+     *
+     * @param horizontal true for the horizontal or false for the vertical plane
+     * @param window the rolling window
+     * @return the snapshot of the rolling statistics
+     */
+    public BPMStatistics getRollingStatistics(boolean horizontal, RollingWindow window) {
+        return engine.getRollingStatistics(horizontal,window).snapshot();
+    }
+
+    /**
+     * Returns the property that stores the rolling window over which the orbit noise and the stuck BPMs are shown.
+     * The statistics of all windows are always computed, so the window can be changed at any time and the new window
+     * is shown immediately. The initial window is defined in the preferences.
+     *
+     * @return the rolling window property
+     */
+    public ObjectProperty<RollingWindow> rollingWindowProperty() {
+        return rollingWindowProperty;
+    }
+
+    /**
+     * Sets the visibility of an orbit series. The BPM properties which belong to the series are only updated while the
+     * series is visible. When the series becomes visible the latest received orbit frame is applied to the properties.
+     * Golden orbit properties are always updated, regardless of the visibility. This method should only be called
+     * from the UI thread.
      *
-     * @return list of dipoles
+     * @param type the series type
+     * @param visible true if the series is visible or false otherwise
      */
-    public List<LatticeElement> getDipoles() {
-        synchronized (dipoles) {
-            return new ArrayList<>(dipoles);
+    public void setSeriesVisible(SeriesType type, boolean visible) {
+        if (visible) {
+            if (visibleSeries.add(type)) {
+                ofNullable(orbitFrames.get(type)).ifPresent(frame -> applyOrbitFrame(frame,type));
+            }
+        } else {
+            visibleSeries.remove(type);
         }
     }
 
     /**
-     * Returns the list of all sextupoles magnets.
+     * Returns the latency statistics of the PV writes, which measure the time from the moment a write is requested
+     * until the IOC confirms or rejects it, grouped by the role of the written channel.
+     *
+     * @return the write latency statistics
+     */
+    public WriteLatencyStatistics getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * Returns the names, positions and enable states of all lattice elements of the given type as parallel arrays.
+     * The arrays are not copied and must not be modified. Unlike the element lists, the arrays can be read from any
+     * thread without locking and without copying, which makes them the preferred source for large lattices.
+     *
+     * @param type the lattice element type
+     * @return the lattice arrays of the given type
+     */
+    public LatticeArrays getLatticeArrays(LatticeElementType type) {
+        return engine.getLatticeArrays(type);
+    }
+
+    /**
+     * Returns the snapshot of all horizontal beam position monitors.
+     *
+     * @return the snapshot of horizontal BPMs
+     */
+    public LatticeSnapshot<BPM> getHorizontalBPMs() {
+        return getLatticeSnapshot(LatticeElementType.HORIZONTAL_BPM,BPM.class);
+    }
+
+    /**
+     * Returns the snapshot of all vertical beam position monitors.
+     *
+     * @return the snapshot of vertical BPMs
+     */
+    public LatticeSnapshot<BPM> getVerticalBPMs() {
+        return getLatticeSnapshot(LatticeElementType.VERTICAL_BPM,BPM.class);
+    }
+
+    /**
+     * Returns the snapshot of all horizontal correctors.
+     *
+     * @return the snapshot of all horizontal correctors
+     */
+    public LatticeSnapshot<Corrector> getHorizontalCorrectors() {
+        return getLatticeSnapshot(LatticeElementType.HORIZONTAL_CORRECTOR,Corrector.class);
+    }
+
+    /**
+     * Returns the snapshot of all vertical correctors.
+     *
+     * @return the snapshot of all vertical correctors
+     */
+    public LatticeSnapshot<Corrector> getVerticalCorrectors() {
+        return getLatticeSnapshot(LatticeElementType.VERTICAL_CORRECTOR,Corrector.class);
+    }
+
+    /**
+     * Returns the snapshot of all quadrupole magnets.
+     *
+     * @return the snapshot of quadrupoles
+     */
+    public LatticeSnapshot<LatticeElement> getQuadrupoles() {
+        return getLatticeSnapshot(LatticeElementType.QUADRUPOLE,LatticeElement.class);
+    }
+
+    /**
+     * Returns the snapshot of all dipoles magnets.
+     *
+     * @return the snapshot of dipoles
+     */
+    public LatticeSnapshot<LatticeElement> getDipoles() {
+        return getLatticeSnapshot(LatticeElementType.DIPOLE,LatticeElement.class);
+    }
+
+    /**
+     * Returns the snapshot of all sextupoles magnets.
+     *
+     * @return the snapshot of sextupoles
+     */
+    public LatticeSnapshot<LatticeElement> getSextupoles() {
+        return getLatticeSnapshot(LatticeElementType.SEXTUPOLE,LatticeElement.class);
+    }
+
+    /**
+     * Returns the latest snapshot of the lattice elements of the given type. The snapshot is not copied and can be read
+     * from any thread. A snapshot with a new version is published whenever elements of the type are added or removed.
+     *
+     * @param type the lattice element type
+     * @return the snapshot of the elements
+     */
+    public LatticeSnapshot<? extends LatticeElement> getLatticeSnapshot(LatticeElementType type) {
+        return latticeSnapshots.get(type.ordinal());
+    }
+
+    /**
+     * Returns the latest snapshot of the lattice elements of the given type as a snapshot of the given element class.
      *
-     * @return list of sextupoles
+     * @param type the lattice element type
+     * @param elementClass the class of the elements, which has to be the class or a super class of the elements of
+     *            the given type
+     * @param <T> the type of the elements
+     * @return the snapshot of the elements
+     * @throws IllegalArgumentException if the elements of the given type are not instances of the element class
+     * @see #getLatticeSnapshot(LatticeElementType)
      */
-    public List<LatticeElement> getSextupoles() {
-        synchronized (sextupoles) {
-            return new ArrayList<>(sextupoles);
+    public <T extends LatticeElement> LatticeSnapshot<T> getLatticeSnapshot(LatticeElementType type,
+            Class<T> elementClass) {
+        if (!elementClass.isAssignableFrom(getElementClass(type))) {
+            throw new IllegalArgumentException(
+                    String.format("%s elements are not instances of %s.",type,elementClass.getSimpleName()));
         }
+        //the snapshots of the type only contain instances of the element class
+        @SuppressWarnings("unchecked")
+        LatticeSnapshot<T> snapshot = (LatticeSnapshot<T>)latticeSnapshots.get(type.ordinal());
+        return snapshot;
     }
 
     /**
-     * Returns the list of orbit correction results table entries. The keys are the PV keys and the values are the
-     * actual table entries
+     * Returns the list of orbit correction results table entries. The keys are the statistics channels and the values
+     * are the actual table entries
      *
      * @return list of orbit correction results table entries
      */
-    public Map<String,OrbitCorrectionResultsEntry> getOrbitCorrectionResults() {
+    public Map<Channel,OrbitCorrectionResultsEntry> getOrbitCorrectionResults() {
         return correctionResultsEntries;
     }
 
@@ -500,13 +867,29 @@ public class OrbitCorrectionController {
         return allConnectedProperty;
     }
 
-    private synchronized void updateConnected() {
-        boolean allConnected = pvs.values().stream().allMatch(pv -> pv.connected.get());
-        if (allConnected) {
-            allConnected = slowPVs.values().stream().allMatch(pv -> pv.connected.get());
+    /**
+     * Returns the list of connection states of all PVs. The list is only modified on the UI thread.
+     *
+     * @return the PV connections table entries
+     */
+    public ObservableList<PVConnectionEntry> getPVConnections() {
+        return pvConnections;
+    }
+
+    /**
+     * Marks the connection table entry of the channel for an update. The changed entries are collected and applied in a
+     * single UI runnable, so that a burst of connection events (e.g. an IOC restart) does not flood the UI thread.
+     *
+     * @param channel the channel whose connection state changed
+     */
+    private void postConnectionChange(Channel channel) {
+        connectionChanges.set(channel.ordinal());
+        if (connectionUpdatePosted.compareAndSet(false,true)) {
+            UI_EXECUTOR.execute(() -> {
+                connectionUpdatePosted.set(false);
+                connectionChanges.drain(connectionChangeHandler);
+            });
         }
-        final boolean update = allConnected;
-        UI_EXECUTOR.execute(() -> allConnectedProperty.set(update));
     }
 
     /**
@@ -519,9 +902,9 @@ public class OrbitCorrectionController {
             correctionAlgorithmProperty = new SimpleObjectProperty<>(this,"correctionAlgorithm",
                     CorrectionAlgorithm.SPLIT);
             correctionAlgorithmProperty.addListener((a, o, n) -> {
-                ofNullable(pvs.get(Preferences.PV_CORRECTION_ALGORITHM)).ifPresent(pv -> {
-                    if (Integer.compare(n.ordinal(),((VEnum)pv.value).getIndex()) != 0) {
-                        writeData(pv,n.ordinal(),null,null,20);
+                getPV(Channel.CORRECTION_ALGORITHM).filter(pv -> pv.getIndex() > -1).ifPresent(pv -> {
+                    if (n.ordinal() != pv.getIndex()) {
+                        writeData(pv,n.ordinal(),null,null);
                     }
                 });
                 splitAlgorithmProperty().set(n == CorrectionAlgorithm.SPLIT);
@@ -570,10 +953,10 @@ public class OrbitCorrectionController {
         if (horizontalCutOffProperty == null) {
             horizontalCutOffProperty = new SimpleDoubleProperty(this,"horizontalCutoff",0);
             horizontalCutOffProperty.addListener((a, o, n) -> {
-                getNumberPV.apply(Preferences.PV_HORIZONTAL_CUTOFF).ifPresent(pv -> {
-                    if (Double.compare(n.doubleValue(),((VNumber)pv.value).getValue().doubleValue()) != 0) {
+                getNumberPV(Channel.HORIZONTAL_CUTOFF).ifPresent(pv -> {
+                    if (Double.compare(n.doubleValue(),pv.getNumber()) != 0) {
                         writeData(pv,n.doubleValue(),String.format(MSG_CUTOFF_SUCCESS,"Horizontal",n.doubleValue()),
-                                String.format(MSG_CUTOFF_FAILURE,"horizontal"),1);
+                                String.format(MSG_CUTOFF_FAILURE,"horizontal"));
                     }
                 });
             });
@@ -590,10 +973,10 @@ public class OrbitCorrectionController {
         if (verticalCutOffProperty == null) {
             verticalCutOffProperty = new SimpleDoubleProperty(this,"verticalCutoff",0);
             verticalCutOffProperty.addListener((a, o, n) -> {
-                getNumberPV.apply(Preferences.PV_VERTICAL_CUTOFF).ifPresent(pv -> {
-                    if (Double.compare(n.doubleValue(),((VNumber)pv.value).getValue().doubleValue()) != 0) {
+                getNumberPV(Channel.VERTICAL_CUTOFF).ifPresent(pv -> {
+                    if (Double.compare(n.doubleValue(),pv.getNumber()) != 0) {
                         writeData(pv,n.doubleValue(),String.format(MSG_CUTOFF_SUCCESS,"Vertical",n.doubleValue()),
-                                String.format(MSG_CUTOFF_FAILURE,"vertical"),2);
+                                String.format(MSG_CUTOFF_FAILURE,"vertical"));
                     }
                 });
             });
@@ -612,11 +995,11 @@ public class OrbitCorrectionController {
         if (horizontalCorrectionFactorProperty == null) {
             horizontalCorrectionFactorProperty = new SimpleIntegerProperty(this,"horizontalCorrectionFactor",0);
             horizontalCorrectionFactorProperty.addListener((a, o, n) -> {
-                getNumberPV.apply(Preferences.PV_HORIZONTAL_CORRECTION_FRACTION).ifPresent(pv -> {
-                    if (n.intValue() != (int)(100 * ((VNumber)pv.value).getValue().doubleValue())) {
+                getNumberPV(Channel.HORIZONTAL_CORRECTION_FRACTION).ifPresent(pv -> {
+                    if (n.intValue() != (int)(100 * pv.getNumber())) {
                         writeData(pv,n.doubleValue() / 100.,
                                 String.format(MSG_CORRECTION_FACTOR_SUCCESS,"Horizontal",n.intValue()),
-                                String.format(MSG_CORRECTION_FACTOR_FAILURE,"horizontal"),3);
+                                String.format(MSG_CORRECTION_FACTOR_FAILURE,"horizontal"));
                     }
                 });
             });
@@ -635,11 +1018,11 @@ public class OrbitCorrectionController {
         if (verticalCorrectionFactorProperty == null) {
             verticalCorrectionFactorProperty = new SimpleIntegerProperty(this,"verticalCorrectionFactor",0);
             verticalCorrectionFactorProperty.addListener((a, o, n) -> {
-                getNumberPV.apply(Preferences.PV_VERTICAL_CORRECTION_FRACTION).ifPresent(pv -> {
-                    if (n.intValue() != (int)(100 * ((VNumber)pv.value).getValue().doubleValue())) {
+                getNumberPV(Channel.VERTICAL_CORRECTION_FRACTION).ifPresent(pv -> {
+                    if (n.intValue() != (int)(100 * pv.getNumber())) {
                         writeData(pv,n.doubleValue() / 100.,
                                 String.format(MSG_CORRECTION_FACTOR_SUCCESS,"Vertical",n.intValue()),
-                                String.format(MSG_CORRECTION_FACTOR_FAILURE,"vertical"),3);
+                                String.format(MSG_CORRECTION_FACTOR_FAILURE,"vertical"));
                     }
                 });
             });
@@ -662,17 +1045,17 @@ public class OrbitCorrectionController {
                 }
             };
             correctionPeriodProperty.addListener((a, o, n) -> {
-                ofNullable(pvs.get(Preferences.PV_CORRECTION_FREQUENCY)).ifPresent(pv -> {
+                getNumberPV(Channel.CORRECTION_FREQUENCY).ifPresent(pv -> {
                     double val = n.doubleValue() < 0.1 ? 0.1 : n.doubleValue();
-                    if (Math.abs(val - (1. / ((VNumber)pv.value).getValue().doubleValue())) > 0.0005) {
+                    if (Math.abs(val - (1. / pv.getNumber())) > 0.0005) {
                         //create listener to execute proc after the period was written
-                        writeData(pv,1. / val,21,event -> {
-                            if (event.isWriteSucceeded()) {
-                                ofNullable(pvs.get(Preferences.PV_CORRECTION_FREQUENCY_PROC))
+                        writeData(pv,1. / val,failure -> {
+                            if (failure == null) {
+                                getPV(Channel.CORRECTION_FREQUENCY_PROC)
                                         .ifPresent(procPv -> writeData(procPv,1,String.format(MSG_PERIOD_SUCCESS,val),
-                                                MSG_PERIOD_FAILURE,22));
-                            } else if (event.isWriteFailed()) {
-                                writeFailure(event,MSG_PERIOD_FAILURE);
+                                                MSG_PERIOD_FAILURE));
+                            } else {
+                                writeFailure(failure,MSG_PERIOD_FAILURE);
                             }
                         });
                     }
@@ -686,7 +1069,7 @@ public class OrbitCorrectionController {
      * Calls the command which resets the correction values to the current steerer setpoints.
      */
     public void resetOrbitCorrection() {
-        executeCommand(Preferences.PV_RESET_CORRECTION,MSG_RESET_CORRECTION_CMD_SUCCESS,
+        executeCommand(Channel.RESET_CORRECTION,MSG_RESET_CORRECTION_CMD_SUCCESS,
                 MSG_RESET_CORRECTION_CMD_FAILURE);
     }
 
@@ -694,7 +1077,7 @@ public class OrbitCorrectionController {
      * Calls command which starts measuring orbit and updating horizontal and vertical orbit periodically.
      */
     public void startMeasuringOrbit() {
-        executeCommand(Preferences.PV_START_MEASURING_ORBIT,MSG_START_ORBIT_MEASURING_CMD_SUCCESS,
+        executeCommand(Channel.START_MEASURING_ORBIT,MSG_START_ORBIT_MEASURING_CMD_SUCCESS,
                 MSG_START_ORBIT_MEASURING_CMD_FAILURE);
     }
 
@@ -703,7 +1086,7 @@ public class OrbitCorrectionController {
      * time.
      */
     public void stopMeasuringOrbit() {
-        executeCommand(Preferences.PV_STOP_MEASURING_ORBIT,MSG_STOP_ORBIT_MEASURING_CMD_SUCCESS,
+        executeCommand(Channel.STOP_MEASURING_ORBIT,MSG_STOP_ORBIT_MEASURING_CMD_SUCCESS,
                 MSG_STOP_ORBIT_MEASURING_CMD_FAILURE);
     }
 
@@ -711,7 +1094,7 @@ public class OrbitCorrectionController {
      * Calls command which performs one orbit measurement for X and Y and update horizontal and vertical orbit.
      */
     public void measureOrbitOnce() {
-        executeCommand(Preferences.PV_MEASURE_ORBIT_ONCE,MSG_MEASURE_ORBIT_ONCE_CMD_SUCCESS,
+        executeCommand(Channel.MEASURE_ORBIT_ONCE,MSG_MEASURE_ORBIT_ONCE_CMD_SUCCESS,
                 MSG_MEASURE_ORBIT_ONCE_CMD_FAILURE);
     }
 
@@ -719,7 +1102,7 @@ public class OrbitCorrectionController {
      * Calls command which starts measuring orbit periodically and perform orbit correction for every measurement.
      */
     public void startCorrectingOrbit() {
-        executeCommand(Preferences.PV_START_CORRECTING_ORBIT,MSG_START_CORRECTING_ORBIT_CMD_SUCCESS,
+        executeCommand(Channel.START_CORRECTING_ORBIT,MSG_START_CORRECTING_ORBIT_CMD_SUCCESS,
                 MSG_START_CORRECTING_ORBIT_CMD_FAILURE);
     }
 
@@ -727,7 +1110,7 @@ public class OrbitCorrectionController {
      * Calls command which stops measuring orbit, all PVs keep their last value.
      */
     public void stopCorrectingOrbit() {
-        executeCommand(Preferences.PV_STOP_CORRECTING_ORBIT,MSG_STOP_CORRECTING_ORBIT_CMD_SUCCESS,
+        executeCommand(Channel.STOP_CORRECTING_ORBIT,MSG_STOP_CORRECTING_ORBIT_CMD_SUCCESS,
                 MSG_STOP_CORRECTING_ORBIT_CMD_FAILURE);
     }
 
@@ -737,15 +1120,15 @@ public class OrbitCorrectionController {
     public void correctOrbitOnce() {
         CorrectionAlgorithm algorithm = correctionAlgorithmProperty().get();
         if (algorithm == CorrectionAlgorithm.COUPLED) {
-            executeCommand(Preferences.PV_CORRECT_ORBIT_ONCE,MSG_CORRECT_ORBIT_ONCE_CMD_SUCCESS,
+            executeCommand(Channel.CORRECT_ORBIT_ONCE,MSG_CORRECT_ORBIT_ONCE_CMD_SUCCESS,
                     MSG_CORRECT_ORBIT_ONCE_CMD_FAILURE);
         } else {
-            if (!throttle.isRunning()) return;
+            if (!updateScheduler.isRunning()) return;
             //first switch the algorithm. If successful, execute the orbit correction once.
             //after that wait for the status to become IDLE and then switch the algorithm back.
-            ofNullable(pvs.get(Preferences.PV_CORRECTION_ALGORITHM)).ifPresent(algorithmPV -> {
-                writeData(algorithmPV,CorrectionAlgorithm.COUPLED.ordinal(),20,event -> {
-                    if (event.isWriteSucceeded()) {
+            getPV(Channel.CORRECTION_ALGORITHM).ifPresent(algorithmPV -> {
+                writeData(algorithmPV,CorrectionAlgorithm.COUPLED.ordinal(),failure -> {
+                    if (failure == null) {
                         ChangeListener<String> statusListener = new ChangeListener<String>() {
 
                             private boolean hasFlipped = false;
@@ -765,11 +1148,11 @@ public class OrbitCorrectionController {
                         };
                         //add listener to status property to find out when it changed back to idle to IDLE
                         statusProperty().addListener(statusListener);
-                        ofNullable(pvs.get(Preferences.PV_CORRECT_ORBIT_ONCE))
+                        getPV(Channel.CORRECT_ORBIT_ONCE)
                                 .ifPresent(correctPV -> writeData(correctPV,null,MSG_CORRECT_ORBIT_ONCE_CMD_SUCCESS,
-                                        MSG_CORRECT_ORBIT_ONCE_CMD_FAILURE,22));
-                    } else if (event.isWriteFailed()) {
-                        writeFailure(event,MSG_CORRECT_ORBIT_ONCE_CMD_FAILURE);
+                                        MSG_CORRECT_ORBIT_ONCE_CMD_FAILURE));
+                    } else {
+                        writeFailure(failure,MSG_CORRECT_ORBIT_ONCE_CMD_FAILURE);
                     }
                 });
             });
@@ -784,8 +1167,9 @@ public class OrbitCorrectionController {
      */
     public void exportCurrentOrbit(File file, Optional<String> comment) {
         Preferences.getInstance().saveInitialDirectory(file.getParentFile());
-        writeOrbitToFile(file,comment.orElse(null),Preferences.PV_HORIZONTAL_ORBIT,Preferences.PV_VERTICAL_ORBIT,
-                MSG_EXPORT_CURRENT_ORBIT_SUCCESS,MSG_EXPORT_CURRENT_ORBIT_FAILURE);
+        final ListNumber[] orbit = getAlignedOrbit();
+        writeOrbitToFile(file,comment.orElse(null),orbit[0],orbit[1],MSG_EXPORT_CURRENT_ORBIT_SUCCESS,
+                MSG_EXPORT_CURRENT_ORBIT_FAILURE);
     }
 
     /**
@@ -798,15 +1182,15 @@ public class OrbitCorrectionController {
         ToDoubleFunction<BPM> mapper = bpm -> bpm.goldenPositionWishProperty().get();
         if (horizontal) {
             final ArrayDouble hValues = new ArrayDouble(getHorizontalBPMs().stream().mapToDouble(mapper).toArray());
-            ofNullable(pvs.get(Preferences.PV_GOLDEN_HORIZONTAL_ORBIT))
+            getPV(Channel.GOLDEN_HORIZONTAL_ORBIT)
                     .ifPresent(pv -> writeData(pv,hValues,String.format(MSG_UPLOAD_GOLDEN_ORBIT_SUCCESS,"Horizontal"),
-                            String.format(MSG_UPLOAD_GOLDEN_ORBIT_FAILURE,"horizontal"),4));
+                            String.format(MSG_UPLOAD_GOLDEN_ORBIT_FAILURE,"horizontal")));
         }
         if (vertical) {
             final ArrayDouble vValues = new ArrayDouble(getVerticalBPMs().stream().mapToDouble(mapper).toArray());
-            ofNullable(pvs.get(Preferences.PV_GOLDEN_VERTICAL_ORBIT))
+            getPV(Channel.GOLDEN_VERTICAL_ORBIT)
                     .ifPresent(pv -> writeData(pv,vValues,String.format(MSG_UPLOAD_GOLDEN_ORBIT_SUCCESS,"Vertical"),
-                            String.format(MSG_UPLOAD_GOLDEN_ORBIT_FAILURE,"vertical"),5));
+                            String.format(MSG_UPLOAD_GOLDEN_ORBIT_FAILURE,"vertical")));
         }
     }
 
@@ -818,8 +1202,8 @@ public class OrbitCorrectionController {
      */
     @Deprecated
     public void uploadGoldenOrbit(File file) {
-        if (!throttle.isRunning()) return;
-        nonUIexecutor.execute(() -> {
+        if (!updateScheduler.isRunning()) return;
+        executeBlocking(BlockingTask.FILE_READ,() -> {
             try (BufferedReader reader = Files.newBufferedReader(Paths.get(file.getPath()))) {
                 int lineCounter = 0;
                 String line;
@@ -831,11 +1215,11 @@ public class OrbitCorrectionController {
                     }
                     String[] values = line.split(" ");
                     if (lineCounter == 1) {
-                        ofNullable(pvs.get(Preferences.PV_GOLDEN_HORIZONTAL_ORBIT))
-                                .ifPresent(pv -> convertAndWriteData(pv,values,"Golden Horizontal Orbit",0));
+                        getPV(Channel.GOLDEN_HORIZONTAL_ORBIT)
+                                .ifPresent(pv -> convertAndWriteData(pv,values,"Golden Horizontal Orbit"));
                     } else if (lineCounter == 2) {
-                        ofNullable(pvs.get(Preferences.PV_GOLDEN_VERTICAL_ORBIT))
-                                .ifPresent(pv -> convertAndWriteData(pv,values,"Golden Vertical Orbit",0));
+                        getPV(Channel.GOLDEN_VERTICAL_ORBIT)
+                                .ifPresent(pv -> convertAndWriteData(pv,values,"Golden Vertical Orbit"));
                     } else {
                         break;
                     }
@@ -855,50 +1239,44 @@ public class OrbitCorrectionController {
      */
     @Deprecated
     public void downloadGoldenOrbit(File file) {
-        writeOrbitToFile(file,null,Preferences.PV_GOLDEN_HORIZONTAL_ORBIT,Preferences.PV_GOLDEN_VERTICAL_ORBIT,
-                MSG_DOWNLOAD_GOLDEN_ORBIT_SUCCESS,MSG_DOWNLOAD_GOLDEN_ORBIT_FAILURE);
+        writeOrbitToFile(file,null,getNumberArray(Channel.GOLDEN_HORIZONTAL_ORBIT),
+                getNumberArray(Channel.GOLDEN_VERTICAL_ORBIT),MSG_DOWNLOAD_GOLDEN_ORBIT_SUCCESS,
+                MSG_DOWNLOAD_GOLDEN_ORBIT_FAILURE);
     }
 
     /**
      * Uses current horizontal and vertical orbit values as golden orbits.
      */
     public void useCurrent() {
-        if (!throttle.isRunning()) return;
-        final PV horizontalOrbit = pvs.get(Preferences.PV_HORIZONTAL_ORBIT);
-        final PV verticalOrbit = pvs.get(Preferences.PV_VERTICAL_ORBIT);
-        final PV goldenHorizontalOrbit = pvs.get(Preferences.PV_GOLDEN_HORIZONTAL_ORBIT);
-        final PV goldenVerticalOrbit = pvs.get(Preferences.PV_GOLDEN_VERTICAL_ORBIT);
-        if (horizontalOrbit != null && goldenHorizontalOrbit != null) {
-            writeData(goldenHorizontalOrbit,horizontalOrbit.value,MSG_USE_CURRENT_HORIZONTAL_SUCCESS,
-                    MSG_USE_CURRENT_HORIZONTAL_FAILURE,0);
+        if (!updateScheduler.isRunning()) return;
+        final ListNumber[] orbit = getAlignedOrbit();
+        final ListNumber horizontalOrbit = orbit[0];
+        final ListNumber verticalOrbit = orbit[1];
+        if (horizontalOrbit != null) {
+            getPV(Channel.GOLDEN_HORIZONTAL_ORBIT).ifPresent(pv -> writeData(pv,horizontalOrbit,
+                    MSG_USE_CURRENT_HORIZONTAL_SUCCESS,MSG_USE_CURRENT_HORIZONTAL_FAILURE));
         }
-        if (verticalOrbit != null && goldenVerticalOrbit != null) {
-            writeData(goldenVerticalOrbit,verticalOrbit.value,MSG_USE_CURRENT_VERTICAL_SUCCESS,
-                    MSG_USE_CURRENT_VERTICAL_FAILURE,0);
+        if (verticalOrbit != null) {
+            getPV(Channel.GOLDEN_VERTICAL_ORBIT).ifPresent(pv -> writeData(pv,verticalOrbit,
+                    MSG_USE_CURRENT_VERTICAL_SUCCESS,MSG_USE_CURRENT_VERTICAL_FAILURE));
         }
-        throttle.trigger();
+        updateScheduler.trigger();
     }
 
     /**
-     * Uses current horizontal or vertical orbit values as a reference orbit.
+     * Uses current horizontal or vertical orbit values of the latest time aligned orbit pair as a reference orbit.
      *
      * @param horizontal true if the horizontal reference orbit should be applied or false if vertical
      */
     public void useCurrentAsReference(boolean horizontal) {
-        if (!throttle.isRunning()) return;
-        final PV destination, source;
-        if (horizontal) {
-            destination = pvs.get(Preferences.PV_HORIZONTAL_REFERENCE_ORBIT);
-            source = pvs.get(Preferences.PV_HORIZONTAL_ORBIT);
-        } else {
-            destination = pvs.get(Preferences.PV_VERTICAL_REFERENCE_ORBIT);
-            source = pvs.get(Preferences.PV_VERTICAL_ORBIT);
-        }
-        if (destination != null && source != null) {
-            writeData(destination,source.value,MSG_USE_CURRENT_AS_REFERENCE_SUCCESS,
-                    MSG_USE_CURRENT_AS_REFERENCE_FAILURE,0);
+        if (!updateScheduler.isRunning()) return;
+        final ListNumber source = getAlignedOrbit()[horizontal ? 0 : 1];
+        if (source != null) {
+            getPV(horizontal ? Channel.HORIZONTAL_REFERENCE_ORBIT : Channel.VERTICAL_REFERENCE_ORBIT)
+                    .ifPresent(pv -> writeData(pv,source,MSG_USE_CURRENT_AS_REFERENCE_SUCCESS,
+                            MSG_USE_CURRENT_AS_REFERENCE_FAILURE));
         }
-        throttle.trigger();
+        updateScheduler.trigger();
     }
 
     /**
@@ -909,21 +1287,19 @@ public class OrbitCorrectionController {
      */
     @Deprecated
     public void downloadOrbitResponseMatrix(File file) {
-        if (!throttle.isRunning()) return;
-        final PV ormPV = pvs.get(Preferences.PV_ORM);
-        final PV horizontalOrbitPV = pvs.get(Preferences.PV_HORIZONTAL_ORBIT);
-        final PV horizontalCorrectorPV = pvs.get(Preferences.PV_HORIZONTAL_CORRECTOR_MA);
-        int n = horizontalOrbitPV != null ? ((VNumberArray)horizontalOrbitPV.value).getData().size() : -1;
-        int m = horizontalCorrectorPV != null ? ((VNumberArray)horizontalCorrectorPV.value).getData().size() : -1;
-        if (n == -1 || m == -1 || ormPV == null) {
+        if (!updateScheduler.isRunning()) return;
+        final ListNumber horizontalOrbit = getNumberArray(Channel.HORIZONTAL_ORBIT);
+        final ListNumber horizontalCorrector = getNumberArray(Channel.HORIZONTAL_CORRECTOR_MA);
+        if (horizontalOrbit == null || horizontalCorrector == null || !getPV(Channel.ORM).isPresent()) {
             return;
         }
-        final VNumberArray value = (VNumberArray)ormPV.value;
-        nonUIexecutor.execute(() -> {
+        final int n = horizontalOrbit.size();
+        final int m = horizontalCorrector.size();
+        final ListNumber data = getNumberArray(Channel.ORM);
+        executeBlocking(BlockingTask.FILE_WRITE,() -> {
             try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(file.getPath()),StandardCharsets.UTF_8)) {
-                if (value != null) {
+                if (data != null) {
                     StringBuilder sb = new StringBuilder(n * m * 15);
-                    ListNumber data = value.getData();
                     for (int i = 0; i < data.size(); i++) {
                         if (i != 0 && i % n == 0) {
                             sb.append(NEW_LINE);
@@ -947,16 +1323,16 @@ public class OrbitCorrectionController {
      */
     @Deprecated
     public void uploadOrbitResponseMatrix(File file) {
-        if (!throttle.isRunning()) return;
-        final PV ormPV = pvs.get(Preferences.PV_ORM);
-        final PV horizontalOrbitPV = pvs.get(Preferences.PV_HORIZONTAL_ORBIT);
-        final PV horizontalCorrectorPV = pvs.get(Preferences.PV_HORIZONTAL_CORRECTOR_MA);
-        final int n = horizontalOrbitPV != null ? ((VNumberArray)horizontalOrbitPV.value).getData().size() : -1;
-        final int m = horizontalCorrectorPV != null ? ((VNumberArray)horizontalCorrectorPV.value).getData().size() : -1;
-        if (n == -1 || m == -1 || ormPV == null) {
+        if (!updateScheduler.isRunning()) return;
+        final ChannelState ormPV = getPV(Channel.ORM).orElse(null);
+        final ListNumber horizontalOrbit = getNumberArray(Channel.HORIZONTAL_ORBIT);
+        final ListNumber horizontalCorrector = getNumberArray(Channel.HORIZONTAL_CORRECTOR_MA);
+        if (horizontalOrbit == null || horizontalCorrector == null || ormPV == null) {
             return;
         }
-        nonUIexecutor.execute(() -> {
+        final int n = horizontalOrbit.size();
+        final int m = horizontalCorrector.size();
+        executeBlocking(BlockingTask.FILE_READ,() -> {
             try (BufferedReader reader = Files.newBufferedReader(Paths.get(file.getPath()),StandardCharsets.UTF_8)) {
                 StringBuilder sb = new StringBuilder(n * m * 15);
                 String line;
@@ -969,7 +1345,7 @@ public class OrbitCorrectionController {
                     sb.append(line).append(' ');
                 }
                 String[] waveform = sb.toString().split(" ");
-                convertAndWriteData(ormPV,waveform,"Orbit response matrix",0);
+                convertAndWriteData(ormPV,waveform,"Orbit response matrix");
                 writeToLog(MSG_UPLOAD_ORM_SUCCESS,Level.INFO,empty());
             } catch (Exception e) {
                 writeToLog(MSG_UPLOAD_ORM_FAILURE,Level.SEVERE,of(e));
@@ -981,7 +1357,7 @@ public class OrbitCorrectionController {
      * Measure orbit response matrix.
      */
     public void measureOrbitResponseMatrix() {
-        Preferences.getInstance().getMeasureORMCommand().ifPresent(c -> nonUIexecutor.execute(() -> {
+        Preferences.getInstance().getMeasureORMCommand().ifPresent(c -> executeBlocking(BlockingTask.PROCESS,() -> {
             try {
                 Runtime.getRuntime().exec(c);
             } catch (IOException e) {
@@ -1018,18 +1394,44 @@ public class OrbitCorrectionController {
      */
     public void dispose() {
         nonUIexecutor.execute(() -> {
-            throttle.dispose();
+            updateScheduler.dispose();
             try {
                 //this should be enough to finish whatever is going on
-                throttle.join(3000);
+                updateScheduler.awaitStop(3000);
             } catch (InterruptedException e) {
                 OrbitCorrectionPlugin.LOGGER.log(Level.WARNING,"Failed to shutdown gracefully. Timeout ocurred.",e);
             }
-            synchronized (OrbitCorrectionController.this) {
-                pvs.values().parallelStream().forEach(v -> v.dispose());
-                pvs.clear();
-                slowPVs.values().parallelStream().forEach(v -> v.dispose());
-                slowPVs.clear();
+            engine.dispose();
+            if (simulation != null) {
+                writeToLog(String.format("Simulated device published %d orbits.",
+                        simulation.getDevice().getPublishedOrbitCount()),Level.INFO,empty());
+                simulation.close();
+            }
+            writeToLog(String.format("PV writes: %d sent, %d failed, %d coalesced, %d in flight.",
+                    writeCoalescer.getSentCount(),writeCoalescer.getFailedCount(),writeCoalescer.getCoalescedCount(),
+                    writeCoalescer.getInFlightCount()),Level.INFO,empty());
+            logMonitorStatistics();
+            if (engine.getDroppedCorrelationSamples() > 0) {
+                writeToLog(String.format("%d measured orbits were not added to the BPM correlations.",
+                        engine.getDroppedCorrelationSamples()),Level.INFO,empty());
+            }
+            for (PairedOrbit orbit : PairedOrbit.values()) {
+                writeToLog(String.format("%s orbit pairing: %d paired, %d unpaired.",orbit,
+                        engine.getPairedCount(orbit),engine.getUnpairedCount(orbit)),Level.INFO,empty());
+            }
+            for (BlockingTask kind : BlockingTask.values()) {
+                writeToLog(String.format("%s tasks: %d completed, %d running, %d queued (max %d).",kind,
+                        blockingExecutor.getCompletedCount(kind),blockingExecutor.getRunningCount(kind),
+                        blockingExecutor.getQueueDepth(kind),blockingExecutor.getMaxQueueDepth(kind)),Level.INFO,
+                        empty());
+            }
+            String latency = writeLatency.toString();
+            if (!latency.isEmpty()) {
+                writeToLog("PV write latency per role:\n" + latency,Level.INFO,empty());
+            }
+            if (engine.getOrbitLatency(true).getCount() > 0 || engine.getOrbitLatency(false).getCount() > 0) {
+                writeToLog(String.format("Orbit latency: horizontal %s; vertical %s.",engine.getOrbitLatency(true),
+                        engine.getOrbitLatency(false)),Level.INFO,empty());
             }
             clearList(horizontalBPMs);
             clearList(verticalBPMs);
@@ -1038,6 +1440,16 @@ public class OrbitCorrectionController {
             clearList(sextupoles);
             clearList(horizontalCorrectors);
             clearList(verticalCorrectors);
+            Arrays.stream(LatticeElementType.values()).forEach(this::publishLatticeSnapshot);
+            blockingExecutor.shutdown();
+            try {
+                //let the pending file and process tasks finish, e.g. saving the golden orbit
+                if (!blockingExecutor.awaitTermination(3000,TimeUnit.MILLISECONDS)) {
+                    OrbitCorrectionPlugin.LOGGER.log(Level.WARNING,"Blocking tasks did not finish in time.");
+                }
+            } catch (InterruptedException e) {
+                OrbitCorrectionPlugin.LOGGER.log(Level.WARNING,"Interrupted while waiting for the blocking tasks.",e);
+            }
             nonUIexecutor.shutdownNow();
             scheduler.shutdownNow();
         });
@@ -1075,452 +1487,670 @@ public class OrbitCorrectionController {
         for (int i = 0; i < verticalCutoff.length; i++) {
             verticalCutoff[i] = (short)verticalCorr.get(i).cutoffWishProperty().get();
         }
-        ofNullable(pvs.get(Preferences.PV_HORIZONTAL_BPM_ENABLED)).ifPresent(pv -> {
-            writeData(pv,new ArrayInt(horizontalBPMs),String.format(MSG_UPDATE_ONOFF_SUCCESS,"horizontal BPMs"),
-                    String.format(MSG_UPDATE_ONOFF_FAILURE,"horizontal BPMs"),5);
-        });
-        ofNullable(pvs.get(Preferences.PV_VERTICAL_BPM_ENABLED)).ifPresent(pv -> {
-            writeData(pv,new ArrayInt(verticalBPMs),String.format(MSG_UPDATE_ONOFF_SUCCESS,"vertical BPMs"),
-                    String.format(MSG_UPDATE_ONOFF_FAILURE,"vertical BPMs"),6);
-        });
-        ofNullable(pvs.get(Preferences.PV_HORIZONTAL_CORRECTOR_ENABLED)).ifPresent(pv -> {
-            writeData(pv,new ArrayInt(horizontalCorrectors),
-                    String.format(MSG_UPDATE_ONOFF_SUCCESS,"horizontal correctors"),
-                    String.format(MSG_UPDATE_ONOFF_FAILURE,"horizontal correctors"),7);
-        });
-        ofNullable(pvs.get(Preferences.PV_VERTICAL_CORRECTOR_ENABLED)).ifPresent(pv -> {
-            writeData(pv,new ArrayInt(verticalCorrectors),String.format(MSG_UPDATE_ONOFF_SUCCESS,"vertical correctors"),
-                    String.format(MSG_UPDATE_ONOFF_FAILURE,"vertical correctors"),8);
-        });
-        ofNullable(pvs.get(Preferences.PV_HORIZONTAL_STEERER_CUTOFF)).ifPresent(pv -> {
-            writeData(pv,new ArrayShort(horizontalCutoff),String.format(MSG_UPDATE_CUTOFF_SUCCESS,"horizontal"),
-                    String.format(MSG_UPDATE_CUTOFF_FAILURE,"horizontal"),28);
-        });
-        ofNullable(pvs.get(Preferences.PV_VERTICAL_STEERER_CUTOFF)).ifPresent(pv -> {
-            writeData(pv,new ArrayShort(verticalCutoff),String.format(MSG_UPDATE_CUTOFF_SUCCESS,"vertical"),
-                    String.format(MSG_UPDATE_CUTOFF_FAILURE,"vertical"),29);
-        });
-    }
+        final WriteGroup group = new WriteGroup();
+        getPV(Channel.HORIZONTAL_BPM_ENABLED).ifPresent(pv -> group.add(pv,new ArrayInt(horizontalBPMs)));
+        getPV(Channel.VERTICAL_BPM_ENABLED).ifPresent(pv -> group.add(pv,new ArrayInt(verticalBPMs)));
+        getPV(Channel.HORIZONTAL_CORRECTOR_ENABLED).ifPresent(pv -> group.add(pv,new ArrayInt(horizontalCorrectors)));
+        getPV(Channel.VERTICAL_CORRECTOR_ENABLED).ifPresent(pv -> group.add(pv,new ArrayInt(verticalCorrectors)));
+        getPV(Channel.HORIZONTAL_STEERER_CUTOFF).ifPresent(pv -> group.add(pv,new ArrayShort(horizontalCutoff)));
+        getPV(Channel.VERTICAL_STEERER_CUTOFF).ifPresent(pv -> group.add(pv,new ArrayShort(verticalCutoff)));
+        if (!group.isEmpty()) {
+            //the states are coalesced and measured as one unit, separately from the writes of the single channels
+            writeCoalescer.submit(LATTICE_STATES,() -> group.execute().thenAccept(result -> {
+                logLatticeStatesResult(result);
+                if (!result.isSuccessful()) {
+                    throw new CompletionException(result.getFailures().values().iterator().next());
+                }
+            }));
+        }
+    }
 
     /**
-     * Loads lattice elements from the file or PVs, depending on the preferences.
+     * Logs the outcome of writing the lattice element states as a single message. If any of the writes failed, the
+     * message lists the channels that could not be written and the cause of the first failure is attached.
+     *
+     * @param result the result of the write group
      */
-    @SuppressWarnings("deprecation")
-    private void loadLatticeElements() {
-        if (Preferences.getInstance().isLoadLatticeFromFiles()) {
-            LatticeElementDataLoader.loadLatticeElements().forEach(e -> {
-                if (e.getType() == LatticeElementType.HORIZONTAL_BPM) {
-                    addToList(horizontalBPMs,new BPM(e));
-                } else if (e.getType() == LatticeElementType.VERTICAL_BPM) {
-                    addToList(verticalBPMs,new BPM(e));
-                } else if (e.getType() == LatticeElementType.HORIZONTAL_CORRECTOR) {
-                    addToList(horizontalCorrectors,new Corrector(e));
-                } else if (e.getType() == LatticeElementType.VERTICAL_CORRECTOR) {
-                    addToList(verticalCorrectors,new Corrector(e));
-                } else if (e.getType() == LatticeElementType.QUADRUPOLE) {
-                    addToList(quadrupoles,new Quadrupole(e));
-                } else if (e.getType() == LatticeElementType.DIPOLE) {
-                    addToList(dipoles,new Dipole(e));
-                } else if (e.getType() == LatticeElementType.SEXTUPOLE) {
-                    addToList(sextupoles,new Sextupole(e));
-                }
-            });
+    private void logLatticeStatesResult(WriteGroup.Result result) {
+        final Function<Collection<Channel>,String> keys = c -> c.stream().map(Channel::getKey)
+                .collect(Collectors.joining(", "));
+        if (result.isSuccessful()) {
+            writeToLog(String.format(MSG_UPDATE_LATTICE_STATES_SUCCESS,keys.apply(result.getSucceeded())),Level.INFO,
+                    empty());
         } else {
-            synchronized (this) {
-                connectPVs(Preferences.getInstance().getLatticePVNames(),slowPVs,false);
-            }
-            try {
-                long start = System.currentTimeMillis();
-                writeToLog("Trying to read the lattice.",Level.INFO,empty());
-                while (true) {
-                    //check if there is a single value which has not yet received an update
-                    //if there is one, wait a while, then check again
-                    Optional<PV> noValue = slowPVs.values().parallelStream().filter(pv -> !pv.hasNewValue.get())
-                            .findAny();
-                    if (noValue.isPresent()) {
-                        synchronized (OrbitCorrectionController.this) {
-                            OrbitCorrectionController.this.wait(50);
-                        }
-                        if (System.currentTimeMillis() - start > UPDATE_TIMEOUT) {
-                            writeToLog("Lattice information could not be read from the IOC.",Level.SEVERE,empty());
-                            break;
-                        }
-                    } else {
-                        writeToLog("Lattice constructed.",Level.INFO,empty());
-                        break;
-                    }
-                }
-            } catch (InterruptedException e) {
-                //ignore - executor aborted because application is being closed; we don't care for that
-                return;
-            }
-            updateLattice();
-            slowPVs.values().parallelStream().forEach(pv -> ((SlowPV)pv).startTriggering());
+            final int failed = result.getFailures().size();
+            writeToLog(String.format(MSG_UPDATE_LATTICE_STATES_FAILURE,failed,failed + result.getSucceeded().size(),
+                    keys.apply(result.getFailures().keySet())),Level.SEVERE,
+                    result.getFailures().values().stream().findFirst());
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <T extends LatticeElement> void handleLatticeUpdate(VStringArray names, VNumberArray positions,
-            VNumberArray enable, List<T> destination, LatticeElementType type,
-            Function<LatticeElementData,LatticeElement> factory) {
-        UI_EXECUTOR.execute(() -> {
-            boolean callback = false;
-            setUpElements : {
-                if (names != null && positions != null) {
-                    List<String> namesData = names.getData();
-                    ListNumber positionsData = positions.getData();
-                    if (namesData.size() == positionsData.size()) {
-                        synchronized (destination) {
-                            if (namesData.size() == destination.size()) {
-                                for (int i = namesData.size() - 1; i > -1; i--) {
-                                    destination.get(i).nameProperty().set(namesData.get(i));
-                                    destination.get(i).locationProperty().set(positionsData.getDouble(i));
-                                }
-                                break setUpElements;
-                            }
-                        }
-                        final IteratorNumber it = positionsData.iterator();
-                        List<T> newData = (namesData.stream()
-                                .map(name -> new LatticeElementData(name,it.nextDouble(),type))
-                                .map(e -> (T)factory.apply(e)).collect(Collectors.toList()));
-                        //these two actions are not atomic, but it's not a problem, because this is the only location
-                        //where the list contents can be changed
-                        synchronized (destination) {
-                            destination.clear();
-                            destination.addAll(newData);
-                        }
-                        callback = true;
-                    }
-                } else if (names != null) {
-                    //names was updated, but locations weren't
-                    List<String> namesData = names.getData();
-                    synchronized (destination) {
-                        if (namesData.size() == destination.size()) {
-                            for (int i = namesData.size() - 1; i > -1; i--) {
-                                destination.get(i).nameProperty().set(namesData.get(i));
-                            }
-                        }
-                    }
-                } else if (positions != null) {
-                    //positions were updated but locations weren't
-                    ListNumber positionsData = positions.getData();
-                    synchronized (destination) {
-                        if (positionsData.size() == destination.size()) {
-                            for (int i = positionsData.size() - 1; i > -1; i--) {
-                                destination.get(i).locationProperty().set(positionsData.getDouble(i));
-                            }
-                        }
-                    }
-                }
-            }
-            boolean called = handleEnableDisable(enable,destination,type);
-            if (callback && !called) {
-                latticeUpdateCallbacks.forEach(c -> c.accept(type));
+    /**
+     * Loads the lattice elements from the files or connects the lattice PVs, depending on the preferences. The lattice
+     * is ready when every lattice PV has received its first value.
+     *
+     * @return a future, which completes when the lattice is ready or exceptionally when it could not be read in time
+     */
+    @SuppressWarnings("deprecation")
+    private CompletableFuture<Void> loadLatticeElements() {
+        if (simulation == null && Preferences.getInstance().isLoadLatticeFromFiles()) {
+            setLatticeElements(LatticeElementDataLoader.loadLatticeElements());
+            return CompletableFuture.completedFuture(null);
+        }
+        //show the cached lattice until the live one is received; the live elements are matched with the cached ones by
+        //name, only the positions of an unchanged list of names are updated in place. The simulated lattice is not
+        //cached, so that it does not replace the cached lattice of the machine.
+        final List<LatticeElementData> cached = simulation != null ? Collections.emptyList()
+                : Preferences.getInstance().getLatticeCacheFile().map(engine::openLatticeCache)
+                        .orElse(Collections.emptyList());
+        if (!cached.isEmpty()) {
+            setLatticeElements(cached);
+            writeToLog(String.format("Lattice with %d elements loaded from cache.",cached.size()),Level.INFO,empty());
+        }
+        writeToLog("Trying to read the lattice.",Level.INFO,empty());
+        return engine.connectLattice(Preferences.getInstance().getLatticePVNames(),UPDATE_TIMEOUT);
+    }
+
+    /**
+     * Creates the simulated device, which serves all PVs of the application, and makes the engine read the PVs from
+     * it instead of the IOC.
+     */
+    private void startSimulation() {
+        final Preferences preferences = Preferences.getInstance();
+        final Map<Channel,String> pvNames = new EnumMap<>(Channel.class);
+        pvNames.putAll(preferences.getPVNames());
+        pvNames.putAll(preferences.getLatticePVNames());
+        final int bpms = preferences.getSimulationBPMs();
+        final int correctors = preferences.getSimulationCorrectors();
+        final double rate = preferences.getSimulationOrbitRate();
+        simulation = new SimulatedDataSource(new SimulatedDevice(pvNames,bpms,correctors,rate));
+        engine.setDataSource(simulation);
+        writeToLog(String.format("Simulation: %d BPMs and %d correctors per plane, orbit published at %.1f Hz.",bpms,
+                correctors,rate),Level.INFO,empty());
+    }
+
+    /**
+     * Replaces the lattice in the lattice model of the engine with the given elements. The element lists are updated
+     * and the lattice update callbacks notified when the engine reports the changes.
+     *
+     * @param elements the lattice elements
+     */
+    private void setLatticeElements(List<LatticeElementData> elements) {
+        engine.setLattice(elements);
+    }
+
+    /**
+     * Called on the non UI thread when the lattice is ready or could not be read. By then the engine has already
+     * reported the received lattice, so only the UI updates are started.
+     *
+     * @param failure the reason why the lattice could not be read, or null if the lattice is ready
+     */
+    private void latticeLoaded(Throwable failure) {
+        if (!Preferences.getInstance().isLoadLatticeFromFiles()) {
+            if (failure == null) {
+                writeToLog(String.format("Lattice constructed in %d ms.",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startupTime)),Level.INFO,empty());
+            } else {
+                writeToLog("Lattice information could not be read from the IOC.",Level.SEVERE,empty());
             }
-        });
+        }
+        updateScheduler.start();
+    }
+
+    /**
+     * Logs the startup timeline summary: the time until all PVs received their first value and the slowest PV.
+     */
+    private void logStartupTimeline() {
+        engine.getChannels().max((a, b) -> Long.compare(a.getFirstValueLatency(),b.getFirstValueLatency()))
+                .ifPresent(pv -> writeToLog(String.format(
+                        "All PVs received their values %d ms after startup (slowest: %s, connected in %d ms, first "
+                                + "value in %d ms).",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startupTime),pv.getPVName(),
+                        TimeUnit.NANOSECONDS.toMillis(pv.getConnectLatency()),
+                        TimeUnit.NANOSECONDS.toMillis(pv.getFirstValueLatency())),Level.INFO,empty()));
+    }
+
+    /**
+     * Executes the task on the non UI executor, unless the controller has already been disposed.
+     *
+     * @param task the task to execute
+     */
+    private void executeNonUI(Runnable task) {
+        try {
+            nonUIexecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            //the controller has been disposed
+        }
+    }
+
+    /**
+     * Executes the blocking task on the executor of the given kind, unless the controller has already been disposed.
+     * The number of queued and running tasks of each kind is logged when the controller is disposed.
+     *
+     * @param kind the kind of the task
+     * @param task the task to execute
+     */
+    private void executeBlocking(BlockingTask kind, Runnable task) {
+        try {
+            blockingExecutor.execute(kind,task);
+        } catch (RejectedExecutionException e) {
+            //the controller has been disposed
+        }
+    }
+
+    /**
+     * Applies the update of the lattice model of the engine to the elements of its type. This method should only be
+     * called from the UI thread.
+     *
+     * @param update the update of the lattice model
+     */
+    private void applyLatticeUpdate(LatticeUpdate update) {
+        switch (update.getType()) {
+            case HORIZONTAL_BPM:
+                applyLatticeUpdate(update,horizontalBPMs,BPM::new);
+                break;
+            case VERTICAL_BPM:
+                applyLatticeUpdate(update,verticalBPMs,BPM::new);
+                break;
+            case HORIZONTAL_CORRECTOR:
+                applyLatticeUpdate(update,horizontalCorrectors,Corrector::new);
+                break;
+            case VERTICAL_CORRECTOR:
+                applyLatticeUpdate(update,verticalCorrectors,Corrector::new);
+                break;
+            case QUADRUPOLE:
+                applyLatticeUpdate(update,quadrupoles,Quadrupole::new);
+                break;
+            case DIPOLE:
+                applyLatticeUpdate(update,dipoles,Dipole::new);
+                break;
+            case SEXTUPOLE:
+                applyLatticeUpdate(update,sextupoles,Sextupole::new);
+                break;
+            default:
+                break;
+        }
     }
 
-    private <T extends LatticeElement> boolean handleEnableDisable(VNumberArray enable, List<T> destination,
-            LatticeElementType type) {
-        boolean callback = false;
-        if (enable != null) {
-            ListNumber data = enable.getData();
-            synchronized (destination) {
-                if (data.size() == destination.size()) {
-                    for (int i = data.size() - 1; i > -1; i--) {
-                        destination.get(i).enabledProperty().set(data.getByte(i) == 1);
+    /**
+     * Applies the names, positions and enable states of the update to the elements. If the elements were matched by
+     * name, the list is rebuilt from the existing elements in their new order and the elements with new names are
+     * created with the factory, otherwise the elements are updated in place. The lattice update callbacks are notified
+     * if any enable state changed or most of the elements changed, otherwise the lattice change callbacks receive the
+     * individual changes.
+     *
+     * @param update the update of the lattice model
+     * @param destination the elements of the updated type
+     * @param factory the factory which creates new elements
+     */
+    private <T extends LatticeElement> void applyLatticeUpdate(LatticeUpdate update, List<T> destination,
+            Function<LatticeElementData,T> factory) {
+        final LatticeElementType type = update.getType();
+        final LatticeArrays arrays = update.getArrays();
+        final int n = arrays.size();
+        List<LatticeChange> changes = Collections.emptyList();
+        boolean rebuilt = update.isRebuilt();
+        boolean replaced = false;
+        synchronized (destination) {
+            //the list only diverges from the model if the elements were changed elsewhere; start from scratch then
+            final boolean consistent = destination.size() == update.getPrevious().size();
+            if (update.isMatchedByName() || !consistent) {
+                final List<T> elements = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    final int oldIndex = consistent ? update.getOldIndex(i) : -1;
+                    final T element = oldIndex < 0
+                            ? factory.apply(new LatticeElementData(arrays.getName(i),arrays.getPosition(i),type))
+                            : destination.get(oldIndex);
+                    applyLatticeState(element,arrays,i);
+                    elements.add(element);
+                }
+                if (consistent) {
+                    changes = new ArrayList<>(update.getChanges().size());
+                    for (LatticeUpdate.Change c : update.getChanges()) {
+                        changes.add(new LatticeChange(c.getKind(),c.getNewIndex() < 0 ? destination.get(c.getOldIndex())
+                                : elements.get(c.getNewIndex()),c.getOldIndex(),c.getNewIndex()));
                     }
-                    callback = true;
+                } else {
+                    rebuilt = true;
+                }
+                //the list is only changed here, on the UI thread, so the readers see either the old or the new elements
+                destination.clear();
+                destination.addAll(elements);
+                replaced = true;
+            } else {
+                for (int i = 0; i < n; i++) {
+                    applyLatticeState(destination.get(i),arrays,i);
                 }
             }
-            if (callback) {
-                latticeUpdateCallbacks.forEach(c -> c.accept(type));
-            }
         }
-        return callback;
-    }
-
-    private void updateLattice() {
-        if (slowPVs.values().stream().allMatch(pv -> ((SlowPV)pv).connected.get())) {
-            VStringArray hbpmNames = getSlowPVString.apply(Preferences.PV_HORIZONTAL_BPM_NAMES);
-            VNumberArray hbpmPositions = getSlowPVNumber.apply(Preferences.PV_HORIZONTAL_BPM_POSITIONS);
-            VNumberArray hbpmEnable = getPVNumberArray.apply(Preferences.PV_HORIZONTAL_BPM_ENABLED);
-            handleLatticeUpdate(hbpmNames,hbpmPositions,hbpmEnable,horizontalBPMs,LatticeElementType.HORIZONTAL_BPM,
-                    BPM::new);
-            VStringArray vbpmNames = getSlowPVString.apply(Preferences.PV_VERTICAL_BPM_NAMES);
-            VNumberArray vbpmPositions = getSlowPVNumber.apply(Preferences.PV_VERTICAL_BPM_POSITIONS);
-            VNumberArray vbpmEnable = getPVNumberArray.apply(Preferences.PV_VERTICAL_BPM_ENABLED);
-            handleLatticeUpdate(vbpmNames,vbpmPositions,vbpmEnable,verticalBPMs,LatticeElementType.VERTICAL_BPM,
-                    BPM::new);
-            VStringArray hCorrNames = getSlowPVString.apply(Preferences.PV_HORIZONTAL_CORRECTOR_NAMES);
-            VNumberArray hCorrPositions = getSlowPVNumber.apply(Preferences.PV_HORIZONTAL_CORRECTOR_POSITIONS);
-            VNumberArray hCorrEnable = getPVNumberArray.apply(Preferences.PV_HORIZONTAL_CORRECTOR_ENABLED);
-            handleLatticeUpdate(hCorrNames,hCorrPositions,hCorrEnable,horizontalCorrectors,
-                    LatticeElementType.HORIZONTAL_CORRECTOR,Corrector::new);
-            VStringArray vCorrNames = getSlowPVString.apply(Preferences.PV_VERTICAL_CORRECTOR_NAMES);
-            VNumberArray vCorrPositions = getSlowPVNumber.apply(Preferences.PV_VERTICAL_CORRECTOR_POSITIONS);
-            VNumberArray vCorrEnable = getPVNumberArray.apply(Preferences.PV_VERTICAL_CORRECTOR_ENABLED);
-            handleLatticeUpdate(vCorrNames,vCorrPositions,vCorrEnable,verticalCorrectors,
-                    LatticeElementType.VERTICAL_CORRECTOR,Corrector::new);
-            VStringArray quadrupoleNames = getSlowPVString.apply(Preferences.PV_QUADRUPOLE_NAMES);
-            VNumberArray quadrupolePositions = getSlowPVNumber.apply(Preferences.PV_QUADRUPOLE_POSITIONS);
-            handleLatticeUpdate(quadrupoleNames,quadrupolePositions,null,quadrupoles,LatticeElementType.QUADRUPOLE,
-                    Quadrupole::new);
-            VStringArray dipoleNames = getSlowPVString.apply(Preferences.PV_DIPOLE_NAMES);
-            VNumberArray dipolePositions = getSlowPVNumber.apply(Preferences.PV_DIPOLE_POSITIONS);
-            handleLatticeUpdate(dipoleNames,dipolePositions,null,dipoles,LatticeElementType.DIPOLE,Dipole::new);
-            VStringArray sextupoleNames = getSlowPVString.apply(Preferences.PV_SEXTUPOLE_NAMES);
-            VNumberArray sextupolePositions = getSlowPVNumber.apply(Preferences.PV_SEXTUPOLE_POSITIONS);
-            handleLatticeUpdate(sextupoleNames,sextupolePositions,null,sextupoles,LatticeElementType.SEXTUPOLE,
-                    Sextupole::new);
+        if (replaced) {
+            publishLatticeSnapshot(type);
+        }
+        if (rebuilt || update.isEnableChanged()) {
+            latticeUpdateCallbacks.forEach(c -> c.accept(type));
+        } else if (!changes.isEmpty()) {
+            final LatticeSnapshot<?> snapshot = getLatticeSnapshot(type);
+            final List<LatticeChange> events = Collections.unmodifiableList(changes);
+            latticeChangeCallbacks.forEach(c -> c.accept(snapshot,events));
+        }
+    }
+
+    /**
+     * Applies the name, position and enable state at the given index of the lattice arrays to the element. The element
+     * data is only replaced if the name or the position changed.
+     *
+     * @param element the element to update
+     * @param arrays the lattice arrays
+     * @param index the index of the element in the arrays
+     */
+    private static void applyLatticeState(LatticeElement element, LatticeArrays arrays, int index) {
+        final LatticeElementData data = element.getElementData();
+        if (!data.getName().equals(arrays.getName(index)) || Double.doubleToLongBits(data.getPosition()) != Double
+                .doubleToLongBits(arrays.getPosition(index))) {
+            element.setElementData(new LatticeElementData(arrays.getName(index),arrays.getPosition(index),
+                    arrays.getType()));
+        }
+        element.enabledProperty().set(arrays.isEnabled(index));
+    }
+
+    /**
+     * Publishes a new snapshot with the current elements of the given type.
+     *
+     * @param type the lattice element type which was updated
+     */
+    private void publishLatticeSnapshot(LatticeElementType type) {
+        final List<? extends LatticeElement> elements = getElements(type);
+        if (elements == null) return;
+        synchronized (elements) {
+            latticeSnapshots.set(type.ordinal(),
+                    new LatticeSnapshot<>(type,latticeVersion.incrementAndGet(),elements));
+        }
+    }
+
+    private static AtomicReferenceArray<LatticeSnapshot<?>> createLatticeSnapshots() {
+        final LatticeElementType[] types = LatticeElementType.values();
+        final AtomicReferenceArray<LatticeSnapshot<?>> snapshots = new AtomicReferenceArray<>(types.length);
+        for (LatticeElementType type : types) {
+            snapshots.set(type.ordinal(),new LatticeSnapshot<>(type,0,Collections.emptyList()));
         }
+        return snapshots;
     }
 
     private void createCorrectionResultsEntries() {
-        correctionResultsEntries.put(Preferences.PV_HORIZONTAL_ORBIT_STATISTICS,
+        correctionResultsEntries.put(Channel.HORIZONTAL_ORBIT_STATISTICS,
                 new OrbitCorrectionResultsEntry(TABLE_ENTRY_HORIZONTAL_ORBIT));
-        correctionResultsEntries.put(Preferences.PV_VERTICAL_ORBIT_STATISTICS,
+        correctionResultsEntries.put(Channel.VERTICAL_ORBIT_STATISTICS,
                 new OrbitCorrectionResultsEntry(TABLE_ENTRY_VERTICAL_ORBIT));
-        correctionResultsEntries.put(Preferences.PV_GOLDEN_HORIZONTAL_ORBIT_STATISTICS,
+        correctionResultsEntries.put(Channel.GOLDEN_HORIZONTAL_ORBIT_STATISTICS,
                 new OrbitCorrectionResultsEntry(TABLE_ENTRY_GOLDEN_HORIZONTAL_ORBIT));
-        correctionResultsEntries.put(Preferences.PV_GOLDEN_VERTICAL_ORBIT_STATISTICS,
+        correctionResultsEntries.put(Channel.GOLDEN_VERTICAL_ORBIT_STATISTICS,
                 new OrbitCorrectionResultsEntry(TABLE_ENTRY_GOLDEN_VERTICAL_ORBIT));
-        correctionResultsEntries.put(Preferences.PV_REFERENCE_HORIZONTAL_ORBIT_STATISTICS,
+        correctionResultsEntries.put(Channel.REFERENCE_HORIZONTAL_ORBIT_STATISTICS,
                 new OrbitCorrectionResultsEntry(TABLE_ENTRY_REFERENCE_HORIZONTAL_ORBIT));
-        correctionResultsEntries.put(Preferences.PV_REFERENCE_VERTICAL_ORBIT_STATISTICS,
+        correctionResultsEntries.put(Channel.REFERENCE_VERTICAL_ORBIT_STATISTICS,
                 new OrbitCorrectionResultsEntry(TABLE_ENTRY_REFERENCE_VERTICAL_ORBIT));
     }
 
-    private void connectPVs(Map<String,String> pvsToconnect, Map<String,PV> destination, boolean trigger) {
-        pvsToconnect.forEach((k, v) -> {
-            if (v != null) {
-                PVReader<VType> reader = PVManager.read(channel(v,VType.class,VType.class))
-                        .maxRate(Duration.ofMillis(100));
-                PV pv;
-                if (trigger) {
-                    PVWriter<Object> writer = PVManager.write(channel(v)).timeout(Duration.ofMillis(2000)).async();
-                    pv = new PV(reader,writer);
-                } else {
-                    PVWriter<Object> writer = PVManager.write(channel(v)).timeout(Duration.ofMillis(2000)).async();
-                    pv = new SlowPV(reader,writer);
-                }
-                destination.put(k,pv);
-            }
-        });
+    /**
+     * Writes the monitor statistics of the orbit channels and of all channels that lost updates to the log. The orbit
+     * channels are always reported, because a missing orbit is the first thing to be checked when the correction
+     * misbehaves.
+     */
+    private void logMonitorStatistics() {
+        engine.getChannels().filter(pv -> {
+            MonitorStatistics s = pv.getMonitorStatistics();
+            return pv.getChannel() == Channel.HORIZONTAL_ORBIT || pv.getChannel() == Channel.VERTICAL_ORBIT
+                    || s.getCoalescedCount() > 0 || s.getOverwrittenCount() > 0 || s.getGapCount() > 0;
+        }).forEach(pv -> writeToLog(String.format("%s monitor: %s",pv.getPVName(),pv.getMonitorStatistics()),
+                Level.INFO,empty()));
+    }
+
+    /**
+     * Marks the PVs of the given channels as dirty, so that they are handled by the next UI update, even if they have
+     * not received a new value.
+     *
+     * @param channels the channels to mark
+     */
+    private void markDirty(Channel... channels) {
+        for (Channel c : channels) {
+            dirtyPVs.set(c.ordinal());
+        }
     }
 
     /**
-     * Executes the command. Writes 1 into the PV with the given key. Also writes success message into the message log
-     * if value (1) was successfully written or failure message if write failed.
+     * Executes the command. Writes 1 into the PV of the given channel. Also writes success message into the message
+     * log if value (1) was successfully written or failure message if write failed.
      *
-     * @param pvKey PV key of the PV to write to
+     * @param command the channel to write to
      * @param successMessage message to log on successful write attempt
      * @param failureMessage message to log on failed write attempt
      */
-    private void executeCommand(String pvKey, String successMessage, String failureMessage) {
-        if (!throttle.isRunning()) return;
-        ofNullable(pvs.get(pvKey)).ifPresent(pv -> writeData(pv,null,successMessage,failureMessage,0));
-    }
-
-    // Filter tests the PV if a new value has been received since the previous update. The filter is
-    // used to eliminate unnecessary updates (if the value has not changed nothing should happen)
-    private static final Predicate<PV> HAS_VALUE_FILTER = pv -> pv.hasNewValue.compareAndSet(true,false);
-    private final Function<String,Optional<PV>> getPV = s -> ofNullable(pvs.get(s)).filter(HAS_VALUE_FILTER);
-    private final Function<String,Optional<PV>> getNumberPV = s -> ofNullable(pvs.get(s))
-            .filter(pv -> pv.value instanceof VNumber);
-    private final Function<String,VNumberArray> getPVNumberArray = s -> ofNullable(pvs.get(s))
-            .filter(pv -> pv.value instanceof VNumberArray).map(pv -> (VNumberArray)pv.value).orElse(null);
-    private final Function<String,VNumberArray> getPVNumberArrayFilter = s -> getPV.apply(s)
-            .filter(pv -> pv.value instanceof VNumberArray).map(pv -> (VNumberArray)pv.value).orElse(null);
-    private final BiConsumer<String,Consumer<PV>> handlePV = (s, f) -> getPV.apply(s).ifPresent(f);
-    private final Function<String,Optional<PV>> getSlowPV = s -> ofNullable(slowPVs.get(s));
-    private final Function<String,VNumberArray> getSlowPVNumber = s -> getSlowPV.apply(s)
-            .filter(pv -> pv.value instanceof VNumberArray).map(pv -> (VNumberArray)pv.value).orElse(null);
-    private final Function<String,VStringArray> getSlowPVString = s -> getSlowPV.apply(s)
-            .filter(pv -> pv.value instanceof VStringArray).map(pv -> (VStringArray)pv.value).orElse(null);
+    private void executeCommand(Channel command, String successMessage, String failureMessage) {
+        if (!updateScheduler.isRunning()) return;
+        getPV(command).ifPresent(pv -> writeData(pv,null,successMessage,failureMessage));
+    }
+
+    private Optional<ChannelState> getPV(Channel c) {
+        return engine.getChannel(c);
+    }
+
+    private Optional<ChannelState> getNumberPV(Channel c) {
+        return getPV(c).filter(pv -> !Double.isNaN(pv.getNumber()));
+    }
+
+    private ListNumber getNumberArray(Channel c) {
+        return getPV(c).map(pv -> pv.getNumbers()).orElse(null);
+    }
+
+    /**
+     * Returns the horizontal and vertical values of the latest measured orbit pair, whose planes belong to the same
+     * measurement. If no pair has been received yet, the latest values of each plane are returned and a warning is
+     * logged the first time this happens after a pair was available.
+     *
+     * @return the horizontal (index 0) and vertical (index 1) orbit; elements may be null if there is no value
+     */
+    private ListNumber[] getAlignedOrbit() {
+        final Optional<OrbitPair> pair = engine.getLatestPair(PairedOrbit.MEASURED);
+        if (pair.isPresent()) {
+            alignedOrbitMissing.set(false);
+            return new ListNumber[] { pair.get().getHorizontal().getData(), pair.get().getVertical().getData() };
+        }
+        if (alignedOrbitMissing.compareAndSet(false,true)) {
+            writeToLog("No time aligned orbit available; the latest value of each plane is used.",Level.WARNING,
+                    empty());
+        }
+        return new ListNumber[] { getNumberArray(Channel.HORIZONTAL_ORBIT), getNumberArray(Channel.VERTICAL_ORBIT) };
+    }
 
     private void update() {
-        if (!throttle.isRunning()) return;
+        if (!updateScheduler.isRunning()) return;
         //only update those structures that actually received a new pv value
-        handlePV.accept(Preferences.PV_HORIZONTAL_ORBIT,pv -> updateOrbit(pv.value,SeriesType.HORIZONTAL_ORBIT));
-        handlePV.accept(Preferences.PV_VERTICAL_ORBIT,pv -> updateOrbit(pv.value,SeriesType.VERTICAL_ORBIT));
-        handlePV.accept(Preferences.PV_GOLDEN_HORIZONTAL_ORBIT,
-                pv -> updateOrbit(pv.value,SeriesType.GOLDEN_HORIZONTAL_ORBIT));
-        handlePV.accept(Preferences.PV_GOLDEN_VERTICAL_ORBIT,
-                pv -> updateOrbit(pv.value,SeriesType.GOLDEN_VERTICAL_ORBIT));
-        handlePV.accept(Preferences.PV_HORIZONTAL_REFERENCE_ORBIT,
-                pv -> updateOrbit(pv.value,SeriesType.REFERENCE_HORIZONTAL_ORBIT));
-        handlePV.accept(Preferences.PV_VERTICAL_REFERENCE_ORBIT,
-                pv -> updateOrbit(pv.value,SeriesType.REFERENCE_VERTICAL_ORBIT));
-        handlePV.accept(Preferences.PV_HORIZONTAL_DIFFERENCE_ORBIT,
-                pv -> updateOrbit(pv.value,SeriesType.DIFFERENCE_HORIZONTAL_ORBIT));
-        handlePV.accept(Preferences.PV_VERTICAL_DIFFERENCE_ORBIT,
-                pv -> updateOrbit(pv.value,SeriesType.DIFFERENCE_VERTICAL_ORBIT));
-        if (mradProperty.get()) {
-            handlePV.accept(Preferences.PV_HORIZONTAL_CORRECTOR_MRAD,
-                    pv -> updateCorrectors(pv.value,LatticeElementType.HORIZONTAL_CORRECTOR,false));
-            handlePV.accept(Preferences.PV_VERTICAL_CORRECTOR_MRAD,
-                    pv -> updateCorrectors(pv.value,LatticeElementType.VERTICAL_CORRECTOR,false));
-        } else {
-            handlePV.accept(Preferences.PV_HORIZONTAL_CORRECTOR_MA,
-                    pv -> updateCorrectors(pv.value,LatticeElementType.HORIZONTAL_CORRECTOR,false));
-            handlePV.accept(Preferences.PV_VERTICAL_CORRECTOR_MA,
-                    pv -> updateCorrectors(pv.value,LatticeElementType.VERTICAL_CORRECTOR,false));
-        }
-        handlePV.accept(Preferences.PV_HORIZONTAL_STEERER_CUTOFF,
-                pv -> updateCorrectors(pv.value,LatticeElementType.HORIZONTAL_CORRECTOR,true));
-        handlePV.accept(Preferences.PV_HORIZONTAL_STEERER_CUTOFF,
-                pv -> updateCorrectors(pv.value,LatticeElementType.VERTICAL_CORRECTOR,true));
-        getPV.apply(Preferences.PV_OPERATION_STATUS).filter(pv -> pv.value instanceof VEnum)
-                .ifPresent(pv -> statusProperty.set(((VEnum)pv.value).getValue()));
-        handlePV.accept(Preferences.PV_HORIZONTAL_ORBIT_STATISTICS,
-                pv -> updateOrbitCorrectionResults(pv.value,Preferences.PV_HORIZONTAL_ORBIT_STATISTICS));
-        handlePV.accept(Preferences.PV_VERTICAL_ORBIT_STATISTICS,
-                pv -> updateOrbitCorrectionResults(pv.value,Preferences.PV_VERTICAL_ORBIT_STATISTICS));
-        handlePV.accept(Preferences.PV_GOLDEN_HORIZONTAL_ORBIT_STATISTICS,
-                pv -> updateOrbitCorrectionResults(pv.value,Preferences.PV_GOLDEN_HORIZONTAL_ORBIT_STATISTICS));
-        handlePV.accept(Preferences.PV_GOLDEN_VERTICAL_ORBIT_STATISTICS,
-                pv -> updateOrbitCorrectionResults(pv.value,Preferences.PV_GOLDEN_VERTICAL_ORBIT_STATISTICS));
-        handlePV.accept(Preferences.PV_REFERENCE_HORIZONTAL_ORBIT_STATISTICS,
-                pv -> updateOrbitCorrectionResults(pv.value,Preferences.PV_REFERENCE_HORIZONTAL_ORBIT_STATISTICS));
-        handlePV.accept(Preferences.PV_REFERENCE_VERTICAL_ORBIT_STATISTICS,
-                pv -> updateOrbitCorrectionResults(pv.value,Preferences.PV_REFERENCE_VERTICAL_ORBIT_STATISTICS));
-        getPV.apply(Preferences.PV_HORIZONTAL_CUTOFF).filter(pv -> pv.value instanceof VNumber)
-                .ifPresent(pv -> horizontalCutOffProperty().set(((VNumber)pv.value).getValue().doubleValue()));
-        getPV.apply(Preferences.PV_VERTICAL_CUTOFF).filter(pv -> pv.value instanceof VNumber)
-                .ifPresent(pv -> verticalCutOffProperty().set(((VNumber)pv.value).getValue().doubleValue()));
-        getPV.apply(Preferences.PV_HORIZONTAL_CORRECTION_FRACTION).filter(pv -> pv.value instanceof VNumber)
-                .ifPresent(pv -> horizontalCorrectionFactorProperty()
-                        .set((int)(100 * ((VNumber)pv.value).getValue().doubleValue())));
-        getPV.apply(Preferences.PV_VERTICAL_CORRECTION_FRACTION).filter(pv -> pv.value instanceof VNumber)
-                .ifPresent(pv -> verticalCorrectionFactorProperty()
-                        .set((int)(100 * ((VNumber)pv.value).getValue().doubleValue())));
-        getPV.apply(Preferences.PV_CORRECTION_FREQUENCY).filter(pv -> pv.value instanceof VNumber)
-                .ifPresent(pv -> correctionPeriodProperty().set(1.0 / ((VNumber)pv.value).getValue().doubleValue()));
-        getPV.apply(Preferences.PV_CORRECTION_ALGORITHM).filter(pv -> pv.value instanceof VEnum).ifPresent(
-                pv -> correctionAlgorithmProperty().set(CorrectionAlgorithm.values()[((VEnum)pv.value).getIndex()]));
-        VNumberArray vCorrEnable = getPVNumberArrayFilter.apply(Preferences.PV_VERTICAL_CORRECTOR_ENABLED);
-        handleEnableDisable(vCorrEnable,verticalCorrectors,LatticeElementType.VERTICAL_CORRECTOR);
-        VNumberArray hCorrEnable = getPVNumberArrayFilter.apply(Preferences.PV_HORIZONTAL_CORRECTOR_ENABLED);
-        handleEnableDisable(hCorrEnable,horizontalCorrectors,LatticeElementType.HORIZONTAL_CORRECTOR);
-        VNumberArray vBPMEnable = getPVNumberArrayFilter.apply(Preferences.PV_VERTICAL_BPM_ENABLED);
-        handleEnableDisable(vBPMEnable,verticalBPMs,LatticeElementType.VERTICAL_BPM);
-        VNumberArray hBPMEnable = getPVNumberArrayFilter.apply(Preferences.PV_HORIZONTAL_BPM_ENABLED);
-        handleEnableDisable(hBPMEnable,horizontalBPMs,LatticeElementType.HORIZONTAL_BPM);
-    }
-
-    /**
-     * Updates the BPM lattice element, which eventually triggers an update to the orbit charts.
-     *
-     * @param value new values to set on the BPMs (VNumberArray expected)
-     * @param type series type defines which BPMs and which property should be updated
-     */
-    private void updateOrbit(final VType value, SeriesType type) {
-        if (!(value instanceof VNumberArray)) return;
-        final ListNumber va = ((VNumberArray)value).getData();
-        if (va.size() == 0) return;
-        Function<BPM,DoubleProperty> property;
-        Predicate<BPM> inhibited = bpm -> false;
-        List<BPM> bpms;
-        boolean callback = false;
+        dirtyPVs.drain(dirtyPVHandler);
+    }
+
+    /**
+     * Creates the handlers which are executed during the UI update for the PVs that received a new value. The
+     * handlers are executed in the declaration order of the channels.
+     *
+     * @return the update handlers indexed by the channel ordinal
+     */
+    private List<Consumer<ChannelState>> createUpdateHandlers() {
+        final Map<Channel,Consumer<ChannelState>> handlers = new EnumMap<>(Channel.class);
+        //both planes of a paired orbit are applied together from the same pair
+        for (PairedOrbit orbit : PairedOrbit.values()) {
+            handlers.put(orbit.getHorizontal(),pv -> updateOrbitPair(orbit));
+            handlers.put(orbit.getVertical(),pv -> updateOrbitPair(orbit));
+        }
+        handlers.put(Channel.GOLDEN_HORIZONTAL_ORBIT,pv -> ofNullable(receivedFrames.getAndSet(pv.getChannel()
+                .ordinal(),null)).ifPresent(frame -> publishOrbitFrame(frame,SeriesType.GOLDEN_HORIZONTAL_ORBIT)));
+        handlers.put(Channel.GOLDEN_VERTICAL_ORBIT,pv -> ofNullable(receivedFrames.getAndSet(pv.getChannel()
+                .ordinal(),null)).ifPresent(frame -> publishOrbitFrame(frame,SeriesType.GOLDEN_VERTICAL_ORBIT)));
+        handlers.put(Channel.HORIZONTAL_CORRECTOR_MRAD,pv -> {
+            if (mradProperty.get()) {
+                updateCorrectors(pv.getNumbers(),LatticeElementType.HORIZONTAL_CORRECTOR,false);
+            }
+        });
+        handlers.put(Channel.VERTICAL_CORRECTOR_MRAD,pv -> {
+            if (mradProperty.get()) {
+                updateCorrectors(pv.getNumbers(),LatticeElementType.VERTICAL_CORRECTOR,false);
+            }
+        });
+        handlers.put(Channel.HORIZONTAL_CORRECTOR_MA,pv -> {
+            if (!mradProperty.get()) {
+                updateCorrectors(pv.getNumbers(),LatticeElementType.HORIZONTAL_CORRECTOR,false);
+            }
+        });
+        handlers.put(Channel.VERTICAL_CORRECTOR_MA,pv -> {
+            if (!mradProperty.get()) {
+                updateCorrectors(pv.getNumbers(),LatticeElementType.VERTICAL_CORRECTOR,false);
+            }
+        });
+        handlers.put(Channel.HORIZONTAL_STEERER_CUTOFF,
+                pv -> updateCorrectors(pv.getNumbers(),LatticeElementType.HORIZONTAL_CORRECTOR,true));
+        handlers.put(Channel.VERTICAL_STEERER_CUTOFF,
+                pv -> updateCorrectors(pv.getNumbers(),LatticeElementType.VERTICAL_CORRECTOR,true));
+        handlers.put(Channel.OPERATION_STATUS,pv -> ofNullable(pv.getLabel()).ifPresent(statusProperty::set));
+        EnumSet.range(Channel.HORIZONTAL_ORBIT_STATISTICS,Channel.REFERENCE_VERTICAL_ORBIT_STATISTICS)
+                .forEach(c -> handlers.put(c,pv -> updateOrbitCorrectionResults(pv.getNumbers(),c)));
+        handlers.put(Channel.HORIZONTAL_CUTOFF,pv -> {
+            if (!Double.isNaN(pv.getNumber())) {
+                horizontalCutOffProperty().set(pv.getNumber());
+            }
+        });
+        handlers.put(Channel.VERTICAL_CUTOFF,pv -> {
+            if (!Double.isNaN(pv.getNumber())) {
+                verticalCutOffProperty().set(pv.getNumber());
+            }
+        });
+        handlers.put(Channel.HORIZONTAL_CORRECTION_FRACTION,pv -> {
+            if (!Double.isNaN(pv.getNumber())) {
+                horizontalCorrectionFactorProperty().set((int)(100 * pv.getNumber()));
+            }
+        });
+        handlers.put(Channel.VERTICAL_CORRECTION_FRACTION,pv -> {
+            if (!Double.isNaN(pv.getNumber())) {
+                verticalCorrectionFactorProperty().set((int)(100 * pv.getNumber()));
+            }
+        });
+        handlers.put(Channel.CORRECTION_FREQUENCY,pv -> {
+            if (!Double.isNaN(pv.getNumber())) {
+                correctionPeriodProperty().set(1.0 / pv.getNumber());
+            }
+        });
+        handlers.put(Channel.CORRECTION_ALGORITHM,pv -> {
+            int index = pv.getIndex();
+            if (index > -1 && index < CorrectionAlgorithm.values().length) {
+                correctionAlgorithmProperty().set(CorrectionAlgorithm.values()[index]);
+            }
+        });
+        //the enable states are applied by the lattice model of the engine, which reports them as lattice updates
+        final List<Consumer<ChannelState>> list = new ArrayList<>(Collections.nCopies(CHANNELS.length,null));
+        handlers.forEach((c, h) -> list.set(c.ordinal(),h));
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Applies the latest displayed frames of the paired orbit to the BPMs. Both planes are taken from the same
+     * snapshot, so the horizontal and vertical series always show the same measurement, unless one of the planes
+     * could not be paired.
+     *
+     * @param orbit the paired orbit to apply
+     */
+    private void updateOrbitPair(PairedOrbit orbit) {
+        final OrbitFrame[] planes = displayedPairs.get(orbit.ordinal());
+        if (planes == null) return;
+        //the channel that did not trigger the update is consumed as well, because its value has been applied too
+        getPV(orbit.getHorizontal()).ifPresent(ChannelState::consume);
+        getPV(orbit.getVertical()).ifPresent(ChannelState::consume);
+        switch (orbit) {
+            case MEASURED:
+                publishOrbitFrame(planes[0],SeriesType.HORIZONTAL_ORBIT);
+                publishOrbitFrame(planes[1],SeriesType.VERTICAL_ORBIT);
+                break;
+            case DIFFERENCE:
+                publishOrbitFrame(planes[0],SeriesType.DIFFERENCE_HORIZONTAL_ORBIT);
+                publishOrbitFrame(planes[1],SeriesType.DIFFERENCE_VERTICAL_ORBIT);
+                break;
+            case REFERENCE:
+                publishOrbitFrame(planes[0],SeriesType.REFERENCE_HORIZONTAL_ORBIT);
+                publishOrbitFrame(planes[1],SeriesType.REFERENCE_VERTICAL_ORBIT);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Stores the orbit frame as the latest frame of its series and hands it to the orbit frame callbacks. The BPM
+     * properties are only updated if the series is visible (or if it is the golden orbit series). This method should
+     * only be called from the UI thread.
+     *
+     * @param frame the frame to publish or null if there is none
+     * @param type the series type of the frame
+     */
+    private void publishOrbitFrame(OrbitFrame frame, SeriesType type) {
+        if (frame == null) return;
+        orbitFrames.put(type,frame);
+        if (localStatistics) {
+            updateOrbitStatistics(frame,type);
+        }
+        orbitFrameCallbacks.forEach(c -> c.accept(type,frame));
+        boolean golden = type == SeriesType.GOLDEN_HORIZONTAL_ORBIT || type == SeriesType.GOLDEN_VERTICAL_ORBIT;
+        if (golden || visibleSeries.contains(type)) {
+            applyOrbitFrame(frame,type);
+        }
+        if (golden) {
+            goldenOrbitCallbacks.forEach(c -> c.accept(type));
+        }
+    }
+
+    /**
+     * Writes the values from the orbit frame into the BPM properties that belong to the given series type. Only the
+     * slots which received a value are written and the golden values are not written to inhibited BPMs. If the frame
+     * does not match the current lattice, nothing happens.
+     *
+     * @param frame the frame to apply
+     * @param type the series type which defines the BPMs and the property
+     */
+    private void applyOrbitFrame(OrbitFrame frame, SeriesType type) {
+        final List<BPM> bpms = getBPMs(type);
+        if (bpms == null) return;
+        final Function<BPM,DoubleProperty> property;
+        boolean checkInhibited = false;
         switch (type) {
             case HORIZONTAL_ORBIT:
-                property = bpm -> bpm.positionProperty();
-                bpms = horizontalBPMs;
-                break;
             case VERTICAL_ORBIT:
-                property = bpm -> bpm.positionProperty();
-                bpms = verticalBPMs;
+                property = BPM::positionProperty;
                 break;
             case GOLDEN_HORIZONTAL_ORBIT:
-                property = bpm -> bpm.goldenPositionProperty();
-                inhibited = bpm -> bpm.inhibitedProperty().get();
-                bpms = horizontalBPMs;
-                callback = true;
-                break;
             case GOLDEN_VERTICAL_ORBIT:
-                property = bpm -> bpm.goldenPositionProperty();
-                inhibited = bpm -> bpm.inhibitedProperty().get();
-                bpms = verticalBPMs;
-                callback = true;
+                property = BPM::goldenPositionProperty;
+                checkInhibited = true;
                 break;
             case REFERENCE_HORIZONTAL_ORBIT:
-                property = bpm -> bpm.referencePositionProperty();
-                bpms = horizontalBPMs;
-                break;
             case REFERENCE_VERTICAL_ORBIT:
-                property = bpm -> bpm.referencePositionProperty();
-                bpms = verticalBPMs;
+                property = BPM::referencePositionProperty;
                 break;
             case DIFFERENCE_HORIZONTAL_ORBIT:
-                property = bpm -> bpm.differencePositionProperty();
-                bpms = horizontalBPMs;
-                break;
             case DIFFERENCE_VERTICAL_ORBIT:
-                property = bpm -> bpm.differencePositionProperty();
-                bpms = verticalBPMs;
+                property = BPM::differencePositionProperty;
+                break;
+            case HORIZONTAL_ORBIT_NOISE:
+            case VERTICAL_ORBIT_NOISE:
+                property = BPM::noiseProperty;
                 break;
             default:
                 return;
         }
+        final double[] values = frame.getValues();
+        final boolean[] valid = frame.getValid();
         synchronized (bpms) {
-            final Predicate<BPM> filterOut = inhibited;
-            long enabledCount = bpms.stream().filter(b -> b.enabledProperty().get()).count();
-            final IteratorNumber it = va.iterator();
+            if (bpms.size() != values.length) return;
             //no parallelism, we are on the ui thread
-            if (enabledCount == va.size()) {
-                bpms.stream().filter(b -> b.enabledProperty().get()).forEach(b -> {
-                    double val = it.nextDouble();
-                    if (!filterOut.test(b)) {
-                        property.apply(b).set(val);
-                    }
-                });
-            } else if (bpms.size() == va.size()) {
-                bpms.forEach(b -> {
-                    double val = it.nextDouble();
-                    if (!filterOut.test(b)) {
-                        property.apply(b).set(val);
-                    }
-                });
-            } else if (bpms.size() > va.size()) {
-                writeToLog(
-                        String.format("The number of %s values (%d) does not match the number of enabled bpms (%d/%d).",
-                                type.getSeriesName(),va.size(),enabledCount,bpms.size()),
-                        Level.WARNING,empty());
-                int i = 0;
-                while (it.hasNext()) {
-                    double val = it.nextDouble();
-                    BPM bpm = bpms.get(i++);
-                    if (!filterOut.test(bpm)) {
-                        property.apply(bpm).set(val);
+            for (int i = 0; i < values.length; i++) {
+                if (valid[i]) {
+                    BPM bpm = bpms.get(i);
+                    if (!checkInhibited || !bpm.inhibitedProperty().get()) {
+                        property.apply(bpm).set(values[i]);
                     }
                 }
-            } else {
-                if (bpms.isEmpty()) {
-                    writeToLog("Lattice information unknown.",Level.WARNING,empty());
-                }
-                writeToLog(
-                        String.format("The number of %s values (%d) does not match the number of enabled bpms (%d/%d).",
-                                type.getSeriesName(),va.size(),enabledCount,bpms.size()),
-                        Level.SEVERE,empty());
             }
         }
-        if (callback) {
-            goldenOrbitCallbacks.forEach(c -> c.accept(type));
+    }
+
+    /**
+     * Returns the list of BPMs (horizontal or vertical) which the given orbit series type belongs to.
+     *
+     * @param type the orbit series type
+     * @return the list of BPMs or null if the type is not an orbit series
+     */
+    private static LatticeElementType getBPMType(SeriesType type) {
+        switch (type) {
+            case HORIZONTAL_ORBIT:
+            case GOLDEN_HORIZONTAL_ORBIT:
+            case REFERENCE_HORIZONTAL_ORBIT:
+            case DIFFERENCE_HORIZONTAL_ORBIT:
+            case HORIZONTAL_ORBIT_NOISE:
+                return LatticeElementType.HORIZONTAL_BPM;
+            case VERTICAL_ORBIT:
+            case GOLDEN_VERTICAL_ORBIT:
+            case REFERENCE_VERTICAL_ORBIT:
+            case DIFFERENCE_VERTICAL_ORBIT:
+            case VERTICAL_ORBIT_NOISE:
+                return LatticeElementType.VERTICAL_BPM;
+            default:
+                return null;
+        }
+    }
+
+    private static Class<? extends LatticeElement> getElementClass(LatticeElementType type) {
+        switch (type) {
+            case HORIZONTAL_BPM:
+            case VERTICAL_BPM:
+                return BPM.class;
+            case HORIZONTAL_CORRECTOR:
+            case VERTICAL_CORRECTOR:
+                return Corrector.class;
+            case DIPOLE:
+                return Dipole.class;
+            case QUADRUPOLE:
+                return Quadrupole.class;
+            case SEXTUPOLE:
+                return Sextupole.class;
+            default:
+                return LatticeElement.class;
+        }
+    }
+
+    private List<? extends LatticeElement> getElements(LatticeElementType type) {
+        switch (type) {
+            case HORIZONTAL_BPM:
+                return horizontalBPMs;
+            case VERTICAL_BPM:
+                return verticalBPMs;
+            case HORIZONTAL_CORRECTOR:
+                return horizontalCorrectors;
+            case VERTICAL_CORRECTOR:
+                return verticalCorrectors;
+            case DIPOLE:
+                return dipoles;
+            case QUADRUPOLE:
+                return quadrupoles;
+            case SEXTUPOLE:
+                return sextupoles;
+            default:
+                return null;
+        }
+    }
+
+    private List<BPM> getBPMs(SeriesType type) {
+        switch (type) {
+            case HORIZONTAL_ORBIT:
+            case GOLDEN_HORIZONTAL_ORBIT:
+            case REFERENCE_HORIZONTAL_ORBIT:
+            case DIFFERENCE_HORIZONTAL_ORBIT:
+            case HORIZONTAL_ORBIT_NOISE:
+                return horizontalBPMs;
+            case VERTICAL_ORBIT:
+            case GOLDEN_VERTICAL_ORBIT:
+            case REFERENCE_VERTICAL_ORBIT:
+            case DIFFERENCE_VERTICAL_ORBIT:
+            case VERTICAL_ORBIT_NOISE:
+                return verticalBPMs;
+            default:
+                return null;
         }
     }
 
     /**
      * Updates the correctors lattice element which eventually triggers the chart update.
      *
-     * @param value new correctors values (VNumberArray expected)
+     * @param va new correctors values
      * @param type element type identifies whether the data belongs to horizontal or vertical correctors
      * @param cutoff true if the update is for the cutoff property or false if for the kick
      */
-    private void updateCorrectors(final VType value, final LatticeElementType type, final boolean cutoff) {
-        if (!(value instanceof VNumberArray)) return;
-        final ListNumber va = ((VNumberArray)value).getData();
-        if (va.size() == 0) return;
+    private void updateCorrectors(final ListNumber va, final LatticeElementType type, final boolean cutoff) {
+        if (va == null || va.size() == 0) return;
         List<Corrector> correctors;
         if (type == LatticeElementType.HORIZONTAL_CORRECTOR) {
             correctors = horizontalCorrectors;
@@ -1576,24 +2206,26 @@ public class OrbitCorrectionController {
                         Level.SEVERE,empty());
             }
         }
+        if (!cutoff) {
+            correctionCallbacks.forEach(c -> c.accept(type));
+        }
     }
 
     /**
      * Updates orbit correction results table entries.
      *
-     * @param value new values (VNumberArray of length 5 expected)
-     * @param pvKey the key identifying which orbit the results are for
+     * @param va new values (array of length 5 expected)
+     * @param statistics the channel identifying which orbit the results are for
      */
-    private void updateOrbitCorrectionResults(VType value, String pvKey) {
-        if (!(value instanceof VNumberArray)) return;
-        ListNumber va = ((VNumberArray)value).getData();
+    private void updateOrbitCorrectionResults(ListNumber va, Channel statistics) {
+        if (va == null || localStatistics) return;
         if (va.size() < 5) {
             writeToLog(String.format(
                     "Statistical parameters values for %s have incorrect dimension. 5 elements expected, but %d received.",
-                    pvKey,va.size()),Level.SEVERE,empty());
+                    statistics.getKey(),va.size()),Level.SEVERE,empty());
             return;
         }
-        ofNullable(correctionResultsEntries.get(pvKey)).ifPresent(entry -> {
+        ofNullable(correctionResultsEntries.get(statistics)).ifPresent(entry -> {
             entry.minProperty().set(format(va.getDouble(0)));
             entry.maxProperty().set(format(va.getDouble(1)));
             entry.avgProperty().set(format(va.getDouble(2)));
@@ -1602,6 +2234,82 @@ public class OrbitCorrectionController {
         });
     }
 
+    /**
+     * Updates the orbit correction results table entry of the given series with the statistics computed from the
+     * frame. Series without a table entry are ignored.
+     *
+     * @param frame the received orbit frame
+     * @param type the series type of the frame
+     */
+    private void updateOrbitStatistics(OrbitFrame frame, SeriesType type) {
+        final Channel statistics;
+        switch (type) {
+            case HORIZONTAL_ORBIT:
+                statistics = Channel.HORIZONTAL_ORBIT_STATISTICS;
+                break;
+            case VERTICAL_ORBIT:
+                statistics = Channel.VERTICAL_ORBIT_STATISTICS;
+                break;
+            case GOLDEN_HORIZONTAL_ORBIT:
+                statistics = Channel.GOLDEN_HORIZONTAL_ORBIT_STATISTICS;
+                break;
+            case GOLDEN_VERTICAL_ORBIT:
+                statistics = Channel.GOLDEN_VERTICAL_ORBIT_STATISTICS;
+                break;
+            case REFERENCE_HORIZONTAL_ORBIT:
+                statistics = Channel.REFERENCE_HORIZONTAL_ORBIT_STATISTICS;
+                break;
+            case REFERENCE_VERTICAL_ORBIT:
+                statistics = Channel.REFERENCE_VERTICAL_ORBIT_STATISTICS;
+                break;
+            default:
+                return;
+        }
+        ofNullable(correctionResultsEntries.get(statistics)).ifPresent(entry -> {
+            //the BPMs carry no weights, so all BPMs within the range contribute equally
+            final LatticeArrays bpms = getLatticeArrays(getBPMType(type));
+            final boolean[] selection = bpms.size() == frame.size()
+                    ? OrbitStatistics.selectRange(bpms.getPositions(),statisticsFrom,statisticsTo) : null;
+            OrbitStatistics s = OrbitStatistics.of(frame,null,selection);
+            entry.minProperty().set(format(s.getMin()));
+            entry.maxProperty().set(format(s.getMax()));
+            entry.avgProperty().set(format(s.getAvg()));
+            entry.rmsProperty().set(format(s.getRms()));
+            entry.stdProperty().set(format(s.getStd()));
+        });
+    }
+
+    /**
+     * Publishes the noise frame as the orbit frame of the noise series and updates the results table entry of the
+     * plane with the noisiest BPM and the number of stuck BPMs. The series and the table entries are updated on the UI
+     * thread.
+     *
+     * @param statistics the rolling statistics snapshot of the plane
+     * @param noise the standard deviation of each BPM or null if the statistics do not fit the lattice
+     * @param noiseType the noise series type of the plane
+     * @param entryChannel the channel identifying the results table entry of the plane
+     */
+    private void updateRollingStatistics(BPMStatistics statistics, OrbitFrame noise, SeriesType noiseType,
+            Channel entryChannel) {
+        final int noisiest = statistics.getNoisiest();
+        final double noiseValue = noisiest < 0 ? Double.NaN : format(statistics.getStd()[noisiest]);
+        String name = "";
+        if (noisiest > -1) {
+            final LatticeArrays bpms = getLatticeArrays(getBPMType(noiseType));
+            name = bpms.size() == statistics.size() ? bpms.getName(noisiest) : String.valueOf(noisiest);
+        }
+        final String noisiestBPM = name;
+        final String stuck = statistics.size() == 0 ? "" : String.valueOf(statistics.getStuckCount());
+        UI_EXECUTOR.execute(() -> {
+            publishOrbitFrame(noise,noiseType);
+            ofNullable(correctionResultsEntries.get(entryChannel)).ifPresent(entry -> {
+                entry.noiseProperty().set(noiseValue);
+                entry.noisiestBPMProperty().set(noisiestBPM);
+                entry.stuckProperty().set(stuck);
+            });
+        });
+    }
+
     /**
      * Format the value to be displayed in the orbit corrections statistics. The value is formatted to 3 decimal places.
      *
@@ -1621,67 +2329,34 @@ public class OrbitCorrectionController {
      * @param data data to be written, if present
      * @param successMessage message that is logged if write completed successfully
      * @param failureMessage message that is logged if write failed for any reason
-     * @param id the id of the execution, which makes sure that executions are not piled up
      */
-    private void writeData(PV pv, Object data, String successMessage, String failureMessage, int id) {
-        writeData(pv,data,id,w -> {
-            if (w.isWriteSucceeded()) {
+    private void writeData(ChannelState pv, Object data, String successMessage, String failureMessage) {
+        writeData(pv,data,failure -> {
+            if (failure == null) {
                 writeToLog(successMessage,Level.INFO,empty());
-            } else if (w.isWriteFailed()) {
-                writeFailure(w,failureMessage);
+            } else {
+                writeFailure(failure,failureMessage);
             }
         });
     }
 
-    private void writeFailure(PVWriterEvent<PV> event, String message) {
-        if (event.isExceptionChanged()) {
-            writeToLog(message,Level.SEVERE,of(event.getPvWriter().lastWriteException()));
-        } else {
-            writeToLog(message,Level.SEVERE,empty());
-        }
+    private void writeFailure(Throwable failure, String message) {
+        writeToLog(message,Level.SEVERE,ofNullable(failure));
     }
 
     /**
      * Writes data to the given PV. If data are provided they are written as waveform, otherwise 1 is written to the PV.
-     * After the write completes, a message is logged.
+     * The write goes through the write coalescer, so a quickly repeated write to the same channel replaces the pending
+     * one and only the last value is written.
      *
      * @param pv pv
      * @param data data to be written, if present
-     * @param id the id of the execution, which makes sure that executions are not piled up
-     * @param pvListener the listener which is notified upon completion of the action
+     * @param onComplete receives null when the write succeeded or the cause of the failure when it failed
      */
-    private void writeData(PV pv, Object data, int id, final Consumer<PVWriterEvent<PV>> pvListener) {
-        final PVWriterListener<PV> wrapperListener = new PVWriterListener<PV>() {
-
-            @Override
-            public void pvChanged(PVWriterEvent<PV> w) {
-                pvListener.accept(w);
-                w.getPvWriter().removePVWriterListener(this);
-            }
-        };
-        Runnable r = () -> {
-            synchronized (pv) {
-                pv.writer.addPVWriterListener(wrapperListener);
-                if (data instanceof VNumberArray) {
-                    pv.writer.write(((VNumberArray)data).getData());
-                } else if (data != null) {
-                    pv.writer.write(data);
-                } else {
-                    pv.writer.write(1);
-                }
-            }
-        };
-        if (id == 0) {
-            nonUIexecutor.execute(r);
-        } else {
-            //this is always on UI thread
-            ofNullable(tasks.get(id)).ifPresent(f -> f.cancel(false));
-            tasks.put(id,scheduler.schedule(r,300,TimeUnit.MILLISECONDS));
-        }
+    private void writeData(ChannelState pv, Object data, final Consumer<Throwable> onComplete) {
+        writeCoalescer.submit(pv.getChannel(),() -> pv.write(data).whenComplete((v, t) -> onComplete.accept(t)));
     }
 
-    private Map<Integer,Future<?>> tasks = new HashMap<>();
-
     /**
      * Converts data from the string array and writes it into PV.
      *
@@ -1689,33 +2364,31 @@ public class OrbitCorrectionController {
      * @param values new values
      * @param orbitName the orbit name (used for logging only)
      */
-    private void convertAndWriteData(PV pv, String[] values, String orbitName, int id) {
+    private void convertAndWriteData(ChannelState pv, String[] values, String orbitName) {
         double[] array = new double[values.length];
         for (int i = 0; i < values.length; i++) {
             array[i] = Double.parseDouble(values[i].trim()); // throw exception if value is not double
         }
         String successMessage = orbitName + " was successfully updated.";
         String failureMessage = "Error occured while updating " + orbitName + ".";
-        writeData(pv,new ArrayDouble(array),successMessage,failureMessage,0);
+        writeData(pv,new ArrayDouble(array),successMessage,failureMessage);
     }
 
     /**
      * Writes orbit values with weights into the file.
      *
      * @param file destination file in which values will be written
-     * @param xOrbitKey horizontal or golden horizontal orbit PV key
-     * @param yOrbitKey vertical or golden vertical orbit PV key
+     * @param xOrbitData horizontal or golden horizontal orbit
+     * @param yOrbitData vertical or golden vertical orbit
      * @param successMessage logged message if write succeeded
      * @param failureMessage logged message if write failed
      */
-    private void writeOrbitToFile(File file, String comment, String xOrbitKey, String yOrbitKey, String successMessage,
-            String failureMessage) {
-        if (!throttle.isRunning()) return;
-        final PV xOrbitPV = pvs.get(xOrbitKey);
-        final PV yOrbitPV = pvs.get(yOrbitKey);
-        nonUIexecutor.execute(() -> {
-            String xOrbit = xOrbitPV != null ? getStringValue(xOrbitPV.value) : EMPTY_STRING;
-            String yOrbit = yOrbitPV != null ? getStringValue(yOrbitPV.value) : EMPTY_STRING;
+    private void writeOrbitToFile(File file, String comment, ListNumber xOrbitData, ListNumber yOrbitData,
+            String successMessage, String failureMessage) {
+        if (!updateScheduler.isRunning()) return;
+        executeBlocking(BlockingTask.FILE_WRITE,() -> {
+            String xOrbit = getStringValue(xOrbitData);
+            String yOrbit = getStringValue(yOrbitData);
             try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(file.getPath()),StandardCharsets.UTF_8)) {
                 if (comment != null) {
                     writer.write("<" + comment + ">");
@@ -1733,14 +2406,13 @@ public class OrbitCorrectionController {
     }
 
     /**
-     * Transforms the value of the given {@link VType} to a human readable string.
+     * Transforms the given array of numbers to a human readable string.
      *
      * @param value data to transform
      * @return string representation of the data
      */
-    private static String getStringValue(VType value) {
-        if (value != null && value instanceof VNumberArray) {
-            ListNumber data = ((VNumberArray)value).getData();
+    private static String getStringValue(ListNumber data) {
+        if (data != null) {
             int size = data.size();
             StringBuilder sb = new StringBuilder(size * 15);
             for (int i = 0; i < size; i++) {
@@ -1759,7 +2431,7 @@ public class OrbitCorrectionController {
      *        message (logged as INFO)
      * @param exception exception to log; if present, the log will always be an error type
      */
-    private void writeToLog(String message, Level level, Optional<Exception> exception) {
+    private void writeToLog(String message, Level level, Optional<? extends Throwable> exception) {
         if (message == null) return;
         if (exception.isPresent()) {
             OrbitCorrectionPlugin.LOGGER.log(Level.SEVERE,message,exception.get());
@@ -67,6 +67,7 @@ public class OrbitCorrectionControls extends FXViewPart {
     private FileChooser fileChooser;
     private AdvancedDialog advancedDialog;
     private AdvancedGoldenOrbitDialog advancedGoldernOrbitDialog;
+    private CorrelationDialog correlationDialog;
 
     /*
      * (non-Javadoc)
@@ -164,7 +165,8 @@ public class OrbitCorrectionControls extends FXViewPart {
      * @return titled pane with correction results table.
      */
     private BorderedTitledPane createCorrectionResults() {
-        OrbitCorrectionResultsTable correctionResultsTable = new OrbitCorrectionResultsTable();
+        OrbitCorrectionResultsTable correctionResultsTable = new OrbitCorrectionResultsTable(
+                controller.rollingWindowProperty());
         correctionResultsTable.updateTable(new ArrayList<>(controller.getOrbitCorrectionResults().values()));
         return new BorderedTitledPane("Orbit Correction Results",correctionResultsTable);
     }
@@ -233,9 +235,13 @@ public class OrbitCorrectionControls extends FXViewPart {
         Button advancedButton = new MultiLineButton("Advanced...");
         advancedButton.setWrapText(true);
         advancedButton.setOnAction(e -> getAdvancedDialog().open());
+        Button correlationButton = new MultiLineButton("BPM Correlation...");
+        correlationButton.setTooltip(new Tooltip("Show the correlations between the readings of all BPMs"));
+        correlationButton.setWrapText(true);
+        correlationButton.setOnAction(e -> getCorrelationDialog().open());
         setFullResizable(startMeasuringOrbitButton,measureOrbitOnceButton,startOrbitCorrectionButton,
                 exportCurrentOrbitButton,stopMeasuringOrbitButton,correctOrbitOnceButton,stopOrbitCorrectionButton,
-                advancedButton,resetCorrectionButton);
+                advancedButton,resetCorrectionButton,correlationButton);
         orbitCorrectionControl.add(startMeasuringOrbitButton,0,0);
         orbitCorrectionControl.add(measureOrbitOnceButton,1,0);
         orbitCorrectionControl.add(startOrbitCorrectionButton,2,0);
@@ -244,6 +250,7 @@ public class OrbitCorrectionControls extends FXViewPart {
         orbitCorrectionControl.add(stopMeasuringOrbitButton,0,1);
         orbitCorrectionControl.add(correctOrbitOnceButton,1,1);
         orbitCorrectionControl.add(stopOrbitCorrectionButton,2,1);
+        orbitCorrectionControl.add(correlationButton,3,1);
         orbitCorrectionControl.add(advancedButton,4,1);
         return new BorderedTitledPane("Orbit Correction Control",orbitCorrectionControl);
     }
@@ -255,6 +262,13 @@ public class OrbitCorrectionControls extends FXViewPart {
         return advancedDialog;
     }
 
+    private CorrelationDialog getCorrelationDialog() {
+        if (correlationDialog == null) {
+            correlationDialog = new CorrelationDialog(getViewSite().getShell(),controller);
+        }
+        return correlationDialog;
+    }
+
     private AdvancedGoldenOrbitDialog getAdvancedGoldenOrbitDialog() {
         if (advancedGoldernOrbitDialog == null) {
             advancedGoldernOrbitDialog = new AdvancedGoldenOrbitDialog(getViewSite().getShell(),controller);
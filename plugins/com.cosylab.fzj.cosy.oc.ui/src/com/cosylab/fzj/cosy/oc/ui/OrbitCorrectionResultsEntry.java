@@ -35,6 +35,9 @@ public class OrbitCorrectionResultsEntry {
     private final DoubleProperty avg = new SimpleDoubleProperty(this,"avg");
     private final DoubleProperty rms = new SimpleDoubleProperty(this,"rms");
     private final DoubleProperty std = new SimpleDoubleProperty(this,"std");
+    private final DoubleProperty noise = new SimpleDoubleProperty(this,"noise",Double.NaN);
+    private final StringProperty noisiestBPM = new SimpleStringProperty(this,"noisiestBPM");
+    private final StringProperty stuck = new SimpleStringProperty(this,"stuck");
 
     /**
      * Constructs a new results entry with the given name.
@@ -98,4 +101,33 @@ public class OrbitCorrectionResultsEntry {
     public DoubleProperty stdProperty() {
         return std;
     }
+
+    /**
+     * Returns the property that provides the largest standard deviation of a single BPM over the rolling statistics
+     * window. The value is NaN for entries without rolling statistics.
+     *
+     * @return property providing the entry noise value
+     */
+    public DoubleProperty noiseProperty() {
+        return noise;
+    }
+
+    /**
+     * Returns the property that provides the name of the BPM with the largest standard deviation over the rolling
+     * statistics window.
+     *
+     * @return property providing the noisiest BPM name
+     */
+    public StringProperty noisiestBPMProperty() {
+        return noisiestBPM;
+    }
+
+    /**
+     * Returns the property that provides the number of BPMs which did not change over the rolling statistics window.
+     *
+     * @return property providing the number of stuck BPMs
+     */
+    public StringProperty stuckProperty() {
+        return stuck;
+    }
 }
@@ -20,8 +20,13 @@ package com.cosylab.fzj.cosy.oc.ui;
 import java.util.Arrays;
 import java.util.List;
 
+import com.cosylab.fzj.cosy.oc.orbit.RollingWindow;
+
 import javafx.beans.binding.Bindings;
+import javafx.beans.value.ObservableStringValue;
+import javafx.beans.value.ObservableValue;
 import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.Tooltip;
@@ -45,23 +50,63 @@ public class OrbitCorrectionResultsTable extends TableView<OrbitCorrectionResult
 
         Column(String title, String property) {
             this(property);
-            Label label = new Label(title);
             Tooltip tooltip = new Tooltip();
             tooltip.setGraphic(new ImageView(new Image(getClass().getResourceAsStream("/icons/" + property + ".png"))));
+            setHeader(title,tooltip);
+        }
+
+        Column(String title, String property, ObservableStringValue description) {
+            this(property);
+            Tooltip tooltip = new Tooltip();
+            tooltip.textProperty().bind(description);
+            setHeader(title,tooltip);
+        }
+
+        private void setHeader(String title, Tooltip tooltip) {
+            Label label = new Label(title);
+            label.setTooltip(tooltip);
+            label.setTextAlignment(TextAlignment.CENTER);
+            setGraphic(label);
+        }
+    }
+
+    private static class NoiseColumn extends TableColumn<OrbitCorrectionResultsEntry,Number> {
+
+        NoiseColumn(String title, ObservableStringValue description) {
+            setCellValueFactory(c -> c.getValue().noiseProperty());
+            setCellFactory(c -> new NoiseCell());
+            Label label = new Label(title);
+            Tooltip tooltip = new Tooltip();
+            tooltip.textProperty().bind(description);
             label.setTooltip(tooltip);
             label.setTextAlignment(TextAlignment.CENTER);
             setGraphic(label);
         }
     }
 
+    private static class NoiseCell extends TableCell<OrbitCorrectionResultsEntry,Number> {
+
+        @Override
+        protected void updateItem(Number item, boolean empty) {
+            super.updateItem(item,empty);
+            if (empty || item == null || Double.isNaN(item.doubleValue())) {
+                setText(null);
+            } else {
+                setText(String.valueOf(item.doubleValue()));
+            }
+        }
+    }
+
     /**
      * Constructs new orbit correction results table.
+     *
+     * @param rollingWindow the rolling window over which the noise and the stuck BPMs are evaluated
      */
-    public OrbitCorrectionResultsTable() {
+    public OrbitCorrectionResultsTable(ObservableValue<RollingWindow> rollingWindow) {
         setEditable(false);
         setMaxWidth(Double.MAX_VALUE);
         setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-        createTable();
+        createTable(rollingWindow);
         setFixedCellSize(23);
         String s = System.getProperty("os.name","nix").toLowerCase();
         final int c = s.contains("win") ? 26 : 29;
@@ -70,10 +115,20 @@ public class OrbitCorrectionResultsTable extends TableView<OrbitCorrectionResult
 
     /**
      * Creates orbit correction results table columns.
+     *
+     * @param rollingWindow the rolling window over which the noise and the stuck BPMs are evaluated
      */
-    private void createTable() {
+    private void createTable(ObservableValue<RollingWindow> rollingWindow) {
+        final ObservableStringValue window = Bindings.createStringBinding(() -> rollingWindow.getValue().getLabel(),
+                rollingWindow);
         getColumns().addAll(Arrays.asList(new Column("name"),new Column("Min [mm]","min"),new Column("Max [mm]","max"),
                 new Column("Average [mm]","avg"),new Column("RMS [mm]","rms"),new Column("STD [mm]","std")));
+        getColumns().add(new NoiseColumn("Max BPM STD [mm]",
+                Bindings.concat("The largest standard deviation of a single BPM over the last ",window)));
+        getColumns().addAll(Arrays.asList(new Column("Noisiest BPM","noisiestBPM",
+                Bindings.concat("The BPM with the largest standard deviation over the last ",window)),
+                new Column("Stuck BPMs","stuck",
+                        Bindings.concat("The number of BPMs which did not change over the last ",window))));
     }
 
     /**
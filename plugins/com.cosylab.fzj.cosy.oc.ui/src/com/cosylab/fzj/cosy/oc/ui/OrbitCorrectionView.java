@@ -25,16 +25,30 @@ import java.lang.reflect.Field;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 
 import org.eclipse.fx.ui.workbench3.FXViewPart;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementType;
+import com.cosylab.fzj.cosy.oc.Preferences;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeArrays;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate;
+import com.cosylab.fzj.cosy.oc.orbit.BPMSpectrum;
+import com.cosylab.fzj.cosy.oc.orbit.OrbitFrame;
+import com.cosylab.fzj.cosy.oc.orbit.RollingWindow;
+import com.cosylab.fzj.cosy.oc.ui.ArrayLineChart.LayerStyle;
 import com.cosylab.fzj.cosy.oc.ui.model.BPM;
 import com.cosylab.fzj.cosy.oc.ui.model.Corrector;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeChange;
 import com.cosylab.fzj.cosy.oc.ui.model.LatticeElement;
+import com.cosylab.fzj.cosy.oc.ui.model.LatticeSnapshot;
 import com.cosylab.fzj.cosy.oc.ui.model.SeriesType;
 import com.cosylab.fzj.cosy.oc.ui.util.HorizontalAxis;
 import com.cosylab.fzj.cosy.oc.ui.util.SymmetricAxis;
@@ -60,6 +74,7 @@ import javafx.scene.chart.ValueAxis;
 import javafx.scene.chart.XYChart.Data;
 import javafx.scene.chart.XYChart.Series;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Tooltip;
 import javafx.scene.effect.ColorAdjust;
 import javafx.scene.effect.Effect;
@@ -80,6 +95,7 @@ public class OrbitCorrectionView extends FXViewPart {
 
     /** The ID of this view */
     static final String ID = "com.cosylab.fzj.cosy.oc.ui.orbitcorrection";
+    private static final String ALL_BPMS = "All BPMs (RMS)";
 
     private static enum ChartType {
         ORBIT, CORRECTIONS, LATTICE
@@ -105,13 +121,23 @@ public class OrbitCorrectionView extends FXViewPart {
         }
     };
     private CheckBox hOrbitCheckBox, vOrbitCheckBox, hGoldenOrbitCheckBox, vGoldenOrbitCheckBox, hReferenceCheckBox,
-            vReferenceCheckBox, hDifferenceCheckBox, vDifferenceCheckBox;
+            vReferenceCheckBox, hDifferenceCheckBox, vDifferenceCheckBox, hNoiseCheckBox, vNoiseCheckBox;
     private CheckBox hCorrectorsCheckBox, vCorrectorsCheckBox;
     private CheckBox bpmLatticeCheckBox, hCorrectorsLatticeCheckBox, vCorrectorsLatticeCheckBox, dipolesLatticeCheckBox,
             quadsLatticeCheckBox, sextupolesLatticeCheckBox;
-    private LineChart<Number,Number> orbitChart, latticeChart;
+    private ArrayLineChart<Number,Number> orbitChart, latticeChart;
     private CorrectionsChart<Number,Number> correctionsChart;
     private ZoomableLineChart orbitZoom, correctionsZoom, latticeZoom;
+    private LineChart<Number,Number> spectrumChart;
+    private Node orbitAxis;
+    private CheckBox spectrumCheckBox;
+    private ComboBox<String> spectrumBPMComboBox;
+    private ComboBox<RollingWindow> noiseWindowComboBox;
+    //the latest horizontal and vertical spectrum, kept to redraw the chart when a different BPM is selected
+    private final BPMSpectrum[] spectra = { BPMSpectrum.EMPTY, BPMSpectrum.EMPTY };
+    private final BiConsumer<Boolean,BPMSpectrum> spectrumCallback = this::updateSpectrum;
+    //series with more elements than the threshold are drawn as array layers instead of as chart data
+    private final int largeLatticeThreshold = Preferences.getInstance().getLargeLatticeThreshold();
     private OrbitCorrectionController controller;
     private Scene scene;
     private static boolean tooltipDelaySet = false;
@@ -143,6 +169,9 @@ public class OrbitCorrectionView extends FXViewPart {
     public OrbitCorrectionView() {
         controller = new OrbitCorrectionController();
         controller.addLaticeUpdateCallback(this::recreateAllCharts);
+        controller.addLatticeChangeCallback(this::applyLatticeChanges);
+        controller.addOrbitFrameCallback(this::updateOrbitLayer);
+        controller.addCorrectionCallback(this::updateCorrectionLayer);
     }
 
     /**
@@ -171,6 +200,7 @@ public class OrbitCorrectionView extends FXViewPart {
         Effect effectChart = connected ? null : new ColorAdjust(0.0,0.8,0.2,0);
         orbitChart.setEffect(effectChart);
         correctionsChart.setEffect(effectChart);
+        spectrumChart.setEffect(effectChart);
     }
 
     /*
@@ -228,7 +258,8 @@ public class OrbitCorrectionView extends FXViewPart {
         GridPane.setMargin(latticeLegendNode,new Insets(0,10,0,10));
         setGridConstraints(latticeNode,true,false,Priority.ALWAYS,Priority.NEVER);
         setGridConstraints(latticeLegendNode,true,false,HPos.LEFT,VPos.TOP,Priority.NEVER,Priority.NEVER);
-        charts.add(createVerticalAxis(orbitChart,"Position [mm]"),0,0);
+        orbitAxis = createVerticalAxis(orbitChart,"Position [mm]");
+        charts.add(orbitAxis,0,0);
         charts.add(orbitNode,1,0);
         charts.add(orbitLegendNode,2,0);
         charts.add(createVerticalAxis(correctionsChart,
@@ -241,6 +272,11 @@ public class OrbitCorrectionView extends FXViewPart {
         charts.add(correctionLegendNode,2,1);
         charts.add(latticeNode,1,2);
         charts.add(latticeLegendNode,2,2);
+        //the spectrum chart shares the cell with the orbit chart and is shown instead of it when selected
+        Region spectrumNode = createSpectrumChart();
+        setGridConstraints(spectrumNode,true,true,Priority.ALWAYS,Priority.ALWAYS);
+        spectrumNode.setVisible(false);
+        charts.add(spectrumNode,1,0);
         //        setFullResizable(orbitNode,correctionNode,orbitLegendNode,correctionLegendNode);
         configureChartSynchronisation();
         charts.setMinWidth(0);
@@ -277,6 +313,13 @@ public class OrbitCorrectionView extends FXViewPart {
             correctionsZoom.doHorizontalZoom(((HorizontalAxis)latticeChart.getXAxis()).getLowerBound(),n.doubleValue());
             orbitZoom.doHorizontalZoom(((HorizontalAxis)latticeChart.getXAxis()).getLowerBound(),n.doubleValue());
         });
+        //the local orbit statistics are computed over the visible part of the ring
+        final HorizontalAxis orbitAxis = (HorizontalAxis)orbitChart.getXAxis();
+        ChangeListener<Number> rangeListener = (a, o, n) -> controller
+                .setStatisticsRange(orbitAxis.getLowerBound(),orbitAxis.getUpperBound());
+        orbitAxis.lowerBoundProperty().addListener(rangeListener);
+        orbitAxis.upperBoundProperty().addListener(rangeListener);
+        controller.setStatisticsRange(orbitAxis.getLowerBound(),orbitAxis.getUpperBound());
         ChangeListener<Boolean> zoomListener = (a, o, n) -> {
             // whenever default zoom is called, call it on all three charts
             if (n) {
@@ -338,9 +381,15 @@ public class OrbitCorrectionView extends FXViewPart {
             if (hDifferenceCheckBox.isSelected()) {
                 addSeries(ChartType.ORBIT,SeriesType.DIFFERENCE_HORIZONTAL_ORBIT,false);
             }
+            if (hNoiseCheckBox.isSelected()) {
+                addSeries(ChartType.ORBIT,SeriesType.HORIZONTAL_ORBIT_NOISE,false);
+            }
             if (bpmLatticeCheckBox.isSelected()) {
                 addSeries(ChartType.LATTICE,SeriesType.BPM,false);
             }
+            if (spectrumCheckBox.isSelected()) {
+                updateSpectrumBPMs();
+            }
             if (dipolesLatticeCheckBox.isSelected()) {
                 addSeries(ChartType.LATTICE,SeriesType.DIPOLES,false);
             }
@@ -363,9 +412,15 @@ public class OrbitCorrectionView extends FXViewPart {
             if (vDifferenceCheckBox.isSelected()) {
                 addSeries(ChartType.ORBIT,SeriesType.DIFFERENCE_VERTICAL_ORBIT,false);
             }
+            if (vNoiseCheckBox.isSelected()) {
+                addSeries(ChartType.ORBIT,SeriesType.VERTICAL_ORBIT_NOISE,false);
+            }
             if (bpmLatticeCheckBox.isSelected()) {
                 addSeries(ChartType.LATTICE,SeriesType.BPM,false);
             }
+            if (spectrumCheckBox.isSelected()) {
+                updateSpectrumBPMs();
+            }
         } else if (type == LatticeElementType.HORIZONTAL_CORRECTOR) {
             if (hCorrectorsCheckBox.isSelected()) {
                 addSeries(ChartType.CORRECTIONS,SeriesType.HORIZONTAL_CORRECTORS_CORRECTION,false);
@@ -398,7 +453,7 @@ public class OrbitCorrectionView extends FXViewPart {
         yAxis.setTickMarkVisible(false);
         yAxis.setMinorTickVisible(false);
         yAxis.autoRangingProperty().set(true);
-        orbitChart = new LineChart<>(xAxis,yAxis);
+        orbitChart = new ArrayLineChart<>(xAxis,yAxis);
         orbitChart.setLegendVisible(false);
         orbitChart.setAnimated(false);
         orbitChart.getStyleClass().add("orbit-chart");
@@ -411,11 +466,102 @@ public class OrbitCorrectionView extends FXViewPart {
         addSeries(ChartType.ORBIT,SeriesType.REFERENCE_VERTICAL_ORBIT,false);
         addSeries(ChartType.ORBIT,SeriesType.DIFFERENCE_HORIZONTAL_ORBIT,false);
         addSeries(ChartType.ORBIT,SeriesType.DIFFERENCE_VERTICAL_ORBIT,false);
+        addSeries(ChartType.ORBIT,SeriesType.HORIZONTAL_ORBIT_NOISE,false);
+        addSeries(ChartType.ORBIT,SeriesType.VERTICAL_ORBIT_NOISE,false);
         orbitZoom = new ZoomableLineChart(orbitChart,false,true,true);
         setMinMax(orbitChart,orbitZoom);
         return orbitZoom;
     }
 
+    /**
+     * @return region with configured noise spectrum chart.
+     */
+    private Region createSpectrumChart() {
+        NumberAxis xAxis = new NumberAxis();
+        xAxis.setLabel("Frequency [Hz]");
+        xAxis.setAnimated(false);
+        xAxis.setMinorTickVisible(false);
+        NumberAxis yAxis = new NumberAxis();
+        yAxis.setLabel("Amplitude [mm]");
+        yAxis.setAnimated(false);
+        yAxis.setMinorTickVisible(false);
+        spectrumChart = new LineChart<>(xAxis,yAxis);
+        spectrumChart.setAnimated(false);
+        spectrumChart.setCreateSymbols(false);
+        spectrumChart.getStyleClass().addAll("orbit-chart","spectrum-chart");
+        spectrumChart.getData().add(new Series<>("Horizontal",FXCollections.observableArrayList()));
+        spectrumChart.getData().add(new Series<>("Vertical",FXCollections.observableArrayList()));
+        setMinMax(spectrumChart);
+        return spectrumChart;
+    }
+
+    /**
+     * Shows the spectrum chart instead of the orbit chart or vice versa. The spectra are only computed while the
+     * spectrum chart is shown.
+     *
+     * @param visible true to show the spectrum chart or false to show the orbit chart
+     */
+    private void setSpectrumVisible(boolean visible) {
+        orbitZoom.setVisible(!visible);
+        orbitAxis.setVisible(!visible);
+        spectrumChart.setVisible(visible);
+        spectrumBPMComboBox.setDisable(!visible);
+        if (visible) {
+            updateSpectrumBPMs();
+            controller.addSpectrumCallback(spectrumCallback);
+        } else {
+            controller.removeSpectrumCallback(spectrumCallback);
+        }
+    }
+
+    /**
+     * Fills the spectrum BPM selector with the names of all BPMs. The current selection is kept if the BPM still
+     * exists.
+     */
+    private void updateSpectrumBPMs() {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(ALL_BPMS);
+        controller.getHorizontalBPMs().forEach(bpm -> names.add(bpm.nameProperty().get()));
+        controller.getVerticalBPMs().forEach(bpm -> names.add(bpm.nameProperty().get()));
+        String selected = spectrumBPMComboBox.getValue();
+        spectrumBPMComboBox.getItems().setAll(names);
+        spectrumBPMComboBox.setValue(names.contains(selected) ? selected : ALL_BPMS);
+    }
+
+    /**
+     * Shows the spectrum of the selected BPM in the given plane. If all BPMs are selected, the RMS spectrum over all
+     * BPMs of the plane is shown. The DC bin is not displayed.
+     *
+     * @param horizontal true for the horizontal or false for the vertical plane
+     * @param spectrum the spectrum of all BPMs in the plane
+     */
+    private void updateSpectrum(boolean horizontal, BPMSpectrum spectrum) {
+        spectra[horizontal ? 0 : 1] = spectrum;
+        String name = spectrumBPMComboBox.getValue();
+        double[] amplitudes = null;
+        if (name == null || ALL_BPMS.equals(name)) {
+            amplitudes = spectrum.getRMSAmplitudes();
+        } else {
+            List<BPM> bpms = horizontal ? controller.getHorizontalBPMs() : controller.getVerticalBPMs();
+            if (bpms.size() == spectrum.size()) {
+                for (int i = 0; i < bpms.size(); i++) {
+                    if (name.equals(bpms.get(i).nameProperty().get())) {
+                        amplitudes = spectrum.getAmplitudes(i);
+                        break;
+                    }
+                }
+            }
+        }
+        List<Data<Number,Number>> data = new ArrayList<>();
+        if (amplitudes != null) {
+            double[] frequencies = spectrum.getFrequencies();
+            for (int k = 1; k < amplitudes.length; k++) {
+                data.add(new Data<>(frequencies[k],amplitudes[k]));
+            }
+        }
+        spectrumChart.getData().get(horizontal ? 0 : 1).getData().setAll(data);
+    }
+
     /**
      * @return region with configured corrections chart.
      */
@@ -461,7 +607,7 @@ public class OrbitCorrectionView extends FXViewPart {
         yAxis.setMinorTickVisible(false);
         xAxis.setTickLabelsVisible(true);
         xAxis.setTickMarkVisible(true);
-        latticeChart = new LineChart<>(xAxis,yAxis);
+        latticeChart = new ArrayLineChart<>(xAxis,yAxis);
         latticeChart.setLegendVisible(false);
         latticeChart.setAnimated(false);
         latticeChart.getStyleClass().add("lattice-chart");
@@ -527,6 +673,14 @@ public class OrbitCorrectionView extends FXViewPart {
         vDifferenceCheckBox.setSelected(false);
         vDifferenceCheckBox.setOnAction(actionSupplier.apply(SeriesType.DIFFERENCE_VERTICAL_ORBIT));
         vDifferenceCheckBox.getStyleClass().add("difference-vertical-check-box");
+        hNoiseCheckBox = new TooltipCheckBox("Horizontal Orbit Noise");
+        hNoiseCheckBox.setSelected(false);
+        hNoiseCheckBox.setOnAction(actionSupplier.apply(SeriesType.HORIZONTAL_ORBIT_NOISE));
+        hNoiseCheckBox.getStyleClass().add("noise-horizontal-check-box");
+        vNoiseCheckBox = new TooltipCheckBox("Vertical Orbit Noise");
+        vNoiseCheckBox.setSelected(false);
+        vNoiseCheckBox.setOnAction(actionSupplier.apply(SeriesType.VERTICAL_ORBIT_NOISE));
+        vNoiseCheckBox.getStyleClass().add("noise-vertical-check-box");
         legend.add(hOrbitCheckBox,0,0);
         legend.add(vOrbitCheckBox,0,1);
         legend.add(hGoldenOrbitCheckBox,0,2);
@@ -535,8 +689,46 @@ public class OrbitCorrectionView extends FXViewPart {
         legend.add(vReferenceCheckBox,0,5);
         legend.add(hDifferenceCheckBox,0,6);
         legend.add(vDifferenceCheckBox,0,7);
+        legend.add(hNoiseCheckBox,0,8);
+        legend.add(vNoiseCheckBox,0,9);
+        noiseWindowComboBox = new ComboBox<>();
+        noiseWindowComboBox.getItems().setAll(RollingWindow.values());
+        noiseWindowComboBox.setConverter(new StringConverter<RollingWindow>() {
+
+            @Override
+            public String toString(RollingWindow window) {
+                return window == null ? "" : window.getLabel();
+            }
+
+            @Override
+            public RollingWindow fromString(String string) {
+                return null;
+            }
+        });
+        noiseWindowComboBox.setTooltip(new Tooltip("The window over which the noise and stuck BPMs are evaluated"));
+        noiseWindowComboBox.valueProperty().bindBidirectional(controller.rollingWindowProperty());
+        legend.add(noiseWindowComboBox,0,10);
+        spectrumCheckBox = new TooltipCheckBox("Noise Spectrum");
+        spectrumCheckBox.setSelected(false);
+        spectrumCheckBox.setOnAction(e -> setSpectrumVisible(spectrumCheckBox.isSelected()));
+        spectrumBPMComboBox = new ComboBox<>();
+        spectrumBPMComboBox.setTooltip(new Tooltip("The BPM whose spectrum is shown"));
+        spectrumBPMComboBox.setDisable(true);
+        spectrumBPMComboBox.setOnAction(e -> {
+            updateSpectrum(true,spectra[0]);
+            updateSpectrum(false,spectra[1]);
+        });
+        legend.add(spectrumCheckBox,0,11);
+        legend.add(spectrumBPMComboBox,0,12);
         setMinMax(legend,hOrbitCheckBox,vOrbitCheckBox,hGoldenOrbitCheckBox,vGoldenOrbitCheckBox,hReferenceCheckBox,
-                vReferenceCheckBox,hDifferenceCheckBox,vDifferenceCheckBox);
+                vReferenceCheckBox,hDifferenceCheckBox,vDifferenceCheckBox,hNoiseCheckBox,vNoiseCheckBox,
+                spectrumCheckBox);
+        controller.setSeriesVisible(SeriesType.REFERENCE_HORIZONTAL_ORBIT,hReferenceCheckBox.isSelected());
+        controller.setSeriesVisible(SeriesType.REFERENCE_VERTICAL_ORBIT,vReferenceCheckBox.isSelected());
+        controller.setSeriesVisible(SeriesType.DIFFERENCE_HORIZONTAL_ORBIT,hDifferenceCheckBox.isSelected());
+        controller.setSeriesVisible(SeriesType.DIFFERENCE_VERTICAL_ORBIT,vDifferenceCheckBox.isSelected());
+        controller.setSeriesVisible(SeriesType.HORIZONTAL_ORBIT_NOISE,hNoiseCheckBox.isSelected());
+        controller.setSeriesVisible(SeriesType.VERTICAL_ORBIT_NOISE,vNoiseCheckBox.isSelected());
         return legend;
     }
 
@@ -682,9 +874,11 @@ public class OrbitCorrectionView extends FXViewPart {
 
     /**
      * Adds given series type to the given chart. Series could also be empty if the given empty flag is set to true.
+     * If the series has more elements than the large-lattice threshold, the series itself is left empty and the
+     * points are drawn by an array layer of the chart.
      */
     private void addSeries(ChartType chartType, SeriesType seriesType, boolean empty) {
-        LineChart<Number,Number> chart = null;
+        ArrayLineChart<Number,Number> chart = null;
         if (chartType == ChartType.ORBIT) {
             chart = orbitChart;
         } else if (chartType == ChartType.CORRECTIONS) {
@@ -694,13 +888,221 @@ public class OrbitCorrectionView extends FXViewPart {
         } else {
             return;
         }
+        final boolean large = !empty && isLargeLattice(seriesType);
         Series<Number,Number> series = empty ? new Series<>("Empty Series",FXCollections.emptyObservableList())
-                : new Series<>(seriesType.getSeriesName(),getData(chartType,seriesType));
+                : new Series<>(seriesType.getSeriesName(),
+                        large ? FXCollections.observableArrayList() : getData(chartType,seriesType));
         if (chart.getData().size() > seriesType.getSeriesIndex()) {
             chart.getData().set(seriesType.getSeriesIndex(),series);
         } else {
             chart.getData().add(series);
         }
+        if (large) {
+            updateLayer(chartType,seriesType);
+        } else {
+            chart.removeLayer(seriesType.getSeriesIndex());
+        }
+        if (chartType == ChartType.ORBIT) {
+            //hidden series do not need to receive the orbit updates and array layers are drawn from the orbit frames
+            controller.setSeriesVisible(seriesType,!empty && !large);
+        }
+    }
+
+    /**
+     * Returns the types of the lattice elements which are drawn by the given series.
+     *
+     * @param seriesType the series type
+     * @return the lattice element types
+     */
+    private static LatticeElementType[] getElementTypes(SeriesType seriesType) {
+        switch (seriesType) {
+            case HORIZONTAL_ORBIT:
+            case GOLDEN_HORIZONTAL_ORBIT:
+            case REFERENCE_HORIZONTAL_ORBIT:
+            case DIFFERENCE_HORIZONTAL_ORBIT:
+            case HORIZONTAL_ORBIT_NOISE:
+                return new LatticeElementType[] { LatticeElementType.HORIZONTAL_BPM };
+            case VERTICAL_ORBIT:
+            case GOLDEN_VERTICAL_ORBIT:
+            case REFERENCE_VERTICAL_ORBIT:
+            case DIFFERENCE_VERTICAL_ORBIT:
+            case VERTICAL_ORBIT_NOISE:
+                return new LatticeElementType[] { LatticeElementType.VERTICAL_BPM };
+            case HORIZONTAL_CORRECTORS_CORRECTION:
+            case HORIZONTAL_CORRECTORS:
+                return new LatticeElementType[] { LatticeElementType.HORIZONTAL_CORRECTOR };
+            case VERTICAL_CORRECTORS_CORRECTION:
+            case VERTICAL_CORRECTORS:
+                return new LatticeElementType[] { LatticeElementType.VERTICAL_CORRECTOR };
+            case BPM:
+                return new LatticeElementType[] { LatticeElementType.HORIZONTAL_BPM, LatticeElementType.VERTICAL_BPM };
+            case DIPOLES:
+                return new LatticeElementType[] { LatticeElementType.DIPOLE };
+            case QUADS:
+                return new LatticeElementType[] { LatticeElementType.QUADRUPOLE };
+            case SEXTUPOLES:
+                return new LatticeElementType[] { LatticeElementType.SEXTUPOLE };
+            default:
+                return new LatticeElementType[0];
+        }
+    }
+
+    /**
+     * @param seriesType the series type
+     * @return true if the series has more elements than the large-lattice threshold or false otherwise
+     */
+    private boolean isLargeLattice(SeriesType seriesType) {
+        if (largeLatticeThreshold < 0) return false;
+        return Arrays.stream(getElementTypes(seriesType)).mapToInt(t -> controller.getLatticeArrays(t).size())
+                .sum() > largeLatticeThreshold;
+    }
+
+    /**
+     * Draws the given series as an array layer of its chart. The layer is built from the lattice arrays and the latest
+     * orbit frame or corrector values.
+     *
+     * @param chartType chart type
+     * @param seriesType series type
+     */
+    private void updateLayer(ChartType chartType, SeriesType seriesType) {
+        final LatticeElementType[] types = getElementTypes(seriesType);
+        if (types.length == 0) return;
+        if (chartType == ChartType.ORBIT) {
+            setOrbitLayer(seriesType,controller.getLatticeArrays(types[0]),
+                    controller.getOrbitFrame(seriesType).orElse(null));
+        } else if (chartType == ChartType.CORRECTIONS) {
+            setCorrectionLayer(seriesType);
+        } else if (chartType == ChartType.LATTICE) {
+            final LatticeArrays[] arrays = Arrays.stream(types).map(controller::getLatticeArrays)
+                    .toArray(LatticeArrays[]::new);
+            if (seriesType == SeriesType.BPM) {
+                setMarkerLayer(seriesType,LayerStyle.MARKER,true,arrays);
+            } else if (seriesType == SeriesType.HORIZONTAL_CORRECTORS
+                    || seriesType == SeriesType.VERTICAL_CORRECTORS) {
+                setMarkerLayer(seriesType,LayerStyle.ROUND_MARKER,true,arrays);
+            } else {
+                setMarkerLayer(seriesType,LayerStyle.MARKER,false,arrays);
+            }
+        }
+    }
+
+    /**
+     * Called whenever a new orbit frame is received. If the series of the frame is drawn as an array layer, the layer
+     * is replaced by the new orbit.
+     *
+     * @param seriesType the orbit series type
+     * @param frame the received frame
+     */
+    private void updateOrbitLayer(SeriesType seriesType, OrbitFrame frame) {
+        if (scene == null || !orbitChart.hasLayer(seriesType.getSeriesIndex())) return;
+        setOrbitLayer(seriesType,controller.getLatticeArrays(getElementTypes(seriesType)[0]),frame);
+    }
+
+    /**
+     * Called whenever new corrector kicks are received. If the corrections series of the given corrector type is
+     * drawn as an array layer, the layer is replaced by the new kicks.
+     *
+     * @param type the type of the correctors that were updated
+     */
+    private void updateCorrectionLayer(LatticeElementType type) {
+        if (scene == null) return;
+        SeriesType seriesType = type == LatticeElementType.HORIZONTAL_CORRECTOR
+                ? SeriesType.HORIZONTAL_CORRECTORS_CORRECTION : SeriesType.VERTICAL_CORRECTORS_CORRECTION;
+        if (correctionsChart.hasLayer(seriesType.getSeriesIndex())) {
+            setCorrectionLayer(seriesType);
+        }
+    }
+
+    /**
+     * Sets the orbit layer of the given series. Like the orbit series, the layer contains the enabled BPMs (all BPMs
+     * for the golden orbit), which received a value, and two points beyond the ends of the ring extrapolated from the
+     * first and the last of those BPMs.
+     *
+     * @param seriesType the orbit series type
+     * @param bpms the BPMs of the plane of the series
+     * @param frame the orbit frame to draw or null if no orbit was received yet
+     */
+    private void setOrbitLayer(SeriesType seriesType, LatticeArrays bpms, OrbitFrame frame) {
+        final boolean golden = seriesType == SeriesType.GOLDEN_HORIZONTAL_ORBIT
+                || seriesType == SeriesType.GOLDEN_VERTICAL_ORBIT;
+        final double[] x = new double[bpms.size() + 2];
+        final double[] y = new double[x.length];
+        final String[] names = new String[x.length];
+        int n = 0;
+        if (frame != null && frame.size() == bpms.size()) {
+            final double[] values = frame.getValues();
+            final boolean[] valid = frame.getValid();
+            for (int i = 0; i < values.length; i++) {
+                if (valid[i] && (golden || bpms.isEnabled(i))) {
+                    n++;
+                    x[n] = bpms.getPosition(i);
+                    y[n] = values[i];
+                    names[n] = bpms.getName(i);
+                }
+            }
+        }
+        final int index = seriesType.getSeriesIndex();
+        if (n == 0) {
+            orbitChart.setLayer(index,LayerStyle.LINE,new double[0],new double[0],new String[0]);
+            return;
+        }
+        final double k = (y[1] - y[n]) / (x[1] - x[n] + CIRCUMFERENCE);
+        x[0] = -2.5;
+        y[0] = y[1] + k * (x[0] - x[1]);
+        x[n + 1] = CIRCUMFERENCE + 1;
+        y[n + 1] = y[n] + k * (x[n + 1] - x[n]);
+        orbitChart.setLayer(index,LayerStyle.LINE,Arrays.copyOf(x,n + 2),Arrays.copyOf(y,n + 2),
+                Arrays.copyOf(names,n + 2));
+    }
+
+    /**
+     * Sets the corrections layer of the given series from the current kicks of the enabled correctors.
+     *
+     * @param seriesType the corrections series type
+     */
+    private void setCorrectionLayer(SeriesType seriesType) {
+        final List<Corrector> correctors = seriesType == SeriesType.HORIZONTAL_CORRECTORS_CORRECTION
+                ? controller.getHorizontalCorrectors() : controller.getVerticalCorrectors();
+        final double[] x = new double[correctors.size()];
+        final double[] y = new double[x.length];
+        final String[] names = new String[x.length];
+        int n = 0;
+        for (Corrector corrector : correctors) {
+            if (corrector.enabledProperty().get()) {
+                x[n] = corrector.locationProperty().get();
+                y[n] = corrector.correctionProperty().get();
+                names[n] = corrector.nameProperty().get();
+                n++;
+            }
+        }
+        correctionsChart.setLayer(seriesType.getSeriesIndex(),LayerStyle.BAR,Arrays.copyOf(x,n),Arrays.copyOf(y,n),
+                Arrays.copyOf(names,n));
+    }
+
+    /**
+     * Sets the lattice layer of the given series, which marks the positions of the elements.
+     *
+     * @param seriesType the lattice series type
+     * @param style the marker style
+     * @param enabledOnly true if only the enabled elements are marked or false if all
+     * @param arrays the elements to mark
+     */
+    private void setMarkerLayer(SeriesType seriesType, LayerStyle style, boolean enabledOnly,
+            LatticeArrays... arrays) {
+        final int size = Arrays.stream(arrays).mapToInt(a -> enabledOnly ? a.getEnabledCount() : a.size()).sum();
+        final double[] x = new double[size];
+        final String[] names = new String[size];
+        int n = 0;
+        for (LatticeArrays elements : arrays) {
+            for (int i = 0; i < elements.size(); i++) {
+                if (!enabledOnly || elements.isEnabled(i)) {
+                    x[n] = elements.getPosition(i);
+                    names[n] = elements.getName(i);
+                    n++;
+                }
+            }
+        }
+        latticeChart.setLayer(seriesType.getSeriesIndex(),style,x,null,names);
     }
 
     /**
@@ -731,169 +1133,285 @@ public class OrbitCorrectionView extends FXViewPart {
      */
     private ObservableList<Data<Number,Number>> getData(ChartType chartType, SeriesType seriesType) {
         ObservableList<Data<Number,Number>> data = FXCollections.observableArrayList();
+        getSeriesElements(seriesType).stream().filter(e -> isShown(seriesType,e))
+                .forEach(e -> data.add(createDataPoint(chartType,seriesType,e)));
+        if (chartType == ChartType.ORBIT) {
+            addHiddenPoints(seriesType,data);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the elements which can be shown by the given series, in the order in which they are shown.
+     *
+     * @param seriesType series type
+     * @return the elements of the series
+     */
+    private List<? extends LatticeElement> getSeriesElements(SeriesType seriesType) {
+        if (seriesType == SeriesType.BPM) {
+            List<BPM> allBPMs = new ArrayList<>();
+            allBPMs.addAll(controller.getVerticalBPMs());
+            allBPMs.addAll(controller.getHorizontalBPMs());
+            allBPMs.sort(null);
+            return allBPMs;
+        }
+        LatticeElementType[] types = getElementTypes(seriesType);
+        return types.length == 0 ? new ArrayList<>() : controller.getLatticeSnapshot(types[0]);
+    }
+
+    /**
+     * @param seriesType series type
+     * @param element the lattice element
+     * @return true if the element is shown by the series or false otherwise
+     */
+    private static boolean isShown(SeriesType seriesType, LatticeElement element) {
+        switch (seriesType) {
+            case GOLDEN_HORIZONTAL_ORBIT:
+            case GOLDEN_VERTICAL_ORBIT:
+            case DIPOLES:
+            case QUADS:
+            case SEXTUPOLES:
+                return true;
+            default:
+                return element.enabledProperty().get();
+        }
+    }
+
+    /**
+     * @param seriesType orbit series type
+     * @return the function which provides the property of the BPM shown by the series
+     */
+    private static Function<BPM,DoubleProperty> getOrbitProperty(SeriesType seriesType) {
+        switch (seriesType) {
+            case GOLDEN_HORIZONTAL_ORBIT:
+            case GOLDEN_VERTICAL_ORBIT:
+                return BPM::goldenPositionProperty;
+            case REFERENCE_HORIZONTAL_ORBIT:
+            case REFERENCE_VERTICAL_ORBIT:
+                return BPM::referencePositionProperty;
+            case DIFFERENCE_HORIZONTAL_ORBIT:
+            case DIFFERENCE_VERTICAL_ORBIT:
+                return BPM::differencePositionProperty;
+            case HORIZONTAL_ORBIT_NOISE:
+            case VERTICAL_ORBIT_NOISE:
+                return BPM::noiseProperty;
+            default:
+                return BPM::positionProperty;
+        }
+    }
+
+    /**
+     * Creates the data point, which shows the given element in the given series. The element is stored as the extra
+     * value of the point.
+     *
+     * @param chartType chart type
+     * @param seriesType series type
+     * @param element the element to show
+     * @return the data point
+     */
+    private Data<Number,Number> createDataPoint(ChartType chartType, SeriesType seriesType, LatticeElement element) {
+        final Data<Number,Number> dataPoint;
         if (chartType == ChartType.ORBIT) {
-            final Function<BPM,DoubleProperty> property;
-            Predicate<BPM> filter = bpm -> bpm.enabledProperty().get();
-            List<BPM> bpms;
-            if (seriesType == SeriesType.VERTICAL_ORBIT) {
-                property = bpm -> bpm.positionProperty();
-                bpms = controller.getVerticalBPMs();
-            } else if (seriesType == SeriesType.HORIZONTAL_ORBIT) {
-                property = bpm -> bpm.positionProperty();
-                bpms = controller.getHorizontalBPMs();
-            } else if (seriesType == SeriesType.GOLDEN_VERTICAL_ORBIT) {
-                property = bpm -> bpm.goldenPositionProperty();
-                filter = bpm -> true;
-                bpms = controller.getVerticalBPMs();
-            } else if (seriesType == SeriesType.GOLDEN_HORIZONTAL_ORBIT) {
-                property = bpm -> bpm.goldenPositionProperty();
-                filter = bpm -> true;
-                bpms = controller.getHorizontalBPMs();
-            } else if (seriesType == SeriesType.REFERENCE_VERTICAL_ORBIT) {
-                property = bpm -> bpm.referencePositionProperty();
-                bpms = controller.getVerticalBPMs();
-            } else if (seriesType == SeriesType.REFERENCE_HORIZONTAL_ORBIT) {
-                property = bpm -> bpm.referencePositionProperty();
-                bpms = controller.getHorizontalBPMs();
-            } else if (seriesType == SeriesType.DIFFERENCE_VERTICAL_ORBIT) {
-                property = bpm -> bpm.differencePositionProperty();
-                bpms = controller.getVerticalBPMs();
-            } else if (seriesType == SeriesType.DIFFERENCE_HORIZONTAL_ORBIT) {
-                property = bpm -> bpm.differencePositionProperty();
-                bpms = controller.getHorizontalBPMs();
+            final BPM bpm = (BPM)element;
+            final Function<BPM,DoubleProperty> property = getOrbitProperty(seriesType);
+            dataPoint = new Data<>();
+            dataPoint.XValueProperty().bind(bpm.locationProperty());
+            dataPoint.YValueProperty().bind(property.apply(bpm));
+            dataPoint.nodeProperty().addListener((a, o, n) -> {
+                if (n != null) {
+                    Tooltip tooltip = new Tooltip(bpm.nameProperty().get());
+                    tooltip.textProperty()
+                            .bind(dataPoint.YValueProperty().asString(bpm.nameProperty().get() + ": %3.4f"));
+                    Tooltip.install(n,tooltip);
+                    if (seriesType == SeriesType.GOLDEN_VERTICAL_ORBIT
+                            || seriesType == SeriesType.GOLDEN_HORIZONTAL_ORBIT) {
+                        n.setOnMousePressed(e -> {
+                            orbitZoom.inhibitZoomProperty().set(true);
+                            bpm.inhibitedProperty().set(true);
+                            getSeriesElements(seriesType).forEach(b -> ((BPM)b).goldenPositionWishProperty()
+                                    .set(((BPM)b).goldenPositionProperty().get()));
+                        });
+                        n.setOnMouseReleased(e -> {
+                            orbitZoom.inhibitZoomProperty().set(false);
+                            bpm.inhibitedProperty().set(false);
+                        });
+                        n.setOnMouseDragged(e -> {
+                            double val = orbitChart.getYAxis()
+                                    .getValueForDisplay(e.getSceneY() - orbitChart.getPadding().getTop())
+                                    .doubleValue();
+                            val = (long)(val * 1000.0) / 1000.0;
+                            bpm.goldenPositionWishProperty().set(val);
+                            property.apply(bpm).set(val);
+                            controller.updateGoldenOrbit(seriesType == SeriesType.GOLDEN_HORIZONTAL_ORBIT,
+                                    seriesType == SeriesType.GOLDEN_VERTICAL_ORBIT);
+                        });
+                    }
+                }
+            });
+        } else if (chartType == ChartType.CORRECTIONS) {
+            final Corrector corrector = (Corrector)element;
+            dataPoint = new Data<>();
+            dataPoint.XValueProperty().bind(corrector.locationProperty());
+            dataPoint.YValueProperty().bind(corrector.correctionProperty());
+            dataPoint.nodeProperty().addListener((a, o, n) -> {
+                if (n != null) {
+                    Tooltip tooltip = new Tooltip(corrector.nameProperty().get());
+                    tooltip.textProperty()
+                            .bind(dataPoint.YValueProperty().asString(corrector.nameProperty().get() + ": %3.4f"));
+                    Tooltip.install(n,tooltip);
+                }
+            });
+        } else {
+            dataPoint = new Data<>(element.locationProperty().get(),0d);
+            dataPoint.XValueProperty().bind(element.locationProperty());
+            dataPoint.nodeProperty().addListener((a, o, n) -> {
+                if (n != null) {
+                    Tooltip.install(n,new Tooltip(element.nameProperty().get()));
+                }
+            });
+        }
+        dataPoint.setExtraValue(element);
+        return dataPoint;
+    }
+
+    /**
+     * Adds the two hidden points of the orbit series at both ends of the data. The points lie outside of the visible
+     * range and are placed on the line, which connects the last BPM with the first one over the end of the ring.
+     *
+     * @param seriesType orbit series type
+     * @param data the data of the series
+     */
+    private void addHiddenPoints(SeriesType seriesType, List<Data<Number,Number>> data) {
+        final List<? extends LatticeElement> bpms = getSeriesElements(seriesType);
+        if (bpms.isEmpty()) return;
+        final Function<BPM,DoubleProperty> property = getOrbitProperty(seriesType);
+        final BPM first = (BPM)bpms.get(0);
+        final BPM last = (BPM)bpms.get(bpms.size() - 1);
+        //put this point to -5, but calculate the linear extrapolation
+        Data<Number,Number> hiddenPointFirst = new Data<>();
+        DoubleBinding k = property.apply(first).subtract(property.apply(last))
+                .divide(first.locationProperty().get() - last.locationProperty().get() + CIRCUMFERENCE);
+        hiddenPointFirst.XValueProperty().set(-2.5);
+        hiddenPointFirst.YValueProperty()
+                .bind(k.multiply(-2.5 - first.locationProperty().get()).add(property.apply(first)));
+        data.add(0,hiddenPointFirst);
+        Data<Number,Number> hiddenPointLast = new Data<>();
+        hiddenPointLast.XValueProperty().set(CIRCUMFERENCE + 1);
+        k = property.apply(first).subtract(property.apply(last))
+                .divide(CIRCUMFERENCE + first.locationProperty().get() - last.locationProperty().get());
+        hiddenPointLast.YValueProperty()
+                .bind(k.multiply(CIRCUMFERENCE + 1 - last.locationProperty().get()).add(property.apply(last)));
+        data.add(hiddenPointLast);
+    }
+
+    /**
+     * Applies the lattice changes to all shown series of the changed element type. Instead of rebuilding the series,
+     * only the points of the inserted, removed and moved elements are replaced; all other points and their bindings
+     * are kept. Series drawn as array layers are redrawn from the new lattice.
+     *
+     * @param snapshot the new elements of the changed type
+     * @param changes the changes of the elements
+     */
+    private void applyLatticeChanges(LatticeSnapshot<?> snapshot, List<LatticeChange> changes) {
+        if (scene == null) return;
+        final LatticeElementType type = snapshot.getType();
+        for (SeriesType seriesType : SeriesType.values()) {
+            if (!Arrays.asList(getElementTypes(seriesType)).contains(type)) continue;
+            final ChartType chartType = getChartType(seriesType);
+            final ArrayLineChart<Number,Number> chart = getChart(chartType);
+            final int index = seriesType.getSeriesIndex();
+            if (chart.getData().size() <= index
+                    || !seriesType.getSeriesName().equals(chart.getData().get(index).getName())) {
+                //the series is not shown
+                continue;
+            }
+            if (chart.hasLayer(index) != isLargeLattice(seriesType)) {
+                addSeries(chartType,seriesType,false);
+            } else if (chart.hasLayer(index)) {
+                updateLayer(chartType,seriesType);
             } else {
-                return data;
-            }
-            if (!bpms.isEmpty()) {
-                BPM first = bpms.get(0);
-                BPM last = bpms.get(bpms.size() - 1);
-                //put this point to -5, but calculate the linear extrapolation
-                Data<Number,Number> hiddenPointFirst = new Data<>();
-                DoubleBinding k = property.apply(first).subtract(property.apply(last))
-                        .divide(first.locationProperty().get() - last.locationProperty().get() + CIRCUMFERENCE);
-                hiddenPointFirst.XValueProperty().set(-2.5);
-                hiddenPointFirst.YValueProperty()
-                        .bind(k.multiply(-2.5 - first.locationProperty().get()).add(property.apply(first)));
-                data.add(hiddenPointFirst);
-                bpms.stream().filter(filter).forEach(bpm -> {
-                    Data<Number,Number> dataPoint = new Data<>();
-                    dataPoint.XValueProperty().bind(bpm.locationProperty());
-                    dataPoint.YValueProperty().bind(property.apply(bpm));
-                    dataPoint.nodeProperty().addListener((a, o, n) -> {
-                        if (n != null) {
-                            Tooltip tooltip = new Tooltip(bpm.nameProperty().get());
-                            tooltip.textProperty()
-                                    .bind(dataPoint.YValueProperty().asString(bpm.nameProperty().get() + ": %3.4f"));
-                            Tooltip.install(n,tooltip);
-                            if (seriesType == SeriesType.GOLDEN_VERTICAL_ORBIT
-                                    || seriesType == SeriesType.GOLDEN_HORIZONTAL_ORBIT) {
-                                n.setOnMousePressed(e -> {
-                                    orbitZoom.inhibitZoomProperty().set(true);
-                                    bpm.inhibitedProperty().set(true);
-                                    bpms.forEach(
-                                            b -> b.goldenPositionWishProperty().set(b.goldenPositionProperty().get()));
-                                });
-                                n.setOnMouseReleased(e -> {
-                                    orbitZoom.inhibitZoomProperty().set(false);
-                                    bpm.inhibitedProperty().set(false);
-                                });
-                                n.setOnMouseDragged(e -> {
-                                    double val = orbitChart.getYAxis()
-                                            .getValueForDisplay(e.getSceneY() - orbitChart.getPadding().getTop())
-                                            .doubleValue();
-                                    val = (long)(val * 1000.0) / 1000.0;
-                                    bpm.goldenPositionWishProperty().set(val);
-                                    property.apply(bpm).set(val);
-                                    controller.updateGoldenOrbit(
-                                            seriesType == SeriesType.GOLDEN_HORIZONTAL_ORBIT,
-                                            seriesType == SeriesType.GOLDEN_VERTICAL_ORBIT);
-                                });
+                patchSeries(chartType,seriesType,snapshot,changes,chart.getData().get(index).getData());
+            }
+        }
+        if ((type == LatticeElementType.HORIZONTAL_BPM || type == LatticeElementType.VERTICAL_BPM)
+                && spectrumCheckBox.isSelected()) {
+            updateSpectrumBPMs();
+        }
+    }
+
+    /**
+     * Replaces the points of the changed elements in the series data. The order of the points only matters for the
+     * orbit lines, which follow the order of the BPMs in the snapshot; other points are appended.
+     *
+     * @param chartType chart type
+     * @param seriesType series type
+     * @param snapshot the new elements of the changed type
+     * @param changes the changes of the elements
+     * @param data the data of the series
+     */
+    private void patchSeries(ChartType chartType, SeriesType seriesType, LatticeSnapshot<?> snapshot,
+            List<LatticeChange> changes, ObservableList<Data<Number,Number>> data) {
+        final Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        changes.forEach(c -> changed.add(c.getElement()));
+        final boolean orbit = chartType == ChartType.ORBIT;
+        //the hidden orbit points have no element and are recreated, because they depend on the first and last BPM
+        data.removeIf(d -> changed.contains(d.getExtraValue()) || orbit && d.getExtraValue() == null);
+        final Map<Object,Integer> order = new IdentityHashMap<>();
+        if (orbit) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                order.put(snapshot.get(i),i);
+            }
+        }
+        changes.stream().filter(c -> c.getKind() != LatticeUpdate.Kind.REMOVED)
+                .sorted((a, b) -> Integer.compare(a.getNewIndex(),b.getNewIndex())).forEach(c -> {
+                    if (!isShown(seriesType,c.getElement())) return;
+                    int position = data.size();
+                    if (orbit) {
+                        for (int i = 0; i < data.size(); i++) {
+                            if (order.getOrDefault(data.get(i).getExtraValue(),-1) > c.getNewIndex()) {
+                                position = i;
+                                break;
                             }
                         }
-                    });
-                    data.add(dataPoint);
-                });
-                Data<Number,Number> hiddenPointLast = new Data<>();
-                hiddenPointLast.XValueProperty().set(CIRCUMFERENCE + 1);
-                k = property.apply(first).subtract(property.apply(last))
-                        .divide(CIRCUMFERENCE + first.locationProperty().get() - last.locationProperty().get());
-                hiddenPointLast.YValueProperty()
-                        .bind(k.multiply(CIRCUMFERENCE + 1 - last.locationProperty().get()).add(property.apply(last)));
-                data.add(hiddenPointLast);
-            }
-        } else if (chartType == ChartType.CORRECTIONS) {
-            List<Corrector> correctors;
-            if (seriesType == SeriesType.HORIZONTAL_CORRECTORS_CORRECTION) {
-                correctors = controller.getHorizontalCorrectors();
-            } else if (seriesType == SeriesType.VERTICAL_CORRECTORS_CORRECTION) {
-                correctors = controller.getVerticalCorrectors();
-            } else {
-                return data;
-            }
-            correctors.stream().filter(corrector -> corrector.enabledProperty().get()).forEach(corrector -> {
-                Data<Number,Number> dataPoint = new Data<>();
-                dataPoint.XValueProperty().bind(corrector.locationProperty());
-                dataPoint.YValueProperty().bind(corrector.correctionProperty());
-                dataPoint.nodeProperty().addListener((a, o, n) -> {
-                    if (n != null) {
-                        Tooltip tooltip = new Tooltip(corrector.nameProperty().get());
-                        tooltip.textProperty()
-                                .bind(dataPoint.YValueProperty().asString(corrector.nameProperty().get() + ": %3.4f"));
-                        Tooltip.install(n,tooltip);
                     }
+                    data.add(position,createDataPoint(chartType,seriesType,c.getElement()));
                 });
-                data.add(dataPoint);
-            });
+        if (orbit) {
+            addHiddenPoints(seriesType,data);
+        }
+    }
+
+    /**
+     * @param seriesType series type
+     * @return the chart which shows the series
+     */
+    private static ChartType getChartType(SeriesType seriesType) {
+        switch (seriesType) {
+            case HORIZONTAL_CORRECTORS_CORRECTION:
+            case VERTICAL_CORRECTORS_CORRECTION:
+                return ChartType.CORRECTIONS;
+            case BPM:
+            case HORIZONTAL_CORRECTORS:
+            case VERTICAL_CORRECTORS:
+            case DIPOLES:
+            case QUADS:
+            case SEXTUPOLES:
+                return ChartType.LATTICE;
+            default:
+                return ChartType.ORBIT;
+        }
+    }
+
+    /**
+     * @param chartType chart type
+     * @return the chart of the given type
+     */
+    private ArrayLineChart<Number,Number> getChart(ChartType chartType) {
+        if (chartType == ChartType.CORRECTIONS) {
+            return correctionsChart;
         } else if (chartType == ChartType.LATTICE) {
-            if (seriesType == SeriesType.BPM) {
-                List<BPM> allBPMs = new ArrayList<>();
-                allBPMs.addAll(controller.getVerticalBPMs());
-                allBPMs.addAll(controller.getHorizontalBPMs());
-                allBPMs.stream().filter(bpm -> bpm.enabledProperty().get()).sorted().forEach(bpm -> {
-                    Data<Number,Number> dataPoint = new Data<>(bpm.locationProperty().get(),0d);
-                    dataPoint.XValueProperty().bind(bpm.locationProperty());
-                    dataPoint.nodeProperty().addListener((a, o, n) -> {
-                        if (n != null) {
-                            Tooltip.install(n,new Tooltip(bpm.nameProperty().get()));
-                        }
-                    });
-                    data.add(dataPoint);
-                });
-            } else if (seriesType == SeriesType.DIPOLES || seriesType == SeriesType.QUADS
-                    || seriesType == SeriesType.SEXTUPOLES) {
-                List<LatticeElement> elements = seriesType == SeriesType.DIPOLES ? controller.getDipoles()
-                        : (seriesType == SeriesType.QUADS ? controller.getQuadrupoles() : controller.getSextupoles());
-                elements.forEach(mag -> {
-                    Data<Number,Number> dataPoint = new Data<>(mag.locationProperty().get(),0d);
-                    dataPoint.XValueProperty().bind(mag.locationProperty());
-                    dataPoint.nodeProperty().addListener((a, o, n) -> {
-                        if (n != null) {
-                            Tooltip.install(n,new Tooltip(mag.nameProperty().get()));
-                        }
-                    });
-                    data.add(dataPoint);
-                });
-            } else {
-                List<Corrector> correctors;
-                if (seriesType == SeriesType.HORIZONTAL_CORRECTORS) {
-                    correctors = controller.getHorizontalCorrectors();
-                } else if (seriesType == SeriesType.VERTICAL_CORRECTORS) {
-                    correctors = controller.getVerticalCorrectors();
-                } else {
-                    return data;
-                }
-                correctors.stream().filter(corrector -> corrector.enabledProperty().get()).forEach(corrector -> {
-                    Data<Number,Number> dataPoint = new Data<>(corrector.locationProperty().get(),0);
-                    dataPoint.XValueProperty().bind(corrector.locationProperty());
-                    dataPoint.nodeProperty().addListener((a, o, n) -> {
-                        if (n != null) {
-                            Tooltip.install(n,new Tooltip(corrector.nameProperty().get()));
-                        }
-                    });
-                    data.add(dataPoint);
-                });
-            }
+            return latticeChart;
         }
-        return data;
+        return orbitChart;
     }
 }
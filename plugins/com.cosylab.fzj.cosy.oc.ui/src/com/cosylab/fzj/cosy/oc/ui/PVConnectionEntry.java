@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui;
+
+import java.util.concurrent.TimeUnit;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+
+/**
+ * <code>PVConnectionEntry</code> represents the connection state of a single PV used by the orbit correction (a row
+ * of the PV connections table), together with the startup timeline of the PV: the time it took to connect and to
+ * receive the first value after the channel was created. The entry is only modified on the UI thread.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class PVConnectionEntry {
+
+    private final ReadOnlyStringWrapper channel = new ReadOnlyStringWrapper(this,"channel");
+    private final ReadOnlyStringWrapper pvName = new ReadOnlyStringWrapper(this,"pvName");
+    private final BooleanProperty connected = new SimpleBooleanProperty(this,"connected",false);
+    private final ReadOnlyDoubleWrapper connectTime = new ReadOnlyDoubleWrapper(this,"connectTime",Double.NaN);
+    private final ReadOnlyDoubleWrapper firstValueTime = new ReadOnlyDoubleWrapper(this,"firstValueTime",Double.NaN);
+
+    /**
+     * Constructs a new disconnected entry.
+     *
+     * @param channel the key of the channel, which identifies the role of the PV
+     * @param pvName the name of the PV
+     */
+    public PVConnectionEntry(String channel, String pvName) {
+        this.channel.set(channel);
+        this.pvName.set(pvName);
+    }
+
+    /**
+     * Returns the property that provides the key of the channel, which the PV is connected to.
+     *
+     * @return property providing the channel key
+     */
+    public ReadOnlyStringProperty channelProperty() {
+        return channel.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the property that provides the name of the PV.
+     *
+     * @return property providing the PV name
+     */
+    public ReadOnlyStringProperty pvNameProperty() {
+        return pvName.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the property that is true while the PV is connected and false otherwise.
+     *
+     * @return property providing the connection state
+     */
+    public BooleanProperty connectedProperty() {
+        return connected;
+    }
+
+    /**
+     * Returns the property that provides the time in milliseconds from the creation of the channel until the PV was
+     * first connected, or NaN if the PV has never been connected.
+     *
+     * @return property providing the connect latency
+     */
+    public ReadOnlyDoubleProperty connectTimeProperty() {
+        return connectTime.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the property that provides the time in milliseconds from the creation of the channel until the PV
+     * received its first value, or NaN if the PV has not received any value yet.
+     *
+     * @return property providing the first value latency
+     */
+    public ReadOnlyDoubleProperty firstValueTimeProperty() {
+        return firstValueTime.getReadOnlyProperty();
+    }
+
+    /**
+     * Sets the startup timeline of the PV. Negative durations mean that the event has not happened yet.
+     *
+     * @param connectNanos the duration until the first connection in nanoseconds
+     * @param firstValueNanos the duration until the first value in nanoseconds
+     */
+    public void setTimeline(long connectNanos, long firstValueNanos) {
+        connectTime.set(connectNanos < 0 ? Double.NaN : connectNanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+        firstValueTime
+                .set(firstValueNanos < 0 ? Double.NaN : firstValueNanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui;
+
+import java.util.Arrays;
+
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+
+/**
+ * <code>PVConnectionsTable</code> is a table which shows the connection state of each PV used by the orbit correction.
+ * Disconnected PVs are always listed first. The startup timeline columns show how long each PV took to connect and to
+ * receive its first value.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class PVConnectionsTable extends TableView<PVConnectionEntry> {
+
+    private static class ConnectedCell extends TableCell<PVConnectionEntry,Boolean> {
+
+        @Override
+        protected void updateItem(Boolean item, boolean empty) {
+            super.updateItem(item,empty);
+            if (empty || item == null) {
+                setText(null);
+                setStyle(null);
+            } else if (item) {
+                setText("Connected");
+                setStyle(null);
+            } else {
+                setText("Disconnected");
+                setStyle("-fx-text-fill: red; -fx-font-weight: bold");
+            }
+        }
+    }
+
+    private static class LatencyCell extends TableCell<PVConnectionEntry,Number> {
+
+        @Override
+        protected void updateItem(Number item, boolean empty) {
+            super.updateItem(item,empty);
+            if (empty || item == null || Double.isNaN(item.doubleValue())) {
+                setText(null);
+            } else {
+                setText(String.valueOf(Math.round(item.doubleValue())));
+            }
+        }
+    }
+
+    /**
+     * Constructs a new table, which displays the given entries.
+     *
+     * @param entries the entries to display
+     */
+    public PVConnectionsTable(ObservableList<PVConnectionEntry> entries) {
+        setEditable(false);
+        setMaxWidth(Double.MAX_VALUE);
+        setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        setFixedCellSize(23);
+        createTable();
+        SortedList<PVConnectionEntry> sorted = new SortedList<>(entries,
+                (a, b) -> Boolean.compare(a.connectedProperty().get(),b.connectedProperty().get()));
+        setItems(sorted);
+    }
+
+    /**
+     * Creates the connection table columns.
+     */
+    private void createTable() {
+        TableColumn<PVConnectionEntry,String> channelColumn = new TableColumn<>("Channel");
+        channelColumn.setCellValueFactory(new PropertyValueFactory<>("channel"));
+        TableColumn<PVConnectionEntry,String> pvColumn = new TableColumn<>("PV");
+        pvColumn.setCellValueFactory(new PropertyValueFactory<>("pvName"));
+        TableColumn<PVConnectionEntry,Boolean> connectedColumn = new TableColumn<>("State");
+        connectedColumn.setCellValueFactory(new PropertyValueFactory<>("connected"));
+        connectedColumn.setCellFactory(c -> new ConnectedCell());
+        TableColumn<PVConnectionEntry,Number> connectColumn = new TableColumn<>("Connect [ms]");
+        connectColumn.setCellValueFactory(new PropertyValueFactory<>("connectTime"));
+        connectColumn.setCellFactory(c -> new LatencyCell());
+        TableColumn<PVConnectionEntry,Number> firstValueColumn = new TableColumn<>("First Value [ms]");
+        firstValueColumn.setCellValueFactory(new PropertyValueFactory<>("firstValueTime"));
+        firstValueColumn.setCellFactory(c -> new LatencyCell());
+        getColumns().addAll(
+                Arrays.asList(channelColumn,pvColumn,connectedColumn,connectColumn,firstValueColumn));
+    }
+}
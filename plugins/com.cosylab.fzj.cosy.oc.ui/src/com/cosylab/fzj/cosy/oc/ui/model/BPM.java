@@ -17,7 +17,7 @@
  */
 package com.cosylab.fzj.cosy.oc.ui.model;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -38,6 +38,7 @@ public class BPM extends LatticeElement {
     private final DoubleProperty position = new SimpleDoubleProperty(this,"position",0);
     private final DoubleProperty referencePosition = new SimpleDoubleProperty(this,"referencePosition",0);
     private final DoubleProperty differencePosition = new SimpleDoubleProperty(this,"differencePosition",0);
+    private final DoubleProperty noise = new SimpleDoubleProperty(this,"noise",0);
     private final DoubleProperty goldenPosition = new SimpleDoubleProperty(this,"goldenPosition",0);
     private final DoubleProperty goldenPositionWish = new SimpleDoubleProperty(this,"goldenPositionWish",0);
     private final BooleanProperty goldenDifferent = new SimpleBooleanProperty(this,"goldenDifferent",false);
@@ -80,6 +81,16 @@ public class BPM extends LatticeElement {
         return differencePosition;
     }
 
+    /**
+     * Property providing the standard deviation of the position measured at this BPM over the rolling statistics
+     * window.
+     *
+     * @return property providing the position noise
+     */
+    public DoubleProperty noiseProperty() {
+        return noise;
+    }
+
     /**
      * Return the property that specifies if the BPM is inhibited or not. When inhibited, golden position value changes
      * from remote server should not be made.
@@ -17,7 +17,7 @@
  */
 package com.cosylab.fzj.cosy.oc.ui.model;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.model;
+
+import com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate.Kind;
+
+/**
+ * <code>LatticeChange</code> describes what happened to a single lattice element when the IOC changed the list of
+ * elements: the element was inserted, removed, moved to a different place in the order of the elements or updated
+ * with a new position. Elements that only shifted because other elements were inserted or removed before them are not
+ * reported as moved, and the smallest possible set of elements is reported as moved. A moved element may also have a
+ * new position. The changes are the {@link com.cosylab.fzj.cosy.oc.lattice.LatticeUpdate.Change}s of the lattice model
+ * of the engine, bound to the elements of the view.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatticeChange {
+
+    private final Kind kind;
+    private final LatticeElement element;
+    private final int oldIndex;
+    private final int newIndex;
+
+    /**
+     * Constructs a new change.
+     *
+     * @param kind the kind of the change
+     * @param element the changed element
+     * @param oldIndex the index of the element before the change (-1 for an inserted element)
+     * @param newIndex the index of the element after the change (-1 for a removed element)
+     */
+    public LatticeChange(Kind kind, LatticeElement element, int oldIndex, int newIndex) {
+        this.kind = kind;
+        this.element = element;
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+    }
+
+    /**
+     * @return the kind of the change
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the changed element
+     */
+    public LatticeElement getElement() {
+        return element;
+    }
+
+    /**
+     * @return the index of the element before the change or -1 if the element was inserted
+     */
+    public int getOldIndex() {
+        return oldIndex;
+    }
+
+    /**
+     * @return the index of the element after the change or -1 if the element was removed
+     */
+    public int getNewIndex() {
+        return newIndex;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return kind + " " + element.nameProperty().get() + " [" + oldIndex + " -> " + newIndex + "]";
+    }
+}
@@ -17,9 +17,7 @@
  */
 package com.cosylab.fzj.cosy.oc.ui.model;
 
-import java.util.Objects;
-
-import com.cosylab.fzj.cosy.oc.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -42,12 +40,13 @@ public abstract class LatticeElement implements Comparable<LatticeElement> {
     private final StringProperty name = new SimpleStringProperty(this,"name","");
     private final DoubleProperty location = new SimpleDoubleProperty(this,"location",0d);
     private final BooleanProperty enableDifferent = new SimpleBooleanProperty(this,"enableDifferent",false);
-    private final LatticeElementData elementData;
+    private LatticeElementData elementData;
 
     /**
      * Constructs the lattice element for the lattice element data. The parameter describes the initial values for this
      * element, which are later used only by equals and hash code methods. If the name or the location is changed via
-     * the properties, the encapsulated element is not updated.
+     * the properties, the encapsulated element is not updated; the data is only replaced by
+     * {@link #setElementData(LatticeElementData)}.
      *
      * @param elementData the lattice element data
      */
@@ -67,6 +66,19 @@ public abstract class LatticeElement implements Comparable<LatticeElement> {
         return elementData;
     }
 
+    /**
+     * Replaces the lattice element data of this element, when the element is reused for a changed lattice, and
+     * updates the name and location to the new data. The data defines the equality of the elements, so the element
+     * must not be contained in any hash based collection when this method is called.
+     *
+     * @param elementData the new lattice element data
+     */
+    public void setElementData(LatticeElementData elementData) {
+        this.elementData = elementData;
+        this.locationProperty().set(elementData.getPosition());
+        this.nameProperty().set(elementData.getName());
+    }
+
     /**
      * Returns the property providing the name of this element.
      *
@@ -142,7 +154,7 @@ public abstract class LatticeElement implements Comparable<LatticeElement> {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(elementData.getName(),elementData.getPosition(),elementData.getType());
+        return elementData.hashCode();
     }
 
     /*
@@ -154,8 +166,7 @@ public abstract class LatticeElement implements Comparable<LatticeElement> {
         if (this == obj) return true;
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
-        LatticeElement other = (LatticeElement)obj;
-        return Objects.equals(elementData,other.elementData);
+        return elementData.equals(((LatticeElement)obj).elementData);
     }
 
     /*
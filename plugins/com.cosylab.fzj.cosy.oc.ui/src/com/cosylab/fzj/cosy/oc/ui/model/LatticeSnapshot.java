@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.model;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementType;
+
+/**
+ * <code>LatticeSnapshot</code> is an immutable list of all lattice elements of one type as they were at the moment
+ * when the snapshot was taken. A new snapshot with a higher version is published every time elements are added to or
+ * removed from the lattice, so the same snapshot can be shared by any number of readers on any thread and two
+ * snapshots of the same type with equal versions always contain the same elements. The elements themselves are not
+ * copied: their properties keep changing as new values arrive.
+ *
+ * @param <T> the type of the elements
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public final class LatticeSnapshot<T extends LatticeElement> extends AbstractList<T> implements RandomAccess {
+
+    private final LatticeElementType type;
+    private final long version;
+    private final Object[] elements;
+
+    /**
+     * Constructs a new snapshot of the given elements.
+     *
+     * @param type the type of the elements
+     * @param version the version of the snapshot
+     * @param elements the elements contained in the snapshot
+     */
+    public LatticeSnapshot(LatticeElementType type, long version, Collection<? extends T> elements) {
+        this.type = type;
+        this.version = version;
+        this.elements = elements.toArray();
+    }
+
+    /**
+     * @return the type of the elements in this snapshot
+     */
+    public LatticeElementType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the version of this snapshot. The versions increase with every published snapshot.
+     *
+     * @return the version of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractList#get(int)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(int index) {
+        return (T)elements[index];
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+        return elements.length;
+    }
+}
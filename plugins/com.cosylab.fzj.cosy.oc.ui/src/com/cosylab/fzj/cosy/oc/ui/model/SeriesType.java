@@ -33,6 +33,8 @@ public enum SeriesType {
     REFERENCE_VERTICAL_ORBIT(5, "Vertical Reference Orbit"),
     DIFFERENCE_HORIZONTAL_ORBIT(6, "Horizontal Difference Orbit"),
     DIFFERENCE_VERTICAL_ORBIT(7, "Vertical Difference Orbit"),
+    HORIZONTAL_ORBIT_NOISE(8, "Horizontal Orbit Noise"),
+    VERTICAL_ORBIT_NOISE(9, "Vertical Orbit Noise"),
     HORIZONTAL_CORRECTORS_CORRECTION(0, "Horizontal Correctors Correction"),
     VERTICAL_CORRECTORS_CORRECTION(1, "Vertical Correctors Correction"),
     BPM(0, "BPM"),
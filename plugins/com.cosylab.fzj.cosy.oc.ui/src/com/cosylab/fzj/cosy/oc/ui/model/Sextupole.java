@@ -17,7 +17,7 @@
  */
 package com.cosylab.fzj.cosy.oc.ui.model;
 
-import com.cosylab.fzj.cosy.oc.LatticeElementData;
+import com.cosylab.fzj.cosy.oc.lattice.LatticeElementData;
 
 /**
  * <code>Sextupole</code> represents a sextupole magnet.
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * <code>AtomicBitSet</code> is a fixed size set of bits, which can be set concurrently from any number of threads and
+ * drained by a single consumer. Draining clears the bits word by word, so a bit that is set while the set is being
+ * drained is either reported by the current drain or by the next one, but never lost.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class AtomicBitSet {
+
+    private final AtomicLongArray words;
+    private final int size;
+
+    /**
+     * Constructs a new bit set with the given number of bits. All bits are initially cleared.
+     *
+     * @param size the number of bits
+     */
+    public AtomicBitSet(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    /**
+     * Returns the number of bits in this set.
+     *
+     * @return the number of bits
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the bit at the given index.
+     *
+     * @param index the index of the bit
+     */
+    public void set(int index) {
+        final int word = index >>> 6;
+        final long mask = 1L << index;
+        long old;
+        do {
+            old = words.get(word);
+            if ((old & mask) != 0) return;
+        } while (!words.compareAndSet(word,old,old | mask));
+    }
+
+    /**
+     * Returns true if the bit at the given index is set.
+     *
+     * @param index the index of the bit
+     * @return true if the bit is set or false otherwise
+     */
+    public boolean get(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns true if at least one bit is set.
+     *
+     * @return true if any bit is set
+     */
+    public boolean isAnySet() {
+        for (int i = words.length() - 1; i > -1; i--) {
+            if (words.get(i) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Clears all set bits and calls the consumer for each of them in ascending order of their indices.
+     *
+     * @param consumer the consumer that receives the indices of the bits that were set
+     */
+    public void drain(IntConsumer consumer) {
+        for (int i = 0; i < words.length(); i++) {
+            long word = words.getAndSet(i,0L);
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                consumer.accept((i << 6) + bit);
+                word &= word - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.util;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * <code>BoundedTaskExecutor</code> executes blocking tasks (file access, external processes) on an elastic pool of
+ * daemon threads. Every task belongs to a kind and each kind has its own limit of concurrently running tasks; tasks
+ * above the limit wait in the queue of their kind and are executed in submission order. A kind with the limit of 1
+ * therefore executes its tasks strictly one after another, while a slow task of one kind never delays the tasks of
+ * another kind. Threads are created on demand and terminate after they have been idle for a while.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ *
+ * @param <K> the type of the task kinds
+ */
+public class BoundedTaskExecutor<K> {
+
+    private static final long KEEP_ALIVE = 30;
+
+    private class Lane {
+
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger(0);
+        private final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicInteger maxQueued = new AtomicInteger(0);
+        private final AtomicLong completed = new AtomicLong(0);
+        private volatile int limit = 1;
+
+        void submit(Runnable task) {
+            queue.add(task);
+            maxQueued.accumulateAndGet(queued.incrementAndGet(),Math::max);
+            drain();
+        }
+
+        void drain() {
+            while (true) {
+                int r = running.get();
+                if (r >= limit || queue.isEmpty()) return;
+                if (!running.compareAndSet(r,r + 1)) continue;
+                Runnable task = queue.poll();
+                if (task == null) {
+                    running.decrementAndGet();
+                    //another thread took the task; check again, a new task might have arrived in the meantime
+                    continue;
+                }
+                queued.decrementAndGet();
+                try {
+                    pool.execute(() -> run(task));
+                } catch (RejectedExecutionException e) {
+                    running.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+
+        boolean isIdle() {
+            return running.get() == 0 && queue.isEmpty();
+        }
+
+        private void run(Runnable task) {
+            Throwable error = null;
+            try {
+                task.run();
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                completed.incrementAndGet();
+                running.decrementAndGet();
+            }
+            try {
+                afterExecute.accept(task,error);
+            } finally {
+                //the next task has to be started even if the callback failed, otherwise the lane would stall
+                drain();
+                if (shutdown) {
+                    terminateIfIdle();
+                }
+            }
+        }
+    }
+
+    private final Map<K,Lane> lanes = new ConcurrentHashMap<>();
+    private final BiConsumer<Runnable,Throwable> afterExecute;
+    private final ThreadPoolExecutor pool;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Constructs a new executor.
+     *
+     * @param threadName the name prefix of the threads
+     * @param afterExecute called after each task with the task and the exception that it threw (null if none)
+     */
+    public BoundedTaskExecutor(String threadName, BiConsumer<Runnable,Throwable> afterExecute) {
+        this.afterExecute = afterExecute;
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        this.pool = new ThreadPoolExecutor(0,Integer.MAX_VALUE,KEEP_ALIVE,TimeUnit.SECONDS,new SynchronousQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r,threadName + " " + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private Lane lane(K kind) {
+        return lanes.computeIfAbsent(kind,k -> new Lane());
+    }
+
+    /**
+     * Sets the maximum number of tasks of the given kind that may run at the same time. The default limit is 1.
+     *
+     * @param kind the task kind
+     * @param limit the maximum number of concurrently running tasks (at least 1)
+     */
+    public void setLimit(K kind, int limit) {
+        Lane lane = lane(kind);
+        lane.limit = Math.max(1,limit);
+        lane.drain();
+    }
+
+    /**
+     * Executes the task when fewer tasks of the same kind than the limit of the kind are running.
+     *
+     * @param kind the kind of the task
+     * @param task the task to execute
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public void execute(K kind, Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The executor has been shut down.");
+        }
+        lane(kind).submit(task);
+    }
+
+    /**
+     * Stops accepting new tasks. The tasks that have already been submitted are still executed; the threads are
+     * terminated when the last of them has finished.
+     */
+    public void shutdown() {
+        shutdown = true;
+        terminateIfIdle();
+    }
+
+    /**
+     * Waits until all submitted tasks have finished after a shutdown request, or the timeout elapses.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the executor terminated or false if the timeout elapsed before termination
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout,unit);
+    }
+
+    private void terminateIfIdle() {
+        if (lanes.values().stream().allMatch(Lane::isIdle)) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param kind the task kind
+     * @return the number of tasks of the given kind that are waiting to be executed
+     */
+    public int getQueueDepth(K kind) {
+        return lane(kind).queued.get();
+    }
+
+    /**
+     * @param kind the task kind
+     * @return the largest number of tasks of the given kind that were waiting at the same time
+     */
+    public int getMaxQueueDepth(K kind) {
+        return lane(kind).maxQueued.get();
+    }
+
+    /**
+     * @param kind the task kind
+     * @return the number of tasks of the given kind that are currently running
+     */
+    public int getRunningCount(K kind) {
+        return lane(kind).running.get();
+    }
+
+    /**
+     * @param kind the task kind
+     * @return the number of tasks of the given kind that have finished
+     */
+    public long getCompletedCount(K kind) {
+        return lane(kind).completed.get();
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2017 Cosylab d.d.
+ *
+ * Contact Information:
+ *   Cosylab d.d., Ljubljana, Slovenia
+ *   http://www.cosylab.com
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Eclipse Public License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * For more information about the license please refer to the LICENSE
+ * file included in the distribution.
+ */
+package com.cosylab.fzj.cosy.oc.ui.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * <code>PulseUpdateScheduler</code> executes the GUI update task in sync with the JavaFX pulse. Any number of triggers
+ * received from any thread between two pulses are coalesced into a single execution of the task, which is performed on
+ * the UI thread at the beginning of the next pulse (before the scene is laid out and rendered). The task is executed
+ * at most once per minimum interval; if the minimum interval is 0, the task can be executed on every pulse.
+ * <p>
+ * The underlying {@link AnimationTimer} is only running while there are pending triggers, so the scheduler does not
+ * request any pulses when no data is arriving. If a trigger arrives before the minimum interval has elapsed, the timer
+ * is stopped and restarted when the remainder of the interval has elapsed, so no pulses are requested while waiting.
+ * <p>
+ * If an adaptive range is set, the scheduler measures the cost of each update, which is the time from the start of the
+ * task until the end of the pulse in which the task was executed (i.e. including the layout and the render pass
+ * triggered by the task). The minimum interval is then continuously adjusted within the range, so that the updates
+ * occupy at most a fraction of {@value #UI_THREAD_BUDGET} of the UI thread time. Slow displays thus receive fewer
+ * updates, while fast ones are updated at the rate of the floor.
+ *
+ * @author <a href="mailto:jaka.bobnar@cosylab.com">Jaka Bobnar</a>
+ */
+public class PulseUpdateScheduler {
+
+    /**
+     * <code>PulseSource</code> delivers the pulses to the scheduler and executes the scheduler's work on the UI thread.
+     * The default source is driven by the JavaFX pulse.
+     */
+    interface PulseSource {
+
+        /**
+         * Starts delivering the pulses to the scheduler. Called on the UI thread.
+         */
+        void start();
+
+        /**
+         * Stops delivering the pulses to the scheduler. Called on the UI thread.
+         */
+        void stop();
+
+        /**
+         * Executes the runnable on the UI thread after the current pulse (if any). Can be called from any thread.
+         *
+         * @param runnable the runnable to execute
+         */
+        void runLater(Runnable runnable);
+
+        /**
+         * Executes the runnable on the UI thread after the given delay. Called on the UI thread.
+         *
+         * @param runnable the runnable to execute
+         * @param delayNanos the delay in nanoseconds
+         */
+        void runAfter(Runnable runnable, long delayNanos);
+    }
+
+    /**
+     * <code>FXPulseSource</code> delivers the JavaFX pulses through an {@link AnimationTimer}.
+     */
+    private static final class FXPulseSource implements PulseSource {
+
+        //the delayed restarts of all schedulers share a single thread, they only post a runnable to the UI thread
+        private static final ScheduledExecutorService DELAY_EXECUTOR = new ScheduledThreadPoolExecutor(1,r -> {
+            Thread thread = new Thread(r,"Pulse Update Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final AnimationTimer timer;
+
+        FXPulseSource(LongConsumer handler) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    handler.accept(now);
+                }
+            };
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.cosylab.fzj.cosy.oc.ui.util.PulseUpdateScheduler.PulseSource#start()
+         */
+        @Override
+        public void start() {
+            timer.start();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.cosylab.fzj.cosy.oc.ui.util.PulseUpdateScheduler.PulseSource#stop()
+         */
+        @Override
+        public void stop() {
+            timer.stop();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.cosylab.fzj.cosy.oc.ui.util.PulseUpdateScheduler.PulseSource#runLater(java.lang.Runnable)
+         */
+        @Override
+        public void runLater(Runnable runnable) {
+            Platform.runLater(runnable);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see com.cosylab.fzj.cosy.oc.ui.util.PulseUpdateScheduler.PulseSource#runAfter(java.lang.Runnable, long)
+         */
+        @Override
+        public void runAfter(Runnable runnable, long delayNanos) {
+            DELAY_EXECUTOR.schedule(() -> Platform.runLater(runnable),delayNanos,TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** The maximum fraction of the UI thread time that the updates may take in adaptive mode */
+    public static final double UI_THREAD_BUDGET = 0.25;
+    //the weight of the latest measurement in the moving average of the update cost
+    private static final double COST_SMOOTHING = 0.2;
+
+    private final Runnable task;
+    private final PulseSource source;
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    //true if the timer is running, its start has already been requested or it waits for the minimum interval
+    private final AtomicBoolean armed = new AtomicBoolean(false);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean run = false;
+    private volatile long minIntervalNanos;
+    private volatile long floorNanos = -1;
+    private volatile long ceilingNanos = -1;
+    private volatile long averageCostNanos = -1;
+    //only accessed from the UI thread
+    private long lastUpdate;
+    private boolean updated;
+
+    /**
+     * Constructs a new scheduler, which executes the task at most once per given interval.
+     *
+     * @param minIntervalMillis the minimum interval in milliseconds between two consecutive executions of the task
+     * @param task the task to execute on the UI thread
+     */
+    public PulseUpdateScheduler(long minIntervalMillis, Runnable task) {
+        this.task = task;
+        this.source = new FXPulseSource(this::pulse);
+        setMinimumInterval(minIntervalMillis);
+    }
+
+    /**
+     * Constructs a new scheduler, which is driven by the given pulse source.
+     *
+     * @param minIntervalMillis the minimum interval in milliseconds between two consecutive executions of the task
+     * @param task the task to execute on the UI thread
+     * @param source the source that delivers the pulses by calling {@link #pulse(long)}
+     */
+    PulseUpdateScheduler(long minIntervalMillis, Runnable task, PulseSource source) {
+        this.task = task;
+        this.source = source;
+        setMinimumInterval(minIntervalMillis);
+    }
+
+    /**
+     * Sets the minimum interval between two executions of the task. The new interval is applied on the next pulse.
+     *
+     * @param millis the interval in milliseconds (0 means that the task may be executed on every pulse)
+     */
+    public void setMinimumInterval(long millis) {
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0,millis));
+    }
+
+    /**
+     * Enables the adaptive mode, in which the minimum interval is automatically adjusted according to the measured
+     * cost of the updates. If the ceiling is not larger than the floor, the adaptive mode is disabled and the floor is
+     * used as a fixed minimum interval.
+     *
+     * @param floorMillis the smallest allowed interval in milliseconds
+     * @param ceilingMillis the largest allowed interval in milliseconds
+     */
+    public void setAdaptiveRange(long floorMillis, long ceilingMillis) {
+        setMinimumInterval(floorMillis);
+        if (ceilingMillis > floorMillis) {
+            floorNanos = minIntervalNanos;
+            ceilingNanos = TimeUnit.MILLISECONDS.toNanos(ceilingMillis);
+        } else {
+            floorNanos = -1;
+            ceilingNanos = -1;
+        }
+    }
+
+    /**
+     * Returns the moving average of the cost of a single update (the task and the subsequent layout and render pass).
+     *
+     * @return the average update cost in milliseconds or a negative number if nothing has been measured yet
+     */
+    public double getAverageUpdateCost() {
+        long cost = averageCostNanos;
+        return cost < 0 ? -1 : cost / 1e6;
+    }
+
+    /**
+     * Returns the minimum interval between two executions of the task.
+     *
+     * @return the interval in milliseconds
+     */
+    public long getMinimumInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(minIntervalNanos);
+    }
+
+    /**
+     * Starts the scheduler. Triggers received before the scheduler was started are executed at the next pulse.
+     */
+    public void start() {
+        run = true;
+        if (pending.get()) {
+            arm();
+        }
+    }
+
+    /**
+     * Registers a trigger. The task will be executed on one of the following pulses. This method can be called from
+     * any thread.
+     */
+    public void trigger() {
+        pending.set(true);
+        if (run) {
+            arm();
+        }
+    }
+
+    private void arm() {
+        if (armed.compareAndSet(false,true)) {
+            source.runLater(this::startTimer);
+        }
+    }
+
+    private void startTimer() {
+        if (run) {
+            source.start();
+        } else {
+            armed.set(false);
+        }
+    }
+
+    /**
+     * Handles a pulse: executes the task if there is a pending trigger and the minimum interval has elapsed. Called
+     * on the UI thread at the beginning of the pulse.
+     *
+     * @param now the time of the pulse in nanoseconds
+     */
+    void pulse(long now) {
+        if (!run) {
+            source.stop();
+            armed.set(false);
+            return;
+        }
+        if (!pending.get()) {
+            source.stop();
+            armed.set(false);
+            //a trigger might have arrived after the check above, but before the timer was disarmed
+            if (pending.get() && armed.compareAndSet(false,true)) {
+                source.start();
+            }
+            return;
+        }
+        final long remaining = updated ? minIntervalNanos - (now - lastUpdate) : 0;
+        if (remaining > 0) {
+            //keep the trigger pending, but do not request any pulses until the interval has elapsed
+            source.stop();
+            source.runAfter(this::startTimer,remaining);
+            return;
+        }
+        pending.set(false);
+        lastUpdate = now;
+        updated = true;
+        final long start = System.nanoTime();
+        task.run();
+        //runnables posted during a pulse are executed after the pulse (layout and render) has completed
+        source.runLater(() -> adapt(System.nanoTime() - start));
+    }
+
+    /**
+     * Adds the measured cost of an update to the average cost and, in adaptive mode, adjusts the minimum interval, so
+     * that the updates stay within the UI thread budget, but the interval stays between the floor and the ceiling.
+     *
+     * @param cost the cost of the update in nanoseconds
+     */
+    void adapt(long cost) {
+        long average = averageCostNanos;
+        average = average < 0 ? cost : (long)(COST_SMOOTHING * cost + (1 - COST_SMOOTHING) * average);
+        averageCostNanos = average;
+        long floor = floorNanos;
+        long ceiling = ceilingNanos;
+        if (floor >= 0 && ceiling > floor) {
+            long interval = (long)(average / UI_THREAD_BUDGET);
+            minIntervalNanos = Math.min(ceiling,Math.max(floor,interval));
+        }
+    }
+
+    /**
+     * Stops the scheduler. Pending triggers are discarded. The method does not wait for the scheduler to stop.
+     */
+    public void dispose() {
+        run = false;
+        source.runLater(() -> {
+            source.stop();
+            armed.set(false);
+            stopped.countDown();
+        });
+    }
+
+    /**
+     * Waits until the scheduler is stopped after {@link #dispose()} has been called. When this method returns true, the
+     * task is no longer being executed and will not be executed anymore.
+     *
+     * @param millis the maximum time to wait in milliseconds
+     * @return true if the scheduler was stopped or false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitStop(long millis) throws InterruptedException {
+        return stopped.await(millis,TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns true if the scheduler has been started and not yet disposed.
+     *
+     * @return true if running or false otherwise
+     */
+    public boolean isRunning() {
+        return run;
+    }
+}